@@ -0,0 +1,58 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.ArrayCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.InvalidDataException;
+
+@Test(groups = {"unit"})
+public class ArrayCellTest {
+  @Test
+  public void cellsAreKeptInPositionOrder() throws InvalidDataException {
+    ArrayCell arrayCell = new ArrayCell("t.c.1");
+    arrayCell.put(new SimpleCell("t.c.1.2.2", "C"), 2, 2);
+    arrayCell.put(new SimpleCell("t.c.1.1.1", "A"), 1, 1);
+    arrayCell.put(new SimpleCell("t.c.1.2.1", "B"), 2, 1);
+    arrayCell.put(new SimpleCell("t.c.1.1.1", "a"), 1, 1);
+
+    List<String> visited = new ArrayList<>();
+    for (Pair<List<Integer>, Cell> pair : arrayCell) {
+      visited.add(pair.getLeft() + ":" + ((SimpleCell) pair.getRight()).getSimpleData());
+    }
+    assertThat(visited, contains("[1, 1]:a", "[2, 1]:B", "[2, 2]:C"));
+    assertThat(arrayCell.size(), equalTo(3));
+    assertThat(arrayCell.getPositionIndex(2, 1), equalTo(2));
+    assertThat(arrayCell.calculateDimensions(), equalTo(2));
+    assertThat(arrayCell.getCardinality(), equalTo(2));
+
+    Object[] array = arrayCell.toArray(cell -> ((SimpleCell) cell).getSimpleData(), String.class);
+    assertThat(array, equalTo(new String[][] {{"a", null}, {"B", "C"}}));
+  }
+
+  @Test
+  public void mixedDimensionsAreNotCoherent() {
+    ArrayCell arrayCell = new ArrayCell("t.c.1");
+    assertThat(arrayCell.calculateDimensions(), equalTo(0));
+    arrayCell.put(new SimpleCell("t.c.1.3", "A"), 3);
+    arrayCell.put(new SimpleCell("t.c.1.1.1", "B"), 1, 1);
+    assertThat(arrayCell.calculateDimensions(), equalTo(-1));
+    assertThat(arrayCell.getCardinality(), equalTo(3));
+  }
+}
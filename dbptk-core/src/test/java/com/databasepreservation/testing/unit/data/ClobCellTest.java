@@ -0,0 +1,110 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.io.providers.InputStreamProvider;
+import com.databasepreservation.model.data.CellIdPrefix;
+import com.databasepreservation.model.data.ClobCell;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+
+@Test(groups = {"unit"})
+public class ClobCellTest {
+  @Test
+  public void smallTextsStayStrings() throws ModuleException {
+    SimpleCell cell = ClobCell.copyOf(new CellIdPrefix("t.c"), 1, new StringReader("ação"));
+    assertThat(cell, not(instanceOf(ClobCell.class)));
+    assertThat(cell.getId(), equalTo("t.c.1"));
+    assertThat(cell.getSimpleData(), equalTo("ação"));
+    assertThat(cell.getBytesSize(), equalTo(6L));
+  }
+
+  @Test
+  public void largeTextsAreStreamed() throws ModuleException {
+    String text = "ação €".repeat(20_000);
+    SimpleCell cell = ClobCell.copyOf(new CellIdPrefix("t.c"), 2, new StringReader(text));
+    assertThat(cell, instanceOf(ClobCell.class));
+    assertThat(cell.getBytesSize(), equalTo((long) text.getBytes(StandardCharsets.UTF_8).length));
+    assertThat(cell.getSimpleData(), equalTo(text));
+    ((ClobCell) cell).cleanResources();
+  }
+
+  /**
+   * Provides the bytes of a text, counting the streams created, until it fails
+   */
+  private static class CountingProvider implements InputStreamProvider {
+    private final byte[] bytes;
+    private int streams = 0;
+    private boolean failing = false;
+
+    CountingProvider(String text) {
+      this.bytes = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public InputStream createInputStream() throws ModuleException {
+      streams++;
+      if (failing) {
+        return new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("the LOB is gone");
+          }
+        };
+      }
+      return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public void cleanResources() {
+      // nothing to free
+    }
+
+    @Override
+    public long getSize() {
+      return bytes.length;
+    }
+  }
+
+  @Test
+  public void theContentIsReadOnce() throws ModuleException {
+    CountingProvider provider = new CountingProvider("ação");
+    ClobCell cell = new ClobCell("t.c.3", provider);
+    assertThat(cell.getContent(), equalTo("ação"));
+    assertThat(cell.getSimpleData(), equalTo("ação"));
+    assertThat(cell.getContent(), equalTo("ação"));
+    assertThat(provider.streams, equalTo(1));
+  }
+
+  @Test
+  public void readFailuresAreModuleExceptions() {
+    CountingProvider provider = new CountingProvider("ação");
+    provider.failing = true;
+    ClobCell cell = new ClobCell("t.c.4", provider);
+    try {
+      cell.getContent();
+      throw new AssertionError("the content should not have been read");
+    } catch (ModuleException e) {
+      assertThat(e.getMessage(), equalTo("Could not read the content of cell t.c.4"));
+      assertThat(e.getCause(), instanceOf(IOException.class));
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.BooleanCell;
+import com.databasepreservation.model.data.CellIdPrefix;
+import com.databasepreservation.model.data.DateCell;
+import com.databasepreservation.model.data.DecimalCell;
+import com.databasepreservation.model.data.LongCell;
+import com.databasepreservation.model.data.TimestampCell;
+import com.databasepreservation.utils.JodaUtils;
+
+@Test(groups = {"unit"})
+public class PrimitiveCellTest {
+  @Test
+  public void numbersAndBooleans() {
+    assertThat(new LongCell("t.c.1", -42L).getSimpleData(), equalTo("-42"));
+    assertThat(new DecimalCell("t.c.1", new BigDecimal("1.50")).getSimpleData(), equalTo("1.50"));
+    assertThat(new DecimalCell("t.c.1", new BigDecimal("1E+3")).getSimpleData(), equalTo("1000"));
+    assertThat(new BooleanCell("t.c.1", true).getSimpleData(), equalTo("true"));
+    assertThat(new BooleanCell("t.c.1", false).getSimpleData(), equalTo("false"));
+  }
+
+  @Test
+  public void datesAreFormattedAsBefore() {
+    Date date = Date.valueOf("1999-12-31");
+    assertThat(new DateCell("t.c.1", date.toLocalDate()).getSimpleData(), equalTo(date.toString()));
+
+    Timestamp timestamp = Timestamp.valueOf("2001-02-03 04:05:06.123456789");
+    TimestampCell cell = new TimestampCell("t.c.1", timestamp);
+    assertThat(cell.getSimpleData(), equalTo(JodaUtils.getDateTime(timestamp)));
+    assertThat(cell.getInstant(), equalTo(timestamp.toInstant()));
+  }
+
+  @Test
+  public void datesBeforeTheGregorianCalendarAreFormattedAsBefore() {
+    Date date = Date.valueOf("1500-03-01");
+    assertThat(new DateCell("t.c.1", date.toLocalDate()).getSimpleData(), equalTo("1500-03-01"));
+    assertThat(Date.valueOf(new DateCell("t.c.1", date.toLocalDate()).getDate()), equalTo(date));
+
+    // 1500-03-01 in the Julian calendar, 1500-03-11 in the ISO calendar
+    GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+    calendar.clear();
+    calendar.set(1500, Calendar.MARCH, 1, 10, 20, 30);
+    Timestamp timestamp = new Timestamp(calendar.getTimeInMillis());
+    timestamp.setNanos(500_000_000);
+    TimestampCell cell = new TimestampCell("t.c.1", timestamp);
+    assertThat(cell.getSimpleData(), equalTo("1500-03-01T10:20:30.500000Z"));
+    assertThat(cell.getInstant(), equalTo(Instant.parse("1500-03-01T10:20:30.5Z")));
+  }
+
+  @Test
+  public void datesBeforeChristAreFormattedAsBefore() {
+    GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+    calendar.clear();
+    calendar.set(Calendar.ERA, GregorianCalendar.BC);
+    calendar.set(10, Calendar.JANUARY, 15, 12, 0);
+
+    Date date = new Date(calendar.getTimeInMillis());
+    assertThat(new DateCell("t.c.1", date.toLocalDate()).getSimpleData(), equalTo(date.toString()));
+
+    TimestampCell cell = new TimestampCell("t.c.1", new Timestamp(calendar.getTimeInMillis()));
+    assertThat(cell.getSimpleData(), equalTo("-0010-01-15T12:00:00.000000Z"));
+    assertThat(cell.getInstant(), equalTo(Instant.parse(cell.getSimpleData())));
+  }
+
+  @Test
+  public void lazyIds() {
+    CellIdPrefix prefix = new CellIdPrefix("table.column");
+    LongCell cell = new LongCell(prefix, 7, 1L);
+    assertThat(cell.getId(), equalTo("table.column.7"));
+    cell.reindex(7, 8);
+    assertThat(cell.getId(), equalTo("table.column.8"));
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.filters;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.SinkModule;
+import com.databasepreservation.model.modules.filters.AsyncHandOffFilter;
+import com.databasepreservation.model.modules.filters.DatabaseFilterModule;
+
+@Test(groups = {"unit"})
+public class AsyncHandOffFilterTest {
+  @Test
+  public void callsAreForwardedInOrderFromAnotherThread() throws ModuleException {
+    RecordingSink sink = new RecordingSink(-1);
+    DatabaseFilterModule filter = new AsyncHandOffFilter(3, 1024 * 1024, 2).migrateDatabaseTo(sink);
+
+    filter.initDatabase();
+    filter.handleDataOpenSchema("s");
+    filter.handleDataOpenTable("s.t");
+    for (int i = 1; i <= 10; i++) {
+      filter.handleDataRow(row(i));
+    }
+    filter.handleDataCloseTable("s.t");
+    filter.handleDataCloseSchema("s");
+    filter.finishDatabase();
+
+    assertThat(sink.calls, contains("init", "open s", "open s.t", "row 1", "row 2", "row 3", "row 4", "row 5",
+      "row 6", "row 7", "row 8", "row 9", "row 10", "close s.t", "close s", "finish"));
+    assertThat(sink.threads.size(), equalTo(1));
+    assertThat(sink.threads.iterator().next(), not(equalTo(Thread.currentThread().getName())));
+  }
+
+  @Test
+  public void reusedRowsAreCopied() throws ModuleException {
+    RecordingSink sink = new RecordingSink(-1);
+    DatabaseFilterModule filter = new AsyncHandOffFilter(3, 1024 * 1024, 2).migrateDatabaseTo(sink);
+    assertThat(filter.retainsRows(), equalTo(false));
+
+    filter.initDatabase();
+    filter.handleDataOpenSchema("s");
+    filter.handleDataOpenTable("s.t");
+    Row reused = new Row(0, new ArrayList<>());
+    for (int i = 1; i <= 5; i++) {
+      reused.setIndex(i);
+      reused.getCells().clear();
+      reused.getCells().add(new SimpleCell("s.t.c." + i, Integer.toString(i)));
+      filter.handleDataRow(reused);
+    }
+    filter.handleDataCloseTable("s.t");
+    filter.handleDataCloseSchema("s");
+    filter.finishDatabase();
+
+    assertThat(sink.calls, contains("init", "open s", "open s.t", "row 1", "row 2", "row 3", "row 4", "row 5",
+      "close s.t", "close s", "finish"));
+    assertThat(sink.values, contains("1", "2", "3", "4", "5"));
+  }
+
+  @Test(expectedExceptions = ModuleException.class)
+  public void exportFailureIsRethrownToTheImport() throws ModuleException {
+    AsyncHandOffFilter handOff = new AsyncHandOffFilter(3, 1024 * 1024, 2);
+    DatabaseFilterModule filter = handOff.migrateDatabaseTo(new RecordingSink(5));
+    try {
+      filter.initDatabase();
+      filter.handleDataOpenSchema("s");
+      filter.handleDataOpenTable("s.t");
+      for (int i = 1; i <= 1000; i++) {
+        filter.handleDataRow(row(i));
+      }
+      filter.handleDataCloseTable("s.t");
+      filter.handleDataCloseSchema("s");
+      filter.finishDatabase();
+    } finally {
+      handOff.close();
+    }
+  }
+
+  private static Row row(int index) {
+    List<Cell> cells = new ArrayList<>();
+    cells.add(new SimpleCell("s.t.c." + index, Integer.toString(index)));
+    return new Row(index, cells);
+  }
+
+  private static class RecordingSink extends SinkModule {
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> values = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+    private final long failingRow;
+
+    RecordingSink(long failingRow) {
+      this.failingRow = failingRow;
+    }
+
+    private void record(String call) {
+      calls.add(call);
+      threads.add(Thread.currentThread().getName());
+    }
+
+    @Override
+    public void initDatabase() {
+      record("init");
+    }
+
+    @Override
+    public void handleDataOpenSchema(String schemaName) {
+      record("open " + schemaName);
+    }
+
+    @Override
+    public void handleDataOpenTable(String tableId) {
+      record("open " + tableId);
+    }
+
+    @Override
+    public void handleDataRow(Row row) {
+      if (row.getIndex() == failingRow) {
+        throw new IllegalStateException("failing on purpose");
+      }
+      record("row " + row.getIndex());
+      values.add(((SimpleCell) row.getCells().get(0)).getSimpleData());
+    }
+
+    @Override
+    public void handleDataCloseTable(String tableId) {
+      record("close " + tableId);
+    }
+
+    @Override
+    public void handleDataCloseSchema(String schemaName) {
+      record("close " + schemaName);
+    }
+
+    @Override
+    public void finishDatabase() {
+      record("finish");
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.io;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.io.providers.InMemoryInputStreamProvider;
+import com.databasepreservation.common.io.providers.InputStreamProvider;
+import com.databasepreservation.common.io.providers.SpillArena;
+import com.databasepreservation.common.io.providers.SpilledInputStreamProvider;
+import com.databasepreservation.model.exception.ModuleException;
+
+@Test(groups = {"unit"})
+public class SpillArenaTest {
+  @Test
+  public void spilledLobsAreReadBackAndSegmentsDeleted() throws IOException, ModuleException {
+    Path parent = Files.createTempDirectory("dbptk-spill-test");
+    SpillArena arena = new SpillArena(parent, 10);
+
+    SpilledInputStreamProvider first = arena.spill(stream("0123456"));
+    SpilledInputStreamProvider second = arena.spill(stream("abcdef"));
+    SpilledInputStreamProvider third = arena.spill(stream(""));
+    SpilledInputStreamProvider fourth = arena.spill(stream("xyz"));
+
+    assertThat(read(first), equalTo("0123456"));
+    assertThat(read(second), equalTo("abcdef"));
+    assertThat(read(third), equalTo(""));
+    assertThat(read(fourth), equalTo("xyz"));
+    assertThat(second.getSize(), equalTo(6L));
+    assertThat(arena.getSpilledBytes(), equalTo(16L));
+    assertThat(arena.getSpilledCount(), equalTo(4L));
+
+    // the first segment is full, so it is deleted when its LOBs are cleaned
+    assertThat(countFiles(arena.getDirectory()), equalTo(2L));
+    first.cleanResources();
+    second.cleanResources();
+    assertThat(countFiles(arena.getDirectory()), equalTo(1L));
+
+    arena.close();
+    assertThat(Files.exists(arena.getDirectory()), equalTo(false));
+    Files.delete(parent);
+  }
+
+  @Test
+  public void smallContentsAreKeptInMemory() throws IOException, ModuleException {
+    InputStreamProvider small = InMemoryInputStreamProvider.copyOf(stream("small"), 5);
+    assertThat(small, instanceOf(InMemoryInputStreamProvider.class));
+    assertThat(read(small), equalTo("small"));
+
+    SpillArena.acquire();
+    try {
+      InputStreamProvider large = InMemoryInputStreamProvider.copyOf(stream("larger"), 5);
+      assertThat(large, instanceOf(SpilledInputStreamProvider.class));
+      assertThat(read(large), equalTo("larger"));
+    } finally {
+      SpillArena.release();
+    }
+  }
+
+  private static InputStream stream(String contents) {
+    return new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(InputStreamProvider provider) throws IOException, ModuleException {
+    try (InputStream inputStream = provider.createInputStream()) {
+      return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static long countFiles(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+}
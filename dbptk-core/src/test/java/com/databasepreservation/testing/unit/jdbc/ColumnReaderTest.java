@@ -0,0 +1,123 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.SinkModule;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.modules.jdbc.in.ColumnReader;
+import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+
+/**
+ * Reads a table with columns of several types from an in-memory HSQLDB
+ * database, checking the cells made by the column readers of the table.
+ */
+@Test(groups = {"unit"})
+public class ColumnReaderTest {
+  private static final String URL = "jdbc:hsqldb:mem:columnreaders;shutdown=true";
+
+  /**
+   * The generic JDBC module, counting the column readers it creates
+   */
+  private static class CountingImportModule extends JDBCImportModule {
+    private final List<String> readers = new ArrayList<>();
+
+    CountingImportModule() {
+      super("org.hsqldb.jdbc.JDBCDriver", URL + ";user=SA");
+    }
+
+    @Override
+    protected ColumnReader createColumnReader(TableStructure table, ColumnStructure column, int columnIndex) {
+      readers.add(column.getName() + ":" + columnIndex);
+      return super.createColumnReader(table, column, columnIndex);
+    }
+  }
+
+  /**
+   * Describes each cell when it is received, as the reader may reuse the rows
+   */
+  private static class DescribingSink extends SinkModule {
+    private final List<String> rows = new ArrayList<>();
+
+    @Override
+    public void handleDataRow(Row row) {
+      StringJoiner description = new StringJoiner(" | ");
+      for (Cell cell : row.getCells()) {
+        description.add(describe(cell));
+      }
+      rows.add(description.toString());
+      super.handleDataRow(row);
+    }
+
+    private static String describe(Cell cell) {
+      String value = "";
+      if (cell instanceof SimpleCell simpleCell) {
+        value = simpleCell.getSimpleData();
+      } else if (cell instanceof BinaryCell binaryCell) {
+        try (InputStream in = binaryCell.createInputStream()) {
+          value = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (ModuleException | IOException e) {
+          value = e.getMessage();
+        }
+      }
+      return cell.getClass().getSimpleName() + " " + cell.getId() + " " + value;
+    }
+  }
+
+  @Test
+  public void cellsDependOnTheColumnTypes() throws SQLException, ModuleException {
+    try (Connection connection = DriverManager.getConnection(URL, "SA", "")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE T (ID NUMERIC(9, 0) PRIMARY KEY, PRICE DECIMAL(10, 2), RATIO DOUBLE, "
+          + "ACTIVE BOOLEAN, BORN DATE, NAME VARCHAR(20), NOTES CLOB, DATA BLOB)");
+        statement.execute("INSERT INTO T VALUES (1, 12.50, 0.5, TRUE, '2020-02-29', 'Ann', 'some notes', "
+          + "X'6C6F62')");
+        statement.execute("INSERT INTO T VALUES (2, NULL, NULL, NULL, NULL, NULL, NULL, NULL)");
+      }
+
+      DescribingSink sink = new DescribingSink();
+      CountingImportModule importModule = new CountingImportModule();
+      importModule.setOnceReporter(new NoOpReporter());
+      importModule.migrateDatabaseTo(sink);
+
+      assertThat(sink.rows, equalTo(Arrays.asList(
+        "LongCell T.ID.1 1 | DecimalCell T.PRICE.1 12.50 | SimpleCell T.RATIO.1 0.5E0 | BooleanCell T.ACTIVE.1 true"
+          + " | DateCell T.BORN.1 2020-02-29 | SimpleCell T.NAME.1 Ann | SimpleCell T.NOTES.1 some notes"
+          + " | BinaryCell T.DATA.1 lob",
+        "LongCell T.ID.2 2 | NullCell T.PRICE.2  | NullCell T.RATIO.2  | NullCell T.ACTIVE.2  | NullCell T.BORN.2 "
+          + " | NullCell T.NAME.2  | NullCell T.NOTES.2  | NullCell T.DATA.2 ")));
+
+      // built once for the table, reading the columns by index
+      assertThat(importModule.readers, equalTo(Arrays.asList("ID:1", "PRICE:2", "RATIO:3", "ACTIVE:4", "BORN:5",
+        "NAME:6", "NOTES:7", "DATA:8")));
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.rowset.serial.SerialBlob;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.io.providers.SpilledInputStreamProvider;
+import com.databasepreservation.model.data.BinaryCell;
+
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeBinary;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
+import com.databasepreservation.model.structure.type.Type;
+import com.databasepreservation.modules.jdbc.in.FetchSizeController;
+
+@Test(groups = {"unit"})
+public class FetchSizeControllerTest {
+  private static final long BUDGET = 1024 * 1024;
+
+  @Test
+  public void initialFetchSizeDependsOnTheColumnTypes() {
+    FetchSizeController narrow = new FetchSizeController(
+      table(new SimpleTypeNumericExact(10, 0), new SimpleTypeNumericExact(10, 0)), BUDGET, 5000);
+    assertThat(narrow.getFetchSize(), equalTo(5000));
+
+    SimpleTypeBinary blob = new SimpleTypeBinary();
+    blob.setSql99TypeName("BINARY LARGE OBJECT");
+    FetchSizeController wide = new FetchSizeController(table(new SimpleTypeNumericExact(10, 0), blob), BUDGET,
+      5000);
+    assertThat(wide.getFetchSize(), equalTo((int) (BUDGET / wide.getEstimatedRowSize())));
+    assertThat(wide.getFetchSize(), equalTo(15));
+  }
+
+  @Test
+  public void fetchSizeFollowsTheMeasuredRows() {
+    FetchSizeController controller = new FetchSizeController(table(new SimpleTypeString(10, true)), BUDGET, 10000);
+    int[] fetchSize = {controller.getFetchSize()};
+    ResultSet resultSet = resultSet(fetchSize);
+
+    // rows much bigger than estimated
+    String big = "x".repeat(16 * 1024);
+    for (int i = 0; i < 10000 && !controller.wasAdjusted(); i++) {
+      controller.rowRead(resultSet, row(i, big));
+    }
+    assertThat(fetchSize[0], equalTo(controller.getFetchSize()));
+    assertThat(controller.getFetchSize(), equalTo((int) (BUDGET / controller.getAverageRowSize())));
+
+    // rows much smaller, grows at most twice each time
+    int shrunk = controller.getFetchSize();
+    for (int i = 0; i < 64; i++) {
+      controller.rowRead(resultSet, row(i, "x"));
+    }
+    assertThat(controller.getFetchSize(), equalTo(2 * shrunk));
+
+    // after a failure, it does not grow again
+    controller.limitTo(10);
+    fetchSize[0] = 10;
+    for (int i = 0; i < 1000; i++) {
+      controller.rowRead(resultSet, row(i, "x"));
+    }
+    assertThat(fetchSize[0], equalTo(10));
+  }
+
+  @Test
+  public void resultSetsControlledElsewhereAreLeftAlone() {
+    FetchSizeController controller = new FetchSizeController(table(new SimpleTypeString(10, true)), BUDGET, 10000);
+    int[] fetchSize = {Integer.MIN_VALUE};
+    ResultSet resultSet = resultSet(fetchSize);
+    String big = "x".repeat(16 * 1024);
+    for (int i = 0; i < 20000; i++) {
+      controller.rowRead(resultSet, row(i, big));
+    }
+    assertThat(fetchSize[0], equalTo(Integer.MIN_VALUE));
+  }
+
+  @Test
+  public void spilledLobsAreMeasured() throws ModuleException, SQLException {
+    FetchSizeController controller = new FetchSizeController(table(blob()), BUDGET, 5000);
+    int[] fetchSize = {controller.getFetchSize()};
+    ResultSet resultSet = resultSet(fetchSize);
+
+    // LOBs bigger than the in-memory threshold are spilled
+    BinaryCell spilled = new BinaryCell("s.t.c0.1", new ByteArrayInputStream(new byte[256 * 1024]));
+    assertThat(spilled.getInputStreamProvider() instanceof SpilledInputStreamProvider, equalTo(true));
+    try {
+      for (int i = 0; i < 64; i++) {
+        controller.rowRead(resultSet, new Row(i, new ArrayList<>(List.of(spilled))));
+      }
+    } finally {
+      spilled.cleanResources();
+    }
+    assertThat(controller.getAverageRowSize() > 256 * 1024, equalTo(true));
+    assertThat(fetchSize[0], equalTo(3));
+  }
+
+  @Test
+  public void lobTablesDoNotGrow() throws SQLException {
+    FetchSizeController controller = new FetchSizeController(table(blob()), BUDGET, 5000);
+    int initial = controller.getFetchSize();
+    int[] fetchSize = {initial};
+    ResultSet resultSet = resultSet(fetchSize);
+
+    // LOBs read lazily from the source can not be measured
+    for (int i = 0; i < 1000; i++) {
+      Cell lob = new BinaryCell("s.t.c0." + i, new SerialBlob(new byte[1024 * 1024]));
+      controller.rowRead(resultSet, new Row(i, new ArrayList<>(List.of(lob))));
+    }
+    assertThat(fetchSize[0], equalTo(initial));
+    assertThat(controller.wasAdjusted(), equalTo(false));
+  }
+
+  private static SimpleTypeBinary blob() {
+    SimpleTypeBinary blob = new SimpleTypeBinary();
+    blob.setSql99TypeName("BINARY LARGE OBJECT");
+    return blob;
+  }
+
+  private static TableStructure table(Type... types) {
+    TableStructure table = new TableStructure();
+    table.setId("s.t");
+    table.setName("t");
+    List<ColumnStructure> columns = new ArrayList<>();
+    for (int i = 0; i < types.length; i++) {
+      columns.add(new ColumnStructure("s.t.c" + i, "c" + i, types[i], true, null, null, false));
+    }
+    table.setColumns(columns);
+    return table;
+  }
+
+  private static Row row(long index, String value) {
+    List<Cell> cells = new ArrayList<>();
+    cells.add(new SimpleCell("s.t.c0." + index, value));
+    return new Row(index, cells);
+  }
+
+  private static ResultSet resultSet(int[] fetchSize) {
+    return (ResultSet) Proxy.newProxyInstance(FetchSizeControllerTest.class.getClassLoader(),
+      new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+        if (method.getName().equals("getFetchSize")) {
+          return fetchSize[0];
+        } else if (method.getName().equals("setFetchSize")) {
+          fetchSize[0] = (Integer) args[0];
+          return null;
+        }
+        throw new UnsupportedOperationException(method.getName());
+      });
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+import com.databasepreservation.modules.jdbc.in.KeyRange;
+
+/**
+ * Splits the keys of a column in ranges to be read by parallel workers.
+ */
+@Test(groups = {"unit"})
+public class KeyRangeTest {
+  private static final String URL = "jdbc:hsqldb:mem:keyrange";
+
+  /**
+   * The generic JDBC module, splitting tables on demand
+   */
+  private static class SplittingImportModule extends JDBCImportModule {
+    SplittingImportModule() {
+      super("org.hsqldb.jdbc.JDBCDriver", URL + ";user=SA");
+      setOnceReporter(new NoOpReporter());
+    }
+
+    List<KeyRange> split(String tableName) throws ModuleException {
+      TableStructure table = getDatabaseStructure().getSchemaByName("PUBLIC").getTableByName(tableName);
+      return splitTable(table);
+    }
+  }
+
+  /**
+   * @return the bounds of the ranges, as "[lower,upper)" or "null"
+   */
+  private static List<String> bounds(List<KeyRange> ranges) {
+    List<String> bounds = new ArrayList<>();
+    for (KeyRange range : ranges) {
+      assertThat(range.getColumn(), equalTo("ID"));
+      bounds.add(range.isNullKeys() ? "null" : "[" + range.getLowerBound() + "," + range.getUpperBound() + ")");
+    }
+    return bounds;
+  }
+
+  @Test
+  public void keysAreSplitInRangesOfTheSameWidth() {
+    assertThat(bounds(KeyRange.split("ID", 1, 100, 4, false)),
+      equalTo(Arrays.asList("[null,26)", "[26,51)", "[51,76)", "[76,null)")));
+  }
+
+  @Test
+  public void aSingleKeyIsNotSplit() {
+    assertThat(KeyRange.split("ID", 7, 7, 8, false), empty());
+    assertThat(KeyRange.split("ID", 7, 7, 8, true), empty());
+    assertThat(KeyRange.split("ID", 1, 100, 1, false), empty());
+  }
+
+  @Test
+  public void thereIsAtMostOneRangePerKey() {
+    assertThat(bounds(KeyRange.split("ID", 7, 8, 8, false)), equalTo(Arrays.asList("[null,8)", "[8,null)")));
+  }
+
+  @Test
+  public void boundsAtTheLimitsOfTheColumnDoNotOverflow() {
+    assertThat(bounds(KeyRange.split("ID", Long.MIN_VALUE, Long.MAX_VALUE, 4, false)),
+      equalTo(Arrays.asList("[null," + (Long.MIN_VALUE / 2) + ")", "[" + (Long.MIN_VALUE / 2) + ",0)",
+        "[0," + (Long.MAX_VALUE / 2 + 1) + ")", "[" + (Long.MAX_VALUE / 2 + 1) + ",null)")));
+    assertThat(bounds(KeyRange.split("ID", Long.MAX_VALUE - 2, Long.MAX_VALUE, 3, false)),
+      equalTo(Arrays.asList("[null," + (Long.MAX_VALUE - 1) + ")",
+        "[" + (Long.MAX_VALUE - 1) + "," + Long.MAX_VALUE + ")", "[" + Long.MAX_VALUE + ",null)")));
+  }
+
+  @Test
+  public void skewedKeysAreSplitByValue() {
+    // the ranges have the same width, not the same number of rows
+    assertThat(bounds(KeyRange.split("ID", -1_000_000, 10, 2, false)),
+      equalTo(Arrays.asList("[null,-499995)", "[-499995,null)")));
+  }
+
+  @Test
+  public void nullKeysAreTheLastRange() {
+    assertThat(bounds(KeyRange.split("ID", 1, 100, 2, true)),
+      equalTo(Arrays.asList("[null,51)", "[51,null)", "null")));
+  }
+
+  @Test
+  public void reversedBoundsAreNotSplit() {
+    assertThat(KeyRange.split("ID", 10, 1, 4, false), empty());
+  }
+
+  @Test
+  public void emptyTablesAreNotSplit() throws SQLException, ModuleException {
+    try (Connection connection = DriverManager.getConnection(URL, "SA", "")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE EMPTY (ID BIGINT PRIMARY KEY)");
+      }
+      SplittingImportModule importModule = new SplittingImportModule();
+      assertThat(importModule.split("EMPTY"), empty());
+      importModule.closeConnection();
+
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("SHUTDOWN");
+      }
+    }
+  }
+}
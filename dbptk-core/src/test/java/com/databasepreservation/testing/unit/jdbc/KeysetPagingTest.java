@@ -0,0 +1,143 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+import com.databasepreservation.modules.jdbc.in.KeyRange;
+
+/**
+ * Reads tables of an in-memory HSQLDB database in pages of consecutive keys.
+ */
+@Test(groups = {"unit"})
+public class KeysetPagingTest {
+  private static final String URL = "jdbc:hsqldb:mem:keysetpaging";
+
+  private Connection connection;
+  private PagingImportModule importModule;
+
+  /**
+   * The generic JDBC module, reading the pages of a table on demand
+   */
+  private static class PagingImportModule extends JDBCImportModule {
+    private int queries = 0;
+
+    PagingImportModule() {
+      super("org.hsqldb.jdbc.JDBCDriver", URL + ";user=SA");
+      setOnceReporter(new NoOpReporter());
+    }
+
+    List<Long> read(String tableName, KeyRange range, int pageRows) throws ModuleException {
+      TableStructure table = getDatabaseStructure().getSchemaByName("PUBLIC").getTableByName(tableName);
+      List<Long> keys = new ArrayList<>();
+      queries = 0;
+      long rows = extractTablePages(table, range, table.getColumnByName("ID"), pageRows,
+        row -> keys.add(Long.valueOf(((SimpleCell) row.getCells().get(0)).getSimpleData())), new HashMap<>());
+      assertThat(rows, equalTo((long) keys.size()));
+      return keys;
+    }
+
+    @Override
+    protected ResultSet getPageRawData(String query) throws SQLException, ModuleException {
+      queries++;
+      return super.getPageRawData(query);
+    }
+  }
+
+  @BeforeClass
+  public void createTables() throws SQLException {
+    connection = DriverManager.getConnection(URL, "SA", "");
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE GAPS (ID BIGINT PRIMARY KEY, NAME VARCHAR(10))");
+      for (long id : new long[] {89, 1, 2, 3, 5, 8, 13, 21, 34, 55}) {
+        statement.execute("INSERT INTO GAPS VALUES (" + id + ", 'row " + id + "')");
+      }
+      statement.execute("CREATE TABLE FULL_PAGES (ID INTEGER PRIMARY KEY)");
+      for (int id = 1; id <= 9; id++) {
+        statement.execute("INSERT INTO FULL_PAGES VALUES (" + id + ")");
+      }
+      statement.execute("CREATE TABLE EXTREMES (ID BIGINT PRIMARY KEY)");
+      statement.execute("INSERT INTO EXTREMES VALUES (" + Long.MIN_VALUE + "), (0), (" + Long.MAX_VALUE + ")");
+    }
+    importModule = new PagingImportModule();
+  }
+
+  @AfterClass
+  public void dropTables() throws SQLException, ModuleException {
+    importModule.closeConnection();
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("SHUTDOWN");
+    }
+    connection.close();
+  }
+
+  @Test
+  public void allRowsAreReadInKeyOrder() throws ModuleException {
+    assertThat(importModule.read("GAPS", null, 3),
+      equalTo(Arrays.asList(1L, 2L, 3L, 5L, 8L, 13L, 21L, 34L, 55L, 89L)));
+    assertThat(importModule.queries, equalTo(4));
+  }
+
+  @Test
+  public void aLastFullPageIsFollowedByAnEmptyOne() throws ModuleException {
+    assertThat(importModule.read("FULL_PAGES", null, 3), equalTo(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L)));
+    assertThat(importModule.queries, equalTo(4));
+  }
+
+  @Test
+  public void onlyTheRowsOfTheRangeAreRead() throws ModuleException {
+    assertThat(importModule.read("GAPS", KeyRange.between("ID", 3L, 34L), 2),
+      equalTo(Arrays.asList(3L, 5L, 8L, 13L, 21L)));
+    assertThat(importModule.read("GAPS", KeyRange.between("ID", null, 4L), 3), equalTo(Arrays.asList(1L, 2L, 3L)));
+    // the page ending at the last key of the range is the last one
+    assertThat(importModule.queries, equalTo(1));
+    assertThat(importModule.read("GAPS", KeyRange.between("ID", 55L, null), 1), equalTo(Arrays.asList(55L, 89L)));
+  }
+
+  @Test
+  public void theLargestKeyEndsTheLastPage() throws ModuleException {
+    assertThat(importModule.read("EXTREMES", null, 1), equalTo(Arrays.asList(Long.MIN_VALUE, 0L, Long.MAX_VALUE)));
+    assertThat(importModule.queries, equalTo(3));
+  }
+
+  @Test
+  public void pagesResumeAfterTheLastKey() {
+    KeyRange range = KeyRange.between("ID", 10L, 20L);
+    KeyRange next = range.after(14L);
+    assertThat(next.getColumn(), equalTo("ID"));
+    assertThat(next.getLowerBound(), equalTo(15L));
+    assertThat(next.getUpperBound(), equalTo(20L));
+    assertThat(next.isNullKeys(), equalTo(false));
+
+    assertThat(range.after(18L).getLowerBound(), equalTo(19L));
+    assertThat(range.after(19L), nullValue());
+    assertThat(KeyRange.between("ID", null, null).after(Long.MAX_VALUE), nullValue());
+    assertThat(KeyRange.between("ID", null, null).after(Long.MAX_VALUE - 1).getLowerBound(), equalTo(Long.MAX_VALUE));
+  }
+}
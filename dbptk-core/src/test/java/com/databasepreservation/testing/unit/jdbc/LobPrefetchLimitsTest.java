@@ -0,0 +1,115 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.parallel.LobPrefetcher;
+import com.databasepreservation.model.modules.configuration.ModuleConfiguration;
+import com.databasepreservation.model.modules.configuration.SchemaConfiguration;
+import com.databasepreservation.model.modules.configuration.TableConfiguration;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeBinary;
+import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+
+/**
+ * Checks that the LOB prefetcher of each table gets the limits set for the
+ * table in the module configuration, and the limits of the properties
+ * otherwise.
+ */
+@Test(groups = {"unit"})
+public class LobPrefetchLimitsTest {
+
+  /**
+   * The generic JDBC module, with LOB prefetching enabled and a given module
+   * configuration
+   */
+  private static class PrefetchingImportModule extends JDBCImportModule {
+    private final ModuleConfiguration moduleConfiguration;
+    private final boolean serialized;
+
+    PrefetchingImportModule(ModuleConfiguration moduleConfiguration, boolean serialized) {
+      super("org.hsqldb.jdbc.JDBCDriver", "jdbc:hsqldb:mem:lobprefetchlimits");
+      this.moduleConfiguration = moduleConfiguration;
+      this.serialized = serialized;
+    }
+
+    @Override
+    public ModuleConfiguration getModuleConfiguration() {
+      return moduleConfiguration;
+    }
+
+    @Override
+    protected boolean isLobPrefetchSupported() {
+      return true;
+    }
+
+    @Override
+    protected boolean isLobReadSerialized() {
+      return serialized;
+    }
+
+    String describePrefetcher(TableStructure table) {
+      try (LobPrefetcher prefetcher = createLobPrefetcher(table, row -> {
+      })) {
+        return prefetcher.toString();
+      }
+    }
+  }
+
+  private static TableStructure table(String name) {
+    ColumnStructure data = new ColumnStructure("S." + name + ".DATA", "DATA", new SimpleTypeBinary(), true, null,
+      null, false);
+    TableStructure table = new TableStructure();
+    table.setId("S." + name);
+    table.setName(name);
+    table.setSchema("S");
+    table.setColumns(new ArrayList<>(List.of(data)));
+    return table;
+  }
+
+  private static ModuleConfiguration configuration() {
+    TableConfiguration limited = new TableConfiguration();
+    limited.setName("LIMITED");
+    limited.setLobPrefetchThreads(2);
+    limited.setLobPrefetchMegabytes(8);
+    TableConfiguration unlimited = new TableConfiguration();
+    unlimited.setName("DEFAULT");
+
+    SchemaConfiguration schema = new SchemaConfiguration();
+    schema.setTableConfigurations(new ArrayList<>(List.of(limited, unlimited)));
+    ModuleConfiguration moduleConfiguration = new ModuleConfiguration();
+    moduleConfiguration.getSchemaConfigurations().put("S", schema);
+    return moduleConfiguration;
+  }
+
+  @Test
+  public void tablesHaveTheirOwnLimits() {
+    PrefetchingImportModule importModule = new PrefetchingImportModule(configuration(), false);
+    assertThat(importModule.describePrefetcher(table("LIMITED")),
+      equalTo("LOB prefetcher of table S.LIMITED: maximum rows 64, threads 2, budget 8388608 bytes"));
+    assertThat(importModule.describePrefetcher(table("DEFAULT")),
+      equalTo("LOB prefetcher of table S.DEFAULT: maximum rows 64, threads 4, budget 268435456 bytes"));
+    assertThat(importModule.describePrefetcher(table("OTHER")),
+      equalTo("LOB prefetcher of table S.OTHER: maximum rows 64, threads 4, budget 268435456 bytes"));
+  }
+
+  @Test
+  public void serializedReadsUseASingleThread() {
+    PrefetchingImportModule importModule = new PrefetchingImportModule(configuration(), true);
+    assertThat(importModule.describePrefetcher(table("LIMITED")),
+      equalTo("LOB prefetcher of table S.LIMITED: maximum rows 64, threads 1, budget 8388608 bytes"));
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.SinkModule;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+
+/**
+ * Reads a table with BLOBs from an in-memory HSQLDB database into an export
+ * module that does not keep rows, so the reader would reuse its row, while the
+ * LOBs are prefetched.
+ */
+@Test(groups = {"unit"})
+public class LobPrefetchRowReuseTest {
+  private static final String URL = "jdbc:hsqldb:mem:lobprefetch;shutdown=true";
+  private static final int ROWS = 300;
+
+  /**
+   * The generic JDBC module, with LOB prefetching enabled
+   */
+  private static class PrefetchingImportModule extends JDBCImportModule {
+    PrefetchingImportModule() {
+      super("org.hsqldb.jdbc.JDBCDriver", URL + ";user=SA");
+    }
+
+    @Override
+    protected boolean isLobPrefetchSupported() {
+      return true;
+    }
+  }
+
+  /**
+   * Checks each row when it is received, as an export module would
+   */
+  private static class CheckingSink extends SinkModule {
+    private final Set<Row> received = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<String> problems = new ArrayList<>();
+
+    @Override
+    public void handleDataRow(Row row) {
+      received.add(row);
+      String id = ((SimpleCell) row.getCells().get(0)).getSimpleData();
+      try (InputStream in = ((BinaryCell) row.getCells().get(1)).createInputStream()) {
+        String lob = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        if (!Long.toString(row.getIndex()).equals(id) || !lob.equals("lob of row " + id)) {
+          problems.add("row " + row.getIndex() + " has id " + id + " and " + lob);
+        }
+      } catch (ModuleException | IOException e) {
+        problems.add("row " + row.getIndex() + ": " + e.getMessage());
+      }
+      super.handleDataRow(row);
+    }
+  }
+
+  @Test
+  public void prefetchedRowsAreNotReused() throws SQLException, ModuleException {
+    try (Connection connection = DriverManager.getConnection(URL, "SA", "")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE T (ID INTEGER PRIMARY KEY, DATA BLOB)");
+      }
+      try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?)")) {
+        for (int i = 1; i <= ROWS; i++) {
+          insert.setInt(1, i);
+          insert.setBytes(2, ("lob of row " + i).getBytes(StandardCharsets.UTF_8));
+          insert.executeUpdate();
+        }
+      }
+
+      CheckingSink sink = new CheckingSink();
+      PrefetchingImportModule importModule = new PrefetchingImportModule();
+      importModule.setOnceReporter(new NoOpReporter());
+      importModule.migrateDatabaseTo(sink);
+
+      assertThat(sink.problems, equalTo(Collections.emptyList()));
+      assertThat(sink.received.size(), equalTo(ROWS));
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.model.structure.DatabaseStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.modules.SQLHelper;
+import com.databasepreservation.modules.jdbc.in.JDBCDatatypeImporter;
+import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+
+/**
+ * Reads the structure of an in-memory HSQLDB database whose statistics are
+ * kept in a table, checking that the tables get the estimated number of rows
+ * and that the estimates limit how the tables are split.
+ */
+@Test(groups = {"unit"})
+public class RowEstimateTest {
+  private static final String URL = "jdbc:hsqldb:mem:rowestimates;shutdown=true";
+
+  /**
+   * Gets the estimates from the STATS.ESTIMATES table
+   */
+  private static class StatisticsHelper extends SQLHelper {
+    @Override
+    public String getRowEstimatesSQL(String schemaName) {
+      return "SELECT TABLE_NAME, ROW_ESTIMATE FROM STATS.ESTIMATES WHERE TABLE_SCHEMA = '" + schemaName + "'";
+    }
+  }
+
+  /**
+   * The generic JDBC module, with two parallel workers and the protected
+   * methods under test made available
+   */
+  private static class TestableImportModule extends JDBCImportModule {
+    TestableImportModule() {
+      super("org.hsqldb.jdbc.JDBCDriver", URL + ";user=SA", new StatisticsHelper(), new JDBCDatatypeImporter());
+      setOnceReporter(new NoOpReporter());
+    }
+
+    @Override
+    protected int getParallelWorkerCount() {
+      return 2;
+    }
+
+    DatabaseStructure readStructure() throws ModuleException {
+      return getDatabaseStructure();
+    }
+
+    long countParts(TableStructure table) throws ModuleException {
+      // without the range of the rows with a null key, if any
+      return splitTable(table).stream().filter(range -> !range.isNullKeys()).count();
+    }
+  }
+
+  @Test
+  public void tablesAreEstimatedFromTheStatistics() throws SQLException, ModuleException {
+    try (Connection connection = DriverManager.getConnection(URL, "SA", "")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE SCHEMA APP");
+        statement.execute("CREATE TABLE APP.T (ID BIGINT PRIMARY KEY, NAME VARCHAR(20))");
+        statement.execute("CREATE TABLE APP.U (ID BIGINT PRIMARY KEY)");
+        // sparse keys, enough for many parts
+        statement.execute("INSERT INTO APP.T VALUES (1, 'first'), (100000000, 'last')");
+        statement.execute("CREATE SCHEMA STATS");
+        statement.execute("CREATE TABLE STATS.ESTIMATES (TABLE_SCHEMA VARCHAR(20), TABLE_NAME VARCHAR(20), "
+          + "ROW_ESTIMATE BIGINT)");
+        statement.execute("INSERT INTO STATS.ESTIMATES VALUES ('APP', 'T', 2500000)");
+      }
+
+      TestableImportModule importModule = new TestableImportModule();
+      DatabaseStructure structure = importModule.readStructure();
+      TableStructure table = structure.getTableById("APP.T");
+
+      // the estimate is not a row count
+      assertThat(table.getEstimatedRows(), equalTo(2500000L));
+      assertThat(table.getRows(), equalTo(-1L));
+      assertThat(structure.getTableById("APP.U").getEstimatedRows(), equalTo(-1L));
+
+      // the parts are limited by the estimate, not by the span of the keys
+      assertThat(importModule.countParts(table), equalTo(2L));
+      table.setEstimatedRows(1000);
+      assertThat(importModule.countParts(table), equalTo(0L));
+      table.setEstimatedRows(-1);
+      assertThat(importModule.countParts(table), equalTo(8L));
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.SinkModule;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+
+/**
+ * Migrates a table from an in-memory HSQLDB database to a module that does not
+ * keep rows, checking that the rows still arrive in batches while their
+ * containers are reused.
+ */
+@Test(groups = {"unit"})
+public class RowReuseBatchingTest {
+  private static final String URL = "jdbc:hsqldb:mem:rowreuse;shutdown=true";
+
+  /**
+   * Records the batches it receives, reading the rows before they are reused
+   */
+  private static class BatchRecordingSink extends SinkModule {
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final Set<Row> containers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public void handleDataRows(RowBatch rows) {
+      batchSizes.add(rows.size());
+      for (Row row : rows) {
+        containers.add(row);
+        names.add(((SimpleCell) row.getCells().get(1)).getSimpleData());
+        handleDataRow(row);
+      }
+    }
+  }
+
+  @Test
+  public void rowsArriveInBatchesWhenTheyAreNotRetained() throws SQLException, ModuleException {
+    try (Connection connection = DriverManager.getConnection(URL, "SA", "")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE T (ID NUMERIC(9, 0) PRIMARY KEY, NAME VARCHAR(20))");
+      }
+      List<String> expected = new ArrayList<>();
+      try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?)")) {
+        for (int i = 1; i <= 250; i++) {
+          insert.setInt(1, i);
+          insert.setString(2, "name " + i);
+          insert.execute();
+          expected.add("name " + i);
+        }
+      }
+
+      BatchRecordingSink sink = new BatchRecordingSink();
+      JDBCImportModule importModule = new JDBCImportModule("org.hsqldb.jdbc.JDBCDriver", URL + ";user=SA");
+      importModule.setOnceReporter(new NoOpReporter());
+      importModule.migrateDatabaseTo(sink);
+
+      assertThat(sink.batchSizes, equalTo(Arrays.asList(100, 100, 50)));
+      assertThat(sink.names, equalTo(expected));
+      // the containers of a batch are filled again once it was handled
+      assertThat(sink.containers.size(), equalTo(100));
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.ForeignKey;
+import com.databasepreservation.model.structure.PrimaryKey;
+import com.databasepreservation.modules.jdbc.in.SchemaCatalog;
+
+@Test(groups = {"unit"})
+public class SchemaCatalogTest {
+  @Test
+  public void columnsAreGroupedByTableAndTakenOnce() {
+    SchemaCatalog catalog = new SchemaCatalog("public");
+    catalog.addColumn("a", column("a", "id"));
+    catalog.addColumn("b", column("b", "id"));
+    catalog.addColumn("a", column("a", "name"));
+
+    // not used before being marked as harvested
+    assertThat(catalog.takeColumns("a"), nullValue());
+
+    catalog.setHarvested(SchemaCatalog.Part.COLUMNS);
+    List<ColumnStructure> columns = catalog.takeColumns("a");
+    assertThat(columns.size(), equalTo(2));
+    assertThat(columns.get(0).getName(), equalTo("id"));
+    assertThat(columns.get(1).getName(), equalTo("name"));
+
+    // read table by table when taken again or unknown
+    assertThat(catalog.takeColumns("a"), nullValue());
+    assertThat(catalog.takeColumns("c"), nullValue());
+    assertThat(catalog.takeColumns("b").size(), equalTo(1));
+  }
+
+  @Test
+  public void discardedPartsAreNotUsed() {
+    SchemaCatalog catalog = new SchemaCatalog("public");
+    catalog.addColumn("a", column("a", "id"));
+    catalog.setHarvested(SchemaCatalog.Part.COLUMNS);
+    catalog.discard(SchemaCatalog.Part.COLUMNS);
+
+    assertThat(catalog.isHarvested(SchemaCatalog.Part.COLUMNS), equalTo(false));
+    assertThat(catalog.getTableCount(), equalTo(0));
+    assertThat(catalog.takeColumns("a"), nullValue());
+  }
+
+  @Test
+  public void primaryKeysKeepTheColumnOrder() {
+    SchemaCatalog catalog = new SchemaCatalog("public");
+    catalog.addPrimaryKeyColumn("a", "a_pk", "x");
+    catalog.addPrimaryKeyColumn("a", "a_pk", "y");
+    catalog.addPrimaryKeyColumn("b", null, "id");
+
+    PrimaryKey primaryKey = catalog.getPrimaryKey("a");
+    assertThat(primaryKey.getName(), equalTo("a_pk"));
+    assertThat(primaryKey.getColumnNames(), contains("x", "y"));
+    assertThat(catalog.getPrimaryKey("b").getName(), equalTo("b_pkey"));
+    assertThat(catalog.getPrimaryKey("c"), nullValue());
+  }
+
+  @Test
+  public void tablesWithoutForeignKeysGetAnEmptyList() {
+    SchemaCatalog catalog = new SchemaCatalog("public");
+    ForeignKey foreignKey = new ForeignKey();
+    foreignKey.setName("fk");
+    catalog.getForeignKeysOf("a").add(foreignKey);
+
+    assertThat(catalog.takeForeignKeys("a"), contains(foreignKey));
+    assertThat(catalog.takeForeignKeys("b"), empty());
+  }
+
+  @Test
+  public void descriptionsMayBeNull() {
+    SchemaCatalog catalog = new SchemaCatalog("public");
+    catalog.addTableDescription("a", null);
+    catalog.addColumnDescription("a", "id", "identifier");
+
+    assertThat(catalog.hasTableDescription("a"), equalTo(true));
+    assertThat(catalog.hasTableDescription("b"), equalTo(false));
+    assertThat(catalog.getColumnDescriptions("a").get("id"), equalTo("identifier"));
+    assertThat(catalog.getColumnDescriptions("b").isEmpty(), equalTo(true));
+  }
+
+  private static ColumnStructure column(String table, String name) {
+    ColumnStructure column = new ColumnStructure();
+    column.setId(table + "." + name);
+    column.setName(name);
+    return column;
+  }
+}
@@ -0,0 +1,145 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.Mockito;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.SinkModule;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+
+/**
+ * Migrates an in-memory HSQLDB database with parallel workers whose connection
+ * is closed by their first query, with and without a shared snapshot.
+ */
+@Test(groups = {"unit"})
+public class SharedSnapshotReconnectTest {
+  private static final String URL = "jdbc:hsqldb:mem:sharedsnapshot";
+  private static final int ROWS = 10;
+
+  private Connection connection;
+
+  /**
+   * The generic JDBC module, pretending to share a snapshot, whose connection
+   * is lost by its first table query
+   */
+  private static class LosingImportModule extends JDBCImportModule {
+    private final boolean snapshot;
+    private boolean reading = false;
+    private boolean lost = false;
+
+    LosingImportModule(boolean snapshot) {
+      super("org.hsqldb.jdbc.JDBCDriver", URL + ";user=SA");
+      this.snapshot = snapshot;
+      setOnceReporter(new NoOpReporter());
+    }
+
+    @Override
+    protected String beginSharedSnapshot() {
+      return snapshot ? "snapshot-1" : null;
+    }
+
+    @Override
+    protected void joinSharedSnapshot(String snapshot) {
+      // the in-memory database does not change
+    }
+
+    @Override
+    protected ResultSet getTableRawData(String query, String tableId) throws SQLException, ModuleException {
+      reading = true;
+      try {
+        return super.getTableRawData(query, tableId);
+      } finally {
+        reading = false;
+      }
+    }
+
+    @Override
+    protected Statement getStatement() throws SQLException, ModuleException {
+      if (!reading || lost) {
+        return super.getStatement();
+      }
+      // the first query closes the connection, as the server would
+      lost = true;
+      Statement closing = Mockito.mock(Statement.class);
+      Mockito.when(closing.executeQuery(Mockito.anyString())).thenAnswer(invocation -> {
+        getConnection().close();
+        throw new SQLException("the server closed the connection");
+      });
+      return closing;
+    }
+  }
+
+  private static class CountingSink extends SinkModule {
+    private final AtomicInteger rows = new AtomicInteger();
+
+    @Override
+    public void handleDataRow(Row row) {
+      rows.incrementAndGet();
+    }
+  }
+
+  @BeforeClass
+  public void createTable() throws SQLException {
+    connection = DriverManager.getConnection(URL, "SA", "");
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE T (ID INTEGER PRIMARY KEY)");
+      for (int id = 1; id <= ROWS; id++) {
+        statement.execute("INSERT INTO T VALUES (" + id + ")");
+      }
+    }
+  }
+
+  @AfterClass
+  public void dropTable() throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("SHUTDOWN");
+    }
+    connection.close();
+  }
+
+  private static LosingImportModule withWorker(boolean snapshot) throws ModuleException {
+    LosingImportModule importModule = new LosingImportModule(snapshot);
+    importModule.setParallelWorkers(Arrays.asList(new LosingImportModule(snapshot)));
+    return importModule;
+  }
+
+  @Test
+  public void workersReconnectWithoutASharedSnapshot() throws ModuleException {
+    CountingSink sink = new CountingSink();
+    withWorker(false).migrateDatabaseTo(sink);
+    assertThat(sink.rows.get(), equalTo(ROWS));
+  }
+
+  @Test
+  public void workersInASharedSnapshotFailInsteadOfReconnecting() {
+    try {
+      withWorker(true).migrateDatabaseTo(new CountingSink());
+      throw new AssertionError("the worker should have failed");
+    } catch (ModuleException e) {
+      assertThat(e.getMessage(), containsString("shared snapshot snapshot-1"));
+    }
+  }
+}
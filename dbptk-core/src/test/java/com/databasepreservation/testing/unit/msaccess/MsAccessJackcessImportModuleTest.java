@@ -0,0 +1,245 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.msaccess;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.mockito.Mockito;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.io.providers.SpillArena;
+import com.databasepreservation.model.data.ArrayCell;
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.CellIdPrefix;
+import com.databasepreservation.model.data.NullCell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.SinkModule;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.DatabaseStructure;
+import com.databasepreservation.model.structure.ForeignKey;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeBinary;
+import com.databasepreservation.modules.msAccess.in.MsAccessJackcessImportModule;
+import com.databasepreservation.utils.RowUtils;
+
+import io.github.spannm.jackcess.Column;
+import io.github.spannm.jackcess.ColumnBuilder;
+import io.github.spannm.jackcess.DataType;
+import io.github.spannm.jackcess.Database;
+import io.github.spannm.jackcess.DatabaseBuilder;
+import io.github.spannm.jackcess.PropertyMap;
+import io.github.spannm.jackcess.RelationshipBuilder;
+import io.github.spannm.jackcess.Table;
+import io.github.spannm.jackcess.TableBuilder;
+import io.github.spannm.jackcess.complex.Attachment;
+import io.github.spannm.jackcess.complex.ComplexDataType;
+import io.github.spannm.jackcess.complex.ComplexValueForeignKey;
+import io.github.spannm.jackcess.complex.SingleValue;
+
+/**
+ * Imports an Access file created with Jackcess. Jackcess can not create
+ * complex columns, so attachments and multi-valued fields are read from
+ * mocked values.
+ */
+@Test(groups = {"unit"})
+public class MsAccessJackcessImportModuleTest {
+  // larger than the LOBs kept in memory, so it is copied to the spill arena
+  private static final int PHOTO_SIZE = 100 * 1024;
+
+  private Path directory;
+  private File accessFile;
+
+  /**
+   * The import module, with the reading of complex values made available
+   */
+  private static class TestableImportModule extends MsAccessJackcessImportModule {
+    TestableImportModule(String accessFilePath) {
+      super("microsoft-access", accessFilePath);
+    }
+
+    static Cell readComplex(ComplexValueForeignKey value, String columnId, long rowIndex) throws IOException {
+      return readComplexCell(value, new CellIdPrefix(columnId), rowIndex);
+    }
+  }
+
+  /**
+   * Keeps the structure and reads the cells of each row while it is handled
+   */
+  private static class RecordingSink extends SinkModule {
+    private DatabaseStructure structure;
+    private final List<String> rows = new ArrayList<>();
+    private long spilled = -1;
+
+    @Override
+    public void handleStructure(DatabaseStructure structure) {
+      this.structure = structure;
+    }
+
+    @Override
+    public void handleDataRow(Row row) {
+      List<String> values = new ArrayList<>();
+      for (Cell cell : row.getCells()) {
+        if (cell instanceof BinaryCell binaryCell) {
+          try {
+            long spilledBefore = SpillArena.getInstance().getSpilledCount();
+            long size = binaryCell.getSize();
+            byte[] bytes;
+            try (InputStream in = binaryCell.createInputStream()) {
+              bytes = in.readAllBytes();
+            }
+            values.add(size + " bytes, first " + bytes[0] + ", last " + bytes[bytes.length - 1]);
+            spilled = SpillArena.getInstance().getSpilledCount() - spilledBefore;
+          } catch (ModuleException | IOException e) {
+            values.add("could not read " + cell.getId() + ": " + e.getMessage());
+          }
+          binaryCell.cleanResources();
+        } else if (cell instanceof SimpleCell simpleCell) {
+          values.add(simpleCell.getSimpleData());
+        } else if (cell instanceof NullCell) {
+          values.add("null");
+        }
+      }
+      rows.add(String.join(" | ", values));
+    }
+  }
+
+  @BeforeClass
+  public void createAccessFile() throws IOException {
+    directory = Files.createTempDirectory("dbptk-access-test");
+    accessFile = directory.resolve("test.accdb").toFile();
+    try (Database db = new DatabaseBuilder().withFile(accessFile).withFileFormat(Database.FileFormat.V2010)
+      .create()) {
+      Table customers = new TableBuilder("Customers").addColumn(new ColumnBuilder("ID", DataType.LONG))
+        .addColumn(new ColumnBuilder("Name", DataType.TEXT).withProperty(PropertyMap.REQUIRED_PROP, true))
+        .addColumn(new ColumnBuilder("Rating", DataType.BYTE)).withPrimaryKey("ID").toTable(db);
+      Table orders = new TableBuilder("Orders").addColumn(new ColumnBuilder("ID", DataType.LONG))
+        .addColumn(new ColumnBuilder("CustomerID", DataType.LONG)).addColumn(new ColumnBuilder("Photo", DataType.OLE))
+        .addColumn(new ColumnBuilder("Notes", DataType.MEMO)).withPrimaryKey("ID").toTable(db);
+      new RelationshipBuilder(customers, orders).addColumns("ID", "CustomerID").withReferentialIntegrity()
+        .withCascadeDeletes().withName("CustomersOrders").toRelationship(db);
+
+      byte[] photo = new byte[PHOTO_SIZE];
+      photo[0] = 1;
+      photo[PHOTO_SIZE - 1] = 2;
+      // Access bytes are unsigned
+      customers.addRow(1, "Ann", (byte) 200);
+      customers.addRow(2, "Bob", (byte) 7);
+      orders.addRow(10, 1, photo, "first order");
+      orders.addRow(11, 2, null, null);
+    }
+  }
+
+  @AfterClass
+  public void deleteAccessFile() throws IOException {
+    FileUtils.deleteDirectory(directory.toFile());
+  }
+
+  private static ColumnStructure column(TableStructure table, String name) {
+    return table.getColumnByName(name);
+  }
+
+  @Test
+  public void tablesRelationshipsAndOleValuesAreImported() throws ModuleException {
+    MsAccessJackcessImportModule importModule = new TestableImportModule(accessFile.getPath());
+    importModule.setOnceReporter(new NoOpReporter());
+    RecordingSink sink = new RecordingSink();
+    SpillArena.acquire();
+    try {
+      importModule.migrateDatabaseTo(sink);
+    } finally {
+      SpillArena.release();
+    }
+
+    TableStructure customers = sink.structure.getSchemaByName("PUBLIC").getTableByName("Customers");
+    TableStructure orders = sink.structure.getSchemaByName("PUBLIC").getTableByName("Orders");
+    assertThat(customers.getPrimaryKey().getColumnNames(), equalTo(Arrays.asList("ID")));
+    assertThat(column(customers, "Name").isNillable(), equalTo(false));
+    assertThat(column(orders, "Notes").isNillable(), equalTo(true));
+    assertThat(column(orders, "Photo").getType() instanceof SimpleTypeBinary, equalTo(true));
+
+    assertThat(orders.getForeignKeys().size(), equalTo(1));
+    ForeignKey foreignKey = orders.getForeignKeys().get(0);
+    assertThat(foreignKey.getName(), equalTo("CustomersOrders"));
+    assertThat(foreignKey.getReferencedTable(), equalTo("Customers"));
+    assertThat(foreignKey.getReferences().get(0).getColumn(), equalTo("CustomerID"));
+    assertThat(foreignKey.getReferences().get(0).getReferenced(), equalTo("ID"));
+    assertThat(foreignKey.getDeleteAction(), equalTo("CASCADE"));
+    assertThat(customers.getForeignKeys(), equalTo(Collections.emptyList()));
+
+    assertThat(sink.rows, equalTo(Arrays.asList("1 | Ann | 200", "2 | Bob | 7",
+      "10 | 1 | " + PHOTO_SIZE + " bytes, first 1, last 2 | first order", "11 | 2 | null | null")));
+    // the size and the contents of the OLE value come from a single copy
+    assertThat(sink.spilled, equalTo(1L));
+  }
+
+  @Test
+  public void attachmentsAreArraysOfBlobsReadOnce() throws IOException, ModuleException {
+    Column column = Mockito.mock(Column.class);
+    Mockito.when(column.getDatabase()).thenReturn(Mockito.mock(Database.class));
+    Mockito.when(column.getName()).thenReturn("Files");
+    Attachment first = Mockito.mock(Attachment.class);
+    Mockito.when(first.getFileData()).thenReturn(new byte[] {1, 2, 3});
+    Attachment second = Mockito.mock(Attachment.class);
+    Mockito.when(second.getFileData()).thenReturn(new byte[] {4});
+    ComplexValueForeignKey value = Mockito.mock(ComplexValueForeignKey.class);
+    Mockito.when(value.getComplexType()).thenReturn(ComplexDataType.ATTACHMENT);
+    Mockito.when(value.countValues()).thenReturn(2);
+    Mockito.when(value.getColumn()).thenReturn(column);
+    Mockito.when(value.getAttachments()).thenReturn(Arrays.asList(first, second));
+
+    ArrayCell cell = (ArrayCell) TestableImportModule.readComplex(value, "Docs.Files", 7);
+    assertThat(cell.getId(), equalTo("Docs.Files.7"));
+    assertThat(cell.size(), equalTo(2));
+    BinaryCell attachment = (BinaryCell) cell.getCell(0);
+    assertThat(attachment.getId(), equalTo("Docs.Files.7.1"));
+    assertThat(attachment.getSize(), equalTo(3L));
+    try (InputStream in = attachment.createInputStream()) {
+      assertThat(in.readAllBytes(), equalTo(new byte[] {1, 2, 3}));
+    }
+    Mockito.verify(first, Mockito.times(1)).getFileData();
+
+    // the attachments can still be read after the rows are handed over
+    RowUtils.detach(new Row(7, new ArrayList<>(Arrays.asList(cell))));
+    try (InputStream in = ((BinaryCell) cell.getCell(1)).createInputStream()) {
+      assertThat(in.readAllBytes(), equalTo(new byte[] {4}));
+    }
+    Mockito.verify(second, Mockito.times(1)).getFileData();
+  }
+
+  @Test
+  public void multipleValuesAreSeparatedByCommas() throws IOException {
+    SingleValue red = Mockito.mock(SingleValue.class);
+    Mockito.when(red.get()).thenReturn("red");
+    SingleValue blue = Mockito.mock(SingleValue.class);
+    Mockito.when(blue.get()).thenReturn("blue");
+    ComplexValueForeignKey value = Mockito.mock(ComplexValueForeignKey.class);
+    Mockito.when(value.getComplexType()).thenReturn(ComplexDataType.MULTI_VALUE);
+    Mockito.when(value.getMultiValues()).thenReturn(Arrays.asList(red, blue));
+
+    Cell cell = TestableImportModule.readComplex(value, "Docs.Colors", 3);
+    assertThat(((SimpleCell) cell).getSimpleData(), equalTo("red, blue"));
+  }
+}
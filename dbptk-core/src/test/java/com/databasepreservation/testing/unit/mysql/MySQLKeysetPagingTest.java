@@ -0,0 +1,285 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.mysql;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ConnectionException;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.PrimaryKey;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
+import com.databasepreservation.model.structure.type.Type;
+import com.databasepreservation.modules.jdbc.in.KeyRange;
+import com.databasepreservation.modules.mysql.in.MySQLJDBCImportModule;
+
+/**
+ * Checks the queries and statements of the MySQL import module, either with
+ * a mocked connection or with an in-memory HSQLDB database in MySQL syntax
+ * mode.
+ */
+@Test(groups = {"unit"})
+public class MySQLKeysetPagingTest {
+  private static final String URL = "jdbc:hsqldb:mem:mysqlpaging;sql.syntax_mys=true";
+
+  /**
+   * The MySQL module, with the given connection and the protected methods
+   * under test made available
+   */
+  private static class TestableImportModule extends MySQLJDBCImportModule {
+    private final Connection testConnection;
+    private final boolean inSharedSnapshot;
+    private final List<String> pageQueries = new ArrayList<>();
+    private ModuleException pageFailure = null;
+
+    TestableImportModule(Connection testConnection, boolean inSharedSnapshot) {
+      super("mysql", "localhost", 3306, "db", "user", "password", false);
+      this.testConnection = testConnection;
+      this.inSharedSnapshot = inSharedSnapshot;
+      setOnceReporter(new NoOpReporter());
+    }
+
+    @Override
+    protected Connection createConnection() {
+      return testConnection;
+    }
+
+    @Override
+    protected boolean isInSharedSnapshot() {
+      return inSharedSnapshot;
+    }
+
+    @Override
+    protected ResultSet getPageRawData(String query) throws SQLException, ModuleException {
+      pageQueries.add(query);
+      if (pageFailure != null) {
+        throw pageFailure;
+      }
+      return super.getPageRawData(query);
+    }
+
+    List<Long> read(TableStructure table, KeyRange range) throws ModuleException {
+      List<Long> keys = new ArrayList<>();
+      extractTableRows(table, range,
+        row -> keys.add(Long.valueOf(((SimpleCell) row.getCells().get(0)).getSimpleData())), new HashMap<>());
+      return keys;
+    }
+
+    String condition(KeyRange range) {
+      return getKeyRangeCondition(range);
+    }
+
+    String pageQuery(TableStructure table, KeyRange page, int pageRows) throws ModuleException {
+      return getPageQuery(table, page, pageRows);
+    }
+
+    String begin() throws ModuleException {
+      return beginSharedSnapshot();
+    }
+
+    void join(String snapshot) throws ModuleException {
+      joinSharedSnapshot(snapshot);
+    }
+
+    void joined() {
+      sharedSnapshotJoined();
+    }
+
+    void end() {
+      endSharedSnapshot();
+    }
+  }
+
+  private static ColumnStructure column(String name, Type type) {
+    ColumnStructure column = new ColumnStructure();
+    column.setId("PUBLIC.T." + name);
+    column.setName(name);
+    column.setType(type);
+    column.setNillable(false);
+    return column;
+  }
+
+  private static TableStructure table() {
+    SimpleTypeNumericExact keyType = new SimpleTypeNumericExact(19, 0);
+    keyType.setOriginalTypeName("BIGINT");
+    keyType.setSql99TypeName("BIGINT");
+    SimpleTypeString nameType = new SimpleTypeString(20, true);
+    nameType.setOriginalTypeName("VARCHAR");
+    nameType.setSql99TypeName("CHARACTER VARYING(20)");
+
+    TableStructure table = new TableStructure();
+    table.setId("PUBLIC.T");
+    table.setName("T");
+    table.setSchema("PUBLIC");
+    table.setColumns(Arrays.asList(column("ID", keyType), column("NAME", nameType)));
+    table.setPrimaryKey(new PrimaryKey("PK_T", Arrays.asList("ID"), null));
+    return table;
+  }
+
+  /**
+   * @return a mocked connection, whose statements record the SQL they execute
+   *         and return no rows
+   */
+  private static Connection recordingConnection(List<String> executed) throws SQLException {
+    Statement statement = Mockito.mock(Statement.class);
+    Mockito.when(statement.execute(Mockito.anyString())).thenAnswer(invocation -> {
+      executed.add(invocation.getArgument(0));
+      return false;
+    });
+    Mockito.when(statement.executeQuery(Mockito.anyString())).thenAnswer(invocation -> {
+      executed.add(invocation.getArgument(0));
+      return Mockito.mock(ResultSet.class);
+    });
+    Connection connection = Mockito.mock(Connection.class);
+    Mockito.when(connection.createStatement()).thenReturn(statement);
+    Mockito.when(connection.createStatement(Mockito.anyInt(), Mockito.anyInt())).thenReturn(statement);
+    return connection;
+  }
+
+  @Test
+  public void keyRangesAreConditionsOnTheKeyColumn() {
+    TestableImportModule importModule = new TestableImportModule(null, false);
+    assertThat(importModule.condition(KeyRange.nullKeys("id")), equalTo("`id` IS NULL"));
+    assertThat(importModule.condition(KeyRange.between("id", null, null)), equalTo("`id` IS NOT NULL"));
+    assertThat(importModule.condition(KeyRange.between("id", null, 10L)), equalTo("`id` < 10"));
+    assertThat(importModule.condition(KeyRange.between("id", -5L, null)), equalTo("`id` >= -5"));
+    assertThat(importModule.condition(KeyRange.between("id", 1L, 10L)), equalTo("`id` >= 1 AND `id` < 10"));
+  }
+
+  @Test
+  public void pagesAreLimitedAndOrderedByKey() throws ModuleException {
+    TestableImportModule importModule = new TestableImportModule(null, false);
+    assertThat(importModule.pageQuery(table(), KeyRange.between("ID", 11L, 20L), 100),
+      equalTo("SELECT `ID`, `NAME` FROM `T` WHERE `ID` >= 11 AND `ID` < 20 ORDER BY `ID` LIMIT 100"));
+  }
+
+  @Test
+  public void pagesResumeAfterTheLastKey() throws SQLException, ModuleException {
+    // more rows than the largest page, with a gap at a page boundary
+    int rows = 25_000;
+    try (Connection connection = DriverManager.getConnection(URL, "SA", "")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE T (ID BIGINT PRIMARY KEY, NAME VARCHAR(20))");
+      }
+      try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?)")) {
+        for (long id = 1; id <= rows + 1; id++) {
+          if (id != 10_001) {
+            insert.setLong(1, id);
+            insert.setString(2, "row " + id);
+            insert.addBatch();
+          }
+        }
+        insert.executeBatch();
+      }
+
+      TestableImportModule importModule = new TestableImportModule(connection, true);
+      List<Long> keys = importModule.read(table(), null);
+      assertThat(keys.size(), equalTo(rows));
+      for (int i = 1; i < keys.size(); i++) {
+        if (keys.get(i) <= keys.get(i - 1)) {
+          throw new AssertionError("key " + keys.get(i) + " read after key " + keys.get(i - 1));
+        }
+      }
+      assertThat(importModule.pageQueries.size(), equalTo(3));
+      assertThat(importModule.pageQueries.get(1), equalTo(
+        "SELECT `ID`, `NAME` FROM `T` WHERE `ID` >= 10001 ORDER BY `ID` LIMIT 10000"));
+      assertThat(importModule.pageQueries.get(2), equalTo(
+        "SELECT `ID`, `NAME` FROM `T` WHERE `ID` >= 20002 ORDER BY `ID` LIMIT 10000"));
+
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("SHUTDOWN");
+      }
+    }
+  }
+
+  @Test
+  public void tablesOutsideASharedSnapshotAreReadInTheirOwnSnapshot() throws SQLException, ModuleException {
+    List<String> executed = new ArrayList<>();
+    new TestableImportModule(recordingConnection(executed), false).read(table(), null);
+    assertThat(executed, equalTo(Arrays.asList("START TRANSACTION WITH CONSISTENT SNAPSHOT",
+      "SELECT `ID`, `NAME` FROM `T` WHERE `ID` IS NOT NULL ORDER BY `ID` LIMIT 10000", "COMMIT")));
+
+    executed.clear();
+    new TestableImportModule(recordingConnection(executed), true).read(table(), null);
+    assertThat(executed, equalTo(
+      Arrays.asList("SELECT `ID`, `NAME` FROM `T` WHERE `ID` IS NOT NULL ORDER BY `ID` LIMIT 10000")));
+  }
+
+  @Test
+  public void lostConnectionsAbortTablesInASharedSnapshot() throws SQLException, ModuleException {
+    TestableImportModule importModule = new TestableImportModule(recordingConnection(new ArrayList<>()), true);
+    importModule.pageFailure = new ConnectionException().withMessage("connection lost");
+    try {
+      importModule.read(table(), null);
+      throw new AssertionError("the table was read without the rest of its rows");
+    } catch (ConnectionException e) {
+      assertThat(importModule.pageQueries.size(), equalTo(1));
+    }
+
+    // the table is read in its own snapshot, the rows read so far are kept
+    importModule = new TestableImportModule(recordingConnection(new ArrayList<>()), false);
+    importModule.pageFailure = new ConnectionException().withMessage("connection lost");
+    assertThat(importModule.read(table(), null), equalTo(new ArrayList<>()));
+  }
+
+  @Test
+  public void workersStartTheirSnapshotsWhileTheTablesAreLocked() throws SQLException, ModuleException {
+    List<String> executed = new ArrayList<>();
+    Connection workerConnection = recordingConnection(executed);
+    TestableImportModule coordinator = new TestableImportModule(recordingConnection(executed), false);
+    TestableImportModule worker = new TestableImportModule(workerConnection, false);
+
+    String snapshot = coordinator.begin();
+    worker.join(snapshot);
+    coordinator.joined();
+    coordinator.end();
+
+    assertThat(snapshot, equalTo("global read lock"));
+    assertThat(executed, equalTo(Arrays.asList("FLUSH TABLES WITH READ LOCK",
+      "START TRANSACTION WITH CONSISTENT SNAPSHOT", "UNLOCK TABLES")));
+    Mockito.verify(workerConnection).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+  }
+
+  @Test
+  public void workersStartTheirSnapshotsUnlockedWithoutTheReloadPrivilege() throws SQLException, ModuleException {
+    List<String> executed = new ArrayList<>();
+    Connection coordinatorConnection = recordingConnection(executed);
+    Statement denied = Mockito.mock(Statement.class);
+    Mockito.when(denied.execute("FLUSH TABLES WITH READ LOCK")).thenThrow(new SQLException("Access denied"));
+    Mockito.when(coordinatorConnection.createStatement()).thenReturn(denied);
+    TestableImportModule coordinator = new TestableImportModule(coordinatorConnection, false);
+    TestableImportModule worker = new TestableImportModule(recordingConnection(executed), false);
+
+    String snapshot = coordinator.begin();
+    worker.join(snapshot);
+    coordinator.joined();
+    coordinator.end();
+
+    assertThat(snapshot, equalTo("unlocked"));
+    assertThat(executed, equalTo(Arrays.asList("START TRANSACTION WITH CONSISTENT SNAPSHOT")));
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.oracle;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.configuration.ModuleConfiguration;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.modules.jdbc.in.KeyRange;
+import com.databasepreservation.modules.oracle.in.Oracle12cJDBCImportModule;
+
+/**
+ * Splits tables in ROWID ranges with the Oracle import module, reading the
+ * extent boundaries from a mocked connection.
+ */
+@Test(groups = {"unit"})
+public class OracleRowIdSplitTest {
+
+  /**
+   * The Oracle module, with a given connection and the protected methods under
+   * test made available
+   */
+  private static class TestableImportModule extends Oracle12cJDBCImportModule {
+    private final Connection connection;
+    private final ModuleConfiguration moduleConfiguration = new ModuleConfiguration();
+
+    TestableImportModule(Connection connection) {
+      super("oracle", "localhost", 1521, "db", "user", "password", "S");
+      this.connection = connection;
+      setOnceReporter(new NoOpReporter());
+    }
+
+    @Override
+    public Connection getConnection() {
+      return connection;
+    }
+
+    @Override
+    public ModuleConfiguration getModuleConfiguration() {
+      return moduleConfiguration;
+    }
+
+    @Override
+    protected int getParallelWorkerCount() {
+      return 2;
+    }
+
+    List<String> split(TableStructure table) throws ModuleException {
+      List<String> conditions = new ArrayList<>();
+      for (KeyRange range : splitTable(table)) {
+        conditions.add(describe(range));
+      }
+      return conditions;
+    }
+
+    String describe(KeyRange range) {
+      return getKeyRangeCondition(range) + " ORDER BY " + getKeyRangeOrder(range);
+    }
+  }
+
+  private static TableStructure table() {
+    ColumnStructure id = new ColumnStructure("S.T.ID", "ID", new SimpleTypeNumericExact(9, 0), true, null, null,
+      false);
+    TableStructure table = new TableStructure();
+    table.setId("S.T");
+    table.setName("T");
+    table.setSchema("S");
+    table.setColumns(new ArrayList<>(List.of(id)));
+    return table;
+  }
+
+  private static Connection extents(PreparedStatement statement, String... boundaries) throws SQLException {
+    Iterator<String> iterator = Arrays.asList(boundaries).iterator();
+    String[] current = new String[1];
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.next()).thenAnswer(invocation -> {
+      current[0] = iterator.hasNext() ? iterator.next() : null;
+      return current[0] != null;
+    });
+    when(resultSet.getString(1)).thenAnswer(invocation -> current[0]);
+    when(statement.executeQuery()).thenReturn(resultSet);
+    Connection connection = mock(Connection.class);
+    when(connection.prepareStatement(anyString())).thenReturn(statement);
+    return connection;
+  }
+
+  @Test
+  public void outerRangesAreOpen() throws SQLException, ModuleException {
+    PreparedStatement statement = mock(PreparedStatement.class);
+    TestableImportModule importModule = new TestableImportModule(
+      extents(statement, "AAAR3sAAEAAAACXAAA", "AAAR3sAAEAAAAEAAAA", "AAAR3sAAEAAAAGAAAA"));
+
+    // the lowest ROWID of the first extent is not a bound
+    assertThat(importModule.split(table()),
+      equalTo(Arrays.asList("ROWID < CHARTOROWID('AAAR3sAAEAAAAEAAAA') ORDER BY ROWID",
+        "ROWID >= CHARTOROWID('AAAR3sAAEAAAAEAAAA') AND ROWID < CHARTOROWID('AAAR3sAAEAAAAGAAAA') ORDER BY ROWID",
+        "ROWID >= CHARTOROWID('AAAR3sAAEAAAAGAAAA') ORDER BY ROWID")));
+
+    // the table is not estimated, so it is split for each worker
+    verify(statement).setLong(1, 8L);
+    verify(statement).setString(2, "S");
+    verify(statement).setString(3, "T");
+  }
+
+  @Test
+  public void smallTablesAreNotSplit() throws SQLException, ModuleException {
+    PreparedStatement statement = mock(PreparedStatement.class);
+    TestableImportModule importModule = new TestableImportModule(
+      extents(statement, "AAAR3sAAEAAAACXAAA", "AAAR3sAAEAAAAEAAAA"));
+    TableStructure table = table();
+    table.setEstimatedRows(1000);
+
+    assertThat(importModule.split(table), equalTo(new ArrayList<>()));
+    verify(statement, never()).executeQuery();
+  }
+
+  @Test
+  public void tablesWithASingleExtentAreSplitByKey() throws SQLException, ModuleException {
+    PreparedStatement statement = mock(PreparedStatement.class);
+    TestableImportModule importModule = new TestableImportModule(extents(statement, "AAAR3sAAEAAAACXAAA"));
+
+    // without a primary key there is no key to split by
+    assertThat(importModule.split(table()), equalTo(new ArrayList<>()));
+    verify(statement).executeQuery();
+  }
+
+  @Test
+  public void keyRangesAreNotReadByRowId() {
+    TestableImportModule importModule = new TestableImportModule(mock(Connection.class));
+
+    assertThat(importModule.describe(KeyRange.between("ID", 1L, 10L)),
+      equalTo("\"ID\" >= 1 AND \"ID\" < 10 ORDER BY \"ID\""));
+  }
+}
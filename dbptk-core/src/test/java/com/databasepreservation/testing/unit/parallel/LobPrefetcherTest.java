@@ -0,0 +1,206 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.parallel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.io.providers.InputStreamProvider;
+import com.databasepreservation.common.parallel.LobPrefetcher;
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.utils.RowUtils;
+
+@Test(groups = {"unit"})
+public class LobPrefetcherTest {
+  private static final AtomicInteger running = new AtomicInteger(0);
+  private static final AtomicInteger maximumRunning = new AtomicInteger(0);
+
+  /**
+   * A LOB read lazily, as from a source database
+   */
+  private static final class LazyLob implements InputStreamProvider {
+    private final String contents;
+    private final long delay;
+    private final boolean failing;
+    // serializes the reads, as some drivers do with the connection
+    private final Object connection;
+    private volatile boolean cleaned = false;
+
+    private LazyLob(String contents, long delay, boolean failing) {
+      this(contents, delay, failing, null);
+    }
+
+    private LazyLob(String contents, long delay, boolean failing, Object connection) {
+      this.contents = contents;
+      this.delay = delay;
+      this.failing = failing;
+      this.connection = connection;
+    }
+
+    @Override
+    public InputStream createInputStream() throws ModuleException {
+      if (connection != null) {
+        synchronized (connection) {
+          return read();
+        }
+      }
+      return read();
+    }
+
+    private InputStream read() throws ModuleException {
+      maximumRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+      if (failing) {
+        throw new ModuleException().withMessage("LOB can not be read");
+      }
+      return new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void cleanResources() {
+      cleaned = true;
+    }
+
+    @Override
+    public long getSize() {
+      return contents.length();
+    }
+  }
+
+  private static Row lobRow(int index, LazyLob lob) {
+    List<Cell> cells = new ArrayList<>();
+    cells.add(new SimpleCell("t.c1." + index, "row" + index));
+    cells.add(new BinaryCell("t.c2." + index, lob));
+    return new Row(index, cells);
+  }
+
+  private static String read(Cell cell) throws ModuleException, IOException {
+    try (InputStream in = ((BinaryCell) cell).createInputStream()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Reads the LOB of the row and takes some time to write it, as an export
+   * module would
+   */
+  private static void export(Row row, long delay) throws ModuleException {
+    try {
+      read(row.getCells().get(1));
+      Thread.sleep(delay);
+    } catch (IOException e) {
+      throw new ModuleException().withCause(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void rowsKeepTheirOrderWithTheirLobsCopied() throws ModuleException, IOException {
+    maximumRunning.set(0);
+    List<Row> received = new ArrayList<>();
+    List<LazyLob> lobs = new ArrayList<>();
+    try (LobPrefetcher prefetcher = new LobPrefetcher(received::add, "t", 8, 3, 1024 * 1024)) {
+      for (int i = 1; i <= 30; i++) {
+        LazyLob lob = new LazyLob("lob" + i, (30 - i) % 4, false);
+        lobs.add(lob);
+        prefetcher.accept(lobRow(i, lob));
+      }
+      prefetcher.finish();
+    }
+
+    assertThat(received.size(), equalTo(30));
+    for (int i = 1; i <= 30; i++) {
+      Row row = received.get(i - 1);
+      assertThat(row.getIndex(), equalTo((long) i));
+      assertThat(RowUtils.isDetached(row), equalTo(true));
+      assertThat(read(row.getCells().get(1)), equalTo("lob" + i));
+      assertThat(lobs.get(i - 1).cleaned, equalTo(true));
+    }
+    assertThat(maximumRunning.get(), lessThanOrEqualTo(3));
+  }
+
+  @Test
+  public void rowsWaitingForTheirLobsAreBounded() throws ModuleException {
+    List<Row> received = new ArrayList<>();
+    try (LobPrefetcher prefetcher = new LobPrefetcher(received::add, "t", 4, 2, 1024 * 1024)) {
+      for (int i = 1; i <= 20; i++) {
+        prefetcher.accept(lobRow(i, new LazyLob("lob" + i, 1, false)));
+        assertThat(received.size(), greaterThanOrEqualTo(i - 4));
+      }
+      prefetcher.finish();
+    }
+    assertThat(received.size(), equalTo(20));
+  }
+
+  @Test
+  public void serializedLobReadsOverlapTheExport() throws ModuleException {
+    int rows = 20;
+    long delay = 15;
+    Object connection = new Object();
+
+    long start = System.nanoTime();
+    for (int i = 1; i <= rows; i++) {
+      export(lobRow(i, new LazyLob("lob" + i, delay, false, connection)), delay);
+    }
+    long direct = System.nanoTime() - start;
+
+    // a single thread, as the reads are serialized anyway
+    start = System.nanoTime();
+    try (LobPrefetcher prefetcher = new LobPrefetcher(row -> export(row, delay), "t", 8, 1, 1024 * 1024)) {
+      for (int i = 1; i <= rows; i++) {
+        prefetcher.accept(lobRow(i, new LazyLob("lob" + i, delay, false, connection)));
+      }
+      prefetcher.finish();
+    }
+    long prefetched = System.nanoTime() - start;
+
+    // each LOB is read while the previous row is exported, instead of before
+    assertThat(prefetched, lessThan(direct * 3 / 4));
+  }
+
+  @Test
+  public void lobsThatCanNotBeCopiedAreLeftAsTheyWere() throws ModuleException {
+    List<Row> received = new ArrayList<>();
+    LazyLob failing = new LazyLob("lob", 0, true);
+    Row row = lobRow(1, failing);
+    Cell lobCell = row.getCells().get(1);
+    try (LobPrefetcher prefetcher = new LobPrefetcher(received::add, "t", 4, 2, 1024 * 1024)) {
+      prefetcher.accept(row);
+      prefetcher.finish();
+    }
+
+    assertThat(received.size(), equalTo(1));
+    assertThat(received.get(0).getCells().get(1), sameInstance(lobCell));
+    assertThat(failing.cleaned, equalTo(false));
+  }
+}
@@ -0,0 +1,210 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.parallel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.parallel.ParallelTableMigration;
+import com.databasepreservation.common.parallel.RowConsumer;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.SinkModule;
+import com.databasepreservation.model.structure.SchemaStructure;
+import com.databasepreservation.model.structure.TableStructure;
+
+@Test(groups = {"unit"})
+public class ParallelTableMigrationTest {
+  private static final int LANE_CAPACITY = 2;
+
+  /**
+   * Extracts tables of numbered rows, in parts of up to 10 rows, failing the
+   * tables it was told to
+   */
+  private static class NumberedExtractor implements ParallelTableMigration.TableExtractor<String, Integer> {
+    private final Map<String, Integer> rows = new HashMap<>();
+    private final Map<String, Integer> failAfter = new HashMap<>();
+    private final List<String> failSplit = new ArrayList<>();
+    private final Map<String, Long> finished = Collections.synchronizedMap(new HashMap<>());
+    private final AtomicInteger extracting = new AtomicInteger(0);
+
+    @Override
+    public List<Integer> split(String worker, TableStructure table) throws ModuleException {
+      if (failSplit.contains(table.getId())) {
+        throw new ModuleException().withMessage("could not split " + table.getId());
+      }
+      List<Integer> parts = new ArrayList<>();
+      for (int part = 0; part * 10 < rows.get(table.getId()); part++) {
+        parts.add(part);
+      }
+      // tables of a single part are not split
+      return parts.size() > 1 ? parts : Collections.emptyList();
+    }
+
+    @Override
+    public void extract(String worker, TableStructure table, Integer part, RowConsumer lane) throws ModuleException {
+      extracting.incrementAndGet();
+      try {
+        int first = part == null ? 1 : part * 10 + 1;
+        int last = part == null ? rows.get(table.getId()) : Math.min(first + 9, rows.get(table.getId()));
+        for (int key = first; key <= last; key++) {
+          if (failAfter.containsKey(table.getId()) && key > failAfter.get(table.getId())) {
+            throw new ModuleException().withMessage("could not read " + table.getId());
+          }
+          // rows are numbered within their part, until the parts are merged
+          long index = key - first + 1L;
+          List<Cell> cells = new ArrayList<>();
+          cells.add(new SimpleCell(table.getId() + ".c." + index, Integer.toString(key)));
+          lane.accept(new Row(index, cells));
+          if (key % 3 == 0) {
+            Thread.sleep(1);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        extracting.decrementAndGet();
+      }
+    }
+
+    @Override
+    public void finishSplitTable(TableStructure table, long rows) {
+      finished.put(table.getId(), rows);
+    }
+  }
+
+  private static class RecordingSink extends SinkModule {
+    private final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void handleDataOpenTable(String tableId) {
+      calls.add("open " + tableId);
+    }
+
+    @Override
+    public void handleDataRow(Row row) {
+      SimpleCell cell = (SimpleCell) row.getCells().get(0);
+      calls.add(row.getIndex() + ":" + cell.getSimpleData() + ":" + cell.getId());
+    }
+
+    @Override
+    public void handleDataCloseTable(String tableId) {
+      calls.add("close " + tableId);
+    }
+  }
+
+  private static List<SchemaStructure> schemas(NumberedExtractor extractor, Object... tablesAndRows) {
+    SchemaStructure schema = new SchemaStructure();
+    schema.setName("s");
+    for (int i = 0; i < tablesAndRows.length; i += 2) {
+      TableStructure table = new TableStructure();
+      table.setName((String) tablesAndRows[i]);
+      table.setSchema("s");
+      table.setId("s." + tablesAndRows[i]);
+      schema.getTables().add(table);
+      extractor.rows.put(table.getId(), (Integer) tablesAndRows[i + 1]);
+    }
+    return Arrays.asList(schema);
+  }
+
+  private static List<String> expectedCalls(String tableId, int rows) {
+    List<String> calls = new ArrayList<>();
+    calls.add("open " + tableId);
+    for (int key = 1; key <= rows; key++) {
+      calls.add(key + ":" + key + ":" + tableId + ".c." + key);
+    }
+    calls.add("close " + tableId);
+    return calls;
+  }
+
+  @Test
+  public void rowsOfEachTableKeepTheirOrder() throws ModuleException {
+    NumberedExtractor extractor = new NumberedExtractor();
+    List<SchemaStructure> schemas = schemas(extractor, "a", 35, "b", 7, "c", 0, "d", 42);
+    RecordingSink sink = new RecordingSink();
+    new ParallelTableMigration<>(Arrays.asList("w1", "w2", "w3"), LANE_CAPACITY, extractor).migrate(schemas, sink);
+
+    List<String> expected = new ArrayList<>();
+    expected.addAll(expectedCalls("s.a", 35));
+    expected.addAll(expectedCalls("s.b", 7));
+    expected.addAll(expectedCalls("s.c", 0));
+    expected.addAll(expectedCalls("s.d", 42));
+    assertThat(sink.calls, equalTo(expected));
+
+    Map<String, Long> finished = new HashMap<>();
+    finished.put("s.a", 35L);
+    finished.put("s.d", 42L);
+    assertThat(extractor.finished, equalTo(finished));
+  }
+
+  @Test
+  public void workerFailuresReachTheCaller() {
+    NumberedExtractor extractor = new NumberedExtractor();
+    List<SchemaStructure> schemas = schemas(extractor, "a", 5, "b", 25, "c", 5);
+    extractor.failAfter.put("s.b", 13);
+    RecordingSink sink = new RecordingSink();
+
+    try {
+      new ParallelTableMigration<>(Arrays.asList("w1", "w2"), LANE_CAPACITY, extractor).migrate(schemas, sink);
+      throw new AssertionError("the migration should have failed");
+    } catch (ModuleException e) {
+      assertThat(e.getMessage(), equalTo("could not read s.b"));
+    }
+    // the table that failed is not closed, its batched rows are not exported
+    List<String> expected = new ArrayList<>(expectedCalls("s.a", 5));
+    expected.add("open s.b");
+    assertThat(sink.calls, equalTo(expected));
+    assertThat(extractor.extracting.get(), equalTo(0));
+  }
+
+  @Test
+  public void splitFailuresReachTheCaller() {
+    NumberedExtractor extractor = new NumberedExtractor();
+    List<SchemaStructure> schemas = schemas(extractor, "a", 5, "b", 25);
+    extractor.failSplit.add("s.b");
+
+    try {
+      new ParallelTableMigration<>(Arrays.asList("w1", "w2"), LANE_CAPACITY, extractor).migrate(schemas,
+        new RecordingSink());
+      throw new AssertionError("the migration should have failed");
+    } catch (ModuleException e) {
+      assertThat(e.getMessage(), equalTo("could not split s.b"));
+    }
+  }
+
+  @Test(timeOut = 30_000)
+  public void workersStopWhenALaneFails() {
+    NumberedExtractor extractor = new NumberedExtractor();
+    // the other workers fill their lanes and wait for them to be read
+    List<SchemaStructure> schemas = schemas(extractor, "a", 10, "b", 10_000, "c", 10_000, "d", 10);
+    extractor.failAfter.put("s.a", 3);
+    RecordingSink sink = new RecordingSink();
+
+    try {
+      new ParallelTableMigration<>(Arrays.asList("w1", "w2", "w3"), LANE_CAPACITY, extractor).migrate(schemas, sink);
+      throw new AssertionError("the migration should have failed");
+    } catch (ModuleException e) {
+      assertThat(e.getMessage(), equalTo("could not read s.a"));
+    }
+    // every worker returned before the migration did
+    assertThat(extractor.extracting.get(), equalTo(0));
+    assertThat(sink.calls, equalTo(Arrays.asList("open s.a")));
+  }
+}
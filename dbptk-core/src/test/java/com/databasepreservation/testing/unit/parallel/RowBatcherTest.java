@@ -0,0 +1,100 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.parallel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.io.providers.InputStreamProvider;
+import com.databasepreservation.common.parallel.RowBatcher;
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.SinkModule;
+
+@Test(groups = {"unit"})
+public class RowBatcherTest {
+  /**
+   * A LOB that is read lazily from the source database
+   */
+  private static class LazyInputStreamProvider implements InputStreamProvider {
+    @Override
+    public InputStream createInputStream() {
+      return new ByteArrayInputStream(new byte[] {1});
+    }
+
+    @Override
+    public void cleanResources() {
+      // nothing to release
+    }
+
+    @Override
+    public long getSize() {
+      return 1;
+    }
+  }
+
+  private static class RecordingSink extends SinkModule {
+    private final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void handleDataRow(Row row) {
+      calls.add("row " + row.getIndex());
+    }
+
+    @Override
+    public void handleDataRows(RowBatch rows) {
+      List<Long> indexes = new ArrayList<>();
+      for (Row row : rows) {
+        indexes.add(row.getIndex());
+      }
+      calls.add("rows " + indexes);
+    }
+  }
+
+  private static Row row(long index, Cell cell) {
+    return new Row(index, new ArrayList<>(Arrays.asList(cell)));
+  }
+
+  @Test
+  public void rowsAreSentInBatches() throws ModuleException {
+    RecordingSink sink = new RecordingSink();
+    RowBatcher batcher = new RowBatcher(sink, 3);
+    for (long i = 1; i <= 7; i++) {
+      batcher.accept(row(i, new SimpleCell("t.c." + i, "v")));
+    }
+    batcher.flush();
+    batcher.flush();
+
+    assertThat(sink.calls, equalTo(Arrays.asList("rows [1, 2, 3]", "rows [4, 5, 6]", "rows [7]")));
+  }
+
+  @Test
+  public void rowsWithLazyLobsAreSentOnTheirOwn() throws ModuleException {
+    RecordingSink sink = new RecordingSink();
+    RowBatcher batcher = new RowBatcher(sink, 3);
+    batcher.accept(row(1, new SimpleCell("t.c.1", "v")));
+    batcher.accept(row(2, new SimpleCell("t.c.2", "v")));
+    batcher.accept(row(3, new BinaryCell("t.c.3", new LazyInputStreamProvider())));
+    batcher.accept(row(4, new SimpleCell("t.c.4", "v")));
+    batcher.flush();
+
+    assertThat(sink.calls, equalTo(Arrays.asList("rows [1, 2]", "row 3", "rows [4]")));
+  }
+}
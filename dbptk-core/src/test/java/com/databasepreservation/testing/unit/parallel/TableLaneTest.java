@@ -0,0 +1,98 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.parallel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.parallel.TableLane;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.exception.ModuleException;
+
+@Test(groups = {"unit"})
+public class TableLaneTest {
+  private static Thread worker(TableLane lane, int rows, ModuleException failure,
+    AtomicReference<ModuleException> workerFailure) {
+    Thread thread = new Thread(() -> {
+      try {
+        for (int i = 1; i <= rows; i++) {
+          lane.accept(new Row(i, new ArrayList<>()));
+        }
+        if (failure == null) {
+          lane.finish();
+        } else {
+          lane.fail(failure);
+        }
+      } catch (ModuleException e) {
+        workerFailure.set(e);
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  @Test
+  public void rowsAreTakenInTheOrderTheyWereAdded() throws ModuleException, InterruptedException {
+    TableLane lane = new TableLane("s.t", 3);
+    AtomicReference<ModuleException> workerFailure = new AtomicReference<>();
+    Thread thread = worker(lane, 100, null, workerFailure);
+
+    List<Long> indexes = new ArrayList<>();
+    Row row;
+    while ((row = lane.take()) != null) {
+      indexes.add(row.getIndex());
+    }
+    thread.join();
+
+    assertThat(indexes.size(), equalTo(100));
+    for (int i = 0; i < indexes.size(); i++) {
+      assertThat(indexes.get(i), equalTo(i + 1L));
+    }
+    assertThat(lane.take(), nullValue());
+    assertThat(workerFailure.get(), nullValue());
+  }
+
+  @Test
+  public void failuresAreThrownAfterTheRowsAlreadyAdded() throws ModuleException, InterruptedException {
+    TableLane lane = new TableLane("s.t", 10);
+    ModuleException failure = new ModuleException().withMessage("failed");
+    worker(lane, 5, failure, new AtomicReference<>()).join();
+
+    for (int i = 1; i <= 5; i++) {
+      assertThat(lane.take().getIndex(), equalTo((long) i));
+    }
+    for (int i = 0; i < 2; i++) {
+      try {
+        lane.take();
+        throw new AssertionError("the failure should have been thrown");
+      } catch (ModuleException e) {
+        assertThat(e, equalTo(failure));
+      }
+    }
+  }
+
+  @Test(timeOut = 10_000)
+  public void cancellingReleasesAWorkerBlockedOnAFullLane() throws ModuleException, InterruptedException {
+    TableLane lane = new TableLane("s.t", 2);
+    AtomicReference<ModuleException> workerFailure = new AtomicReference<>();
+    Thread thread = worker(lane, 100, null, workerFailure);
+
+    assertThat(lane.take().getIndex(), equalTo(1L));
+    lane.cancel();
+    thread.join();
+
+    assertThat(workerFailure.get().getMessage(), equalTo("Migration of table s.t was cancelled"));
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.parallel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.parallel.WorkerPool;
+import com.databasepreservation.model.exception.ModuleException;
+
+@Test(groups = {"unit"})
+public class WorkerPoolTest {
+  private static final class Worker {
+    private final AtomicInteger running = new AtomicInteger(0);
+    private volatile boolean checked = false;
+    private volatile int maximumRunning = 0;
+  }
+
+  @Test
+  public void resultsKeepTheOrderOfTheItems() throws ModuleException {
+    List<Worker> workers = Arrays.asList(new Worker(), new Worker(), new Worker());
+    WorkerPool<Worker> pool = new WorkerPool<>(workers, worker -> worker.checked = true, "test-worker");
+
+    List<Integer> items = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      items.add(i);
+    }
+
+    List<String> results = pool.map(items, (worker, item) -> {
+      int running = worker.running.incrementAndGet();
+      worker.maximumRunning = Math.max(worker.maximumRunning, running);
+      try {
+        // later items finish first
+        Thread.sleep((50 - item) % 5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      worker.running.decrementAndGet();
+      return "item" + item;
+    });
+
+    assertThat(results.size(), equalTo(50));
+    for (int i = 0; i < 50; i++) {
+      assertThat(results.get(i), equalTo("item" + i));
+    }
+    for (Worker worker : workers) {
+      assertThat(worker.checked, equalTo(true));
+      assertThat(worker.maximumRunning, lessThanOrEqualTo(1));
+    }
+  }
+
+  @Test
+  public void theFirstFailureIsThrown() {
+    WorkerPool<Worker> pool = new WorkerPool<>(Arrays.asList(new Worker(), new Worker()), worker -> {
+    }, "test-worker");
+    AtomicInteger started = new AtomicInteger(0);
+
+    ModuleException failure = null;
+    try {
+      pool.map(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), (worker, item) -> {
+        started.incrementAndGet();
+        if (item == 2) {
+          throw new ModuleException().withMessage("failed " + item);
+        }
+        return item;
+      });
+    } catch (ModuleException e) {
+      failure = e;
+    }
+
+    assertThat(failure.getMessage(), equalTo("failed 2"));
+    assertThat(started.get(), lessThanOrEqualTo(8));
+  }
+
+  @Test
+  public void failedHealthChecksAreThrown() {
+    WorkerPool<Worker> pool = new WorkerPool<>(Arrays.asList(new Worker()), worker -> {
+      throw new ModuleException().withMessage("unhealthy");
+    }, "test-worker");
+    List<Integer> ran = new ArrayList<>();
+
+    ModuleException failure = null;
+    try {
+      pool.map(Arrays.asList(1, 2), (worker, item) -> {
+        ran.add(item);
+        return item;
+      });
+    } catch (ModuleException e) {
+      failure = e;
+    }
+
+    assertThat(failure.getMessage(), equalTo("unhealthy"));
+    assertThat(ran.isEmpty(), equalTo(true));
+  }
+}
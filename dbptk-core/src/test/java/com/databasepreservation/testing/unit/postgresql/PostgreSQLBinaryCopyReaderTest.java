@@ -0,0 +1,165 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.postgresql;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.modules.postgresql.in.PostgreSQLBinaryCopyReader;
+
+@Test(groups = {"unit"})
+public class PostgreSQLBinaryCopyReaderTest {
+  private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+  @Test
+  public void rowsAreReadUntilTheTrailer() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.write(SIGNATURE);
+    out.writeInt(0);
+    // header extension, skipped
+    out.writeInt(2);
+    out.writeShort(0);
+
+    out.writeShort(2);
+    out.writeInt(4);
+    out.writeInt(42);
+    out.writeInt(-1);
+
+    out.writeShort(2);
+    out.writeInt(0);
+    byte[] text = "ação".getBytes(StandardCharsets.UTF_8);
+    out.writeInt(text.length);
+    out.write(text);
+
+    out.writeShort(-1);
+
+    try (PostgreSQLBinaryCopyReader reader = new PostgreSQLBinaryCopyReader(new ByteArrayInputStream(
+      bytes.toByteArray()))) {
+      byte[][] row = reader.nextRow();
+      assertThat(PostgreSQLBinaryCopyReader.decodeInt4(row[0]), equalTo(42));
+      assertThat(row[1], nullValue());
+
+      row = reader.nextRow();
+      assertThat(row[0].length, equalTo(0));
+      assertThat(PostgreSQLBinaryCopyReader.decodeText(row[1]), equalTo("ação"));
+
+      assertThat(reader.nextRow(), nullValue());
+      assertThat(reader.nextRow(), nullValue());
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void textFormatIsRejected() throws IOException {
+    new PostgreSQLBinaryCopyReader(new ByteArrayInputStream("1\tone\n\\.\n".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void numericsKeepTheirDisplayScale() throws IOException {
+    // 1.50
+    assertThat(PostgreSQLBinaryCopyReader.decodeNumeric(numeric(0, 0, 2, 1, 5000)),
+      equalTo(new BigDecimal("1.50")));
+    // -12345678.9
+    assertThat(PostgreSQLBinaryCopyReader.decodeNumeric(numeric(1, 0x4000, 1, 1234, 5678, 9000)),
+      equalTo(new BigDecimal("-12345678.9")));
+    // 100000000
+    assertThat(PostgreSQLBinaryCopyReader.decodeNumeric(numeric(2, 0, 0, 1)), equalTo(new BigDecimal("100000000")));
+    // 0.0001
+    assertThat(PostgreSQLBinaryCopyReader.decodeNumeric(numeric(-1, 0, 4, 1)), equalTo(new BigDecimal("0.0001")));
+    // 0.000
+    assertThat(PostgreSQLBinaryCopyReader.decodeNumeric(numeric(0, 0, 3)), equalTo(new BigDecimal("0.000")));
+
+    assertThat(PostgreSQLBinaryCopyReader.numericSpecialValue(numeric(0, 0, 2, 1, 5000)), nullValue());
+    assertThat(PostgreSQLBinaryCopyReader.numericSpecialValue(numeric(0, 0xC000, 0)), equalTo("NaN"));
+  }
+
+  @Test(expectedExceptions = NumberFormatException.class)
+  public void specialNumericsAreNotDecimals() throws IOException {
+    PostgreSQLBinaryCopyReader.decodeNumeric(numeric(0, 0xD000, 0));
+  }
+
+  @Test
+  public void timestampsAreMicrosecondsSince2000() throws IOException {
+    long microseconds = 86_400_000_000L + 1_500_000L + 7;
+    assertThat(PostgreSQLBinaryCopyReader.decodeTimestamp(int8(microseconds)),
+      equalTo(LocalDateTime.of(2000, 1, 2, 0, 0, 1, 500_007_000)));
+    assertThat(PostgreSQLBinaryCopyReader.decodeTimestampWithTimeZone(int8(-1_000_000L)),
+      equalTo(Instant.parse("1999-12-31T23:59:59Z")));
+
+    assertThat(PostgreSQLBinaryCopyReader.decodeTimestamp(int8(Long.MAX_VALUE)), nullValue());
+    assertThat(PostgreSQLBinaryCopyReader.isPositiveInfinity(int8(Long.MAX_VALUE)), equalTo(true));
+    assertThat(PostgreSQLBinaryCopyReader.isPositiveInfinity(int8(Long.MIN_VALUE)), equalTo(false));
+  }
+
+  @Test
+  public void arraysKeepDimensionsAndNulls() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    // int4[2][2] with a null element
+    out.writeInt(2);
+    out.writeInt(1);
+    out.writeInt(23);
+    out.writeInt(2);
+    out.writeInt(1);
+    out.writeInt(2);
+    out.writeInt(1);
+    for (int i = 1; i <= 4; i++) {
+      if (i == 3) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(4);
+        out.writeInt(i);
+      }
+    }
+
+    PostgreSQLBinaryCopyReader.RawArray array = PostgreSQLBinaryCopyReader.decodeArray(bytes.toByteArray());
+    assertThat(array.getElementOid(), equalTo(23));
+    assertThat(array.getDimensions().length, equalTo(2));
+    assertThat(array.getElements().length, equalTo(4));
+    assertThat(PostgreSQLBinaryCopyReader.decodeInt4(array.getElements()[3]), equalTo(4));
+    assertThat(array.getElements()[2], nullValue());
+
+    // empty arrays have no dimensions
+    bytes.reset();
+    out.writeInt(0);
+    out.writeInt(0);
+    out.writeInt(25);
+    assertThat(PostgreSQLBinaryCopyReader.decodeArray(bytes.toByteArray()).getElements().length, equalTo(0));
+  }
+
+  private static byte[] numeric(int weight, int sign, int displayScale, int... digitGroups) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeShort(digitGroups.length);
+    out.writeShort(weight);
+    out.writeShort(sign);
+    out.writeShort(displayScale);
+    for (int group : digitGroups) {
+      out.writeShort(group);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] int8(long value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new DataOutputStream(bytes).writeLong(value);
+    return bytes.toByteArray();
+  }
+}
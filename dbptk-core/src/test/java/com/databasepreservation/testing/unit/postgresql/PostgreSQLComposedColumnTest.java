@@ -0,0 +1,157 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.postgresql;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.ComposedCell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.reporters.NoOpReporter;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.ComposedTypeStructure;
+import com.databasepreservation.model.structure.type.ComposedTypeStructure.SubType;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
+import com.databasepreservation.model.structure.type.Type;
+import com.databasepreservation.modules.postgresql.in.PostgreSQLJDBCImportModule;
+
+/**
+ * Reads a row of a table with a user defined type from a mocked result set,
+ * checking that the fields of the type are read with the column readers, from
+ * the aliases selected after the table columns.
+ */
+@Test(groups = {"unit"})
+public class PostgreSQLComposedColumnTest {
+
+  /**
+   * The PostgreSQL module, reading a given result set
+   */
+  private static class TestableImportModule extends PostgreSQLJDBCImportModule {
+    private final ResultSet resultSet;
+    private final List<String> queries = new ArrayList<>();
+
+    TestableImportModule(ResultSet resultSet) {
+      super("postgresql", "localhost", 5432, "db", "user", "password", false);
+      this.resultSet = resultSet;
+      setOnceReporter(new NoOpReporter());
+    }
+
+    @Override
+    protected ResultSet getTableRawData(String query, String tableId) {
+      queries.add(query);
+      return resultSet;
+    }
+
+    Row read(TableStructure table) throws SQLException, ModuleException {
+      return convertRawToRow(getTableRawData(table, null), table);
+    }
+  }
+
+  private static ColumnStructure column(String name, Type type) {
+    ColumnStructure column = new ColumnStructure();
+    column.setId("s.t." + name);
+    column.setName(name);
+    column.setType(type);
+    return column;
+  }
+
+  private static TableStructure table() {
+    ComposedTypeStructure address = new ComposedTypeStructure("address");
+    address.addType("street", new SimpleTypeString(20, true));
+    address.addType("number", new SimpleTypeNumericExact(9, 0));
+
+    TableStructure table = new TableStructure();
+    table.setId("s.t");
+    table.setName("t");
+    table.setSchema("s");
+    table.setColumns(new ArrayList<>(Arrays.asList(column("id", new SimpleTypeNumericExact(9, 0)),
+      column("address", address), column("note", new SimpleTypeString(20, true)))));
+    return table;
+  }
+
+  private static String describe(Cell cell) {
+    if (cell instanceof ComposedCell composedCell) {
+      StringJoiner fields = new StringJoiner(", ", "(", ")");
+      for (Cell field : composedCell.getComposedData()) {
+        fields.add(describe(field));
+      }
+      return cell.getId() + " " + fields;
+    }
+    return cell.getId() + " " + (cell instanceof SimpleCell simpleCell ? simpleCell.getSimpleData() : "null");
+  }
+
+  @Test
+  public void fieldsAreReadFromTheirAliases() throws SQLException, ModuleException {
+    TableStructure table = table();
+    ColumnStructure address = table.getColumns().get(1);
+    List<String> fields = new ArrayList<>();
+    for (SubType subtype : ((ComposedTypeStructure) address.getType()).getDirectDescendantSubTypes(address.getId())) {
+      fields.add(subtype.getPath().get(1));
+    }
+
+    // the table columns, then the fields of the type
+    Map<Integer, String> strings = new HashMap<>();
+    Map<Integer, Long> longs = new HashMap<>();
+    longs.put(1, 7L);
+    strings.put(2, "(Main St,5)");
+    strings.put(3, "a note");
+    for (int i = 0; i < fields.size(); i++) {
+      if (fields.get(i).equals("street")) {
+        strings.put(4 + i, "Main St");
+      } else {
+        longs.put(4 + i, 5L);
+      }
+    }
+
+    ResultSet resultSet = mock(ResultSet.class);
+    ResultSetMetaData metadata = mock(ResultSetMetaData.class);
+    when(metadata.getColumnCount()).thenReturn(5);
+    when(resultSet.getMetaData()).thenReturn(metadata);
+    when(resultSet.getRow()).thenReturn(1);
+    when(resultSet.getString(anyInt())).thenAnswer(invocation -> strings.get(invocation.<Integer> getArgument(0)));
+    when(resultSet.getLong(anyInt())).thenAnswer(invocation -> longs.get(invocation.<Integer> getArgument(0)));
+
+    TestableImportModule importModule = new TestableImportModule(resultSet);
+    Row row = importModule.read(table);
+
+    String streetAlias = table.getUDTAlias("(s.t.address).street");
+    String numberAlias = table.getUDTAlias("(s.t.address).number");
+    String street = "t." + streetAlias + ".1 Main St";
+    String number = "t." + numberAlias + ".1 5";
+    String composed = fields.get(0).equals("street") ? street + ", " + number : number + ", " + street;
+    assertThat(describe(row.getCells().get(0)), equalTo("t.id.1 7"));
+    assertThat(describe(row.getCells().get(1)), equalTo("t.address.1 (" + composed + ")"));
+    assertThat(describe(row.getCells().get(2)), equalTo("t.note.1 a note"));
+
+    // the aliases are kept for the next queries of the table
+    importModule.read(table);
+    assertThat(importModule.queries.size(), equalTo(2));
+    assertThat(importModule.queries.get(1), equalTo(importModule.queries.get(0)));
+    assertThat(importModule.queries.get(0).contains("(s.t.address).street AS " + streetAlias), equalTo(true));
+  }
+}
@@ -0,0 +1,187 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.postgresql;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.SinkModule;
+import com.databasepreservation.model.reporters.Reporter;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.DatabaseStructure;
+import com.databasepreservation.model.structure.SchemaStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
+import com.databasepreservation.modules.postgresql.out.PostgreSQLJDBCExportModule;
+
+/**
+ * Loads rows with the PostgreSQL export module into a mocked connection,
+ * checking that the rows of a COPY command rejected by PostgreSQL are inserted again
+ * with the prepared statement.
+ */
+@Test(groups = {"unit"})
+public class PostgreSQLCopyLoadTest {
+
+  /**
+   * The PostgreSQL module, with a given connection and database structure
+   */
+  private static class TestableExportModule extends PostgreSQLJDBCExportModule {
+    private final Connection connection;
+
+    TestableExportModule(Connection connection, DatabaseStructure structure) throws ModuleException {
+      super("localhost", -1, "db", "user", "password", false, false, null, null, null, null);
+      this.connection = connection;
+      this.databaseStructure = structure;
+    }
+
+    @Override
+    public Connection getConnection() {
+      return connection;
+    }
+  }
+
+  private Connection connection;
+  private PreparedStatement insert;
+  private CopyIn copyIn;
+  private ByteArrayOutputStream copied;
+  private Reporter reporter;
+
+  @BeforeMethod
+  public void mockConnection() throws SQLException {
+    copied = new ByteArrayOutputStream();
+    copyIn = mock(CopyIn.class);
+    when(copyIn.isActive()).thenReturn(true);
+    doAnswer(invocation -> {
+      copied.write(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+      return null;
+    }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+
+    CopyManager copyManager = mock(CopyManager.class);
+    when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+    PGConnection pgConnection = mock(PGConnection.class);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+
+    insert = mock(PreparedStatement.class);
+    connection = mock(Connection.class);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(connection.prepareStatement(anyString())).thenReturn(insert);
+    when(connection.createStatement()).thenReturn(mock(Statement.class));
+
+    reporter = mock(Reporter.class);
+  }
+
+  private static DatabaseStructure structure() {
+    ColumnStructure id = new ColumnStructure("s.t.id", "id", new SimpleTypeNumericExact(10, 0), true, null, null,
+      false);
+    id.getType().setSql99TypeName("INTEGER");
+    ColumnStructure name = new ColumnStructure("s.t.name", "name", new SimpleTypeString(10, true), true, null, null,
+      false);
+    name.getType().setSql99TypeName("CHARACTER VARYING(10)");
+
+    TableStructure table = new TableStructure();
+    table.setName("t");
+    table.setSchema("s");
+    table.setId("s.t");
+    table.setColumns(new ArrayList<>(Arrays.asList(id, name)));
+    SchemaStructure schema = new SchemaStructure();
+    schema.setName("s");
+    schema.getTables().add(table);
+    DatabaseStructure structure = new DatabaseStructure();
+    structure.setSchemas(new ArrayList<>(List.of(schema)));
+    return structure;
+  }
+
+  private static Row row(long index, String name) {
+    return new Row(index, new ArrayList<>(Arrays.asList(new SimpleCell("s.t.id." + index, Long.toString(index)),
+      new SimpleCell("s.t.name." + index, name))));
+  }
+
+  private void load(Row... rows) throws ModuleException {
+    TestableExportModule exportModule = new TestableExportModule(connection, structure());
+    exportModule.setOnceReporter(reporter);
+    exportModule.migrateDatabaseTo(new SinkModule());
+    exportModule.handleDataOpenSchema("s");
+    exportModule.handleDataOpenTable("s.t");
+    for (Row row : rows) {
+      exportModule.handleDataRow(row);
+    }
+    exportModule.handleDataCloseTable("s.t");
+  }
+
+  @Test
+  public void copiedRowsAreNotInserted() throws ModuleException, SQLException {
+    load(row(1, "Ann"), row(2, "Bob"));
+
+    assertThat(copied.toString(StandardCharsets.UTF_8), equalTo("1\tAnn\n2\tBob\n"));
+    verify(copyIn).endCopy();
+    verify(insert, never()).addBatch();
+    verify(connection, never()).rollback();
+    verify(reporter, never()).failed(anyString(), anyString());
+  }
+
+  @Test
+  public void rowsOfARejectedCopyAreInsertedAgain() throws ModuleException, SQLException {
+    when(copyIn.endCopy()).thenThrow(new SQLException("invalid input syntax"));
+
+    load(row(1, "Ann"), row(2, "Bob"));
+
+    verify(connection).rollback();
+    verify(insert, times(2)).addBatch();
+    verify(insert).setString(2, "Ann");
+    verify(insert).setString(2, "Bob");
+    verify(insert).executeBatch();
+    verify(reporter, never()).failed(anyString(), anyString());
+  }
+
+  @Test
+  public void rowsOfACancelledCopyAreInsertedAgain() throws ModuleException, SQLException {
+    doNothing().doThrow(new SQLException("connection reset")).when(copyIn)
+      .writeToCopy(any(byte[].class), anyInt(), anyInt());
+
+    // a row longer than the stream buffer is sent while it is written
+    char[] longName = new char[200_000];
+    Arrays.fill(longName, 'x');
+    load(row(1, "Ann"), row(2, new String(longName)));
+
+    verify(copyIn).cancelCopy();
+    verify(connection).rollback();
+    verify(insert, times(2)).addBatch();
+    verify(insert).setString(2, "Ann");
+    verify(reporter, never()).failed(anyString(), anyString());
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.postgresql;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.io.providers.InMemoryInputStreamProvider;
+import com.databasepreservation.model.data.ArrayCell;
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.BooleanCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.ClobCell;
+import com.databasepreservation.model.data.DecimalCell;
+import com.databasepreservation.model.data.LongCell;
+import com.databasepreservation.model.data.NullCell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.data.TimestampCell;
+import com.databasepreservation.model.exception.InvalidDataException;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.ComposedTypeArray;
+import com.databasepreservation.model.structure.type.SimpleTypeBinary;
+import com.databasepreservation.model.structure.type.SimpleTypeBoolean;
+import com.databasepreservation.model.structure.type.SimpleTypeDateTime;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericApproximate;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
+import com.databasepreservation.model.structure.type.Type;
+import com.databasepreservation.modules.postgresql.PostgreSQLHelper;
+import com.databasepreservation.modules.postgresql.out.PostgreSQLCopyWriter;
+
+@Test(groups = {"unit"})
+public class PostgreSQLCopyWriterTest {
+
+  private static ColumnStructure column(Type type, String sql99TypeName) {
+    type.setSql99TypeName(sql99TypeName);
+    ColumnStructure column = new ColumnStructure();
+    column.setType(type);
+    return column;
+  }
+
+  private static String write(List<ColumnStructure> columns, Cell... cells) throws ModuleException, IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (PostgreSQLCopyWriter writer = new PostgreSQLCopyWriter(bytes, columns)) {
+      writer.writeRow(new Row(1, new ArrayList<>(Arrays.asList(cells))));
+    }
+    return bytes.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void textsAreEscaped() throws ModuleException, IOException {
+    List<ColumnStructure> columns = Arrays.asList(column(new SimpleTypeString(100, true), "CHARACTER VARYING(100)"),
+      column(new SimpleTypeString(100, true), "CHARACTER VARYING(100)"),
+      column(new SimpleTypeString(null, true), "CHARACTER LARGE OBJECT"));
+
+    String clob = "line 1\r\nline 2\u0000\\";
+    assertThat(
+      write(columns, new SimpleCell("t.a.1", "a\tb\\c\u0000"), new NullCell("t.b.1"),
+        new ClobCell("t.c.1", new InMemoryInputStreamProvider(clob.getBytes(StandardCharsets.UTF_8)))),
+      equalTo("a\\tb\\\\c\t\\N\tline 1\\r\\nline 2\\\\\n"));
+  }
+
+  @Test
+  public void valuesAreConvertedAsWithPreparedStatements() throws ModuleException, IOException {
+    List<ColumnStructure> columns = Arrays.asList(column(new SimpleTypeNumericExact(10, 0), "INTEGER"),
+      column(new SimpleTypeNumericExact(10, 0), "INTEGER"), column(new SimpleTypeNumericExact(10, 2), "DECIMAL(10,2)"),
+      column(new SimpleTypeNumericApproximate(), "DOUBLE PRECISION"), column(new SimpleTypeBoolean(), "BOOLEAN"),
+      column(new SimpleTypeBoolean(), "BOOLEAN"), column(new SimpleTypeDateTime(false, false), "DATE"),
+      column(new SimpleTypeDateTime(true, false), "TIMESTAMP"),
+      column(new SimpleTypeDateTime(true, true), "TIMESTAMP WITH TIME ZONE"));
+
+    Instant instant = Instant.parse("2020-02-29T12:34:56.789Z");
+    String[] values = write(columns, new LongCell("t.a.1", -42), new SimpleCell("t.b.1", "7.5"),
+      new DecimalCell("t.c.1", new BigDecimal("1E+3")), new SimpleCell("t.d.1", "0.25"),
+      new BooleanCell("t.e.1", true), new SimpleCell("t.f.1", "false"), new SimpleCell("t.g.1", "2020-02-29"),
+      new TimestampCell("t.h.1", Timestamp.from(instant)), new SimpleCell("t.i.1", instant.toString()))
+      .split("\t");
+
+    assertThat(values[0], equalTo("-42"));
+    assertThat(values[1], equalTo("8"));
+    assertThat(values[2], equalTo("1000"));
+    assertThat(values[3], equalTo("0.25"));
+    assertThat(values[4], equalTo("true"));
+    assertThat(values[5], equalTo("false"));
+    assertThat(values[6], equalTo("2020-02-29"));
+    assertThat(OffsetDateTime.parse(values[7]).toInstant(), equalTo(instant));
+    assertThat(OffsetDateTime.parse(values[8].trim()).toInstant(), equalTo(instant));
+  }
+
+  @Test
+  public void binariesAreHexadecimal() throws ModuleException, IOException {
+    List<ColumnStructure> columns = Arrays.asList(column(new SimpleTypeBinary(), "BINARY LARGE OBJECT"),
+      column(new SimpleTypeString(null, true), "CHARACTER LARGE OBJECT"));
+
+    assertThat(
+      write(columns, new BinaryCell("t.a.1", new InMemoryInputStreamProvider(new byte[] {0, 127, (byte) 0xAB})),
+        new BinaryCell("t.b.1", new InMemoryInputStreamProvider("ação\n".getBytes(StandardCharsets.UTF_8)))),
+      equalTo("\\\\x007fab\tação\\n\n"));
+  }
+
+  @Test
+  public void rowsWithValuesThatCanNotBeCopiedAreDetected() {
+    ColumnStructure text = column(new SimpleTypeString(10, true), "CHARACTER VARYING(10)");
+    ColumnStructure array = column(new ComposedTypeArray(new SimpleTypeString(10, true)), "CHARACTER VARYING(10) ARRAY");
+    ColumnStructure timeWithTimeZone = column(new SimpleTypeDateTime(true, true), "TIME WITH TIME ZONE");
+
+    assertThat(PostgreSQLCopyWriter.isSupported(text), equalTo(true));
+    assertThat(PostgreSQLCopyWriter.isSupported(array), equalTo(false));
+    assertThat(PostgreSQLCopyWriter.isSupported(timeWithTimeZone), equalTo(false));
+
+    Row row = new Row(1, new ArrayList<>(Arrays.asList(new SimpleCell("t.a.1", "x"), new ArrayCell("t.b.1"))));
+    assertThat(PostgreSQLCopyWriter.isSupported(row, Arrays.asList(text, text)), equalTo(false));
+  }
+
+  @Test
+  public void theCopyCommandListsTheColumns() throws ModuleException {
+    ColumnStructure id = column(new SimpleTypeNumericExact(10, 0), "INTEGER");
+    id.setName("id");
+    ColumnStructure name = column(new SimpleTypeString(10, true), "CHARACTER VARYING(10)");
+    name.setName("Name");
+    TableStructure table = new TableStructure();
+    table.setId("public.people");
+    table.setColumns(Arrays.asList(id, name));
+
+    assertThat(new PostgreSQLHelper().copyFromStdinSQL(table),
+      equalTo("COPY \"public\".\"people\" (\"id\", \"Name\") FROM STDIN"));
+  }
+
+  @Test
+  public void rowsWithInvalidValuesAreNotWritten() throws IOException {
+    List<ColumnStructure> columns = Arrays.asList(column(new SimpleTypeString(10, true), "CHARACTER VARYING(10)"),
+      column(new SimpleTypeNumericExact(10, 0), "INTEGER"));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (PostgreSQLCopyWriter writer = new PostgreSQLCopyWriter(bytes, columns)) {
+      writer.writeRow(new Row(1, new ArrayList<>(Arrays.asList(new SimpleCell("t.a.1", "x"),
+        new SimpleCell("t.b.1", "not a number")))));
+    } catch (InvalidDataException e) {
+      // expected
+    } catch (ModuleException e) {
+      throw new AssertionError(e);
+    }
+    assertThat(bytes.size(), equalTo(0));
+  }
+}
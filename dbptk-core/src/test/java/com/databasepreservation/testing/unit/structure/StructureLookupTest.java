@@ -0,0 +1,64 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.structure;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.model.structure.DatabaseStructure;
+import com.databasepreservation.model.structure.SchemaStructure;
+import com.databasepreservation.model.structure.TableStructure;
+
+@Test(groups = {"unit"})
+public class StructureLookupTest {
+  @Test
+  public void lookupsFollowChangesMadeInPlace() {
+    SchemaStructure schema = new SchemaStructure();
+    schema.setName("public");
+    schema.setTables(new ArrayList<>());
+    DatabaseStructure database = new DatabaseStructure();
+    database.setSchemas(new ArrayList<>(List.of(schema)));
+
+    TableStructure first = table(schema, "first");
+    schema.getTables().add(first);
+    assertThat(database.getSchemaByName("PUBLIC"), sameInstance(schema));
+    assertThat(database.getTableById("public.FIRST"), sameInstance(first));
+    assertThat(database.getTableById("public.second"), nullValue());
+
+    // added, then renamed after the index was built
+    TableStructure second = table(schema, "temporary");
+    schema.getTables().add(second);
+    assertThat(database.getTableById("public.temporary"), sameInstance(second));
+    second.setId("public.second");
+    second.setName("second");
+    assertThat(database.getTableById("public.second"), sameInstance(second));
+    assertThat(database.getTableById("public.temporary"), nullValue());
+    assertThat(schema.getTableByName("Second"), sameInstance(second));
+
+    // replaced by a table with the same id, without changing the size
+    TableStructure replacement = table(schema, "first");
+    schema.getTables().set(0, replacement);
+    assertThat(database.getTableById("public.first"), sameInstance(replacement));
+    assertThat(schema.getTableById("public.first"), sameInstance(replacement));
+  }
+
+  private static TableStructure table(SchemaStructure schema, String name) {
+    TableStructure table = new TableStructure();
+    table.setId(schema.getName() + "." + name);
+    table.setName(name);
+    table.setSchema(schema.getName());
+    table.setColumns(new ArrayList<>());
+    return table;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.testing.unit.utils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.databasepreservation.common.io.providers.InputStreamProvider;
+import com.databasepreservation.model.data.ArrayCell;
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.utils.RowUtils;
+
+@Test(groups = {"unit"})
+public class RowUtilsTest {
+  /**
+   * A LOB that is read lazily from the source database, which can no longer be
+   * read after its resources are released
+   */
+  private static class LazyInputStreamProvider implements InputStreamProvider {
+    private final byte[] data;
+    private boolean released = false;
+
+    LazyInputStreamProvider(String data) {
+      this.data = data.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public InputStream createInputStream() throws ModuleException {
+      if (released) {
+        throw new ModuleException().withMessage("the source moved on");
+      }
+      return new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public void cleanResources() {
+      released = true;
+    }
+
+    @Override
+    public long getSize() {
+      return data.length;
+    }
+  }
+
+  private static String read(BinaryCell cell) throws ModuleException, IOException {
+    try (InputStream in = cell.createInputStream()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void lobsInArraysAreDetached() throws ModuleException, IOException {
+    LazyInputStreamProvider attachment = new LazyInputStreamProvider("attachment");
+    LazyInputStreamProvider blob = new LazyInputStreamProvider("blob");
+    ArrayCell attachments = new ArrayCell("t.a.1");
+    attachments.put(new SimpleCell("t.a.1.1", "name"), 1);
+    attachments.put(new BinaryCell("t.a.1.2", attachment), 2);
+    Row row = new Row(1, new ArrayList<>(Arrays.asList(attachments, new BinaryCell("t.b.1", blob))));
+    assertThat(RowUtils.isDetached(row), equalTo(false));
+
+    RowUtils.detach(row);
+
+    assertThat(RowUtils.isDetached(row), equalTo(true));
+    assertThat(attachment.released, equalTo(true));
+    assertThat(blob.released, equalTo(true));
+    assertThat(row.getCells().get(0), sameInstance(attachments));
+    assertThat(((SimpleCell) attachments.getCell(0)).getSimpleData(), equalTo("name"));
+    BinaryCell detached = (BinaryCell) attachments.getCell(1);
+    assertThat(detached.getInputStreamProvider(), not(sameInstance(attachment)));
+    assertThat(detached.getId(), equalTo("t.a.1.2"));
+    assertThat(read(detached), equalTo("attachment"));
+    assertThat(read((BinaryCell) row.getCells().get(1)), equalTo("blob"));
+    RowUtils.cleanResources(row);
+  }
+}
@@ -15,20 +15,28 @@ import java.util.Map;
 
 import org.apache.commons.lang3.tuple.Pair;
 
+import com.databasepreservation.common.io.providers.SpillArena;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.modules.DatabaseImportModule;
 import com.databasepreservation.model.modules.DatabaseModuleFactory;
+import com.databasepreservation.model.modules.ParallelDatabaseImportModule;
 import com.databasepreservation.model.modules.SinkModule;
+import com.databasepreservation.model.modules.filters.AsyncHandOffFilter;
 import com.databasepreservation.model.modules.filters.DatabaseFilterFactory;
 import com.databasepreservation.model.modules.filters.DatabaseFilterModule;
 import com.databasepreservation.model.modules.filters.ExecutionOrder;
 import com.databasepreservation.model.parameters.Parameter;
+import com.databasepreservation.model.reporters.NoOpReporter;
 import com.databasepreservation.model.reporters.Reporter;
+import com.databasepreservation.utils.ConfigUtils;
 
 /**
  * @author Bruno Ferreira <bferreira@keep.pt>
  */
 public class DatabaseMigration {
+  private static final Integer DEFAULT_PARALLEL_WORKERS = ConfigUtils.getProperty(1, "dbptk.migration.workers");
+  private static final Integer DEFAULT_HAND_OFF_ROWS = ConfigUtils.getProperty(0, "dbptk.migration.handoff.rows");
+
   // the same reporter is used for all modules
   private Reporter reporter;
 
@@ -43,6 +51,10 @@ public class DatabaseMigration {
 
   private List<DatabaseFilterModule> filterModules = new ArrayList<>();
 
+  private int parallelWorkers = DEFAULT_PARALLEL_WORKERS;
+
+  private int handOffRows = DEFAULT_HAND_OFF_ROWS;
+
   private DatabaseMigration() {
 
   }
@@ -120,7 +132,25 @@ public class DatabaseMigration {
       sinkModule = filterModule.migrateDatabaseTo(sinkModule);
     }
 
-    importModule.migrateDatabaseTo(sinkModule);
+    AsyncHandOffFilter handOffFilter = null;
+    if (handOffRows > 0) {
+      handOffFilter = new AsyncHandOffFilter(handOffRows);
+      sinkModule = handOffFilter.migrateDatabaseTo(sinkModule);
+    }
+
+    if (parallelWorkers > 1 && importModule instanceof ParallelDatabaseImportModule parallelImportModule) {
+      parallelImportModule.setParallelWorkers(buildImportWorkers(importParameters));
+    }
+
+    SpillArena.acquire();
+    try {
+      importModule.migrateDatabaseTo(sinkModule);
+    } finally {
+      if (handOffFilter != null) {
+        handOffFilter.close();
+      }
+      SpillArena.release();
+    }
   }
 
   /**
@@ -254,6 +284,29 @@ public class DatabaseMigration {
     return this;
   }
 
+  /**
+   * Sets the number of workers used to migrate table data concurrently. Only
+   * import modules that support it (see {@link ParallelDatabaseImportModule})
+   * use more than one worker, each with its own connection to the source
+   * database. Defaults to the value of the dbptk.migration.workers property (or
+   * 1, meaning tables are migrated sequentially)
+   */
+  public DatabaseMigration parallelWorkers(int parallelWorkers) {
+    this.parallelWorkers = parallelWorkers;
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of rows waiting to be exported when the import and
+   * export modules run in separate threads (see {@link AsyncHandOffFilter}).
+   * Defaults to the value of the dbptk.migration.handoff.rows property (or 0,
+   * meaning both run in the same thread)
+   */
+  public DatabaseMigration handOffRows(int handOffRows) {
+    this.handOffRows = handOffRows;
+    return this;
+  }
+
   /**
    * Sets the reporter to be used by all modules (import, export and filter)
    * during the migration
@@ -280,6 +333,19 @@ public class DatabaseMigration {
     }
   }
 
+  private List<DatabaseImportModule> buildImportWorkers(Map<Parameter, String> importParameters)
+    throws ModuleException {
+    List<DatabaseImportModule> workers = new ArrayList<>(parallelWorkers);
+    for (int i = 0; i < parallelWorkers; i++) {
+      // the module parameters were already reported when building the main import
+      // module, so the workers are built with a reporter that ignores them
+      DatabaseImportModule worker = importModuleFactory.buildImportModule(importParameters, new NoOpReporter());
+      worker.setOnceReporter(reporter);
+      workers.add(worker);
+    }
+    return workers;
+  }
+
   private static Map<Parameter, String> buildParametersFromStringParameters(DatabaseModuleFactory moduleFactory,
     HashMap<String, String> stringModuleFactoryParameters) {
     Map<Parameter, String> parameters = new HashMap<>();
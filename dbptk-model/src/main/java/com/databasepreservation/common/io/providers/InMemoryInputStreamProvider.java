@@ -0,0 +1,115 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.io.providers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.utils.ConfigUtils;
+
+/**
+ * An input stream provider serving streams from bytes kept in memory.
+ *
+ * Use {@link #copyOf(InputStream)} to keep small contents in memory and only
+ * copy larger contents to disk (see {@link SpillArena}).
+ */
+public class InMemoryInputStreamProvider implements InputStreamProvider {
+  private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryInputStreamProvider.class);
+
+  private static final Integer DEFAULT_THRESHOLD_KILOBYTES = ConfigUtils.getProperty(64,
+    "dbptk.lob.memory.kilobytes");
+
+  private final byte[] bytes;
+
+  /**
+   * @param bytes
+   *          the contents, which must not be changed afterwards
+   */
+  public InMemoryInputStreamProvider(byte[] bytes) {
+    this.bytes = bytes;
+  }
+
+  /**
+   * Copies the contents of the stream to memory, if they are not larger than
+   * the number of kilobytes defined by the dbptk.lob.memory.kilobytes property
+   * (64 by default), or to the shared {@link SpillArena} otherwise. The stream
+   * is closed.
+   *
+   * @param inputStream
+   *          the stream to be read and closed
+   * @return the provider for the copied contents
+   * @throws ModuleException
+   *           if some IO problem happens. The stream is still closed.
+   */
+  public static InputStreamProvider copyOf(InputStream inputStream) throws ModuleException {
+    return copyOf(inputStream, DEFAULT_THRESHOLD_KILOBYTES * 1024);
+  }
+
+  /**
+   * Copies the contents of the stream to memory, if they are not larger than
+   * the threshold, or to the shared {@link SpillArena} otherwise. The stream is
+   * closed.
+   *
+   * @param inputStream
+   *          the stream to be read and closed
+   * @param threshold
+   *          the maximum number of bytes to keep in memory
+   * @return the provider for the copied contents
+   * @throws ModuleException
+   *           if some IO problem happens. The stream is still closed.
+   */
+  public static InputStreamProvider copyOf(InputStream inputStream, int threshold) throws ModuleException {
+    byte[] head;
+    try {
+      head = inputStream.readNBytes(Math.max(0, Math.min(threshold, Integer.MAX_VALUE - 1)) + 1);
+    } catch (IOException e) {
+      closeQuietly(inputStream);
+      throw new ModuleException().withMessage("Error reading stream").withCause(e);
+    }
+
+    if (head.length <= threshold) {
+      closeQuietly(inputStream);
+      return new InMemoryInputStreamProvider(head);
+    }
+
+    // too large, the bytes already read are copied to disk before the rest
+    return SpillArena.getInstance().spill(new SequenceInputStream(new ByteArrayInputStream(head), inputStream));
+  }
+
+  private static void closeQuietly(InputStream inputStream) {
+    try {
+      inputStream.close();
+    } catch (IOException e) {
+      LOGGER.debug("Could not close the stream", e);
+    }
+  }
+
+  @Override
+  public InputStream createInputStream() {
+    return new ByteArrayInputStream(bytes);
+  }
+
+  /**
+   * Free all underlying resources, except for the stream itself.
+   */
+  @Override
+  public void cleanResources() {
+    // nothing to do here, the bytes are garbage collected with the provider
+  }
+
+  @Override
+  public long getSize() {
+    return bytes.length;
+  }
+}
@@ -0,0 +1,303 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.io.providers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.utils.ConfigUtils;
+
+/**
+ * A directory where LOBs that can not be kept in memory are copied to, so they
+ * can be read later without keeping the source open.
+ *
+ * LOBs are appended to a few segment files, each LOB being identified by its
+ * segment, offset and length (see {@link SpilledInputStreamProvider}). Each
+ * thread copying a LOB takes a segment no other thread is writing to, so LOBs
+ * can be copied concurrently. A segment is deleted once it is full and all its
+ * LOBs were cleaned, and the whole directory is deleted when the arena is
+ * closed (at the end of the migrations using it, or before the JVM terminates),
+ * using a single shutdown hook.
+ *
+ * The directory is created inside the one defined by the
+ * dbptk.lob.spill.directory property (java.io.tmpdir by default), and segments
+ * grow up to the number of megabytes defined by the
+ * dbptk.lob.spill.segment.megabytes property (256 by default).
+ */
+public final class SpillArena {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpillArena.class);
+
+  private static final String DEFAULT_DIRECTORY = ConfigUtils.getProperty(System.getProperty("java.io.tmpdir"),
+    "dbptk.lob.spill.directory");
+  private static final Integer DEFAULT_SEGMENT_MEGABYTES = ConfigUtils.getProperty(256,
+    "dbptk.lob.spill.segment.megabytes");
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  private static volatile SpillArena instance = null;
+  private static int users = 0;
+
+  /**
+   * A file LOBs are appended to. Only the thread that took the segment from the
+   * arena appends to it, but any thread may read the LOBs already written.
+   */
+  static final class Segment {
+    private final SpillArena arena;
+    private final Path path;
+    private final FileChannel channel;
+    private final AtomicLong liveBytes = new AtomicLong(0);
+    private final AtomicBoolean deleted = new AtomicBoolean(false);
+    private long size = 0;
+    private volatile boolean sealed = false;
+
+    private Segment(SpillArena arena, Path path) throws IOException {
+      this.arena = arena;
+      this.path = path;
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    }
+
+    int read(ByteBuffer buffer, long position) throws IOException {
+      return channel.read(buffer, position);
+    }
+
+    void release(long length) {
+      if (liveBytes.addAndGet(-length) == 0 && sealed) {
+        delete();
+      }
+    }
+
+    private void seal() {
+      sealed = true;
+      if (liveBytes.get() == 0) {
+        delete();
+      }
+    }
+
+    private void delete() {
+      if (deleted.compareAndSet(false, true)) {
+        arena.segments.remove(this);
+        try {
+          channel.close();
+          Files.deleteIfExists(path);
+        } catch (IOException e) {
+          LOGGER.debug("Could not delete spill segment {}", path, e);
+        }
+      }
+    }
+  }
+
+  private final Path directory;
+  private final long segmentSize;
+  private final Queue<Segment> available = new ConcurrentLinkedQueue<>();
+  private final Set<Segment> segments = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger segmentCount = new AtomicInteger(0);
+  private final AtomicLong spilledBytes = new AtomicLong(0);
+  private final AtomicLong spilledCount = new AtomicLong(0);
+  private final Thread shutdownHook;
+  private volatile boolean closed = false;
+
+  /**
+   * Creates an arena in a new directory, deleted when the arena is closed or
+   * before the JVM terminates.
+   *
+   * @param parentDirectory
+   *          where the arena directory is created
+   * @param segmentSize
+   *          the size after which no more LOBs are appended to a segment
+   * @throws ModuleException
+   *           if the directory could not be created
+   */
+  public SpillArena(Path parentDirectory, long segmentSize) throws ModuleException {
+    try {
+      Files.createDirectories(parentDirectory);
+      this.directory = Files.createTempDirectory(parentDirectory, "dbptk-spill");
+    } catch (IOException e) {
+      throw new ModuleException().withMessage("Error creating the LOB spill directory in " + parentDirectory)
+        .withCause(e);
+    }
+    this.segmentSize = Math.max(1, segmentSize);
+    this.shutdownHook = new Thread(this::deleteFiles, "dbptk-spill-cleanup");
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * @return the arena shared by the running migrations, created when first
+   *         needed
+   * @throws ModuleException
+   *           if the arena directory could not be created
+   */
+  public static SpillArena getInstance() throws ModuleException {
+    SpillArena arena = instance;
+    if (arena == null) {
+      synchronized (SpillArena.class) {
+        arena = instance;
+        if (arena == null) {
+          arena = new SpillArena(Paths.get(DEFAULT_DIRECTORY), DEFAULT_SEGMENT_MEGABYTES * 1024L * 1024L);
+          instance = arena;
+        }
+      }
+    }
+    return arena;
+  }
+
+  /**
+   * Marks the start of a migration using the shared arena (see
+   * {@link #getInstance()}).
+   */
+  public static synchronized void acquire() {
+    users++;
+  }
+
+  /**
+   * Marks the end of a migration using the shared arena. When no more
+   * migrations are running, the shared arena is closed and its files deleted.
+   */
+  public static synchronized void release() {
+    users = Math.max(0, users - 1);
+    if (users == 0 && instance != null) {
+      instance.close();
+      instance = null;
+    }
+  }
+
+  /**
+   * Copies the contents of the stream to the arena and closes the stream.
+   *
+   * @param inputStream
+   *          the stream to be read and closed
+   * @return the provider for the copied contents
+   * @throws ModuleException
+   *           if some IO problem happens. The stream is still closed.
+   */
+  public SpilledInputStreamProvider spill(InputStream inputStream) throws ModuleException {
+    Segment segment = null;
+    long offset = 0;
+    long length = 0;
+    boolean copied = false;
+    try {
+      segment = takeSegment();
+      offset = segment.size;
+      byte[] buffer = new byte[COPY_BUFFER_SIZE];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+        while (byteBuffer.hasRemaining()) {
+          length += segment.channel.write(byteBuffer, offset + length);
+        }
+      }
+      copied = true;
+    } catch (IOException e) {
+      throw new ModuleException().withMessage("Error copying stream to the LOB spill directory").withCause(e);
+    } finally {
+      try {
+        inputStream.close();
+      } catch (IOException e) {
+        LOGGER.debug("Could not close the stream", e);
+      }
+      if (segment != null) {
+        // the bytes written are never reused, even if the copy failed
+        segment.size = offset + length;
+        if (copied) {
+          segment.liveBytes.addAndGet(length);
+        }
+        returnSegment(segment);
+      }
+    }
+
+    spilledBytes.addAndGet(length);
+    spilledCount.incrementAndGet();
+    return new SpilledInputStreamProvider(segment, offset, length);
+  }
+
+  private Segment takeSegment() throws IOException {
+    if (closed) {
+      throw new IOException("The LOB spill directory " + directory + " was already closed");
+    }
+    Segment segment = available.poll();
+    if (segment == null) {
+      segment = new Segment(this, directory.resolve("segment" + segmentCount.incrementAndGet() + ".lob"));
+      segments.add(segment);
+    }
+    return segment;
+  }
+
+  private void returnSegment(Segment segment) {
+    if (segment.size >= segmentSize || closed) {
+      segment.seal();
+    } else {
+      available.add(segment);
+    }
+  }
+
+  /**
+   * @return the number of bytes copied to the arena since it was created
+   */
+  public long getSpilledBytes() {
+    return spilledBytes.get();
+  }
+
+  /**
+   * @return the number of LOBs copied to the arena since it was created
+   */
+  public long getSpilledCount() {
+    return spilledCount.get();
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Deletes all files of the arena. LOBs in the arena can no longer be read.
+   */
+  public void close() {
+    if (closed) {
+      return;
+    }
+    deleteFiles();
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException e) {
+      LOGGER.debug("Could not remove the spill directory shutdown hook", e);
+    }
+    if (spilledCount.get() > 0) {
+      LOGGER.info("Copied {} LOB(s) to the spill directory, {} in total", spilledCount.get(),
+        FileUtils.byteCountToDisplaySize(spilledBytes.get()));
+    }
+  }
+
+  private void deleteFiles() {
+    closed = true;
+    for (Segment segment : segments) {
+      segment.delete();
+    }
+    try {
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      LOGGER.debug("Could not delete the spill directory {}", directory, e);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.io.providers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.databasepreservation.model.exception.ModuleException;
+
+/**
+ * An input stream provider serving streams from a LOB copied to a
+ * {@link SpillArena}.
+ */
+public class SpilledInputStreamProvider implements InputStreamProvider {
+  private final SpillArena.Segment segment;
+  private final long offset;
+  private final long length;
+  private final AtomicBoolean cleaned = new AtomicBoolean(false);
+
+  SpilledInputStreamProvider(SpillArena.Segment segment, long offset, long length) {
+    this.segment = segment;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  @Override
+  public InputStream createInputStream() throws ModuleException {
+    if (cleaned.get()) {
+      throw new ModuleException().withMessage("The spilled LOB was already cleaned");
+    }
+    return new SegmentInputStream();
+  }
+
+  /**
+   * Free all underlying resources, except for the stream itself. The space used
+   * in the arena is freed once all LOBs in the same segment are cleaned.
+   */
+  @Override
+  public void cleanResources() {
+    if (cleaned.compareAndSet(false, true)) {
+      segment.release(length);
+    }
+  }
+
+  @Override
+  public long getSize() {
+    return length;
+  }
+
+  /**
+   * Reads the LOB using positional reads, so streams do not need their own file
+   * handle and are not affected by other streams reading the same segment.
+   */
+  private final class SegmentInputStream extends InputStream {
+    private long position = 0;
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      int read = read(single, 0, 1);
+      return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      long remaining = length - position;
+      if (remaining <= 0) {
+        return -1;
+      }
+      int toRead = (int) Math.min(len, remaining);
+      int read = segment.read(ByteBuffer.wrap(buffer, off, toRead), offset + position);
+      if (read == -1) {
+        throw new IOException("The spilled LOB is truncated");
+      }
+      position += read;
+      return read;
+    }
+
+    @Override
+    public long skip(long n) {
+      long skipped = Math.max(0, Math.min(n, length - position));
+      position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, length - position);
+    }
+  }
+}
@@ -0,0 +1,282 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.parallel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.utils.ConfigUtils;
+import com.databasepreservation.utils.RowUtils;
+
+/**
+ * Copies the LOBs of the rows of a table to memory or to the spill directory
+ * (see {@link RowUtils#detach(Row)}) in virtual threads, while the next rows
+ * are read and the previous ones are exported, instead of reading each LOB
+ * from the source database when the row is exported. Rows are sent to the
+ * consumer in the order they were received, once their LOBs are copied.
+ *
+ * At most the number of rows defined by the dbptk.jdbc.lob.prefetch.rows
+ * property (64 by default, 0 disables prefetching) wait for their LOBs, which
+ * are copied by at most dbptk.jdbc.lob.prefetch.threads threads (4 by default)
+ * at the same time. Rows are also sent as soon as possible while the copied
+ * LOBs waiting to be sent use more than dbptk.jdbc.lob.prefetch.megabytes
+ * megabytes (256 by default). These limits apply to each table being read,
+ * and the number of threads and megabytes can be set for a table in the module
+ * configuration. A LOB that can not be copied is left as it was, to be read
+ * when the row is exported.
+ *
+ * The LOBs must remain readable after the source moves on to the next rows,
+ * until {@link #finish()} is called, and the source must allow LOBs to be read
+ * while it reads the next rows (e.g. by serializing the use of a connection).
+ */
+public class LobPrefetcher implements RowConsumer, AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LobPrefetcher.class);
+
+  private static final Integer DEFAULT_MAXIMUM_ROWS = ConfigUtils.getProperty(64, "dbptk.jdbc.lob.prefetch.rows");
+  private static final Integer DEFAULT_THREADS = ConfigUtils.getProperty(4, "dbptk.jdbc.lob.prefetch.threads");
+  private static final Integer DEFAULT_BUDGET_MEGABYTES = ConfigUtils.getProperty(256,
+    "dbptk.jdbc.lob.prefetch.megabytes");
+
+  private final RowConsumer consumer;
+  private final String tableId;
+  private final int maximumRows;
+  private final long budgetBytes;
+  private final int threads;
+  private final Semaphore copySlots;
+  private final ExecutorService executor;
+  private final Deque<PendingRow> pending = new ArrayDeque<>();
+  private final AtomicLong copiedBytes = new AtomicLong(0);
+
+  /**
+   * Creates a prefetcher using the limits defined by the
+   * dbptk.jdbc.lob.prefetch.rows, dbptk.jdbc.lob.prefetch.threads and
+   * dbptk.jdbc.lob.prefetch.megabytes properties
+   *
+   * @param consumer
+   *          receives the rows, in order
+   * @param tableId
+   *          the table the rows are read from
+   */
+  public LobPrefetcher(RowConsumer consumer, String tableId) {
+    this(consumer, tableId, DEFAULT_MAXIMUM_ROWS, DEFAULT_THREADS, DEFAULT_BUDGET_MEGABYTES * 1024L * 1024L);
+  }
+
+  /**
+   * Creates a prefetcher with the limits of a table, using the limits defined
+   * by the properties for those that are not set
+   *
+   * @param consumer
+   *          receives the rows, in order
+   * @param tableId
+   *          the table the rows are read from
+   * @param threads
+   *          the maximum number of LOBs copied at the same time, or 0 to use
+   *          the dbptk.jdbc.lob.prefetch.threads property
+   * @param budgetMegabytes
+   *          the number of megabytes of copied LOBs above which rows are sent
+   *          as soon as their LOBs are copied, or 0 to use the
+   *          dbptk.jdbc.lob.prefetch.megabytes property
+   */
+  public LobPrefetcher(RowConsumer consumer, String tableId, int threads, int budgetMegabytes) {
+    this(consumer, tableId, DEFAULT_MAXIMUM_ROWS, threads > 0 ? threads : DEFAULT_THREADS,
+      (budgetMegabytes > 0 ? budgetMegabytes : DEFAULT_BUDGET_MEGABYTES) * 1024L * 1024L);
+  }
+
+  /**
+   * @param consumer
+   *          receives the rows, in order
+   * @param tableId
+   *          the table the rows are read from
+   * @param maximumRows
+   *          the maximum number of rows waiting for their LOBs
+   * @param threads
+   *          the maximum number of LOBs copied at the same time
+   * @param budgetBytes
+   *          the number of bytes of copied LOBs above which rows are sent as
+   *          soon as their LOBs are copied
+   */
+  public LobPrefetcher(RowConsumer consumer, String tableId, int maximumRows, int threads, long budgetBytes) {
+    this.consumer = consumer;
+    this.tableId = tableId;
+    this.maximumRows = Math.max(1, maximumRows);
+    this.budgetBytes = Math.max(1, budgetBytes);
+    this.threads = Math.max(1, threads);
+    this.copySlots = new Semaphore(this.threads);
+    this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dbptk-lob-prefetch-", 1).factory());
+  }
+
+  /**
+   * @return false if the dbptk.jdbc.lob.prefetch.rows property is 0, meaning
+   *         LOBs should not be prefetched
+   */
+  public static boolean isEnabled() {
+    return DEFAULT_MAXIMUM_ROWS > 0;
+  }
+
+  @Override
+  public void accept(Row row) throws ModuleException {
+    if (RowUtils.isDetached(row)) {
+      if (pending.isEmpty()) {
+        consumer.accept(row);
+        return;
+      }
+      pending.add(new PendingRow(row, null));
+    } else {
+      pending.add(new PendingRow(row, executor.submit(() -> copyLobs(row))));
+    }
+
+    sendCopiedRows();
+    while (pending.size() > maximumRows || (copiedBytes.get() > budgetBytes && !pending.isEmpty())) {
+      sendFirstRow();
+    }
+  }
+
+  /**
+   * Sends all remaining rows to the consumer, waiting for their LOBs to be
+   * copied. Must be called after the last row was received.
+   */
+  public void finish() throws ModuleException {
+    while (!pending.isEmpty()) {
+      sendFirstRow();
+    }
+  }
+
+  /**
+   * Stops copying LOBs. Rows that were not sent (e.g. after a failure) are
+   * discarded.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    for (PendingRow pendingRow : pending) {
+      try {
+        CopiedLobs copies = pendingRow.copies == null ? null : pendingRow.copies.get();
+        if (copies != null) {
+          for (Cell copy : copies.cells) {
+            if (copy instanceof BinaryCell binaryCopy) {
+              binaryCopy.cleanResources();
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        LOGGER.debug("Could not copy the LOBs of a discarded row of table {}", tableId, e);
+      }
+      RowUtils.cleanResources(pendingRow.row);
+    }
+    pending.clear();
+  }
+
+  @Override
+  public String toString() {
+    return "LOB prefetcher of table " + tableId + ": maximum rows " + maximumRows + ", threads " + threads
+      + ", budget " + budgetBytes + " bytes";
+  }
+
+  private void sendCopiedRows() throws ModuleException {
+    while (!pending.isEmpty() && (pending.peek().copies == null || pending.peek().copies.isDone())) {
+      sendFirstRow();
+    }
+  }
+
+  private void sendFirstRow() throws ModuleException {
+    PendingRow first = pending.peek();
+    if (first.copies != null) {
+      CopiedLobs copies;
+      try {
+        copies = first.copies.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ModuleException().withMessage("Interrupted while copying the LOBs of table " + tableId);
+      } catch (ExecutionException e) {
+        throw new ModuleException().withMessage("Unexpected error copying the LOBs of table " + tableId)
+          .withCause(e.getCause());
+      }
+      replaceCells(first.row, copies.cells);
+      copiedBytes.addAndGet(-copies.bytes);
+    }
+    pending.poll();
+    consumer.accept(first.row);
+  }
+
+  /**
+   * Copies the LOBs of a row, without changing the row, as it may be in use by
+   * the thread reading the rows.
+   *
+   * @return the copy of each cell of the row, null for cells that are not
+   *         copied
+   */
+  private CopiedLobs copyLobs(Row row) throws InterruptedException {
+    List<Cell> copies = new ArrayList<>();
+    long bytes = 0;
+    for (Cell cell : row.getCells()) {
+      Cell copy = null;
+      if (cell instanceof BinaryCell binaryCell && !RowUtils.isDetached(binaryCell)) {
+        copySlots.acquire();
+        try {
+          BinaryCell binaryCopy = new BinaryCell(binaryCell.getId(), binaryCell.createInputStream());
+          copy = binaryCopy;
+          bytes += binaryCopy.getSize();
+        } catch (ModuleException e) {
+          LOGGER.debug("Could not prefetch LOB {}, it will be read when exported", binaryCell.getId(), e);
+        } finally {
+          copySlots.release();
+        }
+      }
+      copies.add(copy);
+    }
+    copiedBytes.addAndGet(bytes);
+    return new CopiedLobs(copies, bytes);
+  }
+
+  private void replaceCells(Row row, List<Cell> copies) {
+    List<Cell> cells = row.getCells();
+    for (int i = 0; i < copies.size(); i++) {
+      if (copies.get(i) != null) {
+        ((BinaryCell) cells.get(i)).cleanResources();
+        cells.set(i, copies.get(i));
+      }
+    }
+  }
+
+  private static class PendingRow {
+    private final Row row;
+    private final Future<CopiedLobs> copies;
+
+    private PendingRow(Row row, Future<CopiedLobs> copies) {
+      this.row = row;
+      this.copies = copies;
+    }
+  }
+
+  private static class CopiedLobs {
+    private final List<Cell> cells;
+    private final long bytes;
+
+    private CopiedLobs(List<Cell> cells, long bytes) {
+      this.cells = cells;
+      this.bytes = bytes;
+    }
+  }
+}
@@ -0,0 +1,358 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.parallel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.DatabaseExportModule;
+import com.databasepreservation.model.structure.SchemaStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.utils.RowUtils;
+
+/**
+ * Migrates the data of several tables concurrently.
+ *
+ * Big tables may be split in parts (e.g. key ranges), each part being a unit of
+ * work just like a whole table. Each worker takes the next unit of work not yet
+ * taken (in schema, table and part order), extracts its rows into a
+ * {@link TableLane} and then moves on to the next one. The calling thread
+ * drains the lanes in the same order and calls the export module exactly as a
+ * sequential migration would, so the export module never needs to be
+ * thread-safe and its output does not depend on the number of workers. The rows
+ * of a split table are renumbered as they are drained, so that their indexes
+ * are sequential across parts.
+ *
+ * A table is split by the worker that takes it, which then extracts its first
+ * part, so splits that query the database do not delay the start of the
+ * migration and run in parallel with the extraction of other tables. Parts of
+ * tables that were already taken are always taken before new tables.
+ *
+ * Since a worker only takes a new unit of work after finishing the previous
+ * one, the lane currently being drained always belongs to a worker that is
+ * extracting it (or splitting its table), and workers that run ahead block once
+ * their lane is full.
+ *
+ * @param <W>
+ *          the type of the workers (usually import modules, each owning a
+ *          connection to the source database)
+ * @param <P>
+ *          the type that describes a part of a table
+ */
+public class ParallelTableMigration<W, P> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelTableMigration.class);
+  private static final long WORKER_TERMINATION_TIMEOUT_SECONDS = 60;
+
+  /**
+   * Extracts the rows of a table (or part of a table) using a worker.
+   */
+  public interface TableExtractor<W, P> {
+    /**
+     * Decide if a table should be split in parts. Called from a worker thread,
+     * when the worker takes the table and before its rows are extracted.
+     *
+     * @param worker
+     *          the worker that took the table
+     * @param table
+     *          the table
+     * @return the parts of the table, in the order their rows should be
+     *         exported, or an empty list to extract the table as a whole
+     * @throws ModuleException
+     *           if the table can not be migrated
+     */
+    List<P> split(W worker, TableStructure table) throws ModuleException;
+
+    /**
+     * @param worker
+     *          the worker that should extract the table
+     * @param table
+     *          the table to extract
+     * @param part
+     *          the part of the table to extract, or null to extract all rows
+     * @param lane
+     *          where the rows must be sent to, in row index order
+     * @throws ModuleException
+     *           if the migration should be aborted
+     */
+    void extract(W worker, TableStructure table, P part, RowConsumer lane) throws ModuleException;
+
+    /**
+     * Called from the calling thread after all parts of a split table were
+     * exported and before the table is closed.
+     *
+     * @param table
+     *          the table that was split
+     * @param rows
+     *          the total number of rows exported
+     * @throws ModuleException
+     *           if the migration should be aborted
+     */
+    void finishSplitTable(TableStructure table, long rows) throws ModuleException;
+  }
+
+  private static final class WorkUnit<P> {
+    private final TableWork<P> table;
+    private final int partIndex;
+    private final P part;
+    private final TableLane lane;
+
+    private WorkUnit(TableWork<P> table, int partIndex, P part, int laneCapacity) {
+      this.table = table;
+      this.partIndex = partIndex;
+      this.part = part;
+      this.lane = new TableLane(table.table.getId(), laneCapacity);
+    }
+  }
+
+  /**
+   * A table and, once it was split by the worker that took it, its units of
+   * work
+   */
+  private static final class TableWork<P> {
+    private final TableStructure table;
+    private final int tableIndex;
+    private final CountDownLatch split = new CountDownLatch(1);
+    private volatile List<WorkUnit<P>> units = null;
+
+    private TableWork(TableStructure table, int tableIndex) {
+      this.table = table;
+      this.tableIndex = tableIndex;
+    }
+
+    /**
+     * @return the units of work of the table, waiting for it to be split
+     */
+    private List<WorkUnit<P>> awaitUnits() throws ModuleException {
+      try {
+        split.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ModuleException().withMessage("Interrupted while waiting for table " + table.getId() + " to be split")
+          .withCause(e);
+      }
+      return units;
+    }
+  }
+
+  /**
+   * Hands out the work to the workers: the parts of tables already taken, in
+   * order, and then the next table. Shared by the workers of one migration.
+   */
+  private final class Schedule {
+    private final List<TableWork<P>> tables;
+    private final Queue<WorkUnit<P>> pendingParts = new PriorityQueue<>(
+      Comparator.comparingInt((WorkUnit<P> unit) -> unit.table.tableIndex).thenComparingInt(unit -> unit.partIndex));
+    private final List<WorkUnit<P>> units = new ArrayList<>();
+    private int nextTable = 0;
+    private boolean cancelled = false;
+
+    private Schedule(List<TableWork<P>> tables) {
+      this.tables = tables;
+    }
+
+    /**
+     * Takes the next unit of work, splitting its table first if it is a new
+     * one.
+     *
+     * @return the unit of work, or null if there is nothing else to do
+     */
+    private WorkUnit<P> take(W worker) {
+      TableWork<P> table;
+      synchronized (this) {
+        if (cancelled) {
+          return null;
+        } else if (!pendingParts.isEmpty()) {
+          return pendingParts.poll();
+        } else if (nextTable >= tables.size()) {
+          return null;
+        }
+        table = tables.get(nextTable++);
+      }
+
+      List<WorkUnit<P>> tableUnits = new ArrayList<>();
+      ModuleException failure = null;
+      try {
+        List<P> parts = extractor.split(worker, table.table);
+        if (parts != null && !parts.isEmpty()) {
+          LOGGER.info("Table {} will be migrated in {} parts", table.table.getId(), parts.size());
+          for (P part : parts) {
+            tableUnits.add(new WorkUnit<>(table, tableUnits.size(), part, laneCapacity));
+          }
+        }
+      } catch (ModuleException e) {
+        failure = e;
+      } catch (RuntimeException e) {
+        failure = new ModuleException().withMessage("Unexpected error splitting table " + table.table.getId())
+          .withCause(e);
+      }
+      if (tableUnits.isEmpty() || failure != null) {
+        tableUnits.clear();
+        tableUnits.add(new WorkUnit<>(table, 0, null, laneCapacity));
+      }
+
+      WorkUnit<P> first = tableUnits.get(0);
+      synchronized (this) {
+        units.addAll(tableUnits);
+        pendingParts.addAll(tableUnits.subList(1, tableUnits.size()));
+        if (cancelled) {
+          tableUnits.forEach(unit -> unit.lane.cancel());
+        }
+      }
+      table.units = tableUnits;
+      table.split.countDown();
+
+      if (failure != null) {
+        first.lane.fail(failure);
+        return take(worker);
+      }
+      return first;
+    }
+
+    /**
+     * Makes sure no worker takes new work nor stays blocked on a lane nobody
+     * reads
+     */
+    private synchronized void cancel() {
+      cancelled = true;
+      units.forEach(unit -> unit.lane.cancel());
+    }
+  }
+
+  private final List<W> workers;
+  private final int laneCapacity;
+  private final TableExtractor<W, P> extractor;
+
+  /**
+   * @param workers
+   *          the workers, each one used by a single thread
+   * @param laneCapacity
+   *          the maximum number of rows extracted but not yet exported, per
+   *          worker
+   * @param extractor
+   *          extracts the rows of a table using a worker
+   */
+  public ParallelTableMigration(List<W> workers, int laneCapacity, TableExtractor<W, P> extractor) {
+    this.workers = workers;
+    this.laneCapacity = laneCapacity;
+    this.extractor = extractor;
+  }
+
+  /**
+   * Migrate the data of all tables in the schemas, calling
+   * handleDataOpenSchema, handleDataOpenTable, handleDataRows,
+   * handleDataCloseTable and handleDataCloseSchema on the export module.
+   *
+   * @param schemas
+   *          the schemas to migrate
+   * @param exportModule
+   *          the export module, only called from the current thread
+   * @throws ModuleException
+   *           if the export module or any of the workers failed
+   */
+  public void migrate(List<SchemaStructure> schemas, DatabaseExportModule exportModule) throws ModuleException {
+    List<TableWork<P>> tables = new ArrayList<>();
+    for (SchemaStructure schema : schemas) {
+      for (TableStructure table : schema.getTables()) {
+        tables.add(new TableWork<>(table, tables.size()));
+      }
+    }
+
+    LOGGER.info("Migrating {} table(s) using {} worker(s)", tables.size(), workers.size());
+
+    Schedule schedule = new Schedule(tables);
+    ExecutorService executor = Executors.newFixedThreadPool(workers.size(), new WorkerThreadFactory());
+    for (W worker : workers) {
+      executor.execute(() -> {
+        WorkUnit<P> unit;
+        while ((unit = schedule.take(worker)) != null) {
+          try {
+            extractor.extract(worker, unit.table.table, unit.part, unit.lane);
+            unit.lane.finish();
+          } catch (ModuleException e) {
+            unit.lane.fail(e);
+          } catch (RuntimeException e) {
+            unit.lane.fail(new ModuleException()
+              .withMessage("Unexpected error migrating table " + unit.lane.getTableId()).withCause(e));
+          }
+        }
+      });
+    }
+    executor.shutdown();
+
+    boolean completed = false;
+    try {
+      int tableIndex = 0;
+      for (SchemaStructure schema : schemas) {
+        exportModule.handleDataOpenSchema(schema.getName());
+        for (TableStructure table : schema.getTables()) {
+          List<WorkUnit<P>> tableUnits = tables.get(tableIndex++).awaitUnits();
+          boolean split = tableUnits.get(0).part != null;
+          exportModule.handleDataOpenTable(table.getId());
+          RowBatcher batcher = new RowBatcher(exportModule);
+          long rows = 0;
+          for (WorkUnit<P> unit : tableUnits) {
+            Row row;
+            while ((row = unit.lane.take()) != null) {
+              rows++;
+              batcher.accept(split ? RowUtils.reindex(row, rows) : row);
+            }
+          }
+          batcher.flush();
+          if (split) {
+            extractor.finishSplitTable(table, rows);
+          }
+          exportModule.handleDataCloseTable(table.getId());
+        }
+        exportModule.handleDataCloseSchema(schema.getName());
+      }
+      completed = true;
+    } finally {
+      if (!completed) {
+        schedule.cancel();
+      }
+      awaitWorkers(executor);
+    }
+  }
+
+  private static void awaitWorkers(ExecutorService executor) {
+    try {
+      if (!executor.awaitTermination(WORKER_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        LOGGER.warn("Some table workers did not finish in time, interrupting them");
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "dbptk-table-worker-" + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
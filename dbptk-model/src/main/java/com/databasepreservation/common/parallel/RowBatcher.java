@@ -0,0 +1,119 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.parallel;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.DatabaseExportModule;
+import com.databasepreservation.utils.ConfigUtils;
+import com.databasepreservation.utils.RowUtils;
+
+/**
+ * Groups the rows of a table in batches before sending them to an export module
+ * using handleDataRows. {@link #flush()} must be called before closing the
+ * table.
+ *
+ * Rows with LOBs that are read lazily from the source database are never kept
+ * waiting for the next rows, as the LOBs may not be readable after the source
+ * moves on. The pending rows are sent before them and they are sent on their
+ * own.
+ *
+ * When the export module does not keep rows, the rows it received can be given
+ * back to a {@link RowPool}, to be filled with the next rows.
+ */
+public class RowBatcher implements RowConsumer {
+  private static final Integer DEFAULT_BATCH_SIZE = ConfigUtils.getProperty(100, "dbptk.migration.batch.rows");
+
+  private final DatabaseExportModule exportModule;
+  private final int batchSize;
+  private final RowPool pool;
+  private RowBatch batch;
+
+  /**
+   * Creates a batcher that sends batches with the number of rows defined by the
+   * dbptk.migration.batch.rows property (100 by default)
+   *
+   * @param exportModule
+   *          the module that receives the batches
+   */
+  public RowBatcher(DatabaseExportModule exportModule) {
+    this(exportModule, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * @param exportModule
+   *          the module that receives the batches
+   * @param batchSize
+   *          the maximum number of rows in each batch
+   */
+  public RowBatcher(DatabaseExportModule exportModule, int batchSize) {
+    this(exportModule, batchSize, null);
+  }
+
+  /**
+   * Creates a batcher that sends batches with the number of rows defined by the
+   * dbptk.migration.batch.rows property (100 by default), giving the rows back
+   * to the pool after they are sent
+   *
+   * @param exportModule
+   *          the module that receives the batches, which must not keep rows
+   * @param pool
+   *          the pool the rows are released to
+   */
+  public RowBatcher(DatabaseExportModule exportModule, RowPool pool) {
+    this(exportModule, DEFAULT_BATCH_SIZE, pool);
+  }
+
+  /**
+   * @param exportModule
+   *          the module that receives the batches
+   * @param batchSize
+   *          the maximum number of rows in each batch
+   * @param pool
+   *          the pool the rows are released to after being sent, or null if
+   *          the export module may keep them
+   */
+  public RowBatcher(DatabaseExportModule exportModule, int batchSize, RowPool pool) {
+    this.exportModule = exportModule;
+    this.batchSize = Math.max(1, batchSize);
+    this.pool = pool;
+    this.batch = new RowBatch(this.batchSize);
+  }
+
+  @Override
+  public void accept(Row row) throws ModuleException {
+    if (!RowUtils.isDetached(row)) {
+      flush();
+      exportModule.handleDataRow(row);
+      if (pool != null) {
+        pool.release(row);
+      }
+      return;
+    }
+
+    batch.add(row);
+    if (batch.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Sends the pending rows, if any, to the export module.
+   */
+  public void flush() throws ModuleException {
+    if (!batch.isEmpty()) {
+      RowBatch full = batch;
+      batch = new RowBatch(batchSize);
+      exportModule.handleDataRows(full);
+      if (pool != null) {
+        full.forEach(pool::release);
+      }
+    }
+  }
+}
@@ -0,0 +1,20 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.parallel;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.exception.ModuleException;
+
+/**
+ * Receives the rows of a table, in row index order. Can be an export module
+ * (via handleDataRow or a {@link RowBatcher}) or a {@link TableLane}.
+ */
+@FunctionalInterface
+public interface RowConsumer {
+  void accept(Row row) throws ModuleException;
+}
@@ -0,0 +1,53 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.parallel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.modules.DatabaseExportModule;
+
+/**
+ * Row containers that can be filled again once the export module that received
+ * them has returned, when it does not keep rows (see
+ * {@link DatabaseExportModule#retainsRows()}). The cells are never reused.
+ */
+public class RowPool {
+  private final Deque<Row> rows = new ArrayDeque<>();
+
+  /**
+   * Gets an empty row, reusing a released one if possible.
+   *
+   * @param index
+   *          the row index
+   * @param columnCount
+   *          the expected number of cells
+   * @return the row, without cells
+   */
+  public Row obtain(long index, int columnCount) {
+    Row row = rows.poll();
+    if (row == null) {
+      return new Row(index, new ArrayList<>(columnCount));
+    }
+    row.setIndex(index);
+    return row;
+  }
+
+  /**
+   * Releases a row, dropping its cells.
+   *
+   * @param row
+   *          a row that is no longer used by the export module
+   */
+  public void release(Row row) {
+    row.getCells().clear();
+    rows.push(row);
+  }
+}
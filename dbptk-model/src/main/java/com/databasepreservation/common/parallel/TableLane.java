@@ -0,0 +1,128 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.parallel;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.exception.ModuleException;
+
+/**
+ * Bounded hand-off of the rows of a single table, from the worker that extracts
+ * them to the thread that calls the export module.
+ *
+ * The worker calls {@link #accept(Row)} for each row and then either
+ * {@link #finish()} or {@link #fail(ModuleException)}. The consumer calls
+ * {@link #take()} until it returns null. When the consumer gives up (e.g. the
+ * export module failed) it calls {@link #cancel()} so that a worker blocked on
+ * a full lane is released.
+ */
+public class TableLane implements RowConsumer {
+  private static final Row END_OF_TABLE = new Row();
+  private static final long POLL_INTERVAL_MILLISECONDS = 200;
+
+  private final String tableId;
+  private final BlockingQueue<Row> rows;
+  private volatile ModuleException failure = null;
+  private volatile boolean cancelled = false;
+
+  /**
+   * @param tableId
+   *          the id of the table whose rows go through this lane
+   * @param capacity
+   *          the maximum number of rows that can be waiting to be consumed
+   */
+  public TableLane(String tableId, int capacity) {
+    this.tableId = tableId;
+    this.rows = new LinkedBlockingQueue<>(Math.max(1, capacity));
+  }
+
+  public String getTableId() {
+    return tableId;
+  }
+
+  /**
+   * Adds a row to the lane, blocking while the lane is full.
+   *
+   * @throws ModuleException
+   *           if the lane was cancelled or the thread was interrupted
+   */
+  @Override
+  public void accept(Row row) throws ModuleException {
+    enqueue(row);
+  }
+
+  /**
+   * Marks the end of the table. Must be called by the worker after the last row.
+   */
+  public void finish() throws ModuleException {
+    enqueue(END_OF_TABLE);
+  }
+
+  /**
+   * Marks the end of the table due to an error in the worker. The error is
+   * rethrown to the consumer after the rows that were already added.
+   */
+  public void fail(ModuleException exception) {
+    failure = exception;
+    try {
+      enqueue(END_OF_TABLE);
+    } catch (ModuleException e) {
+      // the consumer is no longer interested in this lane
+    }
+  }
+
+  /**
+   * Releases the worker of this lane, discarding any rows not yet consumed.
+   */
+  public void cancel() {
+    cancelled = true;
+    rows.clear();
+  }
+
+  /**
+   * @return the next row of the table or null if there are no more rows
+   * @throws ModuleException
+   *           if the worker failed to extract the table or the thread was
+   *           interrupted
+   */
+  public Row take() throws ModuleException {
+    Row row;
+    try {
+      row = rows.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ModuleException().withMessage("Interrupted while waiting for rows of table " + tableId).withCause(e);
+    }
+
+    if (row == END_OF_TABLE) {
+      // put the marker back so that further calls also return null
+      rows.offer(END_OF_TABLE);
+      if (failure != null) {
+        throw failure;
+      }
+      return null;
+    }
+    return row;
+  }
+
+  private void enqueue(Row row) throws ModuleException {
+    try {
+      do {
+        if (cancelled) {
+          throw new ModuleException().withMessage("Migration of table " + tableId + " was cancelled");
+        }
+      } while (!rows.offer(row, POLL_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ModuleException().withMessage("Interrupted while handing over rows of table " + tableId).withCause(e);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.common.parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.databasepreservation.model.exception.ModuleException;
+
+/**
+ * Runs independent tasks (e.g. reading the structure of each table) on a fixed
+ * set of workers, usually import modules each owning a connection to the source
+ * database, and returns their results in the order of the tasks. The results
+ * therefore do not depend on the number of workers nor on which worker ran each
+ * task.
+ *
+ * Each worker is used by a single thread at a time. Before a worker runs its
+ * first task of a call to {@link #map(List, Task)}, its health is checked (e.g.
+ * to replace a connection closed by the server while the worker was idle). When
+ * a task fails, no more tasks are started and the first failure is thrown once
+ * the running tasks end.
+ *
+ * @param <W>
+ *          the type of the workers
+ */
+public class WorkerPool<W> {
+  /**
+   * A task run by a worker.
+   */
+  public interface Task<W, I, R> {
+    /**
+     * @param worker
+     *          the worker running the task, not used by any other thread
+     *          meanwhile
+     * @param item
+     *          the item to process
+     * @return the result for the item
+     * @throws ModuleException
+     *           if the task failed
+     */
+    R run(W worker, I item) throws ModuleException;
+  }
+
+  /**
+   * Checks if a worker can be used, fixing it if possible (e.g. reconnecting).
+   */
+  public interface HealthCheck<W> {
+    /**
+     * @param worker
+     *          the worker
+     * @throws ModuleException
+     *           if the worker can not be used
+     */
+    void check(W worker) throws ModuleException;
+  }
+
+  private final List<W> workers;
+  private final HealthCheck<W> healthCheck;
+  private final String threadName;
+
+  /**
+   * @param workers
+   *          the workers
+   * @param healthCheck
+   *          checks each worker before it is used
+   * @param threadName
+   *          the prefix of the names of the threads running the tasks
+   */
+  public WorkerPool(List<W> workers, HealthCheck<W> healthCheck, String threadName) {
+    this.workers = new ArrayList<>(workers);
+    this.healthCheck = healthCheck;
+    this.threadName = threadName;
+  }
+
+  public int size() {
+    return workers.size();
+  }
+
+  /**
+   * Runs a task for each item, using all workers concurrently.
+   *
+   * @param items
+   *          the items
+   * @param task
+   *          the task to run for each item
+   * @return the results, in the order of the items
+   * @throws ModuleException
+   *           the first failure of a task or health check
+   */
+  public <I, R> List<R> map(List<I> items, Task<W, I, R> task) throws ModuleException {
+    Object[] results = new Object[items.size()];
+    AtomicInteger nextItem = new AtomicInteger(0);
+    AtomicReference<ModuleException> failure = new AtomicReference<>();
+
+    int threads = Math.min(workers.size(), items.size());
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new PoolThreadFactory(threadName));
+    for (W worker : workers.subList(0, threads)) {
+      executor.execute(() -> {
+        try {
+          healthCheck.check(worker);
+          int itemIndex;
+          while (failure.get() == null && (itemIndex = nextItem.getAndIncrement()) < items.size()) {
+            results[itemIndex] = task.run(worker, items.get(itemIndex));
+          }
+        } catch (ModuleException e) {
+          failure.compareAndSet(null, e);
+        } catch (RuntimeException e) {
+          failure.compareAndSet(null, new ModuleException().withMessage("Unexpected error in a worker").withCause(e));
+        }
+      });
+    }
+    executor.shutdown();
+
+    try {
+      // the tasks may take long, e.g. on catalogs with many objects
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      nextItem.set(items.size());
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, new ModuleException().withMessage("Interrupted while waiting for the workers"));
+    }
+
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    List<R> list = (List<R>) Arrays.asList(results);
+    return list;
+  }
+
+  private static class PoolThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger(1);
+    private final String prefix;
+
+    private PoolThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + "-" + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -11,53 +11,148 @@
 package com.databasepreservation.model.data;
 
 import java.lang.reflect.Array;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.NoSuchElementException;
 
 import org.apache.commons.lang3.tuple.Pair;
 
 import com.databasepreservation.model.exception.InvalidDataException;
 import com.google.common.base.Function;
-import com.google.common.collect.Iterators;
 
 /**
  * Array cell that supports multidimensional arrays
+ *
+ * The cells are kept ordered by their position in the n-dimensional array. The
+ * positions are kept in a single array of primitive indexes, and the dimensions
+ * and cardinality of the array are updated as cells are added, so they are
+ * readily available. Use {@link #size()}, {@link #getCell(int)},
+ * {@link #getPositionLength(int)} and {@link #getPositionIndex(int, int)} to
+ * go through the cells without creating any objects.
  */
 public class ArrayCell extends Cell implements Iterable<Pair<List<Integer>, Cell>> {
+  private static final int INITIAL_CAPACITY = 8;
+
+  // the cells, ordered by their position in the n-dimensional array
+  private Cell[] cells = new Cell[INITIAL_CAPACITY];
+
+  // the position of cell i is indexes[positionStart[i]] up to (but not
+  // including) indexes[positionStart[i + 1]]
+  private int[] positionStart = new int[INITIAL_CAPACITY + 1];
+  private int[] indexes = new int[INITIAL_CAPACITY];
+  private int size = 0;
 
-  // store cells in a tree ordered by the indexes of those cells in the
-  // n-dimensional array
-  private TreeMap<ComparableIntegerList, Cell> arrayData = new TreeMap<>();
+  // number of indexes of every position, or -1 if they are not all the same
+  private int dimensions = 0;
+
+  // the highest index used in each dimension
+  private int[] cardinalities = new int[0];
 
   public ArrayCell(String id) {
     super(id);
   }
 
-  private static <T> void toArraySetValue(Object array, T value, Integer... indexes) {
-    if (indexes.length == 1) {
-      ((T[]) array)[indexes[0] - 1] = value;
-    } else {
-      toArraySetValue(Array.get(array, indexes[0] - 1), value, Arrays.copyOfRange(indexes, 1, indexes.length));
+  /**
+   * @param value
+   *          the cell
+   * @param position
+   *          the (1-based) indexes of the cell in the n-dimensional array. A cell
+   *          already in the same position is replaced.
+   */
+  public void put(Cell value, Collection<Integer> position) {
+    int[] standardPosition = new int[position.size()];
+    int i = 0;
+    for (Integer index : position) {
+      standardPosition[i++] = index;
     }
+    put(value, standardPosition);
   }
 
-  public void put(Cell value, Collection<Integer> position) {
-    // ensure all arraylists are similar so they can be compared
-    ComparableIntegerList standardPosition = new ComparableIntegerList();
-    for (Integer i : position) {
-      standardPosition.add(i);
+  public void put(Cell value, Integer... position) {
+    put(value, Arrays.asList(position));
+  }
+
+  /**
+   * @param value
+   *          the cell
+   * @param position
+   *          the (1-based) indexes of the cell in the n-dimensional array. A cell
+   *          already in the same position is replaced.
+   */
+  public void put(Cell value, int[] position) {
+    // cells are usually added in order
+    int insertAt = size;
+    if (size > 0) {
+      int comparison = compareToPosition(size - 1, position);
+      if (comparison == 0) {
+        cells[size - 1] = value;
+        return;
+      } else if (comparison > 0) {
+        insertAt = findInsertionPoint(position);
+        if (insertAt < 0) {
+          cells[-insertAt - 1] = value;
+          return;
+        }
+      }
     }
 
-    arrayData.put(standardPosition, value);
+    insert(insertAt, value, position);
+    updateDimensions(position);
   }
 
-  public void put(Cell value, Integer... position) {
-    put(value, Arrays.asList(position));
+  /**
+   * @return the number of cells in the array
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param i
+   *          the cell number, from 0 to size() - 1, in position order
+   * @return the cell
+   */
+  public Cell getCell(int i) {
+    checkCellNumber(i);
+    return cells[i];
+  }
+
+  /**
+   * @param i
+   *          the cell number, from 0 to size() - 1, in position order
+   * @param value
+   *          the cell that replaces it, in the same position
+   */
+  public void setCell(int i, Cell value) {
+    checkCellNumber(i);
+    cells[i] = value;
+  }
+
+  /**
+   * @param i
+   *          the cell number, from 0 to size() - 1, in position order
+   * @return the number of indexes in the position of the cell
+   */
+  public int getPositionLength(int i) {
+    checkCellNumber(i);
+    return positionStart[i + 1] - positionStart[i];
+  }
+
+  /**
+   * @param i
+   *          the cell number, from 0 to size() - 1, in position order
+   * @param dimension
+   *          the dimension, from 0 to getPositionLength(i) - 1
+   * @return the (1-based) index of the cell in that dimension
+   */
+  public int getPositionIndex(int i, int dimension) {
+    if (dimension < 0 || dimension >= getPositionLength(i)) {
+      throw new IndexOutOfBoundsException("Dimension " + dimension + " out of bounds for cell " + i);
+    }
+    return indexes[positionStart[i] + dimension];
   }
 
   /**
@@ -73,115 +168,174 @@ public class ArrayCell extends Cell implements Iterable<Pair<List<Integer>, Cell
    */
   @Override
   public Iterator<Pair<List<Integer>, Cell>> iterator() {
-    return Iterators.transform(arrayData.entrySet().iterator(),
-      new Function<Map.Entry<ComparableIntegerList, Cell>, Pair<List<Integer>, Cell>>() {
-        @Override
-        public Pair<List<Integer>, Cell> apply(Map.Entry<ComparableIntegerList, Cell> input) {
-          return Pair.of((List<Integer>) new ArrayList<>(input.getKey()), input.getValue());
+    return new Iterator<Pair<List<Integer>, Cell>>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @Override
+      public Pair<List<Integer>, Cell> next() {
+        if (next >= size) {
+          throw new NoSuchElementException();
         }
-      });
+        int i = next++;
+        return Pair.of(new PositionList(Arrays.copyOfRange(indexes, positionStart[i], positionStart[i + 1])),
+          cells[i]);
+      }
+    };
   }
 
   public boolean isEmpty() {
-    return arrayData.isEmpty();
+    return size == 0;
   }
 
   /**
-   * Calculates the dimension of the multidimensional array based on current
-   * values. A special value is returned if the array is not coherent, ie. has
-   * values in multiple dimensions (eg: positions [1,2] and [1,2,3] both having
-   * values)
+   * Gets the dimension of the multidimensional array based on current values. A
+   * special value is returned if the array is not coherent, ie. has values in
+   * multiple dimensions (eg: positions [1,2] and [1,2,3] both having values)
    * 
    * @return the dimension of the multidimensional array; or 0 if the array is
    *         empty; or -1 if the array is not coherent
    */
   public int calculateDimensions() {
-    if (arrayData.isEmpty()) {
-      return 0;
-    }
-
-    Map<Integer, Integer> dimensionAndFrequency = new TreeMap<>();
-
-    // get dimensions and their frequency
-    Iterator<ComparableIntegerList> arrayKeysIterator = arrayData.keySet().iterator();
-    while (arrayKeysIterator.hasNext()) {
-      Integer size = arrayKeysIterator.next().size();
-      Integer freq = dimensionAndFrequency.get(size);
-      if (freq == null) {
-        freq = 0;
-      }
-      dimensionAndFrequency.put(size, freq + 1);
-    }
+    return dimensions;
+  }
 
-    if (dimensionAndFrequency.size() == 1) {
-      return dimensionAndFrequency.entrySet().iterator().next().getKey();
-    } else {
-      return -1;
-    }
+  /**
+   * @return the length of the outermost array (the highest first index used), or
+   *         0 if the array is empty
+   */
+  public int getCardinality() {
+    return cardinalities.length == 0 ? 0 : cardinalities[0];
   }
 
   public <T> Object[] toArray(Function<Cell, T> cellToObject, Class<T> objectClass) throws InvalidDataException {
-    if (arrayData.isEmpty()) {
+    if (size == 0) {
       return new Object[] {};
     }
 
-    int dimensions = calculateDimensions();
     if (dimensions < 0) {
       throw (InvalidDataException) new InvalidDataException()
         .withMessage("Impossible to convert into native java array. Array dimensions are not coherent");
     }
 
-    int[] sizes = new int[dimensions];
-    Arrays.fill(sizes, 0);
+    Object[] multidimensionalArray = (Object[]) Array.newInstance(objectClass, cardinalities);
+    for (int i = 0; i < size; i++) {
+      Object[] innermostArray = multidimensionalArray;
+      int last = positionStart[i + 1] - 1;
+      for (int p = positionStart[i]; p < last; p++) {
+        innermostArray = (Object[]) innermostArray[indexes[p] - 1];
+      }
+      innermostArray[indexes[last] - 1] = cellToObject.apply(cells[i]);
+    }
 
-    for (ComparableIntegerList positions : arrayData.keySet()) {
-      for (int i = 0; i < positions.size(); i++) {
-        if (positions.get(i) > sizes[i]) {
-          sizes[i] = positions.get(i);
-        }
+    return multidimensionalArray;
+  }
+
+  private void checkCellNumber(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("Cell " + i + " out of bounds for array with " + size + " cells");
+    }
+  }
+
+  /**
+   * The first different index between the positions (checked in order) defines
+   * the result of the comparison. In a draw, the shorter position is "less
+   * than" the other.
+   */
+  private int compareToPosition(int i, int[] position) {
+    int start = positionStart[i];
+    int length = positionStart[i + 1] - start;
+    int minLength = Math.min(length, position.length);
+    for (int d = 0; d < minLength; d++) {
+      if (indexes[start + d] != position[d]) {
+        return Integer.compare(indexes[start + d], position[d]);
       }
     }
+    return Integer.compare(length, position.length);
+  }
 
-    Object multidimensionalArray = Array.newInstance(objectClass, sizes);
+  /**
+   * @return the number of the first cell after the position, or (-number - 1)
+   *         if a cell already has the position
+   */
+  private int findInsertionPoint(int[] position) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = compareToPosition(middle, position);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return -middle - 1;
+      }
+    }
+    return low;
+  }
+
+  private void insert(int insertAt, Cell value, int[] position) {
+    if (size == cells.length) {
+      cells = Arrays.copyOf(cells, size * 2);
+      positionStart = Arrays.copyOf(positionStart, size * 2 + 1);
+    }
+    int used = positionStart[size];
+    if (used + position.length > indexes.length) {
+      indexes = Arrays.copyOf(indexes, Math.max(indexes.length * 2, used + position.length));
+    }
 
-    Iterator<Pair<List<Integer>, Cell>> i = iterator();
-    while (i.hasNext()) {
-      Pair<List<Integer>, Cell> pair = i.next();
-      Integer[] positions = pair.getLeft().toArray(new Integer[] {});
-      Cell cell = pair.getRight();
-      T value = cellToObject.apply(cell);
+    int indexesAt = positionStart[insertAt];
+    if (insertAt < size) {
+      System.arraycopy(cells, insertAt, cells, insertAt + 1, size - insertAt);
+      System.arraycopy(indexes, indexesAt, indexes, indexesAt + position.length, used - indexesAt);
+      for (int i = size; i >= insertAt + 1; i--) {
+        positionStart[i + 1] = positionStart[i] + position.length;
+      }
+    }
+    cells[insertAt] = value;
+    System.arraycopy(position, 0, indexes, indexesAt, position.length);
+    positionStart[insertAt + 1] = indexesAt + position.length;
+    size++;
+  }
 
-      toArraySetValue(multidimensionalArray, value, positions);
+  private void updateDimensions(int[] position) {
+    if (size == 1) {
+      dimensions = position.length;
+    } else if (dimensions != position.length) {
+      dimensions = -1;
     }
 
-    return (Object[]) multidimensionalArray;
+    if (position.length > cardinalities.length) {
+      cardinalities = Arrays.copyOf(cardinalities, position.length);
+    }
+    for (int d = 0; d < position.length; d++) {
+      cardinalities[d] = Math.max(cardinalities[d], position[d]);
+    }
   }
 
-  private static class ComparableIntegerList extends ArrayList<Integer> implements Comparable<ComparableIntegerList> {
-    public ComparableIntegerList() {
-      super();
+  /**
+   * Read-only list of the indexes of a position
+   */
+  private static final class PositionList extends AbstractList<Integer> {
+    private final int[] position;
+
+    private PositionList(int[] position) {
+      this.position = position;
     }
 
-    /**
-     * The first different number between the lists (checked in order) defines the
-     * result of the comparison (null is considered less than any number). In a
-     * draw, the smaller list is "less than" the other.
-     */
     @Override
-    public int compareTo(ComparableIntegerList other) {
-      int minSize = this.size() < other.size() ? this.size() : other.size();
-      for (int i = 0; i < minSize; i++) {
-        if (this.get(i) != other.get(i)) {
-          if (this.get(i) == null) {
-            return -1;
-          }
-          if (other.get(i) == null) {
-            return 1;
-          }
-          return this.get(i).compareTo(other.get(i));
-        }
-      }
-      return Integer.compare(this.size(), other.size());
+    public Integer get(int index) {
+      return position[index];
+    }
+
+    @Override
+    public int size() {
+      return position.length;
     }
   }
 }
@@ -14,8 +14,8 @@ import java.io.InputStream;
 import java.sql.Blob;
 
 import com.databasepreservation.common.io.providers.BlobInputStreamProvider;
+import com.databasepreservation.common.io.providers.InMemoryInputStreamProvider;
 import com.databasepreservation.common.io.providers.InputStreamProvider;
-import com.databasepreservation.common.io.providers.TemporaryPathInputStreamProvider;
 import com.databasepreservation.model.exception.ModuleException;
 
 /**
@@ -44,8 +44,9 @@ public class BinaryCell extends Cell implements InputStreamProvider {
   }
 
   /**
-   * Creates a binary cell. The binary contents are read and saved to a temporary
-   * file, so they can be read later without keeping an open InputStreams.
+   * Creates a binary cell. The binary contents are read and kept in memory, if
+   * they are small, or saved to a temporary file, so they can be read later
+   * without keeping an open InputStreams.
    *
    * The inputStream is closed after use.
    *
@@ -58,7 +59,7 @@ public class BinaryCell extends Cell implements InputStreamProvider {
    */
   public BinaryCell(String id, InputStream inputStream) throws ModuleException {
     super(id);
-    inputStreamProvider = new TemporaryPathInputStreamProvider(inputStream);
+    inputStreamProvider = InMemoryInputStreamProvider.copyOf(inputStream);
   }
 
   /**
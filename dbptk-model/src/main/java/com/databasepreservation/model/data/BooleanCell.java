@@ -0,0 +1,48 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.data;
+
+/**
+ * Cell with a boolean value.
+ */
+public class BooleanCell extends PrimitiveCell {
+  private final boolean value;
+
+  /**
+   * @param id
+   *          the cell id, equal to 'tableId.columnName.rowIndex'
+   * @param value
+   *          the content of the cell
+   */
+  public BooleanCell(String id, boolean value) {
+    super(id);
+    this.value = value;
+  }
+
+  /**
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   * @param value
+   *          the content of the cell
+   */
+  public BooleanCell(CellIdPrefix idPrefix, long rowIndex, boolean value) {
+    super(idPrefix, rowIndex);
+    this.value = value;
+  }
+
+  public boolean getBoolean() {
+    return value;
+  }
+
+  @Override
+  protected String format() {
+    return value ? "true" : "false";
+  }
+}
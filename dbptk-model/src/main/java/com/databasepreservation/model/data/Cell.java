@@ -17,6 +17,8 @@ package com.databasepreservation.model.data;
  */
 public abstract class Cell {
   private String id;
+  private CellIdPrefix idPrefix;
+  private long idRowIndex;
   private byte[] messageDigest;
   private String digestAlgorithm;
 
@@ -30,10 +32,26 @@ public abstract class Cell {
     this.id = id;
   }
 
+  /**
+   * Abstract Cell constructor, with an id that is only built when requested
+   *
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index, the last part of the cell id
+   */
+  public Cell(CellIdPrefix idPrefix, long rowIndex) {
+    this.idPrefix = idPrefix;
+    this.idRowIndex = rowIndex;
+  }
+
   /**
    * @return the cell id, equal to 'tableId.columnId.rowIndex'
    */
   public String getId() {
+    if (id == null && idPrefix != null) {
+      id = idPrefix.getId(idRowIndex);
+    }
     return id;
   }
 
@@ -43,6 +61,30 @@ public abstract class Cell {
    */
   public void setId(String id) {
     this.id = id;
+    this.idPrefix = null;
+  }
+
+  /**
+   * Changes the row index at the end of the cell id, if the id ends with the
+   * old row index.
+   *
+   * @param oldRowIndex
+   *          the current row index
+   * @param newRowIndex
+   *          the new row index
+   */
+  public void reindex(long oldRowIndex, long newRowIndex) {
+    if (idPrefix != null) {
+      if (idRowIndex == oldRowIndex) {
+        idRowIndex = newRowIndex;
+        id = null;
+      }
+    } else if (id != null) {
+      String oldSuffix = "." + oldRowIndex;
+      if (id.endsWith(oldSuffix)) {
+        id = id.substring(0, id.length() - oldSuffix.length()) + "." + newRowIndex;
+      }
+    }
   }
 
   public byte[] getMessageDigest() {
@@ -63,6 +105,6 @@ public abstract class Cell {
 
   @Override
   public String toString() {
-    return "Cell{" + "id='" + id + '\'' + '}';
+    return "Cell{" + "id='" + getId() + '\'' + '}';
   }
 }
@@ -0,0 +1,40 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.data;
+
+/**
+ * The part of the cell ids that is shared by all cells of a column. Cells
+ * created with a prefix and a row index only build their id when it is
+ * requested, avoiding a few string allocations per cell.
+ */
+public final class CellIdPrefix {
+  private final String prefix;
+
+  /**
+   * @param columnId
+   *          the first part of the ids of the cells of the column (e.g.
+   *          'tableId.columnName')
+   */
+  public CellIdPrefix(String columnId) {
+    this.prefix = columnId + ".";
+  }
+
+  /**
+   * @param rowIndex
+   *          the row index
+   * @return the id of the cell of this column in the row
+   */
+  public String getId(long rowIndex) {
+    return prefix + rowIndex;
+  }
+
+  @Override
+  public String toString() {
+    return prefix;
+  }
+}
@@ -0,0 +1,210 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ReaderInputStream;
+import org.apache.commons.io.input.SequenceReader;
+
+import com.databasepreservation.common.io.providers.InMemoryInputStreamProvider;
+import com.databasepreservation.common.io.providers.InputStreamProvider;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.utils.ConfigUtils;
+
+/**
+ * Container of character data that is too large to be kept as a String (e.g.
+ * CLOBs). The characters are kept as UTF-8 bytes by an
+ * {@link InputStreamProvider} and read as a stream by the modules that support
+ * it, so they are never fully in memory.
+ *
+ * Other modules see it as any other simple cell, but the first call to
+ * {@link #getSimpleData()} (or {@link #getContent()}) reads the whole content
+ * into a String, which is kept by the cell.
+ */
+public class ClobCell extends SimpleCell {
+  private static final Integer DEFAULT_INLINE_CHARACTERS = ConfigUtils.getProperty(64 * 1024,
+    "dbptk.clob.inline.characters");
+  private static final int COPY_BUFFER_CHARACTERS = 8192;
+
+  private final InputStreamProvider inputStreamProvider;
+  private String content = null;
+
+  /**
+   * @param id
+   *          the cell id
+   * @param inputStreamProvider
+   *          provides the characters, encoded in UTF-8
+   */
+  public ClobCell(String id, InputStreamProvider inputStreamProvider) {
+    super(id);
+    this.inputStreamProvider = inputStreamProvider;
+  }
+
+  /**
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   * @param inputStreamProvider
+   *          provides the characters, encoded in UTF-8
+   */
+  public ClobCell(CellIdPrefix idPrefix, long rowIndex, InputStreamProvider inputStreamProvider) {
+    super(idPrefix, rowIndex);
+    this.inputStreamProvider = inputStreamProvider;
+  }
+
+  /**
+   * Reads the characters, keeping them as a String if there are not many more
+   * than defined by the dbptk.clob.inline.characters property (65536 by
+   * default), or copying them to a ClobCell otherwise (see
+   * {@link InMemoryInputStreamProvider#copyOf(InputStream)}). The reader is
+   * closed.
+   *
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   * @param reader
+   *          the characters
+   * @return a SimpleCell or a ClobCell
+   * @throws ModuleException
+   *           if the characters could not be read. The reader is still closed.
+   */
+  public static SimpleCell copyOf(CellIdPrefix idPrefix, long rowIndex, Reader reader) throws ModuleException {
+    StringBuilder head = new StringBuilder();
+    char[] buffer = new char[COPY_BUFFER_CHARACTERS];
+    boolean ended = false;
+    try {
+      while (!ended && head.length() <= DEFAULT_INLINE_CHARACTERS) {
+        int read = reader.read(buffer);
+        if (read == -1) {
+          ended = true;
+        } else {
+          head.append(buffer, 0, read);
+        }
+      }
+    } catch (IOException e) {
+      IOUtils.closeQuietly(reader);
+      throw new ModuleException().withMessage("Error reading characters").withCause(e);
+    }
+
+    if (ended) {
+      IOUtils.closeQuietly(reader);
+      return new SimpleCell(idPrefix, rowIndex, head.toString());
+    }
+
+    Reader characters = new SequenceReader(new StringReader(head.toString()), reader);
+    try {
+      InputStream bytes = ReaderInputStream.builder().setReader(characters).setCharset(StandardCharsets.UTF_8).get();
+      return new ClobCell(idPrefix, rowIndex, InMemoryInputStreamProvider.copyOf(bytes));
+    } catch (IOException e) {
+      IOUtils.closeQuietly(characters);
+      throw new ModuleException().withMessage("Error reading characters").withCause(e);
+    }
+  }
+
+  /**
+   * Create a new input stream to read the characters, encoded in UTF-8. The
+   * stream must be closed elsewhere.
+   *
+   * @return the new input stream
+   * @throws ModuleException
+   *           if the input stream could not be created
+   */
+  public InputStream createInputStream() throws ModuleException {
+    return inputStreamProvider.createInputStream();
+  }
+
+  /**
+   * Create a new reader to read the characters. The reader must be closed
+   * elsewhere.
+   *
+   * @return the new reader
+   * @throws ModuleException
+   *           if the reader could not be created
+   */
+  public Reader createReader() throws ModuleException {
+    return new InputStreamReader(createInputStream(), StandardCharsets.UTF_8);
+  }
+
+  public InputStreamProvider getInputStreamProvider() {
+    return inputStreamProvider;
+  }
+
+  /**
+   * Free all underlying resources, except for the streams.
+   */
+  public void cleanResources() {
+    inputStreamProvider.cleanResources();
+  }
+
+  /**
+   * Reads the whole content into a String, once, for the modules that do not
+   * read the content as a stream.
+   *
+   * @return the content of the cell
+   * @throws ModuleException
+   *           if the content could not be read
+   */
+  public String getContent() throws ModuleException {
+    if (content == null) {
+      try (Reader reader = createReader()) {
+        content = IOUtils.toString(reader);
+      } catch (IOException e) {
+        throw new ModuleException().withMessage("Could not read the content of cell " + getId()).withCause(e);
+      }
+    }
+    return content;
+  }
+
+  /**
+   * Same as {@link #getContent()}, for the modules that see this cell as any
+   * other simple cell. Modules that can report the failure should use
+   * {@link #getContent()} instead.
+   *
+   * @return the content of the cell
+   * @throws IllegalStateException
+   *           if the content could not be read
+   */
+  @Override
+  public String getSimpleData() {
+    try {
+      return getContent();
+    } catch (ModuleException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Gets the size of the content in bytes, without reading it when using UTF-8
+   * encoding
+   *
+   * @param encoding
+   *          the encoding to use when getting the string size in bytes; if null,
+   *          UTF-8 encoding is used
+   * @return the size of the content in bytes
+   */
+  @Override
+  public long getBytesSize(String encoding) {
+    if (encoding == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(encoding)) {
+      try {
+        return inputStreamProvider.getSize();
+      } catch (ModuleException e) {
+        throw new IllegalStateException("Could not get the size of cell " + getId(), e);
+      }
+    }
+    return super.getBytesSize(encoding);
+  }
+}
@@ -0,0 +1,59 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.data;
+
+import java.time.LocalDate;
+
+/**
+ * Cell with a date (without time), kept as the number of days since
+ * 1970-01-01.
+ *
+ * The date has the year, month and day of the source (e.g. from
+ * java.sql.Date#toLocalDate, in the Julian calendar before 1582-10-15), so it
+ * is formatted as java.sql.Date#toString formats it. BC dates have no era in
+ * java.sql.Date#toLocalDate, so they are formatted as AD years, also as before.
+ */
+public class DateCell extends PrimitiveCell {
+  private final long epochDay;
+
+  /**
+   * @param id
+   *          the cell id, equal to 'tableId.columnName.rowIndex'
+   * @param date
+   *          the content of the cell, not null
+   */
+  public DateCell(String id, LocalDate date) {
+    super(id);
+    this.epochDay = date.toEpochDay();
+  }
+
+  /**
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   * @param date
+   *          the content of the cell, not null
+   */
+  public DateCell(CellIdPrefix idPrefix, long rowIndex, LocalDate date) {
+    super(idPrefix, rowIndex);
+    this.epochDay = date.toEpochDay();
+  }
+
+  public LocalDate getDate() {
+    return LocalDate.ofEpochDay(epochDay);
+  }
+
+  /**
+   * @return the date, formatted as yyyy-MM-dd
+   */
+  @Override
+  protected String format() {
+    return getDate().toString();
+  }
+}
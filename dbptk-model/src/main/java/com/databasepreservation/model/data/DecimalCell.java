@@ -0,0 +1,53 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.data;
+
+import java.math.BigDecimal;
+
+/**
+ * Cell with an exact numeric value.
+ */
+public class DecimalCell extends PrimitiveCell {
+  private final BigDecimal value;
+
+  /**
+   * @param id
+   *          the cell id, equal to 'tableId.columnName.rowIndex'
+   * @param value
+   *          the content of the cell, not null
+   */
+  public DecimalCell(String id, BigDecimal value) {
+    super(id);
+    this.value = value;
+  }
+
+  /**
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   * @param value
+   *          the content of the cell, not null
+   */
+  public DecimalCell(CellIdPrefix idPrefix, long rowIndex, BigDecimal value) {
+    super(idPrefix, rowIndex);
+    this.value = value;
+  }
+
+  public BigDecimal getDecimal() {
+    return value;
+  }
+
+  /**
+   * @return the number without exponent
+   */
+  @Override
+  protected String format() {
+    return value.toPlainString();
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.data;
+
+/**
+ * Cell with an integer value that fits in a long.
+ */
+public class LongCell extends PrimitiveCell {
+  private final long value;
+
+  /**
+   * @param id
+   *          the cell id, equal to 'tableId.columnName.rowIndex'
+   * @param value
+   *          the content of the cell
+   */
+  public LongCell(String id, long value) {
+    super(id);
+    this.value = value;
+  }
+
+  /**
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   * @param value
+   *          the content of the cell
+   */
+  public LongCell(CellIdPrefix idPrefix, long rowIndex, long value) {
+    super(idPrefix, rowIndex);
+    this.value = value;
+  }
+
+  public long getLong() {
+    return value;
+  }
+
+  @Override
+  protected String format() {
+    return Long.toString(value);
+  }
+}
@@ -22,4 +22,16 @@ public class NullCell extends Cell {
   public NullCell(String id) {
     super(id);
   }
+
+  /**
+   * Null cell constructor, with an id that is only built when requested
+   *
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   */
+  public NullCell(CellIdPrefix idPrefix, long rowIndex) {
+    super(idPrefix, rowIndex);
+  }
 }
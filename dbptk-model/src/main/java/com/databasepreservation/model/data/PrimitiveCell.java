@@ -0,0 +1,56 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.data;
+
+/**
+ * Simple cell that keeps its value in its original type (a number, a boolean,
+ * a date) instead of a string. Modules that know the type can read the value
+ * directly, others can still use {@link #getSimpleData()}, which converts the
+ * value to a string the first time it is called.
+ *
+ * The value of a primitive cell is never null, a {@link NullCell} is used
+ * instead.
+ */
+public abstract class PrimitiveCell extends SimpleCell {
+  private String simpleData = null;
+
+  /**
+   * @param id
+   *          the cell id, equal to 'tableId.columnName.rowIndex'
+   */
+  protected PrimitiveCell(String id) {
+    super(id);
+  }
+
+  /**
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   */
+  protected PrimitiveCell(CellIdPrefix idPrefix, long rowIndex) {
+    super(idPrefix, rowIndex);
+  }
+
+  /**
+   * @return the value of the cell as a string, in the same format that would be
+   *         used by a SimpleCell
+   */
+  @Override
+  public String getSimpleData() {
+    if (simpleData == null) {
+      simpleData = format();
+    }
+    return simpleData;
+  }
+
+  /**
+   * @return the value converted to a string
+   */
+  protected abstract String format();
+}
@@ -0,0 +1,92 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Consecutive rows of the same table, in row index order. A new batch is
+ * created for each call to handleDataRows, so modules can keep a reference to
+ * the batch (or its rows) after the call. Like the cells of a row, the rows of
+ * a batch may be replaced by the modules it goes through.
+ */
+public class RowBatch implements Iterable<Row> {
+  private final List<Row> rows;
+
+  /**
+   * Empty row batch constructor
+   */
+  public RowBatch() {
+    this.rows = new ArrayList<>();
+  }
+
+  /**
+   * Empty row batch constructor
+   *
+   * @param capacity
+   *          the expected number of rows in the batch
+   */
+  public RowBatch(int capacity) {
+    this.rows = new ArrayList<>(capacity);
+  }
+
+  /**
+   * Row batch constructor
+   *
+   * @param rows
+   *          the rows of the batch, in row index order (a modifiable list)
+   */
+  public RowBatch(List<Row> rows) {
+    this.rows = rows;
+  }
+
+  /**
+   * @param row
+   *          the row to add after the rows already in the batch
+   */
+  public void add(Row row) {
+    rows.add(row);
+  }
+
+  /**
+   * @return the rows of the batch, in row index order
+   */
+  public List<Row> getRows() {
+    return rows;
+  }
+
+  public int size() {
+    return rows.size();
+  }
+
+  public boolean isEmpty() {
+    return rows.isEmpty();
+  }
+
+  @Override
+  public Iterator<Row> iterator() {
+    return rows.iterator();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("RowBatch [size=");
+    builder.append(rows.size());
+    if (!rows.isEmpty()) {
+      builder.append(", firstIndex=");
+      builder.append(rows.get(0).getIndex());
+      builder.append(", lastIndex=");
+      builder.append(rows.get(rows.size() - 1).getIndex());
+    }
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -34,6 +34,20 @@ public class SimpleCell extends Cell {
     simpleData = null;
   }
 
+  /**
+   * Simple cell constructor with empty data, with an id that is only built when
+   * requested
+   *
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   */
+  protected SimpleCell(CellIdPrefix idPrefix, long rowIndex) {
+    super(idPrefix, rowIndex);
+    simpleData = null;
+  }
+
   /**
    * Simple cell constructor
    *
@@ -47,6 +61,21 @@ public class SimpleCell extends Cell {
     this.simpleData = simpleData;
   }
 
+  /**
+   * Simple cell constructor, with an id that is only built when requested
+   *
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   * @param simpleData
+   *          the content of the cell
+   */
+  public SimpleCell(CellIdPrefix idPrefix, long rowIndex, String simpleData) {
+    super(idPrefix, rowIndex);
+    this.simpleData = simpleData;
+  }
+
   /**
    * @return the content of the cell
    */
@@ -80,6 +109,7 @@ public class SimpleCell extends Cell {
     }
 
     // if the data is null, its length is -1
+    String simpleData = getSimpleData();
     if (simpleData == null) {
       size = -1L;
       return size;
@@ -105,6 +135,8 @@ public class SimpleCell extends Cell {
           size = (long) simpleData.length() * 2;
           break;
         case "UTF-8":
+          size = utf8Length(simpleData);
+          break;
         default:
           size = (long) simpleData.getBytes(encoding).length;
       }
@@ -114,4 +146,28 @@ public class SimpleCell extends Cell {
 
     return size;
   }
+
+  /**
+   * Counts the bytes of a string encoded in UTF-8 without encoding it
+   */
+  private static long utf8Length(String string) {
+    long length = 0;
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+        && Character.isLowSurrogate(string.charAt(i + 1))) {
+        // a supplementary character, encoded from both chars of the pair
+        length += 4;
+        i++;
+      } else {
+        // unpaired surrogates are encoded as '?'
+        length += Character.isSurrogate(c) ? 1 : 3;
+      }
+    }
+    return length;
+  }
 }
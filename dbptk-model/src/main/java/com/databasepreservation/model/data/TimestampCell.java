@@ -0,0 +1,80 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.data;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import com.databasepreservation.utils.JodaUtils;
+
+/**
+ * Cell with a timestamp (without time zone), kept as the milliseconds since
+ * 1970-01-01T00:00:00Z and the nanoseconds of the second.
+ */
+public class TimestampCell extends PrimitiveCell {
+  // before this, timestamps are formatted in the Julian calendar
+  private static final long GREGORIAN_CUTOVER_MILLIS = Instant.parse("1582-10-15T00:00:00Z").toEpochMilli();
+
+  private final long epochMillis;
+  private final int nanos;
+
+  /**
+   * @param id
+   *          the cell id, equal to 'tableId.columnName.rowIndex'
+   * @param timestamp
+   *          the content of the cell, not null
+   */
+  public TimestampCell(String id, Timestamp timestamp) {
+    super(id);
+    this.epochMillis = timestamp.getTime();
+    this.nanos = timestamp.getNanos();
+  }
+
+  /**
+   * @param idPrefix
+   *          the first part of the cell id, shared by the cells of the column
+   * @param rowIndex
+   *          the row index
+   * @param timestamp
+   *          the content of the cell, not null
+   */
+  public TimestampCell(CellIdPrefix idPrefix, long rowIndex, Timestamp timestamp) {
+    super(idPrefix, rowIndex);
+    this.epochMillis = timestamp.getTime();
+    this.nanos = timestamp.getNanos();
+  }
+
+  public Timestamp getTimestamp() {
+    Timestamp timestamp = new Timestamp(epochMillis);
+    timestamp.setNanos(nanos);
+    return timestamp;
+  }
+
+  /**
+   * @return the instant of the formatted timestamp (see {@link #format()}) in
+   *         the ISO calendar. Timestamps before 1582-10-15 are formatted in the
+   *         Julian calendar and BC years are negative, so their instant has the
+   *         same year, month and day instead of the same time line position,
+   *         as when the formatted timestamp is parsed.
+   */
+  public Instant getInstant() {
+    if (epochMillis < GREGORIAN_CUTOVER_MILLIS) {
+      return Instant.parse(format());
+    }
+    return Instant.ofEpochSecond(Math.floorDiv(epochMillis, 1000), nanos);
+  }
+
+  /**
+   * @return the timestamp in UTC, formatted as in
+   *         {@link JodaUtils#getDateTime(Timestamp)}
+   */
+  @Override
+  protected String format() {
+    return JodaUtils.getDateTime(getTimestamp());
+  }
+}
@@ -14,6 +14,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.exception.UnknownTypeException;
 import com.databasepreservation.model.reporters.Reporter;
@@ -87,6 +88,40 @@ public interface DatabaseExportModule extends ExceptionNormalizer {
    */
   void handleDataRow(Row row) throws ModuleException;
 
+  /**
+   * Handle consecutive rows of a table. This method may be called instead of
+   * handleDataRow, after the table was open and before it was closed, by row
+   * index order. Modules that can process several rows at once (or that forward
+   * the rows to another module) should override it, the default implementation
+   * just calls handleDataRow for each row.
+   *
+   * @param rows
+   *          the table rows, never empty
+   * @throws ModuleException
+   */
+  default void handleDataRows(RowBatch rows) throws ModuleException {
+    for (Row row : rows) {
+      handleDataRow(row);
+    }
+  }
+
+  /**
+   * Tells if this module, or any module it forwards the rows to, may keep a
+   * reference to a row or to its list of cells after handleDataRow returns.
+   * Modules that handle each row before returning (e.g. by writing it) should
+   * return false, letting the import module reuse the same Row and list of cells
+   * for the next row (the cells themselves, and rows sent using handleDataRows,
+   * are never reused). Modules that forward the rows must also ask the next
+   * module. This method will be called after handleStructure.
+   *
+   * The default implementation returns true, so that rows are never reused.
+   *
+   * @return true if rows may be kept after being handled, false otherwise
+   */
+  default boolean retainsRows() {
+    return true;
+  }
+
   /**
    * Finish handling the data of a table. This method will be called after all
    * table rows for the table where requested to be handled.
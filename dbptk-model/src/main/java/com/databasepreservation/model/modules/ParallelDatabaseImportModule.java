@@ -0,0 +1,38 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.modules;
+
+import java.util.List;
+
+import com.databasepreservation.model.exception.ModuleException;
+
+/**
+ * An import module that is able to migrate whole tables concurrently.
+ *
+ * Before migrateDatabaseTo is called, the migration provides a list of worker
+ * modules, built by the same module factory and with the same parameters as
+ * this module. Each worker owns its own connection to the source database and
+ * is only used to extract table data, while this module (the coordinator) is
+ * responsible for the database structure and for calling the export module.
+ * The export module is always called from a single thread, in the same order
+ * it would have been called without workers.
+ */
+public interface ParallelDatabaseImportModule extends DatabaseImportModule {
+  /**
+   * Provide the worker modules to be used when migrating table data. This method
+   * is called at most once and before migrateDatabaseTo. If it is not called (or
+   * the list is empty) the module must migrate the tables sequentially.
+   *
+   * @param workers
+   *          import modules of the same type as this one, which are not yet
+   *          connected to the source database
+   * @throws ModuleException
+   *           if the workers can not be used by this module
+   */
+  void setParallelWorkers(List<DatabaseImportModule> workers) throws ModuleException;
+}
@@ -62,6 +62,11 @@ public class SinkModule implements DatabaseFilterModule {
     }
   }
 
+  @Override
+  public boolean retainsRows() {
+    return false;
+  }
+
   @Override
   public void handleDataCloseTable(String tableId) {
     // do nothing
@@ -13,18 +13,28 @@ import java.util.Objects;
 
 import com.databasepreservation.Constants;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 /**
  * @author Miguel Guimarães <mguimaraes@keep.pt>
  */
-@JsonPropertyOrder({"name", "columns", "where", "orderBy"})
+@JsonPropertyOrder({"name", "columns", "where", "orderBy", "splitColumn", "splitParts", "lobPrefetchThreads",
+  "lobPrefetchMegabytes"})
 public class TableConfiguration {
 
   private String name;
   private List<ColumnConfiguration> columns;
   private String where;
   private String orderBy;
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String splitColumn;
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private int splitParts;
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private int lobPrefetchThreads;
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private int lobPrefetchMegabytes;
 
   public TableConfiguration() {
     columns = new ArrayList<>();
@@ -69,6 +79,57 @@ public class TableConfiguration {
     this.orderBy = orderBy;
   }
 
+  /**
+   * @return the integer column used to split the table in key ranges that are
+   *         read concurrently, or null to use the primary key (if the table is
+   *         big enough)
+   */
+  public String getSplitColumn() {
+    return splitColumn;
+  }
+
+  public void setSplitColumn(String splitColumn) {
+    this.splitColumn = splitColumn;
+  }
+
+  /**
+   * @return the number of key ranges to split the table into, or 0 to choose it
+   *         based on the number of workers
+   */
+  public int getSplitParts() {
+    return splitParts;
+  }
+
+  public void setSplitParts(int splitParts) {
+    this.splitParts = splitParts;
+  }
+
+  /**
+   * @return the maximum number of LOBs of the table copied at the same time
+   *         while its rows are read, or 0 to use the
+   *         dbptk.jdbc.lob.prefetch.threads property
+   */
+  public int getLobPrefetchThreads() {
+    return lobPrefetchThreads;
+  }
+
+  public void setLobPrefetchThreads(int lobPrefetchThreads) {
+    this.lobPrefetchThreads = lobPrefetchThreads;
+  }
+
+  /**
+   * @return the number of megabytes of copied LOBs of the table that may wait
+   *         to be exported, or 0 to use the dbptk.jdbc.lob.prefetch.megabytes
+   *         property
+   */
+  public int getLobPrefetchMegabytes() {
+    return lobPrefetchMegabytes;
+  }
+
+  public void setLobPrefetchMegabytes(int lobPrefetchMegabytes) {
+    this.lobPrefetchMegabytes = lobPrefetchMegabytes;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o)
@@ -77,11 +138,15 @@ public class TableConfiguration {
       return false;
     TableConfiguration that = (TableConfiguration) o;
     return Objects.equals(getName(), that.getName()) && Objects.equals(getColumns(), that.getColumns())
-      && Objects.equals(getWhere(), that.getWhere()) && Objects.equals(getOrderBy(), that.getOrderBy());
+      && Objects.equals(getWhere(), that.getWhere()) && Objects.equals(getOrderBy(), that.getOrderBy())
+      && Objects.equals(getSplitColumn(), that.getSplitColumn()) && getSplitParts() == that.getSplitParts()
+      && getLobPrefetchThreads() == that.getLobPrefetchThreads()
+      && getLobPrefetchMegabytes() == that.getLobPrefetchMegabytes();
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(getName(), getColumns(), getWhere(), getOrderBy());
+    return Objects.hash(getName(), getColumns(), getWhere(), getOrderBy(), getSplitColumn(), getSplitParts(),
+      getLobPrefetchThreads(), getLobPrefetchMegabytes());
   }
 }
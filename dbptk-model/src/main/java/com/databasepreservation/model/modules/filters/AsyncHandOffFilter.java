@@ -0,0 +1,359 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.modules.filters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.DatabaseExportModule;
+import com.databasepreservation.model.reporters.Reporter;
+import com.databasepreservation.model.structure.DatabaseStructure;
+import com.databasepreservation.modules.DefaultExceptionNormalizer;
+import com.databasepreservation.utils.ConfigUtils;
+import com.databasepreservation.utils.RowUtils;
+
+/**
+ * Filter that hands the calls it receives over to a dedicated thread, which
+ * calls the next module in the chain. This allows the import module to keep
+ * reading from the source database while the export module is still writing
+ * the previous rows.
+ *
+ * Rows are sent in batches (and forwarded using handleDataRows) and the number
+ * of rows (and their estimated size) waiting to be exported is bounded,
+ * blocking the import module when the export module falls behind. The next
+ * module is always called from the same thread and in the same order as the
+ * calls were received. Errors in the next module are rethrown to the import
+ * module on its next call.
+ *
+ * LOBs that would be read lazily from the source database are copied to memory
+ * or temporary files before being handed over, as the export thread may only read
+ * them after the import module moved on to the next rows. For the same reason,
+ * rows received one at a time are copied, as the import module may reuse them
+ * (see {@link DatabaseExportModule#retainsRows()}).
+ */
+public class AsyncHandOffFilter implements DatabaseFilterModule, AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncHandOffFilter.class);
+
+  private static final Integer DEFAULT_MAX_MEGABYTES = ConfigUtils.getProperty(64,
+    "dbptk.migration.handoff.megabytes");
+  private static final Integer DEFAULT_BATCH_ROWS = ConfigUtils.getProperty(100, "dbptk.migration.handoff.batch");
+
+  @FunctionalInterface
+  private interface Task {
+    void run(DatabaseExportModule module) throws ModuleException;
+  }
+
+  private static final class Batch {
+    private final List<Task> tasks = new ArrayList<>();
+    private final List<Row> rows = new ArrayList<>();
+    private long bytes = 0;
+    private boolean last = false;
+    // rows received since the last task, forwarded together using handleDataRows
+    private RowBatch openRows = null;
+
+    private void add(Task task) {
+      openRows = null;
+      tasks.add(task);
+    }
+
+    private void add(Row row) {
+      if (openRows == null) {
+        RowBatch rowBatch = new RowBatch();
+        tasks.add(module -> module.handleDataRows(rowBatch));
+        openRows = rowBatch;
+      }
+      openRows.add(row);
+      rows.add(row);
+      bytes += RowUtils.estimateSize(row);
+    }
+  }
+
+  private final int maxRows;
+  private final long maxBytes;
+  private final int batchRows;
+
+  private final BlockingQueue<Batch> queue = new LinkedBlockingQueue<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private long queuedRows = 0;
+  private long queuedBytes = 0;
+
+  private DatabaseExportModule exportModule;
+  private Thread consumer = null;
+  private Batch pending = new Batch();
+  private volatile ModuleException failure = null;
+  private volatile boolean discard = false;
+
+  /**
+   * Creates a hand-off filter that keeps at most the specified number of rows
+   * waiting to be exported, and at most the number of megabytes defined by the
+   * dbptk.migration.handoff.megabytes property (64 by default)
+   *
+   * @param maxRows
+   *          the maximum number of rows waiting to be exported
+   */
+  public AsyncHandOffFilter(int maxRows) {
+    this(maxRows, DEFAULT_MAX_MEGABYTES * 1024L * 1024L, DEFAULT_BATCH_ROWS);
+  }
+
+  /**
+   * @param maxRows
+   *          the maximum number of rows waiting to be exported
+   * @param maxBytes
+   *          the maximum estimated size of the rows waiting to be exported
+   * @param batchRows
+   *          the number of rows handed over at once
+   */
+  public AsyncHandOffFilter(int maxRows, long maxBytes, int batchRows) {
+    this.maxRows = Math.max(1, maxRows);
+    this.maxBytes = Math.max(1, maxBytes);
+    this.batchRows = Math.max(1, Math.min(batchRows, this.maxRows));
+  }
+
+  @Override
+  public DatabaseFilterModule migrateDatabaseTo(DatabaseFilterModule exportModule) throws ModuleException {
+    this.exportModule = exportModule;
+    return this;
+  }
+
+  @Override
+  public void setOnceReporter(Reporter reporter) {
+    // this filter does not report anything
+  }
+
+  @Override
+  public void initDatabase() throws ModuleException {
+    add(DatabaseExportModule::initDatabase);
+  }
+
+  @Override
+  public void setIgnoredSchemas(Set<String> ignoredSchemas) {
+    pending.add(module -> module.setIgnoredSchemas(ignoredSchemas));
+  }
+
+  @Override
+  public void handleStructure(DatabaseStructure structure) throws ModuleException {
+    add(module -> module.handleStructure(structure));
+  }
+
+  @Override
+  public void handleDataOpenSchema(String schemaName) throws ModuleException {
+    add(module -> module.handleDataOpenSchema(schemaName));
+  }
+
+  @Override
+  public void handleDataOpenTable(String tableId) throws ModuleException {
+    add(module -> module.handleDataOpenTable(tableId));
+  }
+
+  @Override
+  public void handleDataRow(Row row) throws ModuleException {
+    checkFailure();
+    pending.add(RowUtils.detach(RowUtils.copy(row)));
+    if (pending.rows.size() >= batchRows || pending.bytes >= maxBytes) {
+      flush();
+    }
+  }
+
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    checkFailure();
+    for (Row row : rows) {
+      pending.add(RowUtils.detach(row));
+      if (pending.rows.size() >= batchRows || pending.bytes >= maxBytes) {
+        flush();
+      }
+    }
+  }
+
+  /**
+   * Rows are queued, but those received using handleDataRow are copied first, so
+   * the import module can reuse them.
+   */
+  @Override
+  public boolean retainsRows() {
+    return false;
+  }
+
+  @Override
+  public void handleDataCloseTable(String tableId) throws ModuleException {
+    add(module -> module.handleDataCloseTable(tableId));
+    // do not keep the end of the table waiting for rows of the next tables
+    flush();
+  }
+
+  @Override
+  public void handleDataCloseSchema(String schemaName) throws ModuleException {
+    add(module -> module.handleDataCloseSchema(schemaName));
+  }
+
+  @Override
+  public void finishDatabase() throws ModuleException {
+    add(DatabaseExportModule::finishDatabase);
+    pending.last = true;
+    flush();
+
+    try {
+      consumer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ModuleException().withMessage("Interrupted while waiting for the export to finish").withCause(e);
+    }
+    consumer = null;
+    checkFailure();
+  }
+
+  @Override
+  public void updateModuleConfiguration(String moduleName, Map<String, String> properties,
+    Map<String, String> remoteProperties) {
+    pending.add(module -> module.updateModuleConfiguration(moduleName, properties, remoteProperties));
+  }
+
+  @Override
+  public ModuleException normalizeException(Exception exception, String contextMessage) {
+    return DefaultExceptionNormalizer.getInstance().normalizeException(exception, contextMessage);
+  }
+
+  /**
+   * Stops the export thread if the migration was aborted before finishDatabase,
+   * discarding the rows that were not yet exported. Does nothing if the
+   * migration finished.
+   */
+  @Override
+  public void close() {
+    if (consumer == null) {
+      return;
+    }
+
+    discard = true;
+    for (Row row : pending.rows) {
+      RowUtils.cleanResources(row);
+    }
+    pending = new Batch();
+    pending.last = true;
+    queue.add(pending);
+
+    try {
+      consumer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted while waiting for the export thread to stop");
+    }
+    consumer = null;
+  }
+
+  private void add(Task task) throws ModuleException {
+    checkFailure();
+    pending.add(task);
+  }
+
+  private void checkFailure() throws ModuleException {
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void flush() throws ModuleException {
+    Batch batch = pending;
+    pending = new Batch();
+
+    reserve(batch);
+    if (consumer == null) {
+      consumer = new Thread(this::consume, "dbptk-export");
+      consumer.setDaemon(true);
+      consumer.start();
+    }
+    queue.add(batch);
+  }
+
+  /**
+   * Blocks until there is room for the batch. A batch is always accepted when
+   * nothing else is waiting, even if it is larger than the limits.
+   */
+  private void reserve(Batch batch) throws ModuleException {
+    lock.lock();
+    try {
+      while (queuedRows > 0 && failure == null
+        && (queuedRows + batch.rows.size() > maxRows || queuedBytes + batch.bytes > maxBytes)) {
+        released.await();
+      }
+      checkFailure();
+      queuedRows += batch.rows.size();
+      queuedBytes += batch.bytes;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ModuleException().withMessage("Interrupted while waiting for the export module").withCause(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(Batch batch) {
+    lock.lock();
+    try {
+      queuedRows -= batch.rows.size();
+      queuedBytes -= batch.bytes;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void consume() {
+    Batch batch;
+    do {
+      try {
+        batch = queue.take();
+      } catch (InterruptedException e) {
+        fail(new ModuleException().withMessage("Export thread was interrupted").withCause(e));
+        return;
+      }
+
+      if (failure == null && !discard) {
+        try {
+          for (Task task : batch.tasks) {
+            task.run(exportModule);
+          }
+        } catch (ModuleException e) {
+          fail(e);
+        } catch (RuntimeException e) {
+          fail(new ModuleException().withMessage("Unexpected error while exporting").withCause(e));
+        }
+      }
+
+      if (failure != null || discard) {
+        for (Row row : batch.rows) {
+          RowUtils.cleanResources(row);
+        }
+      }
+      release(batch);
+    } while (!batch.last);
+  }
+
+  private void fail(ModuleException exception) {
+    lock.lock();
+    try {
+      failure = exception;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
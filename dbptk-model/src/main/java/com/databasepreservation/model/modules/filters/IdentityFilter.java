@@ -12,6 +12,7 @@ import java.util.Set;
 
 import com.databasepreservation.model.reporters.Reporter;
 import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.modules.DatabaseExportModule;
 import com.databasepreservation.model.modules.configuration.ModuleConfiguration;
@@ -88,6 +89,23 @@ public class IdentityFilter implements DatabaseFilterModule {
     this.exportModule.handleDataRow(row);
   }
 
+  /**
+   * Forwards the whole batch to the next module. Subclasses that override
+   * handleDataRow must also override this method.
+   */
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    this.exportModule.handleDataRows(rows);
+  }
+
+  /**
+   * Asks the next module. Subclasses that keep rows must override this method.
+   */
+  @Override
+  public boolean retainsRows() {
+    return this.exportModule.retainsRows();
+  }
+
   @Override
   public void handleDataCloseTable(String tableId) throws ModuleException {
     this.exportModule.handleDataCloseTable(tableId);
@@ -14,6 +14,7 @@ import java.util.Set;
 
 import com.databasepreservation.common.observer.ModuleObserver;
 import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.modules.DatabaseExportModule;
 import com.databasepreservation.model.structure.DatabaseStructure;
@@ -103,7 +104,21 @@ public class ObservableFilter extends IdentityFilter {
 
   @Override
   public void handleDataRow(Row row) throws ModuleException {
-    long totalRows = table.getRows();
+    notifyRow(row);
+    super.handleDataRow(row);
+  }
+
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    for (Row row : rows) {
+      notifyRow(row);
+    }
+    super.handleDataRows(rows);
+  }
+
+  private void notifyRow(Row row) {
+    // the rows are only counted after being read, so they may be estimated
+    long totalRows = table.getRows() >= 0 ? table.getRows() : table.getEstimatedRows();
 
     // notify detailed observers
     for (ModuleObserver observer : observers) {
@@ -120,7 +135,6 @@ public class ObservableFilter extends IdentityFilter {
     }
 
     completedRows++;
-    super.handleDataRow(row);
   }
 
   @Override
@@ -59,7 +59,13 @@ public class ProgressLoggerObserver implements ModuleObserver {
   public void notifyTableProgressSparse(DatabaseStructure structure, TableStructure table, long completedRows,
     long totalRows) {
     if (LOGGER.isInfoEnabled() && completedRows > 0) {
-      String message = String.format("Progress: %d rows of table '%s'", completedRows, table.getName());
+      String message;
+      if (table.getRows() < 0 && totalRows > completedRows) {
+        message = String.format("Progress: %d of about %d rows of table '%s'", completedRows, totalRows,
+          table.getName());
+      } else {
+        message = String.format("Progress: %d rows of table '%s'", completedRows, table.getName());
+      }
       LOGGER.info(message);
       showCompletedProgress = true;
     }
@@ -116,7 +116,7 @@ public class Reporter implements AutoCloseable {
     }
   }
 
-  private void writeLine(String line) {
+  private synchronized void writeLine(String line) {
     if (outputfile == null || writer == null) {
       LOGGER.info(line);
     } else {
@@ -8,7 +8,9 @@
 package com.databasepreservation.model.structure;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
@@ -81,6 +83,12 @@ public class DatabaseStructure {
 
   private List<PrivilegeStructure> privileges;
 
+  private final NameIndex<SchemaStructure, TableStructure> tablesById = new NameIndex<>(SchemaStructure::getTables,
+    TableStructure::getId);
+
+  private final NameIndex<List<SchemaStructure>, SchemaStructure> schemasByName = new NameIndex<>(
+    Function.identity(), SchemaStructure::getName);
+
   /**
    * Create a new empty database. All attributes are null, except for tables,
    * which is a empty list
@@ -539,6 +547,8 @@ public class DatabaseStructure {
    */
   public void setSchemas(List<SchemaStructure> schemas) {
     this.schemas = schemas;
+    tablesById.invalidate();
+    schemasByName.invalidate();
   }
 
   public List<UserStructure> getUsers() {
@@ -586,23 +596,11 @@ public class DatabaseStructure {
    * @return the table structure
    */
   public TableStructure getTableById(String tableId) {
-    TableStructure ret = null;
-    for (SchemaStructure schema : getSchemas()) {
-      ret = schema.getTableById(tableId);
-      if (ret != null) {
-        break;
-      }
-    }
-    return ret;
+    return tablesById.find(getSchemas(), tableId);
   }
 
   public SchemaStructure getSchemaByName(String schemaName) {
-    for (SchemaStructure schema : schemas) {
-      if (schema.getName().equalsIgnoreCase(schemaName)) {
-        return schema;
-      }
-    }
-    return null;
+    return schemasByName.find(Collections.singletonList(schemas), schemaName);
   }
 
   public UserStructure getUserByName(String userName) {
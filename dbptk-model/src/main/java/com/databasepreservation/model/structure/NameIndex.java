@@ -0,0 +1,155 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.model.structure;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Case-insensitive index of the elements of one or more lists (e.g. the tables
+ * of all schemas), by a key such as the id or name of the element. To index a
+ * single list, the list is its own owner.
+ *
+ * The structure lists are public and modified in place by many modules, so the
+ * index can not rely on being notified of every change. It is rebuilt when the
+ * number of elements changes or when {@link #invalidate()} is called (by the
+ * setters that replace the lists), each match is checked against the list it
+ * was found in, and lookups that fail are confirmed by a linear search. Lookups
+ * of existing elements are therefore O(1) and lookups of missing elements are
+ * as slow as before.
+ *
+ * The index is rebuilt as a whole and published at once, so lookups from
+ * several threads are safe as long as the lists themselves are not modified.
+ *
+ * @param <O>
+ *          the type of the owners of the lists (e.g. schemas)
+ * @param <T>
+ *          the type of the elements (e.g. tables)
+ */
+final class NameIndex<O, T> {
+  private static final class Entry<O, T> {
+    private final O owner;
+    private final List<T> list;
+    private final int position;
+
+    private Entry(O owner, List<T> list, int position) {
+      this.owner = owner;
+      this.list = list;
+      this.position = position;
+    }
+  }
+
+  private static final class Snapshot<O, T> {
+    private final int count;
+    private final Map<String, Entry<O, T>> entries;
+
+    private Snapshot(int count, Map<String, Entry<O, T>> entries) {
+      this.count = count;
+      this.entries = entries;
+    }
+  }
+
+  private final Function<O, List<T>> elementsOf;
+  private final Function<T, String> keyOf;
+  private volatile Snapshot<O, T> snapshot = null;
+
+  /**
+   * @param elementsOf
+   *          gets the list of elements of an owner
+   * @param keyOf
+   *          gets the key of an element
+   */
+  NameIndex(Function<O, List<T>> elementsOf, Function<T, String> keyOf) {
+    this.elementsOf = elementsOf;
+    this.keyOf = keyOf;
+  }
+
+  /**
+   * @param owners
+   *          the owners of the lists of elements
+   * @param key
+   *          the key to look for, ignoring case
+   * @return the first element of the lists with the key, or null if none
+   */
+  T find(List<O> owners, String key) {
+    if (owners == null || key == null) {
+      return null;
+    }
+
+    int count = count(owners);
+    Snapshot<O, T> current = snapshot;
+    if (current == null || current.count != count) {
+      current = rebuild(owners, count);
+    }
+
+    Entry<O, T> entry = current.entries.get(normalize(key));
+    if (entry != null && elementsOf.apply(entry.owner) == entry.list && entry.position < entry.list.size()) {
+      T element = entry.list.get(entry.position);
+      if (key.equalsIgnoreCase(keyOf.apply(element))) {
+        return element;
+      }
+    }
+
+    // the lists or keys may have been changed in place, confirm it the slow way
+    for (O owner : owners) {
+      List<T> elements = elementsOf.apply(owner);
+      if (elements != null) {
+        for (T element : elements) {
+          if (key.equalsIgnoreCase(keyOf.apply(element))) {
+            rebuild(owners, count);
+            return element;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Forgets the index, to be called when the lists are replaced.
+   */
+  void invalidate() {
+    snapshot = null;
+  }
+
+  private int count(List<O> owners) {
+    int count = owners.size();
+    for (O owner : owners) {
+      List<T> elements = elementsOf.apply(owner);
+      if (elements != null) {
+        count += elements.size();
+      }
+    }
+    return count;
+  }
+
+  private Snapshot<O, T> rebuild(List<O> owners, int count) {
+    Map<String, Entry<O, T>> entries = new HashMap<>(Math.max(16, count * 2));
+    for (O owner : owners) {
+      List<T> elements = elementsOf.apply(owner);
+      if (elements != null) {
+        for (int i = 0; i < elements.size(); i++) {
+          String key = keyOf.apply(elements.get(i));
+          if (key != null) {
+            entries.putIfAbsent(normalize(key), new Entry<>(owner, elements, i));
+          }
+        }
+      }
+    }
+    Snapshot<O, T> rebuilt = new Snapshot<>(count, entries);
+    snapshot = rebuilt;
+    return rebuilt;
+  }
+
+  private static String normalize(String key) {
+    return key.toLowerCase(Locale.ROOT);
+  }
+}
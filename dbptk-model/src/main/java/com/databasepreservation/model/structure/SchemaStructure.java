@@ -8,7 +8,9 @@
 package com.databasepreservation.model.structure;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import com.databasepreservation.model.structure.type.ComposedTypeDistinct;
 import com.databasepreservation.model.structure.type.ComposedTypeStructure;
@@ -39,6 +41,12 @@ public class SchemaStructure {
 
   private List<ComposedTypeDistinct> userDefinedTypesDistinct;
 
+  private final NameIndex<List<TableStructure>, TableStructure> tablesById = new NameIndex<>(Function.identity(),
+    TableStructure::getId);
+
+  private final NameIndex<List<TableStructure>, TableStructure> tablesByName = new NameIndex<>(Function.identity(),
+    TableStructure::getName);
+
   /**
    * @param name
    * @param description
@@ -116,23 +124,11 @@ public class SchemaStructure {
   }
 
   public TableStructure getTableById(String tableId) {
-    TableStructure ret = null;
-    for (TableStructure tableStructure : tables) {
-      if (tableStructure.getId().equalsIgnoreCase(tableId)) {
-        ret = tableStructure;
-        break;
-      }
-    }
-    return ret;
+    return tablesById.find(Collections.singletonList(tables), tableId);
   }
 
   public TableStructure getTableByName(String tableName) {
-    for (TableStructure tableStructure : tables) {
-      if (tableStructure.getName().equalsIgnoreCase(tableName)) {
-       return tableStructure;
-      }
-    }
-    return null;
+    return tablesByName.find(Collections.singletonList(tables), tableName);
   }
 
   public ViewStructure getViewByName(String viewName) {
@@ -159,6 +155,8 @@ public class SchemaStructure {
    */
   public void setTables(List<TableStructure> tables) {
     this.tables = tables;
+    tablesById.invalidate();
+    tablesByName.invalidate();
   }
 
   /**
@@ -11,9 +11,11 @@
 package com.databasepreservation.model.structure;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.utils.ListUtils;
@@ -44,8 +46,13 @@ public class TableStructure {
 
   private List<Trigger> triggers;
 
+  private final NameIndex<List<ColumnStructure>, ColumnStructure> columnsByName = new NameIndex<>(
+    Function.identity(), ColumnStructure::getName);
+
   private long rows;
 
+  private long estimatedRows = -1;
+
   private String schema;
 
   private long currentRow;
@@ -121,6 +128,26 @@ public class TableStructure {
     this.udtAlias = new HashMap<>();
   }
 
+  /**
+   * Shallow copy constructor. The copy shares the columns, keys, constraints and
+   * triggers of the original table, but has its own current row, so that several
+   * parts of the same table can be read at the same time.
+   *
+   * @param other
+   *          the table to copy
+   */
+  public TableStructure(TableStructure other) {
+    this(other.id, other.name, other.description, other.folder, other.columns, other.foreignKeys, other.primaryKey,
+      other.candidateKeys, other.checkConstraints, other.triggers, other.rows);
+    this.schema = other.schema;
+    this.currentRow = other.currentRow;
+    this.estimatedRows = other.estimatedRows;
+    this.index = other.index;
+    this.udtAlias = other.udtAlias;
+    this.fromView = other.fromView;
+    this.fromCustomView = other.fromCustomView;
+  }
+
   /**
    * @return the table columns
    */
@@ -134,6 +161,7 @@ public class TableStructure {
    */
   public void setColumns(List<ColumnStructure> columns) {
     this.columns = columns;
+    columnsByName.invalidate();
   }
 
   /**
@@ -291,6 +319,20 @@ public class TableStructure {
     this.rows = rows;
   }
 
+  /**
+   * @return the number of rows estimated from the statistics of the database,
+   *         or -1 if unknown. Only meant for progress and planning, the exact
+   *         number of rows (see {@link #getRows()}) is only known after the rows
+   *         are read.
+   */
+  public long getEstimatedRows() {
+    return estimatedRows;
+  }
+
+  public void setEstimatedRows(long estimatedRows) {
+    this.estimatedRows = estimatedRows;
+  }
+
   public String getSchema() {
     return schema;
   }
@@ -310,12 +352,7 @@ public class TableStructure {
   }
 
   public ColumnStructure getColumnByName(String columnName) {
-    for (ColumnStructure column : columns) {
-      if (column.getName().equalsIgnoreCase(columnName))
-        return column;
-    }
-
-    return null;
+    return columnsByName.find(Collections.singletonList(columns), columnName);
   }
 
   public Trigger getTriggerByName(String triggerName) {
@@ -453,6 +453,30 @@ public class SQLHelper {
     return null;
   }
 
+  /**
+   * @param schemaName
+   *          The schema name
+   * @return the SQL to get the primary keys of all tables of the schema, with
+   *         the columns TABLE_NAME, COLUMN_NAME and PK_NAME, ordered by table
+   *         and key position; or null to get them table by table
+   */
+  public String getPrimaryKeysSQL(String schemaName) {
+    return null;
+  }
+
+  /**
+   * @param schemaName
+   *          The schema name
+   * @return the SQL to get the foreign keys of all tables of the schema, with
+   *         the columns of DatabaseMetaData.getImportedKeys (FKTABLE_NAME,
+   *         FKCOLUMN_NAME, PKTABLE_SCHEM, PKTABLE_NAME, PKCOLUMN_NAME, FK_NAME,
+   *         UPDATE_RULE and DELETE_RULE), ordered by table, key and key
+   *         position; or null to get them table by table
+   */
+  public String getForeignKeysSQL(String schemaName) {
+    return null;
+  }
+
   /**
    * @param schemaName
    *          The schema name
@@ -477,6 +501,18 @@ public class SQLHelper {
     return sb.toString();
   }
 
+  /**
+   * @param schemaName
+   *          The schema name
+   * @return the SQL to get the number of rows of all tables of the schema, as
+   *         estimated by the statistics of the database (without counting
+   *         them), with the columns TABLE_NAME and ROW_ESTIMATE; or null if the
+   *         database has no such statistics
+   */
+  public String getRowEstimatesSQL(String schemaName) {
+    return null;
+  }
+
   /**
    * @param dbName
    *          the database name
@@ -0,0 +1,245 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.databasepreservation.common.io.providers.InMemoryInputStreamProvider;
+import com.databasepreservation.common.io.providers.InputStreamProvider;
+import com.databasepreservation.common.io.providers.SpilledInputStreamProvider;
+import com.databasepreservation.common.io.providers.TemporaryPathInputStreamProvider;
+import com.databasepreservation.model.data.ArrayCell;
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.ClobCell;
+import com.databasepreservation.model.data.ComposedCell;
+import com.databasepreservation.model.data.PrimitiveCell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.DatabaseExportModule;
+
+/**
+ * Utilities to hand rows over between threads
+ */
+public final class RowUtils {
+  // rough size of a cell object and its id, not counting the value
+  private static final long CELL_OVERHEAD_BYTES = 64;
+  // rough size of the value of a number, boolean or date cell
+  private static final long PRIMITIVE_VALUE_BYTES = 16;
+
+  private RowUtils() {
+  }
+
+  /**
+   * Makes sure the cells of a row can still be read after the source moved on
+   * to the next rows, and from another thread, by copying the LOBs that would
+   * otherwise be read lazily from the source database to memory or temporary
+   * files. LOBs in arrays (e.g. attachments) are also copied.
+   *
+   * @param row
+   *          the row, which is changed in place
+   * @return the same row
+   * @throws ModuleException
+   *           if a LOB could not be read
+   */
+  public static Row detach(Row row) throws ModuleException {
+    List<Cell> cells = row.getCells();
+    for (int i = 0; i < cells.size(); i++) {
+      cells.set(i, detach(cells.get(i)));
+    }
+    return row;
+  }
+
+  private static Cell detach(Cell cell) throws ModuleException {
+    if (cell instanceof BinaryCell binaryCell && !isDetached(binaryCell)) {
+      BinaryCell detached = new BinaryCell(binaryCell.getId(), binaryCell.createInputStream());
+      binaryCell.cleanResources();
+      return detached;
+    } else if (cell instanceof ArrayCell arrayCell) {
+      for (int i = 0; i < arrayCell.size(); i++) {
+        arrayCell.setCell(i, detach(arrayCell.getCell(i)));
+      }
+    }
+    return cell;
+  }
+
+  /**
+   * Copies the container of a row that may be reused by the module that sent it
+   * (see {@link DatabaseExportModule#retainsRows()}), so that it can be kept
+   * after handling it. The cells are not copied, as they are never reused.
+   *
+   * @param row
+   *          the row
+   * @return a new row with the same index and cells
+   */
+  public static Row copy(Row row) {
+    return new Row(row.getIndex(), new ArrayList<>(row.getCells()));
+  }
+
+  /**
+   * @param row
+   *          the row
+   * @return true if all cells of the row can still be read after the source
+   *         moved on to the next rows (see {@link #detach(Row)})
+   */
+  public static boolean isDetached(Row row) {
+    for (Cell cell : row.getCells()) {
+      if (!isDetached(cell)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDetached(Cell cell) {
+    if (cell instanceof BinaryCell binaryCell) {
+      return isDetached(binaryCell);
+    } else if (cell instanceof ArrayCell arrayCell) {
+      for (int i = 0; i < arrayCell.size(); i++) {
+        if (!isDetached(arrayCell.getCell(i))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param cell
+   *          a binary cell
+   * @return true if the cell can still be read after the source moved on to the
+   *         next rows (see {@link #detach(Row)})
+   */
+  public static boolean isDetached(BinaryCell cell) {
+    return cell.getInputStreamProvider() instanceof InMemoryInputStreamProvider
+      || cell.getInputStreamProvider() instanceof SpilledInputStreamProvider
+      || cell.getInputStreamProvider() instanceof TemporaryPathInputStreamProvider;
+  }
+
+  /**
+   * Estimates the memory used by a row. LOBs (including large texts, see
+   * {@link ClobCell}) kept in memory are counted, other LOBs are assumed to be
+   * kept outside of memory (see {@link #detach(Row)}) and only their cell is
+   * counted.
+   *
+   * @param row
+   *          the row
+   * @return the estimated size of the row, in bytes
+   */
+  public static long estimateSize(Row row) {
+    return estimateSize(row, false);
+  }
+
+  /**
+   * Estimates the size of the data of a row, as read from the source (e.g. to
+   * choose how many rows are fetched at once). Unlike
+   * {@link #estimateSize(Row)}, LOBs copied to temporary files are also
+   * counted, as well as other LOBs whose length is known. LOBs still to be read
+   * lazily from the source only count as a cell.
+   *
+   * @param row
+   *          the row
+   * @return the estimated size of the row data, in bytes
+   */
+  public static long estimateDataSize(Row row) {
+    return estimateSize(row, true);
+  }
+
+  private static long estimateSize(Row row, boolean storedLobs) {
+    long size = CELL_OVERHEAD_BYTES;
+    for (Cell cell : row.getCells()) {
+      size += estimateSize(cell, storedLobs);
+    }
+    return size;
+  }
+
+  private static long estimateSize(Cell cell, boolean storedLobs) {
+    long size = CELL_OVERHEAD_BYTES;
+    if (cell instanceof BinaryCell binaryCell) {
+      size += estimateLobSize(binaryCell.getInputStreamProvider(), storedLobs);
+      if (storedLobs && !isDetached(binaryCell)) {
+        size += Math.max(0, binaryCell.getLength());
+      }
+    } else if (cell instanceof ClobCell clobCell) {
+      size += estimateLobSize(clobCell.getInputStreamProvider(), storedLobs);
+    } else if (cell instanceof PrimitiveCell) {
+      size += PRIMITIVE_VALUE_BYTES;
+    } else if (cell instanceof SimpleCell simpleCell && simpleCell.getSimpleData() != null) {
+      size += 2L * simpleCell.getSimpleData().length();
+    } else if (cell instanceof ComposedCell composedCell && composedCell.getComposedData() != null) {
+      for (Cell subCell : composedCell.getComposedData()) {
+        size += estimateSize(subCell, storedLobs);
+      }
+    } else if (cell instanceof ArrayCell arrayCell) {
+      for (int i = 0; i < arrayCell.size(); i++) {
+        size += estimateSize(arrayCell.getCell(i), storedLobs);
+      }
+    }
+    return size;
+  }
+
+  private static long estimateLobSize(InputStreamProvider provider, boolean storedLobs) {
+    if (provider instanceof InMemoryInputStreamProvider inMemory) {
+      return inMemory.getSize();
+    } else if (storedLobs && provider instanceof SpilledInputStreamProvider spilled) {
+      return spilled.getSize();
+    } else if (storedLobs && provider instanceof TemporaryPathInputStreamProvider temporaryPath) {
+      try {
+        return temporaryPath.getSize();
+      } catch (ModuleException e) {
+        return 0;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Changes the index of a row, also updating the ids of its cells that end
+   * with the previous index (as in 'tableId.columnId.rowIndex').
+   *
+   * @param row
+   *          the row, which is changed in place
+   * @param index
+   *          the new index of the row
+   * @return the same row
+   */
+  public static Row reindex(Row row, long index) {
+    for (Cell cell : row.getCells()) {
+      cell.reindex(row.getIndex(), index);
+    }
+    row.setIndex(index);
+    return row;
+  }
+
+  /**
+   * Releases the resources (e.g. temporary files) of the cells of a row that is
+   * discarded without being exported.
+   *
+   * @param row
+   *          the row
+   */
+  public static void cleanResources(Row row) {
+    for (Cell cell : row.getCells()) {
+      cleanResources(cell);
+    }
+  }
+
+  private static void cleanResources(Cell cell) {
+    if (cell instanceof BinaryCell binaryCell) {
+      binaryCell.cleanResources();
+    } else if (cell instanceof ClobCell clobCell) {
+      clobCell.cleanResources();
+    } else if (cell instanceof ArrayCell arrayCell) {
+      for (int i = 0; i < arrayCell.size(); i++) {
+        cleanResources(arrayCell.getCell(i));
+      }
+    }
+  }
+}
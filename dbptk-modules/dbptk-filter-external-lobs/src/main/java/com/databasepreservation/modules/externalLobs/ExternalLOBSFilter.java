@@ -21,6 +21,7 @@ import com.databasepreservation.managers.ModuleConfigurationManager;
 import com.databasepreservation.model.data.Cell;
 import com.databasepreservation.model.data.NullCell;
 import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.data.SimpleCell;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.modules.configuration.ExternalLobsConfiguration;
@@ -143,6 +144,27 @@ public class ExternalLOBSFilter implements DatabaseFilterModule {
 
   @Override
   public void handleDataRow(Row row) throws ModuleException {
+    resolveExternalLOBS(row);
+    this.exportModule.handleDataRow(row);
+  }
+
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    if (hasExternalLOBS) {
+      for (Row row : rows) {
+        resolveExternalLOBS(row);
+      }
+    }
+    this.exportModule.handleDataRows(rows);
+  }
+
+  @Override
+  public boolean retainsRows() {
+    // each row is handled before returning
+    return this.exportModule.retainsRows();
+  }
+
+  private void resolveExternalLOBS(Row row) throws ModuleException {
     if (hasExternalLOBS) {
       List<Cell> rowCells = row.getCells();
       for (int index : externalLOBIndexes) {
@@ -168,7 +190,6 @@ public class ExternalLOBSFilter implements DatabaseFilterModule {
       }
       row.setCells(rowCells);
     }
-    this.exportModule.handleDataRow(row);
   }
 
   @Override
@@ -23,6 +23,7 @@ import org.apache.commons.csv.CSVPrinter;
 import com.databasepreservation.managers.ModuleConfigurationManager;
 import com.databasepreservation.model.data.Cell;
 import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.data.SimpleCell;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.modules.filters.DatabaseFilterModule;
@@ -120,6 +121,25 @@ public class InventoryFilter implements DatabaseFilterModule {
 
   @Override
   public void handleDataRow(Row row) throws ModuleException {
+    printRow(row);
+    this.exportModule.handleDataRow(row);
+  }
+
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    for (Row row : rows) {
+      printRow(row);
+    }
+    this.exportModule.handleDataRows(rows);
+  }
+
+  @Override
+  public boolean retainsRows() {
+    // each row is handled before returning
+    return this.exportModule.retainsRows();
+  }
+
+  private void printRow(Row row) throws ModuleException {
     if (do_export) {
       try {
         for (Integer index : indexOfHeaders) {
@@ -139,7 +159,6 @@ public class InventoryFilter implements DatabaseFilterModule {
         throw new ModuleException().withMessage("Could not write to file '" + csv_file.toString() + "'").withCause(e);
       }
     }
-    this.exportModule.handleDataRow(row);
   }
 
   @Override
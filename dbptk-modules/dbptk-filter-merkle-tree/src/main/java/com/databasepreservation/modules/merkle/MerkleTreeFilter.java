@@ -30,6 +30,7 @@ import com.databasepreservation.model.data.BinaryCell;
 import com.databasepreservation.model.data.Cell;
 import com.databasepreservation.model.data.NullCell;
 import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.data.SimpleCell;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.modules.filters.DatabaseFilterModule;
@@ -179,8 +180,30 @@ public class MerkleTreeFilter implements DatabaseFilterModule {
 
   @Override
   public void handleDataRow(Row row) throws ModuleException {
+    digestRow(row, getMessageDigest(), getMessageDigest());
+    this.exportModule.handleDataRow(row);
+  }
+
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    // digests are reset after each use, so the same instances can be used for
+    // all rows of the batch
+    MessageDigest rowDigest = getMessageDigest();
+    MessageDigest cellDigest = getMessageDigest();
+    for (Row row : rows) {
+      digestRow(row, rowDigest, cellDigest);
+    }
+    this.exportModule.handleDataRows(rows);
+  }
+
+  @Override
+  public boolean retainsRows() {
+    // each row is handled before returning
+    return this.exportModule.retainsRows();
+  }
+
+  private void digestRow(Row row, MessageDigest rowDigest, MessageDigest cellDigest) throws ModuleException {
     try {
-      MessageDigest rowDigest = getMessageDigest();
       if (explain) {
         jsonGenerator.writeStartObject();
         jsonGenerator.writeObjectField(INDEX_FIELD_NAME, row.getIndex());
@@ -191,7 +214,6 @@ public class MerkleTreeFilter implements DatabaseFilterModule {
       for (int i = 0; i < merkleColumnsIndexes.size(); i++) {
         Cell cell = row.getCells().get(merkleColumnsIndexes.get(i));
         byte[] digest;
-        MessageDigest cellDigest = getMessageDigest();
 
         if (cell instanceof BinaryCell) {
           digest = handleBinaryCell(cell, cellDigest);
@@ -228,8 +250,6 @@ public class MerkleTreeFilter implements DatabaseFilterModule {
     } catch (IOException e) {
       throw new ModuleException().withMessage(UNABLE_TO_WRITE_TO_THE_OUTPUT_FILE).withCause(e);
     }
-
-    this.exportModule.handleDataRow(row);
   }
 
   @Override
@@ -141,6 +141,11 @@ public class ImportConfiguration implements DatabaseFilterModule {
     // nothing to do
   }
 
+  @Override
+  public boolean retainsRows() {
+    return false;
+  }
+
   /**
    * Finish handling the data of a table. This method will be called after all
    * table rows for the table where requested to be handled.
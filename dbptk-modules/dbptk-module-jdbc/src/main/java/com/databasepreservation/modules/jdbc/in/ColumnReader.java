@@ -0,0 +1,36 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.modules.jdbc.in;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.CellIdPrefix;
+import com.databasepreservation.model.exception.InvalidDataException;
+import com.databasepreservation.model.exception.ModuleException;
+
+/**
+ * Reads the value of a column in the current row of a result set. Column
+ * readers are chosen once per table, according to the column type, and usually
+ * read the value by column index.
+ */
+@FunctionalInterface
+public interface ColumnReader {
+  /**
+   * @param idPrefix
+   *          the first part of the id of the cell, shared by the column cells
+   * @param rowIndex
+   *          the index of the row, the last part of the id of the cell
+   * @param rawData
+   *          the result set, positioned on the row to read
+   * @return the cell with the column value
+   */
+  Cell read(CellIdPrefix idPrefix, long rowIndex, ResultSet rawData)
+    throws SQLException, InvalidDataException, ModuleException;
+}
@@ -0,0 +1,276 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.modules.jdbc.in;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.ComposedTypeArray;
+import com.databasepreservation.model.structure.type.ComposedTypeStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeBinary;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
+import com.databasepreservation.model.structure.type.Type;
+import com.databasepreservation.utils.ConfigUtils;
+import com.databasepreservation.utils.RowUtils;
+
+/**
+ * Chooses the fetch size used to read the rows of a table, so that each block
+ * of rows fetched from the database uses about the number of megabytes defined
+ * by the dbptk.jdbc.fetch.megabytes property (16 by default).
+ *
+ * The first fetch size is based on the row size estimated from the column
+ * types. As rows are read, their size is measured and the fetch size of the
+ * result set is grown (at most doubling each time) or shrunk to match the
+ * budget, between 1 and the dbptk.jdbc.fetchsize.maximum property (5000 by
+ * default). Tables with LOB columns never grow above the first fetch size, as
+ * the LOBs still to be read lazily from the source can not be measured (see
+ * {@link RowUtils#estimateDataSize(Row)}). After a fetch fails, the fetch size
+ * never grows above the reduced size again. Result sets whose fetch size was changed by someone else (e.g.
+ * to enable streaming) are left alone. Setting the budget to 0 disables the
+ * controller (see {@link #isEnabled()}).
+ */
+public class FetchSizeController {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FetchSizeController.class);
+
+  private static final Integer DEFAULT_BUDGET_MEGABYTES = ConfigUtils.getProperty(16, "dbptk.jdbc.fetch.megabytes");
+  private static final Integer DEFAULT_MAXIMUM_FETCH_SIZE = ConfigUtils.getProperty(5000,
+    "dbptk.jdbc.fetchsize.maximum");
+
+  // rough size of a cell, not counting the value (as in RowUtils)
+  private static final long CELL_OVERHEAD_BYTES = 64;
+  private static final long PRIMITIVE_VALUE_BYTES = 16;
+  private static final long COMPOSED_VALUE_BYTES = 256;
+  // assumed size of LOBs and of strings and binaries without a length
+  private static final long LARGE_VALUE_BYTES = 64 * 1024;
+  // rows measured before the first adjustment
+  private static final int MINIMUM_SAMPLE_ROWS = 64;
+
+  private final String tableId;
+  private final long budgetBytes;
+  private final long estimatedRowBytes;
+  private final int initialFetchSize;
+
+  private int fetchSize;
+  private int ceiling;
+  private int smallest;
+  private int largest;
+  private boolean adapting = true;
+
+  private long sampleRows = 0;
+  private long sampleBytes = 0;
+  private long rows = 0;
+  private long bytes = 0;
+
+  /**
+   * Creates a controller using the budget and maximum fetch size defined by the
+   * dbptk.jdbc.fetch.megabytes and dbptk.jdbc.fetchsize.maximum properties
+   *
+   * @param table
+   *          the table to be read
+   */
+  public FetchSizeController(TableStructure table) {
+    this(table, DEFAULT_BUDGET_MEGABYTES * 1024L * 1024L, DEFAULT_MAXIMUM_FETCH_SIZE);
+  }
+
+  /**
+   * @param table
+   *          the table to be read
+   * @param budgetBytes
+   *          the number of bytes each block of fetched rows should use
+   * @param maximum
+   *          the maximum fetch size
+   */
+  public FetchSizeController(TableStructure table, long budgetBytes, int maximum) {
+    this.tableId = table.getId();
+    this.budgetBytes = Math.max(1, budgetBytes);
+    this.ceiling = Math.max(1, maximum);
+    this.estimatedRowBytes = estimateRowSize(table);
+    this.initialFetchSize = fitBudget(estimatedRowBytes);
+    if (table.getColumns().stream().anyMatch(column -> column.getType() != null && isLargeObject(column.getType()))) {
+      this.ceiling = initialFetchSize;
+    }
+    this.fetchSize = initialFetchSize;
+    this.smallest = initialFetchSize;
+    this.largest = initialFetchSize;
+  }
+
+  /**
+   * @return false if the dbptk.jdbc.fetch.megabytes property is 0, meaning the
+   *         fetch size should not be controlled
+   */
+  public static boolean isEnabled() {
+    return DEFAULT_BUDGET_MEGABYTES > 0;
+  }
+
+  /**
+   * @return the fetch size that should be used now
+   */
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  public int getInitialFetchSize() {
+    return initialFetchSize;
+  }
+
+  public long getEstimatedRowSize() {
+    return estimatedRowBytes;
+  }
+
+  /**
+   * @return the average measured row size, or the estimated one if no rows were
+   *         read yet
+   */
+  public long getAverageRowSize() {
+    return rows == 0 ? estimatedRowBytes : bytes / rows;
+  }
+
+  /**
+   * Measures a row that was read and adjusts the fetch size of the result set,
+   * if needed.
+   *
+   * @param resultSet
+   *          the result set the row was read from
+   * @param row
+   *          the row
+   */
+  public void rowRead(ResultSet resultSet, Row row) {
+    long rowBytes = RowUtils.estimateDataSize(row);
+    rows++;
+    bytes += rowBytes;
+    sampleRows++;
+    sampleBytes += rowBytes;
+
+    if (adapting && sampleRows >= Math.max(MINIMUM_SAMPLE_ROWS, fetchSize)) {
+      int target = fitBudget(sampleBytes / sampleRows);
+      sampleRows = 0;
+      sampleBytes = 0;
+
+      int next = fetchSize;
+      if (target > fetchSize + fetchSize / 2) {
+        next = (int) Math.min(target, 2L * fetchSize);
+      } else if (target < fetchSize - fetchSize / 4) {
+        next = target;
+      }
+      if (next != fetchSize) {
+        apply(resultSet, next);
+      }
+    }
+  }
+
+  private void apply(ResultSet resultSet, int next) {
+    try {
+      if (resultSet.getFetchSize() != fetchSize) {
+        LOGGER.debug("The fetch size of table {} is not being controlled here, it will not be adjusted", tableId);
+        adapting = false;
+        return;
+      }
+      resultSet.setFetchSize(next);
+      LOGGER.debug("Changed the fetch size of table {} from {} to {} (average row size {})", tableId, fetchSize,
+        next, FileUtils.byteCountToDisplaySize(getAverageRowSize()));
+      setFetchSize(next);
+    } catch (SQLException e) {
+      LOGGER.debug("Could not change the fetch size of table {}, it will not be adjusted", tableId, e);
+      adapting = false;
+    }
+  }
+
+  /**
+   * Records that fetching failed and the fetch size was reduced, so that it
+   * never grows above it again.
+   *
+   * @param reducedFetchSize
+   *          the fetch size now used
+   */
+  public void limitTo(int reducedFetchSize) {
+    ceiling = Math.max(1, reducedFetchSize);
+    setFetchSize(ceiling);
+    sampleRows = 0;
+    sampleBytes = 0;
+  }
+
+  private void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+    smallest = Math.min(smallest, fetchSize);
+    largest = Math.max(largest, fetchSize);
+  }
+
+  /**
+   * @return true if the fetch size was changed since the table started being
+   *         read
+   */
+  public boolean wasAdjusted() {
+    return smallest != initialFetchSize || largest != initialFetchSize;
+  }
+
+  /**
+   * @return a description of the fetch sizes used, for logs and reports
+   */
+  public String describe() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("Table ").append(tableId).append(" was read with fetch size ").append(initialFetchSize);
+    if (wasAdjusted()) {
+      builder.append(" adjusted between ").append(smallest).append(" and ").append(largest).append(" (last ")
+        .append(fetchSize).append(")");
+    }
+    builder.append(", estimated row size ").append(FileUtils.byteCountToDisplaySize(estimatedRowBytes));
+    if (rows > 0) {
+      builder.append(", measured row size ").append(FileUtils.byteCountToDisplaySize(getAverageRowSize()));
+    }
+    return builder.toString();
+  }
+
+  private int fitBudget(long rowBytes) {
+    long fit = budgetBytes / Math.max(1, rowBytes);
+    return (int) Math.max(1, Math.min(ceiling, fit));
+  }
+
+  /**
+   * @param table
+   *          the table
+   * @return the estimated size of a row of the table, in bytes
+   */
+  public static long estimateRowSize(TableStructure table) {
+    long size = 0;
+    for (ColumnStructure column : table.getColumns()) {
+      size += CELL_OVERHEAD_BYTES + estimateValueSize(column.getType());
+    }
+    return Math.max(CELL_OVERHEAD_BYTES, size);
+  }
+
+  private static long estimateValueSize(Type type) {
+    if (type == null) {
+      return PRIMITIVE_VALUE_BYTES;
+    } else if (isLargeObject(type)) {
+      return LARGE_VALUE_BYTES;
+    } else if (type instanceof SimpleTypeString stringType) {
+      // UTF-16 characters
+      return stringType.getLength() == null ? LARGE_VALUE_BYTES
+        : Math.min(LARGE_VALUE_BYTES, 2L * stringType.getLength());
+    } else if (type instanceof SimpleTypeBinary binaryType) {
+      return binaryType.getLength() == null ? LARGE_VALUE_BYTES
+        : Math.min(LARGE_VALUE_BYTES, binaryType.getLength());
+    } else if (type instanceof ComposedTypeArray || type instanceof ComposedTypeStructure) {
+      return COMPOSED_VALUE_BYTES;
+    } else {
+      return PRIMITIVE_VALUE_BYTES;
+    }
+  }
+
+  private static boolean isLargeObject(Type type) {
+    String sql99TypeName = type.getSql99TypeName(false);
+    return sql99TypeName != null && sql99TypeName.endsWith("LARGE OBJECT");
+  }
+}
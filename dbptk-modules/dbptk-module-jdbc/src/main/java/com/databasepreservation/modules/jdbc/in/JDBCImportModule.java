@@ -12,6 +12,7 @@ import static com.databasepreservation.Constants.VIEW_NAME_PREFIX;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.InetAddress;
@@ -38,10 +39,12 @@ import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -50,22 +53,39 @@ import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.Yaml;
 
 import com.databasepreservation.Constants;
+import com.databasepreservation.common.parallel.LobPrefetcher;
+import com.databasepreservation.common.parallel.ParallelTableMigration;
+import com.databasepreservation.common.parallel.RowBatcher;
+import com.databasepreservation.common.parallel.RowConsumer;
+import com.databasepreservation.common.parallel.RowPool;
+import com.databasepreservation.common.parallel.WorkerPool;
 import com.databasepreservation.managers.ModuleConfigurationManager;
 import com.databasepreservation.managers.RemoteConnectionManager;
 import com.databasepreservation.model.data.ArrayCell;
 import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.BooleanCell;
 import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.CellIdPrefix;
+import com.databasepreservation.model.data.ClobCell;
+import com.databasepreservation.model.data.DateCell;
+import com.databasepreservation.model.data.DecimalCell;
+import com.databasepreservation.model.data.LongCell;
 import com.databasepreservation.model.data.NullCell;
 import com.databasepreservation.model.data.Row;
 import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.data.TimestampCell;
+import com.databasepreservation.model.exception.ConnectionException;
 import com.databasepreservation.model.exception.InvalidDataException;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.exception.SQLParseException;
 import com.databasepreservation.model.exception.TableNotFoundException;
+import com.databasepreservation.model.modules.DatabaseExportModule;
 import com.databasepreservation.model.modules.DatabaseImportModule;
 import com.databasepreservation.model.modules.DatatypeImporter;
+import com.databasepreservation.model.modules.ParallelDatabaseImportModule;
 import com.databasepreservation.model.modules.configuration.CustomViewConfiguration;
 import com.databasepreservation.model.modules.configuration.ModuleConfiguration;
+import com.databasepreservation.model.modules.configuration.TableConfiguration;
 import com.databasepreservation.model.modules.filters.DatabaseFilterModule;
 import com.databasepreservation.model.reporters.Reporter;
 import com.databasepreservation.model.structure.CandidateKey;
@@ -90,24 +110,25 @@ import com.databasepreservation.model.structure.type.SimpleTypeBoolean;
 import com.databasepreservation.model.structure.type.SimpleTypeDateTime;
 import com.databasepreservation.model.structure.type.SimpleTypeNumericApproximate;
 import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
 import com.databasepreservation.model.structure.type.Type;
 import com.databasepreservation.model.structure.type.UnsupportedDataType;
 import com.databasepreservation.modules.DefaultExceptionNormalizer;
 import com.databasepreservation.modules.SQLHelper;
 import com.databasepreservation.modules.jdbc.JDBCModuleFactory;
 import com.databasepreservation.utils.ConfigUtils;
-import com.databasepreservation.utils.JodaUtils;
 import com.databasepreservation.utils.MapUtils;
 import com.databasepreservation.utils.MiscUtils;
 import com.databasepreservation.utils.PortUtils;
 import com.databasepreservation.utils.RemoteConnectionUtils;
+import com.databasepreservation.utils.RowUtils;
 import com.jcraft.jsch.Session;
 
 /**
  * @author Luis Faria <lfaria@keep.pt>
  * @author Bruno Ferreira <bferreira@keep.pt>
  */
-public class JDBCImportModule implements DatabaseImportModule {
+public class JDBCImportModule implements ParallelDatabaseImportModule {
 
   // if fetch size is zero, then the driver decides the best fetch size
   private static final Integer CUSTOM_VIEW_FETCH_BLOCK_SIZE = 1;
@@ -118,6 +139,21 @@ public class JDBCImportModule implements DatabaseImportModule {
   protected static final Integer SMALL_ROW_FETCH_BLOCK_SIZE = ConfigUtils.getProperty(10, "dbptk.jdbc.fetchsize.small");
   protected static final Integer MINIMUM_ROW_FETCH_BLOCK_SIZE = ConfigUtils.getProperty(1,
     "dbptk.jdbc.fetchsize.minimum");
+  // maximum number of rows each parallel worker may read ahead of the export
+  private static final Integer PARALLEL_WORKER_LANE_SIZE = ConfigUtils.getProperty(1000,
+    "dbptk.migration.workers.lane.size");
+  // the maximum number of digits of integers that are read as longs
+  private static final int MAX_LONG_PRECISION = 18;
+  // minimum number of keys in each part of a table that is split automatically
+  protected static final Integer SPLIT_MINIMUM_KEYS = ConfigUtils.getProperty(1000000, "dbptk.migration.split.keys");
+  // maximum number of parts per worker when splitting a table
+  protected static final Integer SPLIT_PARTS_PER_WORKER = ConfigUtils.getProperty(4,
+    "dbptk.migration.split.parts.per.worker");
+  // seconds to wait when checking if the connection of a worker is still valid
+  private static final int CONNECTION_VALIDATION_TIMEOUT_SECONDS = 10;
+  // minimum number of tables and views of a schema to read its catalog at once
+  private static final Integer BULK_CATALOG_MINIMUM_TABLES = ConfigUtils.getProperty(20,
+    "dbptk.jdbc.catalog.bulk.tables");
 
   protected static final String DEFAULT_DATA_TIMESPAN = "(...)";
 
@@ -141,6 +177,20 @@ public class JDBCImportModule implements DatabaseImportModule {
   protected boolean ssh;
   private Map<String, String> connectionProperties;
   private Map<String, String> remoteConnectionProperties;
+  // additional instances of this module used to migrate tables in parallel
+  private List<JDBCImportModule> parallelWorkers = new ArrayList<>();
+  // the snapshot joined by this parallel worker, while the workers read it
+  private String sharedSnapshot = null;
+  // the number of workers of the coordinator, while this module is one of them
+  private int coordinatedWorkers = 0;
+  private TableReaderPlan readerPlan = null;
+  // the row being filled, when the export module does not keep rows
+  private final RowPool rowPool = new RowPool();
+  private boolean reuseRows = false;
+  // adjusts the fetch size of the table being read, if any
+  private FetchSizeController fetchSizeController = null;
+  // the catalog of the schema whose tables are being read, if read at once
+  private SchemaCatalog schemaCatalog = null;
 
   /**
    * Create a new JDBC import module
@@ -340,6 +390,31 @@ public class JDBCImportModule implements DatabaseImportModule {
    * @throws SQLException
    */
   public void closeConnection() {
+    releaseConnection();
+    dbStructure = null;
+
+    ModuleConfigurationManager.destroy();
+    RemoteConnectionManager.destroy();
+  }
+
+  /**
+   * Close the statement, the connection and the SSH session (if any), without
+   * discarding the database structure nor the module configuration
+   */
+  protected void releaseConnection() {
+    resetConnection();
+
+    if (session != null) {
+      session.disconnect();
+      session = null;
+    }
+  }
+
+  /**
+   * Close the statement and the connection, keeping the SSH session (if any) so
+   * that a new connection can be created through it
+   */
+  protected void resetConnection() {
     if (statement != null) {
       try {
         statement.close();
@@ -356,17 +431,40 @@ public class JDBCImportModule implements DatabaseImportModule {
       }
     }
 
-    if (session != null) {
-      session.disconnect();
-      session = null;
-    }
-
     this.connection = null;
+    statement = null;
     dbMetadata = null;
-    dbStructure = null;
+  }
 
-    ModuleConfigurationManager.destroy();
-    RemoteConnectionManager.destroy();
+  /**
+   * Makes sure this module has a usable connection, replacing the existing one if
+   * it is no longer valid (e.g. closed by the server while idle). Used to check
+   * the parallel workers before they are used.
+   *
+   * @throws ModuleException
+   *           if a new connection could not be created
+   */
+  protected void checkConnection() throws ModuleException {
+    if (connection != null) {
+      boolean valid;
+      try {
+        valid = connection.isValid(CONNECTION_VALIDATION_TIMEOUT_SECONDS);
+      } catch (SQLException e) {
+        LOGGER.debug("Could not validate the connection", e);
+        valid = false;
+      }
+      if (!valid) {
+        if (sharedSnapshot != null) {
+          ConnectionException exception = new ConnectionException();
+          exception.withMessage("The connection was lost while reading the shared snapshot " + sharedSnapshot
+            + ", a new connection would read the database at a different point in time");
+          throw exception;
+        }
+        LOGGER.debug("The connection is no longer valid, reconnecting");
+        resetConnection();
+      }
+    }
+    getConnection();
   }
 
   /**
@@ -664,6 +762,10 @@ public class JDBCImportModule implements DatabaseImportModule {
       }
     }
 
+    // table and view names, with their descriptions
+    Map<String, String> selectedTables = new LinkedHashMap<>();
+    Map<String, String> selectedViews = new LinkedHashMap<>();
+
     try (
       ResultSet rset = getMetadata().getTables(dbStructure.getName(), schema.getName(), "%", new String[] {"TABLE"})) {
       while (rset.next()) {
@@ -671,9 +773,7 @@ public class JDBCImportModule implements DatabaseImportModule {
         String tableDescription = rset.getString(5);
 
         if (getModuleConfiguration().isSelectedTable(schema.getName(), tableName)) {
-          LOGGER.info("Obtaining table structure for {}.{}", schema.getName(), tableName);
-          tables.add(getTableStructure(schema, tableName, tableIndex, tableDescription, false));
-          tableIndex++;
+          selectedTables.put(tableName, tableDescription);
         } else {
           LOGGER.info("Ignoring table {}.{}", schema.getName(), tableName);
         }
@@ -703,9 +803,7 @@ public class JDBCImportModule implements DatabaseImportModule {
           String viewDescription = rset.getString(5);
 
           if (getModuleConfiguration().isMaterializeView(schema.getName(), viewName)) {
-            LOGGER.info("Obtaining table structure for view {}.{}", schema.getName(), viewName);
-            tables.add(getViewStructure(schema, viewName, tableIndex, viewDescription));
-            tableIndex++;
+            selectedViews.put(viewName, viewDescription);
           } else {
             LOGGER.info("Ignoring view {}.{}", schema.getName(), viewName);
           }
@@ -713,9 +811,217 @@ public class JDBCImportModule implements DatabaseImportModule {
       }
     }
 
+    Set<String> selected = new HashSet<>(selectedTables.keySet());
+    selected.addAll(selectedViews.keySet());
+    if (BULK_CATALOG_MINIMUM_TABLES > 0 && selected.size() >= BULK_CATALOG_MINIMUM_TABLES) {
+      schemaCatalog = harvestSchemaCatalog(schema.getName(), selected);
+    }
+
+    List<TableRequest> requests = new ArrayList<>();
+    for (Map.Entry<String, String> entry : selectedTables.entrySet()) {
+      requests.add(new TableRequest(entry.getKey(), entry.getValue(), tableIndex++, false));
+    }
+    for (Map.Entry<String, String> entry : selectedViews.entrySet()) {
+      requests.add(new TableRequest(entry.getKey(), entry.getValue(), tableIndex++, true));
+    }
+
+    try {
+      tables.addAll(getTableStructures(schema, requests));
+    } finally {
+      schemaCatalog = null;
+    }
+
+    estimateRows(schema.getName(), tables);
     return tables;
   }
 
+  /**
+   * Sets the estimated number of rows of the tables from the statistics of the
+   * database (see {@link SQLHelper#getRowEstimatesSQL(String)}), without
+   * counting them. The estimates are used for progress and to plan the
+   * migration, the rows are only counted when they are read.
+   *
+   * @param schemaName
+   *          the schema name
+   * @param tables
+   *          the tables of the schema
+   */
+  protected void estimateRows(String schemaName, List<TableStructure> tables) throws ModuleException {
+    String query = sqlHelper.getRowEstimatesSQL(schemaName);
+    if (query == null) {
+      return;
+    }
+
+    Map<String, Long> estimates = new HashMap<>();
+    try (ResultSet rs = getStatement().executeQuery(query)) {
+      while (rs.next()) {
+        long estimate = rs.getLong("ROW_ESTIMATE");
+        if (!rs.wasNull() && estimate >= 0) {
+          estimates.put(rs.getString("TABLE_NAME"), estimate);
+        }
+      }
+    } catch (SQLException e) {
+      LOGGER.debug("Could not get the estimated number of rows of the tables of schema {}", schemaName, e);
+      return;
+    }
+
+    for (TableStructure table : tables) {
+      Long estimate = estimates.get(table.getName());
+      if (estimate != null && !table.isFromView() && !table.isFromCustomView()) {
+        table.setEstimatedRows(estimate);
+      }
+    }
+  }
+
+  /**
+   * A table or view whose structure must be read
+   */
+  private static final class TableRequest {
+    private final String name;
+    private final String description;
+    private final int index;
+    private final boolean view;
+
+    private TableRequest(String name, String description, int index, boolean view) {
+      this.name = name;
+      this.description = description;
+      this.index = index;
+      this.view = view;
+    }
+
+    private TableStructure read(JDBCImportModule module, SchemaStructure schema) throws SQLException, ModuleException {
+      if (view) {
+        LOGGER.info("Obtaining table structure for view {}.{}", schema.getName(), name);
+        return module.getViewStructure(schema, name, index, description);
+      } else {
+        LOGGER.info("Obtaining table structure for {}.{}", schema.getName(), name);
+        return module.getTableStructure(schema, name, index, description, false);
+      }
+    }
+  }
+
+  /**
+   * Reads the structure of the tables and views, concurrently when there are
+   * parallel workers. Each worker uses its own connection, the catalog of the
+   * schema (if it was harvested) and the structure being built, and the
+   * structures are returned in the order they were requested.
+   */
+  private List<TableStructure> getTableStructures(SchemaStructure schema, List<TableRequest> requests)
+    throws SQLException, ModuleException {
+    if (parallelWorkers.isEmpty() || requests.size() < 2) {
+      List<TableStructure> structures = new ArrayList<>(requests.size());
+      for (TableRequest request : requests) {
+        structures.add(request.read(this, schema));
+      }
+      return structures;
+    }
+
+    LOGGER.debug("Obtaining the structure of {} tables and views of schema {} using {} workers", requests.size(),
+      schema.getName(), parallelWorkers.size());
+    for (JDBCImportModule worker : parallelWorkers) {
+      worker.dbStructure = dbStructure;
+      worker.actualSchema = actualSchema;
+      worker.schemaCatalog = schemaCatalog;
+    }
+    try {
+      WorkerPool<JDBCImportModule> pool = new WorkerPool<>(parallelWorkers, JDBCImportModule::checkConnection,
+        "dbptk-structure-worker");
+      return pool.map(requests, (worker, request) -> {
+        try {
+          return request.read(worker, schema);
+        } catch (SQLException e) {
+          throw worker.normalizeException(e, "Could not obtain the structure of " + schema.getName() + "."
+            + request.name);
+        }
+      });
+    } finally {
+      for (JDBCImportModule worker : parallelWorkers) {
+        worker.dbStructure = null;
+        worker.actualSchema = null;
+        worker.schemaCatalog = null;
+      }
+    }
+  }
+
+  /**
+   * Reads the catalog information of all tables of a schema in a few queries:
+   * the columns, using a wildcard table name, and the primary and foreign keys,
+   * using the SQL defined by the SQL helper (if any). Parts that can not be
+   * read are read table by table instead.
+   *
+   * Subclasses may add other parts (e.g. descriptions) to the catalog.
+   *
+   * @param schemaName
+   *          the schema name
+   * @param tableNames
+   *          the names of the tables and views that will be read
+   * @return the catalog of the schema
+   * @throws ModuleException
+   */
+  protected SchemaCatalog harvestSchemaCatalog(String schemaName, Set<String> tableNames) throws ModuleException {
+    long start = System.currentTimeMillis();
+    SchemaCatalog catalog = new SchemaCatalog(schemaName);
+
+    try (ResultSet rs = getMetadata().getColumns(dbStructure.getName(), schemaName, "%", "%")) {
+      while (rs.next()) {
+        String tableName = rs.getString(3);
+        if (tableNames.contains(tableName)) {
+          catalog.addColumn(tableName, getColumn(rs, tableName));
+        }
+      }
+      catalog.setHarvested(SchemaCatalog.Part.COLUMNS);
+    } catch (SQLException e) {
+      LOGGER.debug("Could not read the columns of schema {} at once, reading them table by table", schemaName, e);
+      catalog.discard(SchemaCatalog.Part.COLUMNS);
+    }
+
+    String primaryKeysQuery = sqlHelper.getPrimaryKeysSQL(schemaName);
+    if (primaryKeysQuery != null && !getModuleConfiguration().ignorePrimaryKey()) {
+      try (ResultSet rs = getStatement().executeQuery(primaryKeysQuery)) {
+        while (rs.next()) {
+          catalog.addPrimaryKeyColumn(rs.getString("TABLE_NAME"), rs.getString("PK_NAME"),
+            rs.getString("COLUMN_NAME"));
+        }
+        catalog.setHarvested(SchemaCatalog.Part.PRIMARY_KEYS);
+      } catch (SQLException e) {
+        LOGGER.debug("Could not read the primary keys of schema {} at once, reading them table by table", schemaName,
+          e);
+        catalog.discard(SchemaCatalog.Part.PRIMARY_KEYS);
+      }
+    }
+
+    String foreignKeysQuery = sqlHelper.getForeignKeysSQL(schemaName);
+    if (foreignKeysQuery != null && !getModuleConfiguration().ignoreForeignKey()) {
+      try (ResultSet rs = getStatement().executeQuery(foreignKeysQuery)) {
+        while (rs.next()) {
+          String tableName = rs.getString("FKTABLE_NAME");
+          addForeignKeyReference(catalog.getForeignKeysOf(tableName), tableName, rs);
+        }
+        catalog.setHarvested(SchemaCatalog.Part.FOREIGN_KEYS);
+      } catch (SQLException e) {
+        LOGGER.debug("Could not read the foreign keys of schema {} at once, reading them table by table", schemaName,
+          e);
+        catalog.discard(SchemaCatalog.Part.FOREIGN_KEYS);
+      }
+    }
+
+    LOGGER.debug("Read the catalog of schema {} ({} tables and views) in {} ms", schemaName,
+      catalog.getTableCount(), System.currentTimeMillis() - start);
+    return catalog;
+  }
+
+  /**
+   * @param schemaName
+   *          the schema name
+   * @return the catalog of the schema whose tables are being read, if it was
+   *         harvested (see {@link #harvestSchemaCatalog(String, Set)}), or
+   *         null
+   */
+  protected SchemaCatalog getSchemaCatalog(String schemaName) {
+    SchemaCatalog catalog = schemaCatalog;
+    return catalog != null && catalog.isFor(schemaName) ? catalog : null;
+  }
+
   /**
    * @param schemaName
    *          the schema name
@@ -912,10 +1218,8 @@ public class JDBCImportModule implements DatabaseImportModule {
       }
     }
 
-    // no preemptive row counting when obtaining the structure.
-    // if (moduleSettings.shouldCountRows()) {
-    // table.setRows(getRows(schema.getName(), tableName));
-    // }
+    // no preemptive row counting when obtaining the structure, the rows are
+    // estimated (see estimateRows) and counted when the data is read
     return table;
   }
 
@@ -951,37 +1255,11 @@ public class JDBCImportModule implements DatabaseImportModule {
     view.setCheckConstraints(new ArrayList<>());
     view.setTriggers(new ArrayList<>());
 
-    // view.setRows(getCustomViewRows(query));
     view.setFromCustomView(true);
 
     return view;
   }
 
-  private int getRows(String schemaName, String tableName) throws SQLException, ModuleException {
-    String query = sqlHelper.getRowsSQL(schemaName, tableName);
-    LOGGER.debug("count query: {}", query);
-    try (ResultSet rs = getStatement().executeQuery(query)) {
-      int count;
-
-      count = -1;
-      if (rs.next()) {
-        count = rs.getInt(1);
-      }
-      LOGGER.debug("Counted {} rows", count);
-
-      return count;
-    }
-  }
-
-  private int getCustomViewRows(String query) throws SQLException, ModuleException {
-    try (ResultSet rs = getStatement().executeQuery(query)) {
-      int count = rs.last() ? rs.getRow() : 0;
-      LOGGER.debug("Counted {} rows", count);
-
-      return count;
-    }
-  }
-
   /**
    * Create the column structure
    *
@@ -1146,7 +1424,12 @@ public class JDBCImportModule implements DatabaseImportModule {
    */
   protected List<ColumnStructure> getColumns(String schemaName, String tableName) throws SQLException, ModuleException {
 
-    // LOGGER.debug("id: " + schemaName + "." + tableName);
+    SchemaCatalog catalog = getSchemaCatalog(schemaName);
+    List<ColumnStructure> harvested = catalog == null ? null : catalog.takeColumns(tableName);
+    if (harvested != null) {
+      return harvested;
+    }
+
     List<ColumnStructure> columns = new ArrayList<>();
     try (ResultSet rs = getMetadata().getColumns(dbStructure.getName(), schemaName, tableName, "%")) {
       while (rs.next()) {
@@ -1308,6 +1591,11 @@ public class JDBCImportModule implements DatabaseImportModule {
    * @throws ModuleException
    */
   protected PrimaryKey getPrimaryKey(String schemaName, String tableName) throws SQLException, ModuleException {
+    SchemaCatalog catalog = getSchemaCatalog(schemaName);
+    if (catalog != null && catalog.isHarvested(SchemaCatalog.Part.PRIMARY_KEYS)) {
+      return catalog.getPrimaryKey(tableName);
+    }
+
     String pkName = null;
     List<String> pkColumns = new ArrayList<>();
 
@@ -1340,48 +1628,63 @@ public class JDBCImportModule implements DatabaseImportModule {
    * @throws ModuleException
    */
   protected List<ForeignKey> getForeignKeys(String schemaName, String tableName) throws SQLException, ModuleException {
+    SchemaCatalog catalog = getSchemaCatalog(schemaName);
+    if (catalog != null && catalog.isHarvested(SchemaCatalog.Part.FOREIGN_KEYS)) {
+      return catalog.takeForeignKeys(tableName);
+    }
+
     List<ForeignKey> foreignKeys = new ArrayList<>();
 
     try (ResultSet rs = getMetadata().getImportedKeys(getDatabaseStructure().getName(), schemaName, tableName)) {
       while (rs.next()) {
-        List<Reference> references = new ArrayList<>();
-        boolean found = false;
-        Reference reference = new Reference(rs.getString("FKCOLUMN_NAME"), rs.getString("PKCOLUMN_NAME"));
-
-        String fkeyName = rs.getString("FK_NAME");
-        if (fkeyName == null) {
-          fkeyName = "FK_" + rs.getString("PKTABLE_NAME") + "_" + rs.getString("FKTABLE_NAME") + "_"
-            + rs.getString("FKCOLUMN_NAME");
-        }
-
-        for (ForeignKey key : foreignKeys) {
-          if (key.getName().equals(fkeyName)) {
-            references = key.getReferences();
-            references.add(reference);
-            key.setReferences(references);
-            found = true;
-            break;
-          }
-        }
-
-        if (!found) {
-          ForeignKey fkey = new ForeignKey();
-          fkey.setId(tableName + "." + rs.getString("FKCOLUMN_NAME"));
-          fkey.setName(fkeyName);
-          fkey.setReferencedSchema(getReferencedSchema(rs.getString("PKTABLE_SCHEM")));
-          fkey.setReferencedTable(rs.getString("PKTABLE_NAME"));
-          references.add(reference);
-          fkey.setReferences(references);
-          // TODO add: fkey.setMatchType(??);
-          fkey.setUpdateAction(getUpdateRule(rs.getShort("UPDATE_RULE")));
-          fkey.setDeleteAction(getDeleteRule(rs.getShort("DELETE_RULE")));
-          foreignKeys.add(fkey);
-        }
+        addForeignKeyReference(foreignKeys, tableName, rs);
       }
     }
     return foreignKeys;
   }
 
+  /**
+   * Adds the reference in the current row of the result set (with the columns
+   * of {@link DatabaseMetaData#getImportedKeys(String, String, String)}) to its
+   * foreign key, creating the foreign key if needed.
+   */
+  private void addForeignKeyReference(List<ForeignKey> foreignKeys, String tableName, ResultSet rs)
+    throws SQLException, ModuleException {
+    List<Reference> references = new ArrayList<>();
+    boolean found = false;
+    Reference reference = new Reference(rs.getString("FKCOLUMN_NAME"), rs.getString("PKCOLUMN_NAME"));
+
+    String fkeyName = rs.getString("FK_NAME");
+    if (fkeyName == null) {
+      fkeyName = "FK_" + rs.getString("PKTABLE_NAME") + "_" + rs.getString("FKTABLE_NAME") + "_"
+        + rs.getString("FKCOLUMN_NAME");
+    }
+
+    for (ForeignKey key : foreignKeys) {
+      if (key.getName().equals(fkeyName)) {
+        references = key.getReferences();
+        references.add(reference);
+        key.setReferences(references);
+        found = true;
+        break;
+      }
+    }
+
+    if (!found) {
+      ForeignKey fkey = new ForeignKey();
+      fkey.setId(tableName + "." + rs.getString("FKCOLUMN_NAME"));
+      fkey.setName(fkeyName);
+      fkey.setReferencedSchema(getReferencedSchema(rs.getString("PKTABLE_SCHEM")));
+      fkey.setReferencedTable(rs.getString("PKTABLE_NAME"));
+      references.add(reference);
+      fkey.setReferences(references);
+      // TODO add: fkey.setMatchType(??);
+      fkey.setUpdateAction(getUpdateRule(rs.getShort("UPDATE_RULE")));
+      fkey.setDeleteAction(getDeleteRule(rs.getShort("DELETE_RULE")));
+      foreignKeys.add(fkey);
+    }
+  }
+
   protected String getReferencedSchema(String s) throws SQLException, ModuleException {
     return s;
   }
@@ -1643,54 +1946,56 @@ public class JDBCImportModule implements DatabaseImportModule {
     return string;
   }
 
-  private void updateMaxCardinalities(Row row, HashMap<String, Integer> cardinalities) {
-    for (Cell cell : row.getCells()) {
-      if (cell instanceof ArrayCell arrayCell) {
-        String[] cellIdParts = cell.getId().split("\\.");
-        String cellColumnName = cellIdParts[cellIdParts.length - 2];
+  private void updateMaxCardinalities(TableStructure table, Row row, Map<String, Integer> cardinalities) {
+    List<Cell> cells = row.getCells();
+    List<ColumnStructure> columns = table.getColumns();
+    for (int i = 0; i < cells.size() && i < columns.size(); i++) {
+      if (cells.get(i) instanceof ArrayCell arrayCell) {
         int cellCardinality = 0;
-        try {
-          cellCardinality = arrayCell.toArray((c -> c), Cell.class).length;
-        } catch (InvalidDataException e) {
-          LOGGER.warn("Couldn't get array cell data for cell {}", cell);
+        if (arrayCell.calculateDimensions() < 0) {
+          LOGGER.warn("Couldn't get array cell data for cell {}", arrayCell);
+        } else {
+          cellCardinality = arrayCell.getCardinality();
         }
-        cardinalities.put(cellColumnName, Math.max(cardinalities.getOrDefault(cellColumnName, 0), cellCardinality));
+        cardinalities.merge(columns.get(i).getName(), cellCardinality, Math::max);
       }
     }
   }
 
   protected Row convertRawToRow(ResultSet rawData, TableStructure tableStructure)
     throws InvalidDataException, SQLException, ModuleException {
-    Row row = null;
-    if (isRowValid(rawData, tableStructure)) {
-      List<Cell> cells = new ArrayList<>(tableStructure.getColumns().size());
+    TableReaderPlan plan = getReaderPlan(tableStructure);
+    if (!plan.isCheckedFor(rawData)) {
+      plan.setValidity(rawData, isRowValid(rawData, tableStructure));
+    }
 
+    Row row;
+    if (plan.isValid()) {
       long currentRow = tableStructure.getCurrentRow();
       if (isGetRowAvailable()) {
         currentRow = rawData.getRow();
       }
+      row = obtainRow(currentRow, plan.getColumnCount());
+      List<Cell> cells = row.getCells();
 
-      for (int i = 0; i < tableStructure.getColumns().size(); i++) {
-        ColumnStructure colStruct = tableStructure.getColumns().get(i);
-
+      for (int i = 0; i < plan.getColumnCount(); i++) {
+        Cell cell;
         try {
-          Cell cell = convertRawToCell(tableStructure.getName(), colStruct.getName(), i + 1, currentRow,
-            colStruct.getType(), rawData);
-          cells.add(cell);
+          cell = plan.getReader(i).read(plan.getCellIdPrefix(i), currentRow, rawData);
         } catch (Exception e) {
-          cells.add(new NullCell(tableStructure.getName() + "." + colStruct.getName() + "." + (i + 1)));
-          reporter.cellProcessingUsedNull(tableStructure, colStruct, currentRow, e);
+          cell = new NullCell(plan.getCellIdPrefix(i), currentRow);
+          reporter.cellProcessingUsedNull(tableStructure, plan.getColumn(i), currentRow, e);
         }
+        cells.add(cell);
       }
-      row = new Row(currentRow, cells);
     } else {
       // insert null in all fields
-      List<Cell> cells = new ArrayList<>(tableStructure.getColumns().size());
+      row = obtainRow(tableStructure.getCurrentRow(), tableStructure.getColumns().size());
       for (int i = 0; i < tableStructure.getColumns().size(); i++) {
         ColumnStructure colStruct = tableStructure.getColumns().get(i);
-        cells.add(new SimpleCell(tableStructure.getName() + "." + colStruct.getName() + "." + (i + 1), null));
+        row.getCells()
+          .add(new SimpleCell(tableStructure.getName() + "." + colStruct.getName() + "." + (i + 1), null));
       }
-      row = new Row(tableStructure.getCurrentRow(), cells);
 
       reporter.rowProcessingUsedNull(tableStructure, tableStructure.getCurrentRow(),
         new ModuleException().withMessage("isRowValid returned false"));
@@ -1699,73 +2004,170 @@ public class JDBCImportModule implements DatabaseImportModule {
     return row;
   }
 
-  protected Cell convertRawToCell(String tableName, String columnName, int columnIndex, long rowIndex, Type cellType,
-    ResultSet rawData) throws SQLException, InvalidDataException, ModuleException {
-    Cell cell;
-    String id = tableName + "." + columnName + "." + rowIndex;
+  /**
+   * Gets an empty row to be filled with the cells of the next record. When the
+   * export module does not keep rows (see
+   * {@link DatabaseExportModule#retainsRows()}) and no LOBs are being
+   * prefetched, a row that was already exported is reused (see
+   * {@link RowPool}).
+   *
+   * @param index
+   *          the row index
+   * @param columnCount
+   *          the expected number of cells
+   * @return the row, without cells
+   */
+  protected Row obtainRow(long index, int columnCount) {
+    if (!reuseRows) {
+      return new Row(index, new ArrayList<>(columnCount));
+    }
+    return rowPool.obtain(index, columnCount);
+  }
+
+  /**
+   * Gets the reader plan of a table, building it when the table is read for the
+   * first time (or after reading another table).
+   *
+   * @param table
+   *          the table being read
+   * @return the reader plan of the table
+   */
+  protected TableReaderPlan getReaderPlan(TableStructure table) {
+    if (readerPlan == null || readerPlan.getTable() != table) {
+      List<ColumnStructure> columns = table.getColumns();
+      ColumnReader[] readers = new ColumnReader[columns.size()];
+      for (int i = 0; i < readers.length; i++) {
+        readers[i] = createColumnReader(table, columns.get(i), i + 1);
+      }
+      readerPlan = new TableReaderPlan(table, readers);
+    }
+    return readerPlan;
+  }
 
+  /**
+   * Chooses how the values of a column are read, according to its type. Simple
+   * values are read by column index, other values are read using the
+   * rawToCell methods. Modules may override this method to read some column
+   * types in a different way.
+   *
+   * @param table
+   *          the table
+   * @param column
+   *          the column
+   * @param columnIndex
+   *          the index of the column in the result set (1-based)
+   * @return the column reader
+   */
+  protected ColumnReader createColumnReader(TableStructure table, ColumnStructure column, int columnIndex) {
+    String columnName = column.getName();
+    Type cellType = column.getType();
+    if (cellType instanceof ComposedTypeArray) {
+      return (idPrefix, rowIndex, rawData) -> parseArray(idPrefix.getId(rowIndex), rawData.getArray(columnIndex));
+    } else if (cellType instanceof ComposedTypeStructure) {
+      return (idPrefix, rowIndex, rawData) -> rawToCellComposedTypeStructure(idPrefix.getId(rowIndex), columnName,
+        cellType, rawData);
+    } else if (cellType instanceof SimpleTypeBoolean) {
+      return (idPrefix, rowIndex, rawData) -> {
+        boolean booleanValue = rawData.getBoolean(columnIndex);
+        return rawData.wasNull() ? new NullCell(idPrefix, rowIndex) : new BooleanCell(idPrefix, rowIndex, booleanValue);
+      };
+    } else if (cellType instanceof SimpleTypeNumericApproximate) {
+      return (idPrefix, rowIndex, rawData) -> {
+        String stringValue = rawData.getString(columnIndex);
+        return rawData.wasNull() ? new NullCell(idPrefix, rowIndex) : new SimpleCell(idPrefix, rowIndex, stringValue);
+      };
+    } else if (cellType instanceof SimpleTypeDateTime) {
+      return (idPrefix, rowIndex, rawData) -> rawToCellSimpleTypeDateTime(idPrefix.getId(rowIndex), columnName,
+        cellType, rawData);
+    } else if (cellType instanceof SimpleTypeBinary) {
+      return (idPrefix, rowIndex, rawData) -> rawToCellSimpleTypeBinary(idPrefix.getId(rowIndex), columnName,
+        cellType, rawData);
+    } else if (cellType instanceof UnsupportedDataType) {
+      return (idPrefix, rowIndex, rawData) -> rawToCellUnsupportedDataType(idPrefix.getId(rowIndex), columnName,
+        cellType, rawData);
+    } else if (cellType instanceof SimpleTypeNumericExact) {
+      if (isReadAsLong((SimpleTypeNumericExact) cellType)) {
+        return (idPrefix, rowIndex, rawData) -> {
+          long longValue = rawData.getLong(columnIndex);
+          return rawData.wasNull() ? new NullCell(idPrefix, rowIndex) : new LongCell(idPrefix, rowIndex, longValue);
+        };
+      }
+      return (idPrefix, rowIndex, rawData) -> rawToDecimalCell(idPrefix, rowIndex, columnIndex, rawData);
+    } else if (cellType instanceof SimpleTypeString && cellType.getSql99TypeName() != null
+      && cellType.getSql99TypeName().endsWith("LARGE OBJECT")) {
+      return (idPrefix, rowIndex, rawData) -> rawToClobCell(idPrefix, rowIndex, columnIndex, rawData);
+    } else {
+      return (idPrefix, rowIndex, rawData) -> rawToCellUndefinedType(idPrefix, rowIndex, columnIndex, rawData);
+    }
+  }
+
+  /**
+   * @param numericType
+   *          an exact numeric type
+   * @return true if the values of the type are integers that fit in a long,
+   *         read into a LongCell, instead of a DecimalCell
+   */
+  protected static boolean isReadAsLong(SimpleTypeNumericExact numericType) {
+    return numericType.getPrecision() != null && numericType.getPrecision() > 0
+      && numericType.getPrecision() <= MAX_LONG_PRECISION && numericType.getScale() != null
+      && numericType.getScale() == 0;
+  }
+
+  private Cell rawToDecimalCell(CellIdPrefix idPrefix, long rowIndex, int columnIndex, ResultSet rawData)
+    throws SQLException {
+    BigDecimal decimalValue;
     try {
-      if (cellType instanceof ComposedTypeArray) {
-        ComposedTypeArray composedTypeArray = (ComposedTypeArray) cellType;
-        Array array = rawData.getArray(columnName);
-        LOGGER.trace("Parsing array of subtype {}", composedTypeArray.getElementType().getClass().getSimpleName());
-        cell = parseArray(id, array);
-      } else if (cellType instanceof ComposedTypeStructure) {
-        cell = rawToCellComposedTypeStructure(id, columnName, cellType, rawData);
-      } else if (cellType instanceof SimpleTypeBoolean) {
-        boolean booleanValue = rawData.getBoolean(columnName);
-        boolean wasNull = rawData.wasNull();
-        if (wasNull) {
-          cell = new NullCell(id);
-        } else {
-          cell = new SimpleCell(id, booleanValue ? "true" : "false");
-        }
+      decimalValue = rawData.getBigDecimal(columnIndex);
+    } catch (SQLException | NumberFormatException e) {
+      // some values (e.g. NaN) can only be read as strings
+      String stringValue = rawData.getString(columnIndex);
+      return stringValue == null ? new NullCell(idPrefix, rowIndex)
+        : new SimpleCell(idPrefix, rowIndex, toPlainNumber(stringValue));
+    }
+    return decimalValue == null ? new NullCell(idPrefix, rowIndex) : new DecimalCell(idPrefix, rowIndex, decimalValue);
+  }
 
-      } else if (cellType instanceof SimpleTypeNumericApproximate) {
-        cell = rawToCellSimpleTypeNumericApproximate(id, columnName, cellType, rawData);
-      } else if (cellType instanceof SimpleTypeDateTime) {
-        cell = rawToCellSimpleTypeDateTime(id, columnName, cellType, rawData);
-      } else if (cellType instanceof SimpleTypeBinary) {
-        cell = rawToCellSimpleTypeBinary(id, columnName, cellType, rawData);
-      } else if (cellType instanceof UnsupportedDataType) {
-        cell = rawToCellUnsupportedDataType(id, columnName, cellType, rawData);
-      } else if (cellType instanceof SimpleTypeNumericExact) {
-        cell = rawToCellSimpleTypeNumericExact(id, columnName, cellType, rawData);
-      } else {
-        try {
-          if (rawData.getString(columnName) == null) {
-            cell = new NullCell(id);
-          } else {
-            cell = new SimpleCell(id, rawData.getString(columnName));
-          }
-        } catch (SQLException e) {
-          LOGGER.debug("Could not export cell of unknown/undefined datatype", e);
-          cell = new NullCell(id);
-        } catch (NoClassDefFoundError e) {
-          try {
-            Object[] aStruct = ((Struct) rawData.getObject(columnName)).getAttributes();
+  /**
+   * Reads large texts as a stream, so the largest ones are kept out of memory
+   * (see {@link ClobCell})
+   */
+  private Cell rawToClobCell(CellIdPrefix idPrefix, long rowIndex, int columnIndex, ResultSet rawData)
+    throws SQLException, ModuleException {
+    Reader reader;
+    try {
+      reader = rawData.getCharacterStream(columnIndex);
+    } catch (SQLFeatureNotSupportedException e) {
+      return rawToCellUndefinedType(idPrefix, rowIndex, columnIndex, rawData);
+    }
+    return reader == null ? new NullCell(idPrefix, rowIndex) : ClobCell.copyOf(idPrefix, rowIndex, reader);
+  }
 
-            StringBuilder value = new StringBuilder("(");
-            String separator = "";
-            for (Object o : aStruct) {
-              value.append(separator).append(o.toString());
-              separator = ",";
-            }
-            value.append(")");
+  private Cell rawToCellUndefinedType(CellIdPrefix idPrefix, long rowIndex, int columnIndex, ResultSet rawData) {
+    try {
+      String value = rawData.getString(columnIndex);
+      return value == null ? new NullCell(idPrefix, rowIndex) : new SimpleCell(idPrefix, rowIndex, value);
+    } catch (SQLException e) {
+      LOGGER.debug("Could not export cell of unknown/undefined datatype", e);
+      return new NullCell(idPrefix, rowIndex);
+    } catch (NoClassDefFoundError e) {
+      try {
+        Object[] aStruct = ((Struct) rawData.getObject(columnIndex)).getAttributes();
 
-            cell = new SimpleCell(id, value.toString());
-          } catch (SQLException e1) {
-            LOGGER.debug("No Class Def Found when trying to getString", e);
-            LOGGER.debug("Could not export cell of unknown/undefined datatype", e1);
-            cell = new NullCell(id);
-          }
+        StringBuilder value = new StringBuilder("(");
+        String separator = "";
+        for (Object o : aStruct) {
+          value.append(separator).append(o.toString());
+          separator = ",";
         }
+        value.append(")");
+
+        return new SimpleCell(idPrefix, rowIndex, value.toString());
+      } catch (SQLException e1) {
+        LOGGER.debug("No Class Def Found when trying to getString", e);
+        LOGGER.debug("Could not export cell of unknown/undefined datatype", e1);
+        return new NullCell(idPrefix, rowIndex);
       }
-    } catch (Exception e) {
-      cell = new NullCell(id);
-      reporter.cellProcessingUsedNull(tableName, columnName, rowIndex, e);
     }
-    return cell;
   }
 
   protected Cell rawToCellComposedTypeStructure(String id, String columnName, Type cellType, ResultSet rawData)
@@ -1793,22 +2195,26 @@ public class JDBCImportModule implements DatabaseImportModule {
     if (wasNull) {
       cell = new NullCell(id);
     } else {
-      if (stringValue.contains("E")) {
-        try {
-          BigDecimal decimal = new BigDecimal(stringValue);
-          cell = new SimpleCell(id, decimal.toPlainString());
-        } catch (NumberFormatException e) {
-          LOGGER.debug("could not parse `{}` as a decimal", stringValue, e);
-          cell = new SimpleCell(id, stringValue);
-        }
-      } else {
-        cell = new SimpleCell(id, stringValue);
-      }
+      cell = new SimpleCell(id, toPlainNumber(stringValue));
     }
 
     return cell;
   }
 
+  /**
+   * @return the number without an exponent, if it had one
+   */
+  private String toPlainNumber(String stringValue) {
+    if (stringValue.contains("E")) {
+      try {
+        return new BigDecimal(stringValue).toPlainString();
+      } catch (NumberFormatException e) {
+        LOGGER.debug("could not parse `{}` as a decimal", stringValue, e);
+      }
+    }
+    return stringValue;
+  }
+
   private void arrayToArrayCell(int baseType, ArrayCell arrayCell, int distanceToSimpleArray, Integer[] path,
     Object[] items) {
     if (distanceToSimpleArray == 1) {
@@ -1922,7 +2328,7 @@ public class JDBCImportModule implements DatabaseImportModule {
       } else {
         Timestamp timestamp = rawData.getTimestamp(columnName);
         if (timestamp != null) {
-          cell = new SimpleCell(id, JodaUtils.getDateTime(timestamp));
+          cell = new TimestampCell(id, timestamp);
         } else {
           cell = new NullCell(id);
         }
@@ -1930,7 +2336,7 @@ public class JDBCImportModule implements DatabaseImportModule {
     } else {
       Date date = rawData.getDate(columnName);
       if (date != null) {
-        cell = new SimpleCell(id, date.toString());
+        cell = new DateCell(id, date.toLocalDate());
       } else {
         cell = new NullCell(id);
       }
@@ -1987,9 +2393,45 @@ public class JDBCImportModule implements DatabaseImportModule {
   }
 
   protected ResultSet getTableRawData(TableStructure table) throws SQLException, ModuleException {
-    String query = sqlHelper.selectTableSQL(table);
+    return getTableRawData(table, null);
+  }
+
+  /**
+   * Gets the rows of a table, or only those in a key range.
+   *
+   * @param table
+   *          the table
+   * @param range
+   *          the key range to read, or null to read all rows
+   */
+  protected ResultSet getTableRawData(TableStructure table, KeyRange range) throws SQLException, ModuleException {
+    String query = appendTableClauses(sqlHelper.selectTableSQL(table), table, range);
+    LOGGER.debug("query: " + query);
+    return getTableRawData(query, table.getId());
+  }
+
+  /**
+   * Appends the where and order by clauses of a table (from the module
+   * configuration) to a query that selects its rows. When a key range is
+   * specified, the rows are restricted to that range and ordered by its column.
+   *
+   * @param query
+   *          the query that selects the rows of the table
+   * @param table
+   *          the table
+   * @param range
+   *          the key range to read, or null to read all rows
+   * @return the query with the where and order by clauses
+   */
+  protected String appendTableClauses(String query, TableStructure table, KeyRange range) {
     String whereClause = getModuleConfiguration().getWhere(table.getSchema(), table.getName(), !table.isFromView());
     String orderByClause = getModuleConfiguration().getOrderBy(table.getSchema(), table.getName(), !table.isFromView());
+    if (range != null) {
+      String rangeCondition = getKeyRangeCondition(range);
+      whereClause = whereClause == null ? rangeCondition : "(" + whereClause.trim() + ") AND " + rangeCondition;
+      orderByClause = getKeyRangeOrder(range);
+    }
+
     if (whereClause != null) {
       query = sqlHelper.appendWhereClause(query, whereClause);
     }
@@ -1997,41 +2439,58 @@ public class JDBCImportModule implements DatabaseImportModule {
     if (orderByClause != null) {
       query = sqlHelper.appendOrderByClause(query, orderByClause);
     }
+    return query;
+  }
 
-    LOGGER.debug("query: " + query);
-    return getTableRawData(query, table.getId());
+  /**
+   * @param range
+   *          a key range
+   * @return the order by clause that sorts the rows of the range by its column
+   */
+  protected String getKeyRangeOrder(KeyRange range) {
+    return sqlHelper.escapeTableName(range.getColumn());
+  }
+
+  protected String getKeyRangeCondition(KeyRange range) {
+    String column = sqlHelper.escapeTableName(range.getColumn());
+    if (range.isNullKeys()) {
+      return column + " IS NULL";
+    } else if (range.getLowerBound() == null && range.getUpperBound() == null) {
+      return column + " IS NOT NULL";
+    } else if (range.getLowerBound() == null) {
+      return column + " < " + range.getUpperBound();
+    } else if (range.getUpperBound() == null) {
+      return column + " >= " + range.getLowerBound();
+    } else {
+      return column + " >= " + range.getLowerBound() + " AND " + column + " < " + range.getUpperBound();
+    }
   }
 
   protected ResultSet getTableRawData(String query, String tableId) throws SQLException, ModuleException {
     Statement st = getStatement();
 
-    st.setFetchSize(DEFAULT_ROW_FETCH_BLOCK_SIZE);
+    st.setFetchSize(
+      fetchSizeController != null ? fetchSizeController.getFetchSize() : DEFAULT_ROW_FETCH_BLOCK_SIZE);
     try {
       return st.executeQuery(query);
     } catch (SQLException sqlException) {
-      LOGGER.debug("Error executing query with default fetch size of {}", st.getFetchSize());
+      LOGGER.debug("Error executing query with initial fetch size of {}", st.getFetchSize());
     }
 
-    if (connection.isClosed()) {
-      connection = null;
-      connection = getConnection();
-      statement = null;
-    }
+    reconnectIfClosed(tableId);
     st = getStatement();
     st.setFetchSize(SMALL_ROW_FETCH_BLOCK_SIZE);
+    limitFetchSize(SMALL_ROW_FETCH_BLOCK_SIZE);
     try {
       return st.executeQuery(query);
     } catch (SQLException sqlException) {
       LOGGER.debug("Error executing query with fetch size of {}", st.getFetchSize());
     }
 
-    if (connection.isClosed()) {
-      connection = null;
-      connection = getConnection();
-      statement = null;
-    }
+    reconnectIfClosed(tableId);
     st = getStatement();
     st.setFetchSize(MINIMUM_ROW_FETCH_BLOCK_SIZE);
+    limitFetchSize(MINIMUM_ROW_FETCH_BLOCK_SIZE);
     try {
       return st.executeQuery(query);
     } catch (SQLException sqlException) {
@@ -2044,6 +2503,39 @@ public class JDBCImportModule implements DatabaseImportModule {
     throw new ModuleException().withMessage(msg);
   }
 
+  /**
+   * Replaces the connection if it was closed (e.g. by a failed query). A
+   * parallel worker that joined a shared snapshot fails instead, as a new
+   * connection would not read that snapshot.
+   *
+   * @throws ConnectionException
+   *           if the worker is reading a shared snapshot
+   * @throws ModuleException
+   *           if a new connection could not be created
+   */
+  private void reconnectIfClosed(String tableId) throws SQLException, ModuleException {
+    if (connection.isClosed()) {
+      if (sharedSnapshot != null) {
+        ConnectionException exception = new ConnectionException();
+        exception.withMessage("The connection was lost while reading table '" + tableId + "' from the shared snapshot "
+          + sharedSnapshot + ", a new connection would read it at a different point in time");
+        throw exception;
+      }
+      connection = null;
+      connection = getConnection();
+      statement = null;
+    }
+  }
+
+  /**
+   * @return true if this module is a parallel worker that joined the snapshot
+   *         shared by the coordinator (see {@link #joinSharedSnapshot(String)}),
+   *         so it must not read with a new connection
+   */
+  protected boolean isInSharedSnapshot() {
+    return sharedSnapshot != null;
+  }
+
   /**
    * Advances to the next batch of results in a ResultSet. Also tries to adjust
    * the fetch size in case it is too big. Setting it to
@@ -2080,10 +2572,12 @@ public class JDBCImportModule implements DatabaseImportModule {
       } else if (currentFetchSize > SMALL_ROW_FETCH_BLOCK_SIZE || currentFetchSize == 0) {
         // reduce fetch size and try again
         tableResultSet.setFetchSize(SMALL_ROW_FETCH_BLOCK_SIZE);
+        limitFetchSize(SMALL_ROW_FETCH_BLOCK_SIZE);
         return resultSetNext(tableResultSet);
       } else {
         // reduce fetch size and try again
         tableResultSet.setFetchSize(MINIMUM_ROW_FETCH_BLOCK_SIZE);
+        limitFetchSize(MINIMUM_ROW_FETCH_BLOCK_SIZE);
         return resultSetNext(tableResultSet);
       }
     } catch (SQLException e) {
@@ -2106,6 +2600,28 @@ public class JDBCImportModule implements DatabaseImportModule {
     return ignore;
   }
 
+  /**
+   * @return the number of parallel workers (of its coordinator, if this module
+   *         is a parallel worker), 0 if the data is migrated by this module
+   *         alone
+   */
+  protected int getParallelWorkerCount() {
+    return parallelWorkers.isEmpty() ? coordinatedWorkers : parallelWorkers.size();
+  }
+
+  @Override
+  public void setParallelWorkers(List<DatabaseImportModule> workers) throws ModuleException {
+    List<JDBCImportModule> jdbcWorkers = new ArrayList<>(workers.size());
+    for (DatabaseImportModule worker : workers) {
+      if (worker.getClass() != getClass()) {
+        throw new ModuleException().withMessage("Can not use a " + worker.getClass().getSimpleName()
+          + " as a parallel worker for " + getClass().getSimpleName());
+      }
+      jdbcWorkers.add((JDBCImportModule) worker);
+    }
+    this.parallelWorkers = jdbcWorkers;
+  }
+
   @Override
   public DatabaseFilterModule migrateDatabaseTo(DatabaseFilterModule exportModule) throws ModuleException {
     try {
@@ -2115,71 +2631,23 @@ public class JDBCImportModule implements DatabaseImportModule {
 
       exportModule.handleStructure(getDatabaseStructure());
 
-      for (SchemaStructure schema : getDatabaseStructure().getSchemas()) {
-        exportModule.handleDataOpenSchema(schema.getName());
-
-        for (TableStructure table : schema.getTables()) {
-          exportModule.handleDataOpenTable(table.getId());
-
-          HashMap<String, Integer> tableColumnsCardinality = new HashMap<>();
-          long nRows = 0;
-          if (getModuleConfiguration().isFetchRows()) {
-            if (table.isFromCustomView()) {
-              CustomViewConfiguration customView = getModuleConfiguration().getCustomViewConfiguration(schema.getName(),
-                table.getName().replace(CUSTOM_VIEW_NAME_PREFIX, ""));
-              if (customView != null) {
-                try (ResultSet tableRawData = getTableRawData(customView.getQuery(), table.getId())) {
-                  while (resultSetNext(tableRawData)) {
-                    Row row = convertRawToRow(tableRawData, table);
-                    exportModule.handleDataRow(row);
-                    updateMaxCardinalities(row, tableColumnsCardinality);
-                    nRows++;
-                  }
-                } catch (SQLException | ModuleException e) {
-                  LOGGER.error("Could not obtain all data from the custom view.", e);
-                }
-              } else {
-                LOGGER.error("Could not obtain data from the custom view.");
-              }
-            } else {
-              try (ResultSet tableRawData = getTableRawData(table)) {
-                while (resultSetNext(tableRawData)) {
-                  Row row = convertRawToRow(tableRawData, table);
-                  exportModule.handleDataRow(row);
-                  updateMaxCardinalities(row, tableColumnsCardinality);
-                  nRows++;
-                }
-              } catch (SQLException e) {
-                throw new SQLParseException()
-                  .withMessage(e.getMessage() + " at schema: " + table.getSchema() + " on table: " + table.getName());
-              } catch (ModuleException e) {
-                LOGGER.error("Could not obtain all data from the current table.", e);
-              }
-            }
-          }
-          LOGGER.debug("Total of {} row(s) processed", nRows);
-
-          // if (nRows < tableRows && moduleSettings.shouldFetchRows()) {
-          // LOGGER.warn("The database reported a total of {} rows. Some data may have
-          // been lost.", tableRows);
-          // reporter.customMessage(this.getClass().getName(),
-          // "Only processed " + nRows + " out of " + tableRows + " rows contained in
-          // table '" + table.getName()
-          // + "'. The log file may contain more information to help diagnose this
-          // problem.");
-          // }
-
-          for (Map.Entry<String, Integer> arrayCellCardinalityPair : tableColumnsCardinality.entrySet()) {
-            ColumnStructure column = table.getColumnByName(arrayCellCardinalityPair.getKey());
-            if (column != null && column.getType() instanceof ComposedTypeArray) {
-              column.setCardinality(BigInteger.valueOf(arrayCellCardinalityPair.getValue()));
-            }
+      if (parallelWorkers.isEmpty()) {
+        reuseRows = !exportModule.retainsRows();
+        for (SchemaStructure schema : getDatabaseStructure().getSchemas()) {
+          exportModule.handleDataOpenSchema(schema.getName());
+
+          for (TableStructure table : schema.getTables()) {
+            exportModule.handleDataOpenTable(table.getId());
+            // rows are reused once their batch was exported
+            RowBatcher batcher = reuseRows ? new RowBatcher(exportModule, rowPool) : new RowBatcher(exportModule);
+            migrateTableData(table, batcher);
+            batcher.flush();
+            exportModule.handleDataCloseTable(table.getId());
           }
-          getDatabaseStructure().getTableById(table.getId()).setRows(nRows);
-
-          exportModule.handleDataCloseTable(table.getId());
+          exportModule.handleDataCloseSchema(schema.getName());
         }
-        exportModule.handleDataCloseSchema(schema.getName());
+      } else {
+        migrateTableDataInParallel(exportModule);
       }
 
       exportModule.updateModuleConfiguration(this.moduleName, this.connectionProperties,
@@ -2188,12 +2656,607 @@ public class JDBCImportModule implements DatabaseImportModule {
       LOGGER.debug("Freeing resources");
       exportModule.finishDatabase();
     } finally {
+      reuseRows = false;
+      // the workers may have read the structure even if no data was migrated
+      for (JDBCImportModule worker : parallelWorkers) {
+        worker.releaseConnection();
+      }
       LOGGER.debug("Closing connection to source database");
       closeConnection();
     }
     return null;
   }
 
+  /**
+   * Migrates the data of all tables using the parallel workers, each one with
+   * its own connection. The export module is still called from this thread and
+   * in the same order as in a sequential migration. Big tables may be split in
+   * key ranges (see {@link #splitTable(TableStructure)}), read by several
+   * workers at the same time. When the module supports it, all workers read the
+   * same snapshot of the database (see {@link #beginSharedSnapshot()}).
+   */
+  private void migrateTableDataInParallel(DatabaseFilterModule exportModule) throws ModuleException {
+    ParallelTableMigration<JDBCImportModule, KeyRange> parallelMigration = new ParallelTableMigration<>(
+      parallelWorkers, PARALLEL_WORKER_LANE_SIZE, new KeyRangeExtractor());
+    try {
+      String snapshot = beginSharedSnapshot();
+      if (snapshot == null) {
+        LOGGER.warn("{} can not share a snapshot between workers, tables may be read at different points in time",
+          getClass().getSimpleName());
+      }
+      for (JDBCImportModule worker : parallelWorkers) {
+        worker.dbStructure = getDatabaseStructure();
+        worker.coordinatedWorkers = parallelWorkers.size();
+        if (snapshot != null) {
+          worker.joinSharedSnapshot(snapshot);
+          worker.sharedSnapshot = snapshot;
+        }
+      }
+      if (snapshot != null) {
+        sharedSnapshotJoined();
+      }
+
+      parallelMigration.migrate(getDatabaseStructure().getSchemas(), exportModule);
+    } finally {
+      for (JDBCImportModule worker : parallelWorkers) {
+        worker.sharedSnapshot = null;
+        worker.coordinatedWorkers = 0;
+        worker.releaseConnection();
+        worker.dbStructure = null;
+      }
+      endSharedSnapshot();
+    }
+  }
+
+  /**
+   * Called on the coordinator before the parallel workers start, to make the
+   * current state of the database available to the workers. The snapshot must
+   * remain available (e.g. the transaction that exported it must remain open)
+   * until {@link #endSharedSnapshot()} is called.
+   *
+   * @return an identifier of the snapshot, passed to
+   *         {@link #joinSharedSnapshot(String)} on each worker, or null if this
+   *         module does not support shared snapshots
+   * @throws ModuleException
+   *           if the snapshot could not be created
+   */
+  protected String beginSharedSnapshot() throws ModuleException {
+    return null;
+  }
+
+  /**
+   * Called on each parallel worker (before it reads any data) to make its
+   * connection read the database as it was when the snapshot was created by
+   * the coordinator.
+   *
+   * @param snapshot
+   *          the identifier returned by {@link #beginSharedSnapshot()}
+   * @throws ModuleException
+   *           if the snapshot could not be used
+   */
+  protected void joinSharedSnapshot(String snapshot) throws ModuleException {
+    throw new ModuleException()
+      .withMessage(getClass().getSimpleName() + " does not support shared snapshots (snapshot " + snapshot + ")");
+  }
+
+  /**
+   * Called on the coordinator after all parallel workers joined the snapshot
+   * and before they read any data, e.g. to release locks that were only needed
+   * while the workers were joining.
+   *
+   * @throws ModuleException
+   *           if the workers can not go on reading the snapshot
+   */
+  protected void sharedSnapshotJoined() throws ModuleException {
+    // nothing to do
+  }
+
+  /**
+   * Called on the coordinator after all parallel workers finished, even if the
+   * migration failed, to release the snapshot created by
+   * {@link #beginSharedSnapshot()}.
+   */
+  protected void endSharedSnapshot() {
+    // no snapshot to release
+  }
+
+  /**
+   * Extracts whole tables, or key ranges of the tables split by
+   * {@link #splitTable(TableStructure)}, using the parallel workers.
+   */
+  private class KeyRangeExtractor implements ParallelTableMigration.TableExtractor<JDBCImportModule, KeyRange> {
+    private final Map<String, Map<String, Integer>> splitTablesCardinality = new ConcurrentHashMap<>();
+
+    @Override
+    public List<KeyRange> split(JDBCImportModule worker, TableStructure table) throws ModuleException {
+      List<KeyRange> ranges = worker.splitTable(table);
+      if (!ranges.isEmpty()) {
+        splitTablesCardinality.put(table.getId(), new ConcurrentHashMap<>());
+      }
+      return ranges;
+    }
+
+    @Override
+    public void extract(JDBCImportModule worker, TableStructure table, KeyRange range, RowConsumer lane)
+      throws ModuleException {
+      RowConsumer consumer = row -> lane.accept(worker.detachRow(row));
+      if (range == null) {
+        worker.migrateTableData(table, consumer);
+      } else {
+        // each range numbers its rows from 1, they are renumbered when exported
+        TableStructure part = new TableStructure(table);
+        part.setCurrentRow(1);
+        HashMap<String, Integer> partCardinality = new HashMap<>();
+        worker.extractTableData(part, range, consumer, partCardinality);
+        Map<String, Integer> tableCardinality = splitTablesCardinality.get(table.getId());
+        for (Map.Entry<String, Integer> entry : partCardinality.entrySet()) {
+          tableCardinality.merge(entry.getKey(), entry.getValue(), Math::max);
+        }
+      }
+    }
+
+    @Override
+    public void finishSplitTable(TableStructure table, long rows) throws ModuleException {
+      finishTableData(table, rows, splitTablesCardinality.remove(table.getId()));
+    }
+  }
+
+  /**
+   * Decides if a table should be read in parts by the parallel workers, and
+   * splits it in ranges of equal width of an integer column. The column is the
+   * split column in the module configuration or, for tables with enough rows,
+   * a single column primary key. Whether a table has enough rows is decided by
+   * the key bounds and, when known, the estimated number of rows (see
+   * {@link #estimateRows(String, List)}). There are more ranges than workers,
+   * so that a worker reading a range with fewer rows can move on to the next
+   * one. Called on the parallel worker that takes the table, before it reads
+   * the first range.
+   *
+   * @param table
+   *          the table
+   * @return the key ranges, in order, or an empty list if the table should be
+   *         read as a whole
+   * @throws ModuleException
+   *           if the migration should be aborted
+   */
+  protected List<KeyRange> splitTable(TableStructure table) throws ModuleException {
+    List<KeyRange> ranges = new ArrayList<>();
+    if (table.isFromView() || table.isFromCustomView() || !getModuleConfiguration().isFetchRows()) {
+      return ranges;
+    }
+
+    TableConfiguration tableConfiguration = getModuleConfiguration().getTableConfiguration(table.getSchema(),
+      table.getName());
+    String configuredColumn = tableConfiguration == null ? null : tableConfiguration.getSplitColumn();
+    String columnName = configuredColumn;
+    if (columnName == null && table.getPrimaryKey() != null
+      && table.getPrimaryKey().getColumnNames().size() == 1) {
+      columnName = table.getPrimaryKey().getColumnNames().get(0);
+    }
+    if (columnName == null) {
+      return ranges;
+    }
+
+    ColumnStructure column = table.getColumnByName(columnName);
+    if (column == null || !(column.getType() instanceof SimpleTypeNumericExact)
+      || (((SimpleTypeNumericExact) column.getType()).getScale() != null
+        && ((SimpleTypeNumericExact) column.getType()).getScale() != 0)) {
+      if (configuredColumn != null) {
+        LOGGER.warn("Table {} can not be split by column {}, it is not an integer column", table.getId(),
+          configuredColumn);
+      }
+      return ranges;
+    }
+
+    String orderBy = getModuleConfiguration().getOrderBy(table.getSchema(), table.getName(), true);
+    if (orderBy != null && !StringUtils.equalsAnyIgnoreCase(orderBy.trim(), columnName, columnName + " ASC",
+      sqlHelper.escapeTableName(columnName), sqlHelper.escapeTableName(columnName) + " ASC")) {
+      LOGGER.debug("Table {} is not split, its rows are ordered by {}", table.getId(), orderBy);
+      return ranges;
+    }
+
+    long estimatedRows = table.getEstimatedRows();
+    if (configuredColumn == null && estimatedRows >= 0 && estimatedRows < 2L * SPLIT_MINIMUM_KEYS) {
+      LOGGER.debug("Table {} is not split, it has about {} rows", table.getId(), estimatedRows);
+      return ranges;
+    }
+
+    String escapedColumn = sqlHelper.escapeTableName(columnName);
+    String query = "SELECT MIN(" + escapedColumn + "), MAX(" + escapedColumn + ") FROM "
+      + sqlHelper.escapeTableId(table.getId());
+    String where = getModuleConfiguration().getWhere(table.getSchema(), table.getName(), true);
+    if (where != null) {
+      query = sqlHelper.appendWhereClause(query, where);
+    }
+
+    long min;
+    long max;
+    try (Statement statement = getConnection().createStatement(); ResultSet bounds = statement.executeQuery(query)) {
+      if (!bounds.next() || bounds.getBigDecimal(1) == null || bounds.getBigDecimal(2) == null) {
+        return ranges;
+      }
+      min = bounds.getBigDecimal(1).longValueExact();
+      max = bounds.getBigDecimal(2).longValueExact();
+    } catch (SQLException | ArithmeticException e) {
+      LOGGER.debug("Could not get the bounds of column {} of table {}, it will not be split", columnName,
+        table.getId(), e);
+      return ranges;
+    }
+
+    BigInteger span = BigInteger.valueOf(max).subtract(BigInteger.valueOf(min)).add(BigInteger.ONE);
+    long parts = (long) getParallelWorkerCount() * SPLIT_PARTS_PER_WORKER;
+    if (configuredColumn != null) {
+      if (tableConfiguration.getSplitParts() > 0) {
+        parts = tableConfiguration.getSplitParts();
+      }
+    } else {
+      parts = Math.min(parts, span.divide(BigInteger.valueOf(Math.max(1, SPLIT_MINIMUM_KEYS))).longValue());
+      if (estimatedRows >= 0) {
+        // the keys may be sparse, the parts should also have enough rows
+        parts = Math.min(parts, estimatedRows / Math.max(1, SPLIT_MINIMUM_KEYS));
+      }
+    }
+    return KeyRange.split(columnName, min, max, parts, !Boolean.FALSE.equals(column.isNillable()));
+  }
+
+  /**
+   * Reads all rows of a table (or custom view) and sends them to the consumer.
+   * Also updates the table structure with the number of rows and the
+   * cardinality of array columns.
+   *
+   * @param table
+   *          the table whose rows should be migrated
+   * @param consumer
+   *          the export module, or a lane when migrating tables in parallel
+   * @throws ModuleException
+   *           if the table could not be read at all
+   */
+  protected void migrateTableData(TableStructure table, RowConsumer consumer) throws ModuleException {
+    HashMap<String, Integer> tableColumnsCardinality = new HashMap<>();
+    long nRows = extractTableData(table, null, consumer, tableColumnsCardinality);
+    LOGGER.debug("Total of {} row(s) processed", nRows);
+
+    // if (nRows < tableRows && moduleSettings.shouldFetchRows()) {
+    // LOGGER.warn("The database reported a total of {} rows. Some data may have
+    // been lost.", tableRows);
+    // reporter.customMessage(this.getClass().getName(),
+    // "Only processed " + nRows + " out of " + tableRows + " rows contained in
+    // table '" + table.getName()
+    // + "'. The log file may contain more information to help diagnose this
+    // problem.");
+    // }
+
+    finishTableData(table, nRows, tableColumnsCardinality);
+  }
+
+  /**
+   * Reads the rows of a table (or custom view), or only those in a key range,
+   * and sends them to the consumer.
+   *
+   * @param table
+   *          the table whose rows should be read
+   * @param range
+   *          the key range to read, or null to read all rows
+   * @param consumer
+   *          the export module, or a lane when migrating tables in parallel
+   * @param tableColumnsCardinality
+   *          updated with the maximum cardinality of each array column
+   * @return the number of rows read
+   * @throws ModuleException
+   *           if the table could not be read at all
+   */
+  protected long extractTableData(TableStructure table, KeyRange range, RowConsumer consumer,
+    Map<String, Integer> tableColumnsCardinality) throws ModuleException {
+    long nRows = 0;
+    if (getModuleConfiguration().isFetchRows()) {
+      fetchSizeController = createFetchSizeController(table);
+      LobPrefetcher lobPrefetcher = createLobPrefetcher(table, consumer);
+      boolean reusingRows = reuseRows;
+      try {
+        if (lobPrefetcher == null) {
+          nRows = extractRows(table, range, consumer, tableColumnsCardinality);
+        } else {
+          // rows wait in the prefetcher while the next ones are read
+          reuseRows = false;
+          nRows = extractRows(table, range, lobPrefetcher, tableColumnsCardinality);
+          lobPrefetcher.finish();
+        }
+      } finally {
+        reuseRows = reusingRows;
+        if (lobPrefetcher != null) {
+          lobPrefetcher.close();
+        }
+        reportFetchSizes();
+        fetchSizeController = null;
+      }
+    }
+    return nRows;
+  }
+
+  /**
+   * Reads the rows of a table (or custom view), see
+   * {@link #extractTableData(TableStructure, KeyRange, RowConsumer, Map)}.
+   */
+  private long extractRows(TableStructure table, KeyRange range, RowConsumer consumer,
+    Map<String, Integer> tableColumnsCardinality) throws ModuleException {
+    long nRows = 0;
+    if (table.isFromCustomView()) {
+      CustomViewConfiguration customView = getModuleConfiguration().getCustomViewConfiguration(table.getSchema(),
+        table.getName().replace(CUSTOM_VIEW_NAME_PREFIX, ""));
+      if (customView != null) {
+        try (ResultSet tableRawData = getTableRawData(customView.getQuery(), table.getId())) {
+          while (resultSetNext(tableRawData)) {
+            Row row = convertRawToRow(tableRawData, table);
+            measureRow(tableRawData, row);
+            acceptRow(table, row, consumer, tableColumnsCardinality);
+            nRows++;
+          }
+        } catch (SQLException | ModuleException e) {
+          LOGGER.error("Could not obtain all data from the custom view.", e);
+        }
+      } else {
+        LOGGER.error("Could not obtain data from the custom view.");
+      }
+    } else {
+      nRows = extractTableRows(table, range, consumer, tableColumnsCardinality);
+    }
+    return nRows;
+  }
+
+  /**
+   * Reads the rows of a table, or only those in a key range, and sends them to
+   * the consumer (see {@link #acceptRow(TableStructure, Row, RowConsumer, Map)}).
+   * Modules may override this method to read the rows in a different way.
+   *
+   * @param table
+   *          the table whose rows should be read, not a custom view
+   * @param range
+   *          the key range to read, or null to read all rows
+   * @param consumer
+   *          the export module, or a lane when migrating tables in parallel
+   * @param tableColumnsCardinality
+   *          updated with the maximum cardinality of each array column
+   * @return the number of rows read
+   * @throws ModuleException
+   *           if the table could not be read at all
+   */
+  protected long extractTableRows(TableStructure table, KeyRange range, RowConsumer consumer,
+    Map<String, Integer> tableColumnsCardinality) throws ModuleException {
+    long nRows = 0;
+    try (ResultSet tableRawData = getTableRawData(table, range)) {
+      while (resultSetNext(tableRawData)) {
+        Row row = convertRawToRow(tableRawData, table);
+        measureRow(tableRawData, row);
+        acceptRow(table, row, consumer, tableColumnsCardinality);
+        nRows++;
+      }
+    } catch (SQLException e) {
+      throw new SQLParseException()
+        .withMessage(e.getMessage() + " at schema: " + table.getSchema() + " on table: " + table.getName());
+    } catch (ModuleException e) {
+      if (e instanceof ConnectionException && isInSharedSnapshot()) {
+        // the rest of the table can not be read from the snapshot
+        throw e;
+      }
+      LOGGER.error("Could not obtain all data from the current table.", e);
+    }
+    return nRows;
+  }
+
+  /**
+   * Reads the rows of a table, or only those in a key range, in pages of
+   * consecutive keys of an integer column (keyset pagination), instead of
+   * reading the whole table with a single query. Each page is read by a short
+   * query (see {@link #getPageQuery(TableStructure, KeyRange, int)}) that
+   * starts after the last key of the previous page, until a page has fewer rows
+   * than requested. Rows whose key is null are not read.
+   *
+   * @param table
+   *          the table whose rows should be read, not a custom view
+   * @param range
+   *          the key range to read, of the key column, or null to read all rows
+   * @param keyColumn
+   *          the integer column, whose values fit in a long
+   * @param pageRows
+   *          the maximum number of rows of each page
+   * @param consumer
+   *          the export module, or a lane when migrating tables in parallel
+   * @param tableColumnsCardinality
+   *          updated with the maximum cardinality of each array column
+   * @return the number of rows read
+   * @throws ModuleException
+   *           if the table could not be read at all
+   */
+  protected long extractTablePages(TableStructure table, KeyRange range, ColumnStructure keyColumn, int pageRows,
+    RowConsumer consumer, Map<String, Integer> tableColumnsCardinality) throws ModuleException {
+    int keyIndex = table.getColumns().indexOf(keyColumn) + 1;
+    KeyRange page = KeyRange.between(keyColumn.getName(), range == null ? null : range.getLowerBound(),
+      range == null ? null : range.getUpperBound());
+
+    long nRows = 0;
+    try {
+      while (page != null) {
+        String query = getPageQuery(table, page, pageRows);
+        LOGGER.debug("query: " + query);
+
+        long pageRowCount = 0;
+        long lastKey = 0;
+        try (ResultSet tableRawData = getPageRawData(query)) {
+          while (tableRawData.next()) {
+            lastKey = tableRawData.getLong(keyIndex);
+            Row row = convertRawToRow(tableRawData, table);
+            measureRow(tableRawData, row);
+            acceptRow(table, row, consumer, tableColumnsCardinality);
+            pageRowCount++;
+            nRows++;
+          }
+        }
+        page = pageRowCount < pageRows ? null : page.after(lastKey);
+      }
+    } catch (SQLException e) {
+      throw new SQLParseException()
+        .withMessage(e.getMessage() + " at schema: " + table.getSchema() + " on table: " + table.getName());
+    } catch (ModuleException e) {
+      if (e instanceof ConnectionException && isInSharedSnapshot()) {
+        // the rest of the table can not be read from the snapshot
+        throw e;
+      }
+      LOGGER.error("Could not obtain all data from the current table.", e);
+    }
+    return nRows;
+  }
+
+  /**
+   * @param table
+   *          the table being read
+   * @param page
+   *          the keys of the page, or of the rest of the table
+   * @param pageRows
+   *          the maximum number of rows of the page
+   * @return the query that reads the first rows of the page, ordered by key
+   */
+  protected String getPageQuery(TableStructure table, KeyRange page, int pageRows) throws ModuleException {
+    return appendTableClauses(sqlHelper.selectTableSQL(table), table, page) + " FETCH FIRST " + pageRows
+      + " ROWS ONLY";
+  }
+
+  /**
+   * @param query
+   *          a query returned by
+   *          {@link #getPageQuery(TableStructure, KeyRange, int)}
+   * @return the rows of the page
+   */
+  protected ResultSet getPageRawData(String query) throws SQLException, ModuleException {
+    return getStatement().executeQuery(query);
+  }
+
+  /**
+   * Sends a row that was read to the consumer, keeping track of the cardinality
+   * of array columns.
+   */
+  protected void acceptRow(TableStructure table, Row row, RowConsumer consumer,
+    Map<String, Integer> tableColumnsCardinality) throws ModuleException {
+    consumer.accept(row);
+    updateMaxCardinalities(table, row, tableColumnsCardinality);
+  }
+
+  /**
+   * Creates the controller that adjusts the fetch size while reading a table. A
+   * budget of 0 megabytes (in the dbptk.jdbc.fetch.megabytes property) disables
+   * it, using the fixed fetch sizes instead.
+   *
+   * @param table
+   *          the table about to be read
+   * @return the controller, or null to use the fixed fetch sizes
+   */
+  protected FetchSizeController createFetchSizeController(TableStructure table) {
+    return FetchSizeController.isEnabled() ? new FetchSizeController(table) : null;
+  }
+
+  /**
+   * Creates the prefetcher that copies the LOBs of the rows of a table while
+   * the next rows are read (see {@link LobPrefetcher}), for tables with binary
+   * LOB columns when the module supports it (see
+   * {@link #isLobPrefetchSupported()}). The limits of the prefetcher are those
+   * set for the table in the module configuration, if any.
+   *
+   * @param table
+   *          the table about to be read
+   * @param consumer
+   *          the consumer of the rows of the table
+   * @return the prefetcher, or null to send the rows directly to the consumer
+   */
+  protected LobPrefetcher createLobPrefetcher(TableStructure table, RowConsumer consumer) {
+    if (!isLobPrefetchSupported() || !LobPrefetcher.isEnabled()) {
+      return null;
+    }
+    for (ColumnStructure column : table.getColumns()) {
+      if (column.getType() instanceof SimpleTypeBinary binaryType && !binaryType.isOutsideDatabase()) {
+        TableConfiguration tableConfiguration = getModuleConfiguration().getTableConfiguration(table.getSchema(),
+          table.getName());
+        int threads = tableConfiguration == null ? 0 : tableConfiguration.getLobPrefetchThreads();
+        int budgetMegabytes = tableConfiguration == null ? 0 : tableConfiguration.getLobPrefetchMegabytes();
+        return new LobPrefetcher(consumer, table.getId(), isLobReadSerialized() ? 1 : threads, budgetMegabytes);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return true if the LOBs read by this module remain readable until the
+   *         whole table is read, and can be read by other threads while the
+   *         next rows are read, so they can be prefetched
+   */
+  protected boolean isLobPrefetchSupported() {
+    return false;
+  }
+
+  /**
+   * @return true if the driver serializes the use of the connection, so the
+   *         LOBs of several rows can not be read at the same time and are
+   *         prefetched one at a time, while the previous rows are exported
+   */
+  protected boolean isLobReadSerialized() {
+    return false;
+  }
+
+  private void measureRow(ResultSet tableRawData, Row row) {
+    if (fetchSizeController != null) {
+      fetchSizeController.rowRead(tableRawData, row);
+    }
+  }
+
+  /**
+   * Records that the fetch size was reduced after a failure, so that it is not
+   * increased again.
+   */
+  private void limitFetchSize(int fetchSize) {
+    if (fetchSizeController != null) {
+      fetchSizeController.limitTo(fetchSize);
+    }
+  }
+
+  private void reportFetchSizes() {
+    if (fetchSizeController != null) {
+      if (fetchSizeController.wasAdjusted()) {
+        LOGGER.info(fetchSizeController.describe());
+        reporter.customMessage(getClass().getName(), fetchSizeController.describe());
+      } else {
+        LOGGER.debug(fetchSizeController.describe());
+      }
+    }
+  }
+
+  /**
+   * Updates the table structure with the number of rows and the cardinality of
+   * array columns, after all its rows were read.
+   */
+  protected void finishTableData(TableStructure table, long nRows, Map<String, Integer> tableColumnsCardinality)
+    throws ModuleException {
+    for (Map.Entry<String, Integer> arrayCellCardinalityPair : tableColumnsCardinality.entrySet()) {
+      ColumnStructure column = table.getColumnByName(arrayCellCardinalityPair.getKey());
+      if (column != null && column.getType() instanceof ComposedTypeArray) {
+        column.setCardinality(BigInteger.valueOf(arrayCellCardinalityPair.getValue()));
+      }
+    }
+    getDatabaseStructure().getTableById(table.getId()).setRows(nRows);
+  }
+
+  /**
+   * Makes sure the cells of a row can still be read after the result set moved
+   * on to the next rows, and from another thread, by copying the LOBs that would
+   * otherwise be read lazily from the source database to temporary files.
+   *
+   * @param row
+   *          the row, which is changed in place
+   * @return the same row
+   * @throws ModuleException
+   *           if a LOB could not be read
+   */
+  protected Row detachRow(Row row) throws ModuleException {
+    return RowUtils.detach(row);
+  }
+
   /**
    * Provide a reporter through which potential conversion problems should be
    * reported. This reporter should be provided only once for the export module
@@ -0,0 +1,136 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.modules.jdbc.in;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A range of values of an integer column, used to read part of a table. Modules
+ * may extend it to read parts of a table in other ways (e.g. ranges of row
+ * addresses), together with the conditions that select them (see
+ * JDBCImportModule#getKeyRangeCondition).
+ */
+public class KeyRange {
+  private final String column;
+  private final Long lowerBound;
+  private final Long upperBound;
+  private final boolean nullKeys;
+
+  protected KeyRange(String column, Long lowerBound, Long upperBound, boolean nullKeys) {
+    this.column = column;
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+    this.nullKeys = nullKeys;
+  }
+
+  /**
+   * @param column
+   *          the column name
+   * @param lowerBound
+   *          the lowest value in the range, or null if there is no lower bound
+   * @param upperBound
+   *          the value after the highest value in the range, or null if there is
+   *          no upper bound
+   * @return the range of rows whose column value is in [lowerBound,upperBound)
+   */
+  public static KeyRange between(String column, Long lowerBound, Long upperBound) {
+    return new KeyRange(column, lowerBound, upperBound, false);
+  }
+
+  /**
+   * @param column
+   *          the column name
+   * @return the range of rows whose column value is null
+   */
+  public static KeyRange nullKeys(String column) {
+    return new KeyRange(column, null, null, true);
+  }
+
+  /**
+   * Splits the keys between two bounds in ranges of about the same width. The
+   * first and last ranges are open, so keys outside the bounds (e.g. added
+   * after the bounds were read) are still in a range.
+   *
+   * @param column
+   *          the name of the integer column
+   * @param min
+   *          the lowest key
+   * @param max
+   *          the highest key
+   * @param parts
+   *          the number of ranges, at most one per key
+   * @param nullKeys
+   *          true to add a last range with the null keys
+   * @return the ranges, in key order, or an empty list if there would be a
+   *         single range
+   */
+  public static List<KeyRange> split(String column, long min, long max, long parts, boolean nullKeys) {
+    List<KeyRange> ranges = new ArrayList<>();
+    BigInteger span = BigInteger.valueOf(max).subtract(BigInteger.valueOf(min)).add(BigInteger.ONE);
+    if (span.signum() <= 0) {
+      return ranges;
+    }
+    parts = span.min(BigInteger.valueOf(parts)).longValue();
+    if (parts < 2) {
+      return ranges;
+    }
+
+    BigInteger width = span.divide(BigInteger.valueOf(parts));
+    Long lowerBound = null;
+    for (long part = 1; part < parts; part++) {
+      long upperBound = BigInteger.valueOf(min).add(width.multiply(BigInteger.valueOf(part))).longValue();
+      ranges.add(between(column, lowerBound, upperBound));
+      lowerBound = upperBound;
+    }
+    ranges.add(between(column, lowerBound, null));
+    if (nullKeys) {
+      ranges.add(nullKeys(column));
+    }
+    return ranges;
+  }
+
+  /**
+   * @param key
+   *          a key in this range, e.g. the last one read
+   * @return the part of this range after the key, or null if there are no keys
+   *         after it in the range
+   */
+  public KeyRange after(long key) {
+    if (key == Long.MAX_VALUE || (upperBound != null && key + 1 >= upperBound)) {
+      return null;
+    }
+    return new KeyRange(column, key + 1, upperBound, false);
+  }
+
+  public String getColumn() {
+    return column;
+  }
+
+  public Long getLowerBound() {
+    return lowerBound;
+  }
+
+  public Long getUpperBound() {
+    return upperBound;
+  }
+
+  public boolean isNullKeys() {
+    return nullKeys;
+  }
+
+  @Override
+  public String toString() {
+    if (nullKeys) {
+      return column + " IS NULL";
+    }
+    return column + " in [" + (lowerBound == null ? "-inf" : lowerBound) + ", "
+      + (upperBound == null ? "+inf" : upperBound) + ")";
+  }
+}
@@ -0,0 +1,222 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.modules.jdbc.in;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.ForeignKey;
+import com.databasepreservation.model.structure.PrimaryKey;
+
+/**
+ * The catalog information of all tables of a schema, read in a few queries
+ * instead of a few queries per table, and grouped by table name.
+ *
+ * Each part of the catalog (see {@link Part}) is only used after being marked
+ * as harvested, so parts that could not be read (e.g. because the driver does
+ * not support it) are still read table by table. Columns and foreign keys are
+ * taken, not copied, as each table is only read once. The catalog may be used
+ * by several threads, e.g. parallel workers reading the table structures.
+ */
+public class SchemaCatalog {
+  /**
+   * The parts of the catalog that can be harvested
+   */
+  public enum Part {
+    COLUMNS, PRIMARY_KEYS, FOREIGN_KEYS, TABLE_DESCRIPTIONS, COLUMN_DESCRIPTIONS
+  }
+
+  private final String schemaName;
+  private final Set<Part> harvested = EnumSet.noneOf(Part.class);
+
+  private final Map<String, List<ColumnStructure>> columns = new HashMap<>();
+  private final Map<String, PrimaryKey> primaryKeys = new HashMap<>();
+  private final Map<String, List<ForeignKey>> foreignKeys = new HashMap<>();
+  private final Map<String, String> tableDescriptions = new HashMap<>();
+  private final Map<String, Map<String, String>> columnDescriptions = new HashMap<>();
+
+  /**
+   * @param schemaName
+   *          the name of the schema
+   */
+  public SchemaCatalog(String schemaName) {
+    this.schemaName = schemaName;
+  }
+
+  public String getSchemaName() {
+    return schemaName;
+  }
+
+  /**
+   * @param schemaName
+   *          a schema name
+   * @return true if this is the catalog of the schema
+   */
+  public boolean isFor(String schemaName) {
+    return this.schemaName.equals(schemaName);
+  }
+
+  /**
+   * Marks a part of the catalog as completely read, so it can be used.
+   *
+   * @param part
+   *          the part of the catalog
+   */
+  public synchronized void setHarvested(Part part) {
+    harvested.add(part);
+  }
+
+  /**
+   * @param part
+   *          the part of the catalog
+   * @return true if the part of the catalog was completely read
+   */
+  public synchronized boolean isHarvested(Part part) {
+    return harvested.contains(part);
+  }
+
+  /**
+   * Forgets what was read of a part of the catalog (e.g. after an error), so it
+   * is read table by table instead.
+   *
+   * @param part
+   *          the part of the catalog
+   */
+  public synchronized void discard(Part part) {
+    harvested.remove(part);
+    switch (part) {
+      case COLUMNS:
+        columns.clear();
+        break;
+      case PRIMARY_KEYS:
+        primaryKeys.clear();
+        break;
+      case FOREIGN_KEYS:
+        foreignKeys.clear();
+        break;
+      case TABLE_DESCRIPTIONS:
+        tableDescriptions.clear();
+        break;
+      case COLUMN_DESCRIPTIONS:
+      default:
+        columnDescriptions.clear();
+        break;
+    }
+  }
+
+  /**
+   * @return the number of tables (and views) with columns
+   */
+  public synchronized int getTableCount() {
+    return columns.size();
+  }
+
+  public synchronized void addColumn(String tableName, ColumnStructure column) {
+    columns.computeIfAbsent(tableName, k -> new ArrayList<>()).add(column);
+  }
+
+  /**
+   * @param tableName
+   *          the table name
+   * @return the columns of the table, in the order they were added, or null if
+   *         the columns were not harvested or the table has none, so they
+   *         should be read table by table
+   */
+  public synchronized List<ColumnStructure> takeColumns(String tableName) {
+    return isHarvested(Part.COLUMNS) ? columns.remove(tableName) : null;
+  }
+
+  /**
+   * Adds a column to the primary key of a table. The columns must be added in
+   * the order of the key.
+   *
+   * @param tableName
+   *          the table name
+   * @param keyName
+   *          the primary key name, or null if it has none
+   * @param columnName
+   *          the column name
+   */
+  public synchronized void addPrimaryKeyColumn(String tableName, String keyName, String columnName) {
+    PrimaryKey primaryKey = primaryKeys.computeIfAbsent(tableName, k -> new PrimaryKey());
+    if (keyName != null) {
+      primaryKey.setName(keyName);
+    }
+    primaryKey.getColumnNames().add(columnName);
+  }
+
+  /**
+   * @param tableName
+   *          the table name
+   * @return the primary key of the table, named after the table if its name is
+   *         unknown, or null if the table has no primary key
+   */
+  public synchronized PrimaryKey getPrimaryKey(String tableName) {
+    PrimaryKey primaryKey = primaryKeys.get(tableName);
+    if (primaryKey != null && primaryKey.getName() == null) {
+      primaryKey.setName(tableName + "_pkey");
+    }
+    return primaryKey;
+  }
+
+  /**
+   * @param tableName
+   *          the table name
+   * @return the modifiable list of foreign keys of the table
+   */
+  public synchronized List<ForeignKey> getForeignKeysOf(String tableName) {
+    return foreignKeys.computeIfAbsent(tableName, k -> new ArrayList<>());
+  }
+
+  /**
+   * @param tableName
+   *          the table name
+   * @return the foreign keys of the table, which may be an empty list
+   */
+  public synchronized List<ForeignKey> takeForeignKeys(String tableName) {
+    List<ForeignKey> keys = foreignKeys.remove(tableName);
+    return keys == null ? new ArrayList<>() : keys;
+  }
+
+  public synchronized void addTableDescription(String tableName, String description) {
+    tableDescriptions.put(tableName, description);
+  }
+
+  /**
+   * @param tableName
+   *          the table name
+   * @return true if a description (even if null) was added for the table
+   */
+  public synchronized boolean hasTableDescription(String tableName) {
+    return tableDescriptions.containsKey(tableName);
+  }
+
+  public synchronized String getTableDescription(String tableName) {
+    return tableDescriptions.get(tableName);
+  }
+
+  public synchronized void addColumnDescription(String tableName, String columnName, String description) {
+    columnDescriptions.computeIfAbsent(tableName, k -> new HashMap<>()).put(columnName, description);
+  }
+
+  /**
+   * @param tableName
+   *          the table name
+   * @return the descriptions added for the columns of the table, by column name
+   */
+  public synchronized Map<String, String> getColumnDescriptions(String tableName) {
+    Map<String, String> descriptions = columnDescriptions.get(tableName);
+    return descriptions == null ? Collections.emptyMap() : descriptions;
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.modules.jdbc.in;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import com.databasepreservation.model.data.CellIdPrefix;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.ComposedTypeStructure;
+
+/**
+ * How the rows of a table are read: a column reader and a cell id prefix for
+ * each column, built once per table instead of once per cell. Also remembers
+ * whether the columns of the result set being read match the table, as that
+ * does not change from row to row.
+ */
+public class TableReaderPlan {
+  private final TableStructure table;
+  private final ColumnStructure[] columns;
+  private final ColumnReader[] readers;
+  private final CellIdPrefix[] cellIdPrefixes;
+  private final boolean composed;
+
+  private ResultSet checkedResultSet = null;
+  private boolean valid = false;
+
+  /**
+   * @param table
+   *          the table
+   * @param readers
+   *          a reader for each column of the table, in column order
+   */
+  public TableReaderPlan(TableStructure table, ColumnReader[] readers) {
+    this.table = table;
+    List<ColumnStructure> tableColumns = table.getColumns();
+    this.columns = tableColumns.toArray(new ColumnStructure[0]);
+    this.readers = readers;
+    this.cellIdPrefixes = new CellIdPrefix[columns.length];
+    boolean hasComposedColumns = false;
+    for (int i = 0; i < columns.length; i++) {
+      cellIdPrefixes[i] = new CellIdPrefix(table.getName() + "." + columns[i].getName());
+      hasComposedColumns |= columns[i].getType() instanceof ComposedTypeStructure;
+    }
+    this.composed = hasComposedColumns;
+  }
+
+  public TableStructure getTable() {
+    return table;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  public ColumnStructure getColumn(int columnIndex) {
+    return columns[columnIndex];
+  }
+
+  public ColumnReader getReader(int columnIndex) {
+    return readers[columnIndex];
+  }
+
+  /**
+   * @return the first part of the ids of the cells of a column
+   */
+  public CellIdPrefix getCellIdPrefix(int columnIndex) {
+    return cellIdPrefixes[columnIndex];
+  }
+
+  /**
+   * @return true if some column has a composed (user defined) type
+   */
+  public boolean hasComposedColumns() {
+    return composed;
+  }
+
+  /**
+   * @return true if the validity of the result set was already checked
+   */
+  public boolean isCheckedFor(ResultSet resultSet) {
+    return checkedResultSet == resultSet;
+  }
+
+  /**
+   * @param resultSet
+   *          the result set that was checked
+   * @param valid
+   *          true if the columns of the result set match the table
+   */
+  public void setValidity(ResultSet resultSet, boolean valid) {
+    this.checkedResultSet = resultSet;
+    this.valid = valid;
+  }
+
+  /**
+   * @return true if the columns of the last checked result set match the table
+   */
+  public boolean isValid() {
+    return valid;
+  }
+}
@@ -12,6 +12,7 @@ package com.databasepreservation.modules.jdbc.out;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
@@ -40,11 +41,19 @@ import org.slf4j.LoggerFactory;
 
 import com.databasepreservation.model.data.ArrayCell;
 import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.BooleanCell;
 import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.ClobCell;
 import com.databasepreservation.model.data.ComposedCell;
+import com.databasepreservation.model.data.DateCell;
+import com.databasepreservation.model.data.DecimalCell;
+import com.databasepreservation.model.data.LongCell;
 import com.databasepreservation.model.data.NullCell;
+import com.databasepreservation.model.data.PrimitiveCell;
 import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.data.TimestampCell;
 import com.databasepreservation.model.exception.InvalidDataException;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.modules.filters.DatabaseFilterModule;
@@ -78,6 +87,8 @@ public class JDBCExportModule implements DatabaseFilterModule {
   private static final String EXECUTION_OF_QUERY = "Execution of query ``";
   private static final String OF_THE_FOLLOWING_ERROR = "of the following error: ";
   private static final String ERROR_EXECUTING_QUERY = "Error executing query: {}";
+  private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter
+    .ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS").withZone(ZoneOffset.UTC);
 
   protected DatabaseFilterModule exportModule;
   protected final String driverClassName;
@@ -539,6 +550,29 @@ public class JDBCExportModule implements DatabaseFilterModule {
 
   @Override
   public void handleDataRow(Row row) throws ModuleException {
+    insertRow(row);
+    this.exportModule.handleDataRow(row);
+  }
+
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    for (Row row : rows) {
+      insertRow(row);
+    }
+    this.exportModule.handleDataRows(rows);
+  }
+
+  @Override
+  public boolean retainsRows() {
+    // each row is handled before returning
+    return this.exportModule.retainsRows();
+  }
+
+  /**
+   * Adds the row to the insert statement batch, executing the batch every
+   * BATCH_SIZE rows
+   */
+  protected void insertRow(Row row) throws ModuleException {
     if (!currentIsIgnoredSchema) {
       if (currentTableStructure != null && currentRowBatchInsertStatement != null) {
         Iterator<ColumnStructure> columnIterator = currentTableStructure.getColumns().iterator();
@@ -582,8 +616,6 @@ public class JDBCExportModule implements DatabaseFilterModule {
           .withMessage("Cannot build data row before a table is open and insert statement created");
       }
     }
-
-    this.exportModule.handleDataRow(row);
   }
 
   private void cleanAndClearResources(List<CleanResourcesInterface> resourcesList) {
@@ -607,9 +639,17 @@ public class JDBCExportModule implements DatabaseFilterModule {
         cell = new SimpleCell(cell.getId(), null);
       }
 
-      if (cell instanceof SimpleCell) {
+      if (cell instanceof PrimitiveCell && handlePrimitiveDataCell((PrimitiveCell) cell, ps, index, column)) {
+        // the value was set without converting it to a string
+      } else if (cell instanceof ClobCell clob && type instanceof SimpleTypeString) {
+        final Reader reader = handleClobDataCell(clob, ps, index, column);
+        ret = () -> {
+          IOUtils.closeQuietly(reader);
+          clob.cleanResources();
+        };
+      } else if (cell instanceof SimpleCell) {
         SimpleCell simple = (SimpleCell) cell;
-        String data = simple.getSimpleData();
+        String data = simple instanceof ClobCell clob ? clob.getContent() : simple.getSimpleData();
         if (type instanceof SimpleTypeString) {
           handleSimpleTypeStringDataCell(data, ps, index, cell, column);
         } else if (type instanceof SimpleTypeNumericExact) {
@@ -668,6 +708,41 @@ public class JDBCExportModule implements DatabaseFilterModule {
     return ret;
   }
 
+  /**
+   * Sets the value of a cell that was read in its original type (a number, a
+   * date) without converting it to a string and back.
+   *
+   * @return true if the value was set, false if the cell should be handled as
+   *         any other simple cell
+   */
+  protected boolean handlePrimitiveDataCell(PrimitiveCell cell, PreparedStatement ps, int index,
+    ColumnStructure column) throws SQLException {
+    Type type = column.getType();
+    if (type instanceof SimpleTypeNumericExact) {
+      if (cell instanceof LongCell longCell) {
+        ps.setLong(index, longCell.getLong());
+        return true;
+      } else if (cell instanceof DecimalCell decimalCell) {
+        ps.setBigDecimal(index, decimalCell.getDecimal());
+        return true;
+      }
+    } else if (type instanceof SimpleTypeBoolean && cell instanceof BooleanCell booleanCell) {
+      ps.setBoolean(index, booleanCell.getBoolean());
+      return true;
+    } else if (type instanceof SimpleTypeDateTime dateTimeType) {
+      if (!dateTimeType.getTimeDefined() && cell instanceof DateCell dateCell) {
+        ps.setDate(index, java.sql.Date.valueOf(dateCell.getDate()));
+        return true;
+      } else if (cell instanceof TimestampCell timestampCell
+        && ("TIMESTAMP".equalsIgnoreCase(type.getSql99TypeName())
+          || "TIMESTAMP WITH TIME ZONE".equalsIgnoreCase(type.getSql99TypeName()))) {
+        ps.setString(index, TIMESTAMP_FORMATTER.format(timestampCell.getInstant()));
+        return true;
+      }
+    }
+    return false;
+  }
+
   protected void handleComposedTypeArrayDataCell(ArrayCell arrayCell, PreparedStatement ps, int index,
     ColumnStructure column) throws SQLException, ModuleException {
     throw new ModuleException().withMessage("Arrays are not supported for this DBMS");
@@ -708,10 +783,8 @@ public class JDBCExportModule implements DatabaseFilterModule {
       if ("TIMESTAMP".equalsIgnoreCase(type.getSql99TypeName())
         || "TIMESTAMP WITH TIME ZONE".equalsIgnoreCase(type.getSql99TypeName())) {
         if (data != null) {
-          DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS")
-            .withZone(ZoneOffset.UTC);
           Instant instant = Instant.parse(data);
-          ps.setString(index, formatter.format(instant));
+          ps.setString(index, TIMESTAMP_FORMATTER.format(instant));
         } else {
           ps.setNull(index, Types.TIMESTAMP);
         }
@@ -742,6 +815,18 @@ public class JDBCExportModule implements DatabaseFilterModule {
     }
   }
 
+  /**
+   * Sets the value of a large text as a stream, without reading it into memory.
+   *
+   * @return the created Reader, so it can be closed.
+   */
+  protected Reader handleClobDataCell(ClobCell clob, PreparedStatement ps, int index, ColumnStructure column)
+    throws SQLException, ModuleException {
+    Reader reader = clob.createReader();
+    ps.setCharacterStream(index, reader);
+    return reader;
+  }
+
   /**
    * @return the created InputStream, so it can be closed.
    */
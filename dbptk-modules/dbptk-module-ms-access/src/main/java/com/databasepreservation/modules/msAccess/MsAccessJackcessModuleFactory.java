@@ -0,0 +1,92 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.modules.msAccess;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.exception.UnsupportedModuleException;
+import com.databasepreservation.model.modules.DatabaseImportModule;
+import com.databasepreservation.model.modules.DatabaseModuleFactory;
+import com.databasepreservation.model.modules.filters.DatabaseFilterModule;
+import com.databasepreservation.model.parameters.Parameter;
+import com.databasepreservation.model.parameters.Parameter.INPUT_TYPE;
+import com.databasepreservation.model.parameters.Parameters;
+import com.databasepreservation.model.reporters.Reporter;
+import com.databasepreservation.modules.msAccess.in.MsAccessJackcessImportModule;
+
+/**
+ * Imports Microsoft Access files reading their tables directly with Jackcess,
+ * instead of loading the whole file into UCanAccess (see
+ * {@link MsAccessUCanAccessModuleFactory}) before the first row is read.
+ */
+public class MsAccessJackcessModuleFactory implements DatabaseModuleFactory {
+  public static final String PARAMETER_FILE = "file";
+
+  private static final Parameter accessFilePath = new Parameter().shortName("f").longName(PARAMETER_FILE)
+    .description("path to the Microsoft Access file").hasArgument(true).setOptionalArgument(false).required(true);
+
+  @Override
+  public boolean producesImportModules() {
+    return true;
+  }
+
+  @Override
+  public boolean producesExportModules() {
+    return false;
+  }
+
+  @Override
+  public String getModuleName() {
+    return "microsoft-access-jackcess";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public Map<String, Parameter> getAllParameters() {
+    HashMap<String, Parameter> parameterHashMap = new HashMap<>();
+    parameterHashMap.put(accessFilePath.longName(), accessFilePath);
+    return parameterHashMap;
+  }
+
+  @Override
+  public Parameters getConnectionParameters() {
+    return new Parameters(Collections.singletonList(accessFilePath.inputType(INPUT_TYPE.FILE_OPEN)), null);
+  }
+
+  @Override
+  public Parameters getImportModuleParameters() throws UnsupportedModuleException {
+    return new Parameters(Collections.singletonList(accessFilePath), null);
+  }
+
+  @Override
+  public Parameters getExportModuleParameters() throws UnsupportedModuleException {
+    throw DatabaseModuleFactory.ExceptionBuilder.UnsupportedModuleExceptionForExportModule();
+  }
+
+  @Override
+  public DatabaseImportModule buildImportModule(Map<Parameter, String> parameters, Reporter reporter)
+    throws ModuleException {
+    String pAccessFilePath = parameters.get(accessFilePath);
+
+    reporter.importModuleParameters(getModuleName(), PARAMETER_FILE, pAccessFilePath);
+    return new MsAccessJackcessImportModule(getModuleName(), pAccessFilePath);
+  }
+
+  @Override
+  public DatabaseFilterModule buildExportModule(Map<Parameter, String> parameters, Reporter reporter)
+    throws UnsupportedModuleException {
+    throw DatabaseModuleFactory.ExceptionBuilder.UnsupportedModuleExceptionForExportModule();
+  }
+}
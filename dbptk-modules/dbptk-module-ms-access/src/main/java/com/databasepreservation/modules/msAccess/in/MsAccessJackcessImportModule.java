@@ -0,0 +1,749 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.modules.msAccess.in;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.databasepreservation.common.io.providers.InMemoryInputStreamProvider;
+import com.databasepreservation.common.io.providers.InputStreamProvider;
+import com.databasepreservation.common.parallel.RowBatcher;
+import com.databasepreservation.common.parallel.RowConsumer;
+import com.databasepreservation.managers.ModuleConfigurationManager;
+import com.databasepreservation.model.data.ArrayCell;
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.BooleanCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.CellIdPrefix;
+import com.databasepreservation.model.data.DecimalCell;
+import com.databasepreservation.model.data.LongCell;
+import com.databasepreservation.model.data.NullCell;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.data.TimestampCell;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.DatabaseImportModule;
+import com.databasepreservation.model.modules.configuration.ModuleConfiguration;
+import com.databasepreservation.model.modules.filters.DatabaseFilterModule;
+import com.databasepreservation.model.reporters.Reporter;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.DatabaseStructure;
+import com.databasepreservation.model.structure.ForeignKey;
+import com.databasepreservation.model.structure.PrimaryKey;
+import com.databasepreservation.model.structure.Reference;
+import com.databasepreservation.model.structure.SchemaStructure;
+import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.UserStructure;
+import com.databasepreservation.model.structure.type.ComposedTypeArray;
+import com.databasepreservation.model.structure.type.SimpleTypeBinary;
+import com.databasepreservation.model.structure.type.SimpleTypeBoolean;
+import com.databasepreservation.model.structure.type.SimpleTypeDateTime;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericApproximate;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
+import com.databasepreservation.model.structure.type.Type;
+import com.databasepreservation.modules.DefaultExceptionNormalizer;
+import com.databasepreservation.modules.msAccess.MsAccessJackcessModuleFactory;
+import com.databasepreservation.utils.MapUtils;
+import com.databasepreservation.utils.MiscUtils;
+
+import io.github.spannm.jackcess.Column;
+import io.github.spannm.jackcess.Cursor;
+import io.github.spannm.jackcess.CursorBuilder;
+import io.github.spannm.jackcess.DataType;
+import io.github.spannm.jackcess.Database;
+import io.github.spannm.jackcess.DatabaseBuilder;
+import io.github.spannm.jackcess.DateTimeType;
+import io.github.spannm.jackcess.Index;
+import io.github.spannm.jackcess.PropertyMap;
+import io.github.spannm.jackcess.Relationship;
+import io.github.spannm.jackcess.Row;
+import io.github.spannm.jackcess.RowId;
+import io.github.spannm.jackcess.Table;
+import io.github.spannm.jackcess.complex.Attachment;
+import io.github.spannm.jackcess.complex.ComplexDataType;
+import io.github.spannm.jackcess.complex.ComplexValueForeignKey;
+import io.github.spannm.jackcess.complex.SingleValue;
+import io.github.spannm.jackcess.impl.ColumnImpl;
+import io.github.spannm.jackcess.impl.CursorImpl;
+import io.github.spannm.jackcess.impl.RowIdImpl;
+import io.github.spannm.jackcess.impl.TableImpl;
+
+/**
+ * Imports a Microsoft Access file by reading its tables with Jackcess cursors,
+ * without the in-memory copy of the whole file that UCanAccess creates (see
+ * {@link MsAccessUCanAccessImportModule}) before the first row can be read.
+ *
+ * Rows are streamed to the export module as they are read. OLE objects and
+ * attachments are not read with the row, but when the export module reads
+ * their cells, using another cursor positioned on the same row, and copied to
+ * memory or to the {@link com.databasepreservation.common.io.providers.SpillArena}
+ * so that they are only read once. All uses of the Jackcess database, which is
+ * not thread-safe, are synchronized on it.
+ *
+ * Checking OLE values for null without reading them relies on Jackcess
+ * implementation classes (TableImpl, CursorImpl), so the Jackcess version is
+ * pinned in the pom and this must be checked when upgrading it.
+ */
+public class MsAccessJackcessImportModule implements DatabaseImportModule {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MsAccessJackcessImportModule.class);
+
+  private static final String SCHEMA_NAME = "PUBLIC";
+  private static final String PRODUCT_NAME = "Microsoft Access";
+  private static final String DEFAULT_DATA_TIMESPAN = "(...)";
+  private static final int GUID_LENGTH = 38;
+
+  private final String moduleName;
+  private final File msAccessFile;
+
+  private Database database;
+  private DatabaseStructure dbStructure;
+  private Reporter reporter;
+
+  public MsAccessJackcessImportModule(String moduleName, String accessFilePath) {
+    this.moduleName = moduleName;
+    this.msAccessFile = new File(accessFilePath);
+  }
+
+  @Override
+  public DatabaseFilterModule migrateDatabaseTo(DatabaseFilterModule exportModule) throws ModuleException {
+    try {
+      exportModule.initDatabase();
+
+      exportModule.setIgnoredSchemas(new HashSet<>());
+
+      exportModule.handleStructure(getDatabaseStructure());
+
+      for (SchemaStructure schema : getDatabaseStructure().getSchemas()) {
+        exportModule.handleDataOpenSchema(schema.getName());
+
+        for (TableStructure table : schema.getTables()) {
+          exportModule.handleDataOpenTable(table.getId());
+          RowBatcher batcher = new RowBatcher(exportModule);
+          long nRows = 0;
+          if (getModuleConfiguration().isFetchRows()) {
+            nRows = migrateTableData(table, batcher);
+          }
+          batcher.flush();
+          LOGGER.debug("Total of {} row(s) processed", nRows);
+          table.setRows(nRows);
+          exportModule.handleDataCloseTable(table.getId());
+        }
+        exportModule.handleDataCloseSchema(schema.getName());
+      }
+
+      exportModule.updateModuleConfiguration(moduleName,
+        MapUtils.buildMapFromObjects(MsAccessJackcessModuleFactory.PARAMETER_FILE, msAccessFile.getPath()), null);
+
+      LOGGER.debug("Freeing resources");
+      exportModule.finishDatabase();
+    } finally {
+      closeDatabase();
+    }
+    return null;
+  }
+
+  @Override
+  public void setOnceReporter(Reporter reporter) {
+    this.reporter = reporter;
+  }
+
+  @Override
+  public ModuleException normalizeException(Exception exception, String contextMessage) {
+    return DefaultExceptionNormalizer.getInstance().normalizeException(exception, contextMessage);
+  }
+
+  private ModuleConfiguration getModuleConfiguration() {
+    return ModuleConfigurationManager.getInstance().getModuleConfiguration();
+  }
+
+  private Database getDatabase() throws ModuleException {
+    if (database == null) {
+      try {
+        database = new DatabaseBuilder().withFile(msAccessFile).withReadOnly(true).open();
+        database.setDateTimeType(DateTimeType.LOCAL_DATE_TIME);
+      } catch (IOException e) {
+        throw new ModuleException().withMessage("Could not open the Microsoft Access file " + msAccessFile.getPath())
+          .withCause(e);
+      }
+    }
+    return database;
+  }
+
+  private void closeDatabase() {
+    if (database != null) {
+      LOGGER.debug("Closing the Microsoft Access file");
+      try {
+        synchronized (database) {
+          database.close();
+        }
+      } catch (IOException e) {
+        LOGGER.debug("Could not close the Microsoft Access file", e);
+      }
+      database = null;
+    }
+  }
+
+  /**
+   * @return the database structure
+   * @throws ModuleException
+   *           if the structure could not be read
+   */
+  private DatabaseStructure getDatabaseStructure() throws ModuleException {
+    if (dbStructure == null) {
+      Database db = getDatabase();
+      dbStructure = new DatabaseStructure();
+      try {
+        dbStructure.setName(msAccessFile.getName());
+        dbStructure.setProductName(PRODUCT_NAME);
+        dbStructure.setProductVersion(db.getFileFormat().toString());
+        dbStructure.setDataOwner(System.getProperty("user.name"));
+        dbStructure.setDataOriginTimespan(DEFAULT_DATA_TIMESPAN);
+        dbStructure.setProducerApplication(MiscUtils.APP_NAME_AND_VERSION);
+        String clientMachine = "";
+        try {
+          clientMachine = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+          LOGGER.debug("UnknownHostException", e);
+        }
+        dbStructure.setClientMachine(clientMachine);
+
+        SchemaStructure schema = new SchemaStructure();
+        schema.setName(SCHEMA_NAME);
+        schema.setIndex(1);
+        schema.setTables(getTables(db));
+        List<SchemaStructure> schemas = new ArrayList<>();
+        schemas.add(schema);
+        dbStructure.setSchemas(schemas);
+
+        List<UserStructure> users = new ArrayList<>();
+        if (!getModuleConfiguration().ignoreUsers()) {
+          users.add(new UserStructure("UNDEFINED_USER", "DESCRIPTION"));
+          reporter.notYetSupported("Importing of users", "this import module");
+        }
+        dbStructure.setUsers(users);
+
+        LOGGER.debug("Database structure obtained");
+      } catch (IOException e) {
+        throw new ModuleException().withMessage("Could not read the structure of " + msAccessFile.getPath())
+          .withCause(e);
+      }
+    }
+    return dbStructure;
+  }
+
+  private List<TableStructure> getTables(Database db) throws IOException, ModuleException {
+    List<TableStructure> tables = new ArrayList<>();
+    int tableIndex = 1;
+    for (String tableName : db.getTableNames()) {
+      if (!getModuleConfiguration().isSelectedTable(SCHEMA_NAME, tableName)) {
+        LOGGER.info("Ignoring table {}.{}", SCHEMA_NAME, tableName);
+        continue;
+      }
+
+      Table table;
+      try {
+        table = db.getTable(tableName);
+      } catch (IOException e) {
+        // e.g. a linked table whose file is not available
+        LOGGER.debug("Could not open table {}", tableName, e);
+        reporter.ignored("table " + tableName + " in schema " + SCHEMA_NAME,
+          "it could not be opened: " + e.getMessage());
+        continue;
+      }
+
+      LOGGER.info("Obtaining table structure for {}.{}", SCHEMA_NAME, tableName);
+      tables.add(getTableStructure(db, table, tableIndex));
+      tableIndex++;
+    }
+    return tables;
+  }
+
+  private TableStructure getTableStructure(Database db, Table table, int tableIndex) throws IOException {
+    TableStructure tableStructure = new TableStructure();
+    tableStructure.setId(SCHEMA_NAME + "." + table.getName());
+    tableStructure.setName(table.getName());
+    tableStructure.setSchema(SCHEMA_NAME);
+    tableStructure.setIndex(tableIndex);
+
+    List<ColumnStructure> columns = new ArrayList<>();
+    for (Column column : table.getColumns()) {
+      if (!getModuleConfiguration().isSelectedColumnFromTable(SCHEMA_NAME, table.getName(), column.getName())) {
+        continue;
+      }
+      Type type = getType(column);
+      if (type == null) {
+        reporter.ignored("column " + column.getName() + " of table " + table.getName(),
+          "its data type (" + getOriginalTypeName(column) + ") is not supported");
+        continue;
+      }
+      boolean required = Boolean.TRUE.equals(column.getProperties().getValue(PropertyMap.REQUIRED_PROP));
+      columns.add(new ColumnStructure(table.getName() + "." + column.getName(), column.getName(), type, !required,
+        null, null, column.isAutoNumber()));
+    }
+    tableStructure.setColumns(columns);
+
+    if (!getModuleConfiguration().ignorePrimaryKey()) {
+      tableStructure.setPrimaryKey(getPrimaryKey(table));
+    }
+    if (!getModuleConfiguration().ignoreForeignKey()) {
+      tableStructure.setForeignKeys(getForeignKeys(db, table));
+    }
+    return tableStructure;
+  }
+
+  private PrimaryKey getPrimaryKey(Table table) {
+    Index index;
+    try {
+      index = table.getPrimaryKeyIndex();
+    } catch (IllegalArgumentException e) {
+      // the table has no primary key
+      return null;
+    }
+    List<String> columnNames = new ArrayList<>();
+    for (Index.Column column : index.getColumns()) {
+      columnNames.add(column.getName());
+    }
+    return new PrimaryKey(index.getName(), columnNames, null);
+  }
+
+  /**
+   * Only relationships that enforce referential integrity are foreign keys,
+   * the others only tell Access how to join the tables in queries.
+   */
+  private List<ForeignKey> getForeignKeys(Database db, Table table) throws IOException {
+    List<ForeignKey> foreignKeys = new ArrayList<>();
+    for (Relationship relationship : db.getRelationships(table)) {
+      // the "to" table is the one with the foreign key
+      if (!relationship.hasReferentialIntegrity() || relationship.getToTable() != table) {
+        continue;
+      }
+
+      List<Reference> references = new ArrayList<>();
+      for (int i = 0; i < relationship.getToColumns().size(); i++) {
+        references.add(new Reference(relationship.getToColumns().get(i).getName(),
+          relationship.getFromColumns().get(i).getName()));
+      }
+
+      ForeignKey foreignKey = new ForeignKey();
+      foreignKey.setId(table.getName() + "." + references.get(0).getColumn());
+      foreignKey.setName(relationship.getName());
+      foreignKey.setReferencedSchema(SCHEMA_NAME);
+      foreignKey.setReferencedTable(relationship.getFromTable().getName());
+      foreignKey.setReferences(references);
+      foreignKey.setUpdateAction(relationship.cascadeUpdates() ? "CASCADE" : "NO ACTION");
+      if (relationship.cascadeDeletes()) {
+        foreignKey.setDeleteAction("CASCADE");
+      } else if (relationship.cascadeNullOnDelete()) {
+        foreignKey.setDeleteAction("SET NULL");
+      } else {
+        foreignKey.setDeleteAction("NO ACTION");
+      }
+      foreignKeys.add(foreignKey);
+    }
+    return foreignKeys;
+  }
+
+  private static String getOriginalTypeName(Column column) {
+    if (column.getType() == DataType.COMPLEX_TYPE && column.getComplexInfo() != null) {
+      return column.getComplexInfo().getType().name();
+    }
+    return column.getType().name();
+  }
+
+  /**
+   * @return the type of the column, or null if it is not supported
+   */
+  private static Type getType(Column column) {
+    Type type;
+    switch (column.getType()) {
+      case BOOLEAN:
+        type = new SimpleTypeBoolean();
+        type.setSql99TypeName("BOOLEAN");
+        type.setSql2008TypeName("BOOLEAN");
+        break;
+      case BYTE:
+        // unsigned, from 0 to 255
+      case INT:
+        type = new SimpleTypeNumericExact(5, 0);
+        type.setSql99TypeName("SMALLINT");
+        type.setSql2008TypeName("SMALLINT");
+        break;
+      case LONG:
+        type = new SimpleTypeNumericExact(10, 0);
+        type.setSql99TypeName("INTEGER");
+        type.setSql2008TypeName("INTEGER");
+        break;
+      case BIG_INT:
+        type = new SimpleTypeNumericExact(19, 0);
+        type.setSql99TypeName("NUMERIC", 19, 0);
+        type.setSql2008TypeName("NUMERIC", 19, 0);
+        break;
+      case MONEY:
+        type = new SimpleTypeNumericExact(19, 4);
+        type.setSql99TypeName("DECIMAL", 19, 4);
+        type.setSql2008TypeName("DECIMAL", 19, 4);
+        break;
+      case NUMERIC:
+        type = new SimpleTypeNumericExact((int) column.getPrecision(), (int) column.getScale());
+        type.setSql99TypeName("DECIMAL", column.getPrecision(), column.getScale());
+        type.setSql2008TypeName("DECIMAL", column.getPrecision(), column.getScale());
+        break;
+      case FLOAT:
+        type = new SimpleTypeNumericApproximate(24);
+        type.setSql99TypeName("REAL");
+        type.setSql2008TypeName("REAL");
+        break;
+      case DOUBLE:
+        type = new SimpleTypeNumericApproximate(53);
+        type.setSql99TypeName("DOUBLE PRECISION");
+        type.setSql2008TypeName("DOUBLE PRECISION");
+        break;
+      case SHORT_DATE_TIME:
+      case EXT_DATE_TIME:
+        type = new SimpleTypeDateTime(true, false);
+        type.setSql99TypeName("TIMESTAMP");
+        type.setSql2008TypeName("TIMESTAMP");
+        break;
+      case TEXT:
+        type = new SimpleTypeString((int) column.getLengthInUnits(), true);
+        type.setSql99TypeName("CHARACTER VARYING", column.getLengthInUnits());
+        type.setSql2008TypeName("CHARACTER VARYING", column.getLengthInUnits());
+        break;
+      case GUID:
+        type = new SimpleTypeString(GUID_LENGTH, false);
+        type.setSql99TypeName("CHARACTER", GUID_LENGTH);
+        type.setSql2008TypeName("CHARACTER", GUID_LENGTH);
+        break;
+      case MEMO:
+        type = new SimpleTypeString(Integer.MAX_VALUE, true);
+        type.setSql99TypeName("CHARACTER LARGE OBJECT");
+        type.setSql2008TypeName("CHARACTER LARGE OBJECT");
+        break;
+      case BINARY:
+        type = new SimpleTypeBinary((int) column.getLength());
+        type.setSql99TypeName("BINARY VARYING", column.getLength());
+        type.setSql2008TypeName("BINARY VARYING", column.getLength());
+        break;
+      case OLE:
+        type = getBlobType();
+        break;
+      case COMPLEX_TYPE:
+        type = getComplexType(column);
+        break;
+      default:
+        return null;
+    }
+    if (type != null) {
+      type.setOriginalTypeName(getOriginalTypeName(column));
+    }
+    return type;
+  }
+
+  private static Type getBlobType() {
+    Type type = new SimpleTypeBinary();
+    type.setSql99TypeName("BINARY LARGE OBJECT");
+    type.setSql2008TypeName("BINARY LARGE OBJECT");
+    return type;
+  }
+
+  /**
+   * Attachments are arrays of BLOBs and multi-valued fields are texts with the
+   * values separated by commas, as read by UCanAccess. Version histories of
+   * append-only texts are not supported.
+   */
+  private static Type getComplexType(Column column) {
+    if (column.getComplexInfo() == null) {
+      return null;
+    }
+    ComplexDataType complexType = column.getComplexInfo().getType();
+    if (complexType == ComplexDataType.ATTACHMENT) {
+      Type blobType = getBlobType();
+      Type type = new ComposedTypeArray(blobType);
+      type.setSql99TypeName(blobType.getSql99TypeName());
+      type.setSql2008TypeName(blobType.getSql2008TypeName());
+      return type;
+    } else if (complexType == ComplexDataType.MULTI_VALUE) {
+      Type type = new SimpleTypeString(Integer.MAX_VALUE, true);
+      type.setSql99TypeName("CHARACTER LARGE OBJECT");
+      type.setSql2008TypeName("CHARACTER LARGE OBJECT");
+      return type;
+    }
+    return null;
+  }
+
+  /**
+   * Reads the rows of a table with a cursor and sends them to the consumer.
+   * Only the selected columns are read, and OLE values are only checked for
+   * null, their cells reading them when needed.
+   *
+   * @return the number of rows read
+   */
+  private long migrateTableData(TableStructure tableStructure, RowConsumer consumer) throws ModuleException {
+    Database db = getDatabase();
+    LOGGER.info("Exporting rows of table {}", tableStructure.getId());
+
+    long nRows = 0;
+    int maximumAttachments = 0;
+    try {
+      Cursor cursor;
+      List<Column> columns = new ArrayList<>();
+      List<CellIdPrefix> cellIdPrefixes = new ArrayList<>();
+      Set<String> readColumnNames = new HashSet<>();
+      synchronized (db) {
+        Table table = db.getTable(tableStructure.getName());
+        for (ColumnStructure columnStructure : tableStructure.getColumns()) {
+          Column column = table.getColumn(columnStructure.getName());
+          columns.add(column);
+          cellIdPrefixes.add(new CellIdPrefix(tableStructure.getName() + "." + column.getName()));
+          if (column.getType() != DataType.OLE) {
+            readColumnNames.add(column.getName());
+          }
+        }
+        cursor = CursorBuilder.createCursor(table);
+      }
+
+      while (true) {
+        long rowIndex = tableStructure.getCurrentRow();
+        List<Cell> cells = new ArrayList<>(columns.size());
+        synchronized (db) {
+          Row row = cursor.getNextRow(readColumnNames);
+          if (row == null) {
+            break;
+          }
+          for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            Cell cell;
+            try {
+              cell = readCell(cursor, row, column, cellIdPrefixes.get(i), rowIndex);
+            } catch (IOException | RuntimeException e) {
+              cell = new NullCell(cellIdPrefixes.get(i), rowIndex);
+              reporter.cellProcessingUsedNull(tableStructure, tableStructure.getColumns().get(i), rowIndex, e);
+            }
+            if (cell instanceof ArrayCell arrayCell) {
+              maximumAttachments = Math.max(maximumAttachments, arrayCell.size());
+            }
+            cells.add(cell);
+          }
+        }
+        tableStructure.incrementCurrentRow();
+        consumer.accept(new com.databasepreservation.model.data.Row(rowIndex, cells));
+        nRows++;
+      }
+    } catch (IOException e) {
+      throw new ModuleException().withMessage("Could not read the rows of table " + tableStructure.getId())
+        .withCause(e);
+    }
+
+    for (ColumnStructure column : tableStructure.getColumns()) {
+      if (column.getType() instanceof ComposedTypeArray) {
+        column.setCardinality(BigInteger.valueOf(maximumAttachments));
+      }
+    }
+    return nRows;
+  }
+
+  private Cell readCell(Cursor cursor, Row row, Column column, CellIdPrefix idPrefix, long rowIndex)
+    throws IOException {
+    if (column.getType() == DataType.OLE) {
+      if (isNull(cursor, row, column)) {
+        return new NullCell(idPrefix, rowIndex);
+      }
+      return new BinaryCell(idPrefix.getId(rowIndex), new OleValueProvider(column, row.getId()));
+    }
+
+    Object value = row.get(column.getName());
+    if (value == null) {
+      return new NullCell(idPrefix, rowIndex);
+    }
+    switch (column.getType()) {
+      case BOOLEAN:
+        return new BooleanCell(idPrefix, rowIndex, (Boolean) value);
+      case BYTE:
+        // Access bytes are unsigned, Jackcess reads them as signed
+        return new LongCell(idPrefix, rowIndex, Byte.toUnsignedLong((Byte) value));
+      case INT:
+      case LONG:
+      case BIG_INT:
+        return new LongCell(idPrefix, rowIndex, ((Number) value).longValue());
+      case MONEY:
+      case NUMERIC:
+        return new DecimalCell(idPrefix, rowIndex, (BigDecimal) value);
+      case SHORT_DATE_TIME:
+      case EXT_DATE_TIME:
+        Timestamp timestamp = value instanceof LocalDateTime localDateTime ? Timestamp.valueOf(localDateTime)
+          : new Timestamp(((Date) value).getTime());
+        return new TimestampCell(idPrefix, rowIndex, timestamp);
+      case BINARY:
+        return new BinaryCell(idPrefix.getId(rowIndex), new InMemoryInputStreamProvider((byte[]) value));
+      case COMPLEX_TYPE:
+        return readComplexCell((ComplexValueForeignKey) value, idPrefix, rowIndex);
+      default:
+        return new SimpleCell(idPrefix, rowIndex, value.toString());
+    }
+  }
+
+  /**
+   * Attachments are read as arrays of BLOBs, read when their cells are read,
+   * and multi-valued fields as texts. Not private so that it can be tested
+   * without an Access file, as Jackcess can not create complex columns.
+   */
+  protected static Cell readComplexCell(ComplexValueForeignKey value, CellIdPrefix idPrefix, long rowIndex) throws IOException {
+    if (value.getComplexType() == ComplexDataType.ATTACHMENT) {
+      int count = value.countValues();
+      if (count == 0) {
+        return new NullCell(idPrefix, rowIndex);
+      }
+      String id = idPrefix.getId(rowIndex);
+      ArrayCell cell = new ArrayCell(id);
+      for (int i = 0; i < count; i++) {
+        cell.put(new BinaryCell(id + "." + (i + 1), new AttachmentProvider(value, i)), i + 1);
+      }
+      return cell;
+    }
+
+    List<SingleValue> values = value.getMultiValues();
+    if (values.isEmpty()) {
+      return new NullCell(idPrefix, rowIndex);
+    }
+    StringBuilder str = new StringBuilder(String.valueOf(values.get(0).get()));
+    for (int i = 1; i < values.size(); i++) {
+      str.append(", ").append(values.get(i).get());
+    }
+    return new SimpleCell(idPrefix, rowIndex, str.toString());
+  }
+
+  /**
+   * Tells if a value of the current row is null using the null mask of the
+   * row, instead of reading it, which for OLE values would read the whole
+   * object. Jackcess has no public API for this, so its implementation classes
+   * are used (see the pinned version in the pom).
+   */
+  private static boolean isNull(Cursor cursor, Row row, Column column) throws IOException {
+    TableImpl.RowState rowState = ((CursorImpl) cursor).getRowState();
+    ByteBuffer rowData = TableImpl.positionAtRowData(rowState, (RowIdImpl) row.getId());
+    return rowState.getNullMask(rowData).isNull((ColumnImpl) column);
+  }
+
+  /**
+   * Reads a value when its cell is first read, and keeps a copy of it in
+   * memory or in the {@link com.databasepreservation.common.io.providers.SpillArena}
+   * (see {@link InMemoryInputStreamProvider#copyOf(InputStream)}), so that it
+   * is only read once even if the export module asks for its size and then for
+   * its contents.
+   */
+  private abstract static class CopiedValueProvider implements InputStreamProvider {
+    private InputStreamProvider copy = null;
+
+    /**
+     * @return the whole value
+     */
+    protected abstract byte[] read() throws ModuleException;
+
+    private synchronized InputStreamProvider getCopy() throws ModuleException {
+      if (copy == null) {
+        copy = InMemoryInputStreamProvider.copyOf(new ByteArrayInputStream(read()));
+      }
+      return copy;
+    }
+
+    @Override
+    public InputStream createInputStream() throws ModuleException {
+      return getCopy().createInputStream();
+    }
+
+    @Override
+    public synchronized void cleanResources() {
+      if (copy != null) {
+        copy.cleanResources();
+        copy = null;
+      }
+    }
+
+    @Override
+    public long getSize() throws ModuleException {
+      return getCopy().getSize();
+    }
+  }
+
+  /**
+   * Reads the value of an OLE column when the cell is read, with a new cursor
+   * positioned on the row, as the cursor reading the table has moved on.
+   */
+  private static final class OleValueProvider extends CopiedValueProvider {
+    private final Column column;
+    private final RowId rowId;
+
+    private OleValueProvider(Column column, RowId rowId) {
+      this.column = column;
+      this.rowId = rowId;
+    }
+
+    @Override
+    protected byte[] read() throws ModuleException {
+      synchronized (column.getDatabase()) {
+        try {
+          Cursor cursor = CursorBuilder.createCursor(column.getTable());
+          if (!cursor.findRow(rowId)) {
+            throw new ModuleException()
+              .withMessage("Could not find row " + rowId + " of table " + column.getTable().getName());
+          }
+          byte[] value = (byte[]) cursor.getCurrentRowValue(column);
+          return value == null ? new byte[0] : value;
+        } catch (IOException e) {
+          throw new ModuleException().withMessage("Could not read the OLE value of column " + column.getName())
+            .withCause(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads one of the attachments of a row when the cell is read.
+   */
+  private static final class AttachmentProvider extends CopiedValueProvider {
+    private final ComplexValueForeignKey attachments;
+    private final int index;
+
+    private AttachmentProvider(ComplexValueForeignKey attachments, int index) {
+      this.attachments = attachments;
+      this.index = index;
+    }
+
+    @Override
+    protected byte[] read() throws ModuleException {
+      synchronized (attachments.getColumn().getDatabase()) {
+        try {
+          Attachment attachment = attachments.getAttachments().get(index);
+          byte[] data = attachment.getFileData();
+          return data == null ? new byte[0] : data;
+        } catch (IOException e) {
+          throw new ModuleException()
+            .withMessage("Could not read attachment " + (index + 1) + " of column " + attachments.getColumn().getName())
+            .withCause(e);
+        }
+      }
+    }
+  }
+}
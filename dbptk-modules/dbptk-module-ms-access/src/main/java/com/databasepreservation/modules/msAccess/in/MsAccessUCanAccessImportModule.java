@@ -31,11 +31,14 @@ import com.databasepreservation.model.data.NullCell;
 import com.databasepreservation.model.data.SimpleCell;
 import com.databasepreservation.model.exception.InvalidDataException;
 import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.structure.ColumnStructure;
 import com.databasepreservation.model.structure.PrivilegeStructure;
 import com.databasepreservation.model.structure.RoutineStructure;
 import com.databasepreservation.model.structure.SchemaStructure;
 import com.databasepreservation.model.structure.TableStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericApproximate;
 import com.databasepreservation.model.structure.type.Type;
+import com.databasepreservation.modules.jdbc.in.ColumnReader;
 import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
 import com.databasepreservation.modules.msAccess.MsAccessHelper;
 import com.databasepreservation.modules.msAccess.MsAccessUCanAccessModuleFactory;
@@ -135,6 +138,15 @@ public class MsAccessUCanAccessImportModule extends JDBCImportModule {
     return newRoutines;
   }
 
+  @Override
+  protected ColumnReader createColumnReader(TableStructure table, ColumnStructure column, int columnIndex) {
+    if (column.getType() instanceof SimpleTypeNumericApproximate) {
+      return (idPrefix, rowIndex, rawData) -> rawToCellSimpleTypeNumericApproximate(idPrefix.getId(rowIndex),
+        column.getName(), column.getType(), rawData);
+    }
+    return super.createColumnReader(table, column, columnIndex);
+  }
+
   /**
    * Drops money currency
    */
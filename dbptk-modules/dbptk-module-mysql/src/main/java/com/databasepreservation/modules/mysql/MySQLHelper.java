@@ -229,6 +229,13 @@ public class MySQLHelper extends SQLHelper {
       + tableName + "'";
   }
 
+  @Override
+  public String getRowEstimatesSQL(String schemaName) {
+    // exact for MyISAM, estimated for InnoDB
+    return "SELECT TABLE_NAME, TABLE_ROWS AS ROW_ESTIMATE FROM information_schema.TABLES "
+      + "WHERE TABLE_TYPE = 'BASE TABLE' AND TABLE_SCHEMA = '" + schemaName + "'";
+  }
+
   @Override
   public String getUsersSQL(String dbName) {
     return "SELECT * FROM `mysql`.`user`";
@@ -10,33 +10,42 @@
  */
 package com.databasepreservation.modules.mysql.in;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.databasepreservation.common.parallel.RowConsumer;
 import com.databasepreservation.model.data.Cell;
 import com.databasepreservation.model.data.NullCell;
 import com.databasepreservation.model.data.SimpleCell;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.structure.CheckConstraint;
+import com.databasepreservation.model.structure.ColumnStructure;
 import com.databasepreservation.model.structure.RoutineStructure;
 import com.databasepreservation.model.structure.SchemaStructure;
 import com.databasepreservation.model.structure.TableStructure;
 import com.databasepreservation.model.structure.UserStructure;
 import com.databasepreservation.model.structure.ViewStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
 import com.databasepreservation.model.structure.type.Type;
 import com.databasepreservation.modules.CloseableUtils;
+import com.databasepreservation.modules.jdbc.in.ColumnReader;
+import com.databasepreservation.modules.jdbc.in.FetchSizeController;
 import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+import com.databasepreservation.modules.jdbc.in.KeyRange;
 import com.databasepreservation.modules.mysql.MySQLExceptionNormalizer;
 import com.databasepreservation.modules.mysql.MySQLHelper;
 import com.databasepreservation.modules.mysql.MySQLModuleFactory;
+import com.databasepreservation.utils.ConfigUtils;
 import com.databasepreservation.utils.MapUtils;
 
 import static com.databasepreservation.modules.mysql.Constants.MYSQL_DRIVER_CLASS_NAME;
@@ -47,7 +56,15 @@ import static com.databasepreservation.modules.mysql.Constants.MYSQL_DRIVER_CLAS
  */
 public class MySQLJDBCImportModule extends JDBCImportModule {
   private static final Logger LOGGER = LoggerFactory.getLogger(MySQLJDBCImportModule.class);
+
+  // 0 streams the rows of each table with a single query
+  private static final Integer PAGE_MEGABYTES = ConfigUtils.getProperty(16, "dbptk.mysql.page.megabytes");
+  private static final int MAXIMUM_PAGE_ROWS = 10000;
+  // 0 starts the snapshots of the parallel workers without locking the tables
+  private static final Integer SNAPSHOT_LOCK = ConfigUtils.getProperty(1, "dbptk.mysql.snapshot.lock");
+
   private final String username;
+  private boolean holdingReadLock = false;
 
   /**
    * MySQL JDBC import module constructor
@@ -192,6 +209,17 @@ public class MySQLJDBCImportModule extends JDBCImportModule {
     return tableStructure;
   }
 
+  /**
+   * MySQL rows are streamed one by one (see
+   * {@link #getTableRawData(String, String)}) or read in pages (see
+   * {@link #extractTableRows(TableStructure, KeyRange, RowConsumer, Map)}),
+   * there is no fetch size to adjust.
+   */
+  @Override
+  protected FetchSizeController createFetchSizeController(TableStructure table) {
+    return null;
+  }
+
   @Override
   protected ResultSet getTableRawData(String query, String tableId) throws SQLException, ModuleException {
     Statement st = getStatement();
@@ -220,6 +248,157 @@ public class MySQLJDBCImportModule extends JDBCImportModule {
     return statement;
   }
 
+  /**
+   * Reads the rows of tables with a single integer column primary key in pages
+   * of consecutive keys (keyset pagination), each one read by a short query
+   * whose rows are all fetched at once, instead of streaming the whole table.
+   * Streaming blocks the connection until the last row is read and keeps a long
+   * running query on the server. The pages use about the number of megabytes
+   * defined by the dbptk.mysql.page.megabytes property (16 by default, 0
+   * disables paging). All pages of a table are read in the same consistent
+   * snapshot: the shared one when using parallel workers, or one started for
+   * the table otherwise. A parallel worker that loses its connection fails
+   * instead of reading the table outside the shared snapshot.
+   */
+  @Override
+  protected long extractTableRows(TableStructure table, KeyRange range, RowConsumer consumer,
+    Map<String, Integer> tableColumnsCardinality) throws ModuleException {
+    ColumnStructure keyColumn = getPagingKey(table, range);
+    if (keyColumn == null) {
+      return super.extractTableRows(table, range, consumer, tableColumnsCardinality);
+    }
+
+    int pageRows = new FetchSizeController(table, PAGE_MEGABYTES * 1024L * 1024L, MAXIMUM_PAGE_ROWS)
+      .getInitialFetchSize();
+    boolean tableSnapshot = !isInSharedSnapshot();
+    try {
+      if (tableSnapshot) {
+        executeStatement("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+      }
+      return extractTablePages(table, range, keyColumn, pageRows, consumer, tableColumnsCardinality);
+    } catch (SQLException e) {
+      throw normalizeException(e, "Could not start a consistent snapshot to read table " + table.getId());
+    } finally {
+      if (tableSnapshot) {
+        try {
+          executeStatement("COMMIT");
+        } catch (SQLException | ModuleException e) {
+          LOGGER.debug("Could not end the snapshot of table {}", table.getId(), e);
+        }
+      }
+    }
+  }
+
+  @Override
+  protected String getPageQuery(TableStructure table, KeyRange page, int pageRows) throws ModuleException {
+    return appendTableClauses(sqlHelper.selectTableSQL(table), table, page) + " LIMIT " + pageRows;
+  }
+
+  @Override
+  protected ResultSet getPageRawData(String query) throws SQLException, ModuleException {
+    Statement st = getStatement();
+    // fetches the whole page, freeing the connection for other queries
+    st.setFetchSize(0);
+    return st.executeQuery(query);
+  }
+
+  /**
+   * @return the column used to read the table in pages, or null if the table
+   *         (or the key range) should be streamed
+   */
+  private ColumnStructure getPagingKey(TableStructure table, KeyRange range) {
+    if (PAGE_MEGABYTES <= 0 || table.getPrimaryKey() == null
+      || table.getPrimaryKey().getColumnNames().size() != 1) {
+      return null;
+    }
+
+    String keyName = table.getPrimaryKey().getColumnNames().get(0);
+    ColumnStructure column = table.getColumnByName(keyName);
+    if (column == null || !(column.getType() instanceof SimpleTypeNumericExact keyType) || keyType.getScale() == null
+      || keyType.getScale() != 0 || keyType.getPrecision() == null) {
+      return null;
+    }
+
+    // the keys are read as longs, unsigned BIGINT values may not fit
+    String originalTypeName = StringUtils.defaultString(keyType.getOriginalTypeName());
+    if (keyType.getPrecision() > 18 && !(StringUtils.startsWithIgnoreCase(originalTypeName, "BIGINT")
+      && !StringUtils.containsIgnoreCase(originalTypeName, "UNSIGNED"))) {
+      return null;
+    }
+
+    if (range != null && (range.isNullKeys() || !keyName.equals(range.getColumn()))) {
+      return null;
+    }
+
+    String orderBy = getModuleConfiguration().getOrderBy(table.getSchema(), table.getName(), true);
+    if (orderBy != null && !StringUtils.equalsAnyIgnoreCase(orderBy.trim(), keyName, keyName + " ASC",
+      sqlHelper.escapeTableName(keyName), sqlHelper.escapeTableName(keyName) + " ASC")) {
+      return null;
+    }
+    return column;
+  }
+
+  /**
+   * MySQL can not export a snapshot to other connections, so all tables are
+   * locked while each parallel worker starts a transaction with a consistent
+   * snapshot, making them all see the same data (as mysqldump does). The tables
+   * are unlocked as soon as all workers started their snapshots. Locking needs
+   * the RELOAD privilege; without it, or if the dbptk.mysql.snapshot.lock
+   * property is 0, the workers start their snapshots one after the other.
+   */
+  @Override
+  protected String beginSharedSnapshot() throws ModuleException {
+    if (SNAPSHOT_LOCK > 0) {
+      try {
+        executeStatement("FLUSH TABLES WITH READ LOCK");
+        holdingReadLock = true;
+        return "global read lock";
+      } catch (SQLException e) {
+        LOGGER.debug("Could not lock the tables while the parallel workers start their snapshots", e);
+      }
+    }
+    LOGGER.warn("The parallel workers start their snapshots without locking the tables, tables may be read at "
+      + "slightly different points in time");
+    return "unlocked";
+  }
+
+  @Override
+  protected void joinSharedSnapshot(String snapshot) throws ModuleException {
+    try {
+      getConnection().setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+      executeStatement("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+    } catch (SQLException e) {
+      throw normalizeException(e, "Could not start a consistent snapshot (" + snapshot + ") in a parallel worker");
+    }
+  }
+
+  @Override
+  protected void sharedSnapshotJoined() {
+    unlockTables();
+  }
+
+  @Override
+  protected void endSharedSnapshot() {
+    unlockTables();
+  }
+
+  private void unlockTables() {
+    if (holdingReadLock) {
+      holdingReadLock = false;
+      try {
+        executeStatement("UNLOCK TABLES");
+      } catch (SQLException | ModuleException e) {
+        LOGGER.debug("Could not unlock the tables", e);
+      }
+    }
+  }
+
+  private void executeStatement(String sql) throws SQLException, ModuleException {
+    try (Statement st = getConnection().createStatement()) {
+      st.execute(sql);
+    }
+  }
+
   @Override
   protected List<ViewStructure> getViews(String schemaName) throws SQLException, ModuleException {
     List<ViewStructure> views = super.getViews(schemaName);
@@ -243,6 +422,15 @@ public class MySQLJDBCImportModule extends JDBCImportModule {
     return views;
   }
 
+  @Override
+  protected ColumnReader createColumnReader(TableStructure table, ColumnStructure column, int columnIndex) {
+    if ("YEAR".equals(column.getType().getOriginalTypeName())) {
+      return (idPrefix, rowIndex, rawData) -> rawToCellSimpleTypeNumericExact(idPrefix.getId(rowIndex),
+        column.getName(), column.getType(), rawData);
+    }
+    return super.createColumnReader(table, column, columnIndex);
+  }
+
   @Override
   protected Cell rawToCellSimpleTypeNumericExact(String id, String columnName, Type cellType, ResultSet rawData)
     throws SQLException, ModuleException {
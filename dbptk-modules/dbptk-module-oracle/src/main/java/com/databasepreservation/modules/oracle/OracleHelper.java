@@ -55,12 +55,40 @@ public class OracleHelper extends SQLHelper {
       + tableName + "' AND constraint_type = 'C'";
   }
 
+  @Override
+  public String getPrimaryKeysSQL(String schemaName) {
+    return "SELECT c.TABLE_NAME, cc.COLUMN_NAME, c.CONSTRAINT_NAME AS PK_NAME FROM ALL_CONSTRAINTS c"
+      + " JOIN ALL_CONS_COLUMNS cc ON cc.OWNER = c.OWNER AND cc.CONSTRAINT_NAME = c.CONSTRAINT_NAME"
+      + " AND cc.TABLE_NAME = c.TABLE_NAME WHERE c.CONSTRAINT_TYPE = 'P' AND c.OWNER = '" + schemaName
+      + "' ORDER BY c.TABLE_NAME, cc.POSITION";
+  }
+
+  @Override
+  public String getForeignKeysSQL(String schemaName) {
+    // the rules are the ones returned by the driver for getImportedKeys
+    return "SELECT f.TABLE_NAME AS FKTABLE_NAME, fc.COLUMN_NAME AS FKCOLUMN_NAME, p.OWNER AS PKTABLE_SCHEM,"
+      + " p.TABLE_NAME AS PKTABLE_NAME, pc.COLUMN_NAME AS PKCOLUMN_NAME, f.CONSTRAINT_NAME AS FK_NAME,"
+      + " NULL AS UPDATE_RULE, DECODE(f.DELETE_RULE, 'CASCADE', 0, 'SET NULL', 2, 1) AS DELETE_RULE"
+      + " FROM ALL_CONSTRAINTS f"
+      + " JOIN ALL_CONS_COLUMNS fc ON fc.OWNER = f.OWNER AND fc.CONSTRAINT_NAME = f.CONSTRAINT_NAME"
+      + " JOIN ALL_CONSTRAINTS p ON p.OWNER = f.R_OWNER AND p.CONSTRAINT_NAME = f.R_CONSTRAINT_NAME"
+      + " JOIN ALL_CONS_COLUMNS pc ON pc.OWNER = p.OWNER AND pc.CONSTRAINT_NAME = p.CONSTRAINT_NAME"
+      + " AND pc.POSITION = fc.POSITION WHERE f.CONSTRAINT_TYPE = 'R' AND f.OWNER = '" + schemaName
+      + "' ORDER BY f.TABLE_NAME, f.CONSTRAINT_NAME, fc.POSITION";
+  }
+
   @Override
   public String getTriggersSQL(String schemaName, String tableName) {
     return "SELECT TRIGGER_NAME, TRIGGER_TYPE AS ACTION_TIME, TRIGGERING_EVENT AS TRIGGER_EVENT, TRIGGER_BODY AS TRIGGERED_ACTION FROM ALL_TRIGGERS WHERE TABLE_NAME = '"
       + tableName + "'";
   }
 
+  @Override
+  public String getRowEstimatesSQL(String schemaName) {
+    // NUM_ROWS is null for tables without statistics
+    return "SELECT TABLE_NAME, NUM_ROWS AS ROW_ESTIMATE FROM ALL_TABLES WHERE OWNER = '" + schemaName + "'";
+  }
+
   @Override
   public String getUsersSQL(String dbName) {
     return "SELECT username AS USER_NAME FROM ALL_USERS";
@@ -8,8 +8,10 @@
 package com.databasepreservation.modules.oracle.in;
 
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.sql.Array;
 import java.sql.Blob;
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -18,6 +20,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.geotools.data.oracle.sdo.GeometryConverter;
@@ -34,6 +38,7 @@ import com.databasepreservation.model.data.NullCell;
 import com.databasepreservation.model.data.SimpleCell;
 import com.databasepreservation.model.exception.InvalidDataException;
 import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.modules.configuration.TableConfiguration;
 import com.databasepreservation.model.structure.ColumnStructure;
 import com.databasepreservation.model.structure.RoutineStructure;
 import com.databasepreservation.model.structure.SchemaStructure;
@@ -42,7 +47,10 @@ import com.databasepreservation.model.structure.ViewStructure;
 import com.databasepreservation.model.structure.type.SimpleTypeBinary;
 import com.databasepreservation.model.structure.type.Type;
 import com.databasepreservation.modules.CloseableUtils;
+import com.databasepreservation.modules.jdbc.in.ColumnReader;
 import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+import com.databasepreservation.modules.jdbc.in.KeyRange;
+import com.databasepreservation.modules.jdbc.in.SchemaCatalog;
 import com.databasepreservation.modules.oracle.Oracle12cModuleFactory;
 import com.databasepreservation.modules.oracle.OracleExceptionNormalizer;
 import com.databasepreservation.modules.oracle.OracleHelper;
@@ -66,9 +74,25 @@ public class Oracle12cJDBCImportModule extends JDBCImportModule {
 
   private static final Integer DEFAULT_LOB_PREFETCH_SIZE = ConfigUtils.getProperty(4000,
     "dbptk.jdbc.oracle.lobPrefetchSize");
+  private static final Integer ROWID_SPLIT = ConfigUtils.getProperty(1, "dbptk.oracle.split.rowid");
+
+  // the first ROWID of each group of extents, grouped by the number of blocks
+  private static final String ROWID_SPLIT_QUERY = "SELECT ROWIDTOCHAR(DBMS_ROWID.ROWID_CREATE(1, o.DATA_OBJECT_ID, "
+    + "c.RELATIVE_FNO, c.BLOCK_ID, 0)) FROM (SELECT "
+    + "MIN(RELATIVE_FNO) KEEP (DENSE_RANK FIRST ORDER BY RELATIVE_FNO, BLOCK_ID) RELATIVE_FNO, "
+    + "MIN(BLOCK_ID) KEEP (DENSE_RANK FIRST ORDER BY RELATIVE_FNO, BLOCK_ID) BLOCK_ID FROM ("
+    + "SELECT e.RELATIVE_FNO, e.BLOCK_ID, TRUNC((SUM(e.BLOCKS) OVER (ORDER BY e.RELATIVE_FNO, e.BLOCK_ID) - e.BLOCKS) "
+    + "* ? / SUM(e.BLOCKS) OVER ()) GRP FROM DBA_EXTENTS e "
+    + "JOIN DBA_TABLESPACES t ON t.TABLESPACE_NAME = e.TABLESPACE_NAME "
+    + "WHERE e.OWNER = ? AND e.SEGMENT_NAME = ? AND e.SEGMENT_TYPE = 'TABLE' AND t.BIGFILE = 'NO') "
+    + "GROUP BY GRP) c JOIN ALL_OBJECTS o ON o.OWNER = ? AND o.OBJECT_NAME = ? AND o.OBJECT_TYPE = 'TABLE' "
+    + "WHERE o.DATA_OBJECT_ID IS NOT NULL ORDER BY c.RELATIVE_FNO, c.BLOCK_ID";
 
   private String sourceSchema = null;
 
+  // system change number read by this parallel worker, kept across reconnections
+  private String flashbackScn = null;
+
   /**
    * Create a new Oracle12c import module
    *
@@ -129,6 +153,9 @@ public class Oracle12cJDBCImportModule extends JDBCImportModule {
       connection = DriverManager.getConnection(connectionURL, getCredentials());
       connection.setAutoCommit(false);
       connection.setReadOnly(true);
+      if (flashbackScn != null) {
+        enableFlashback(connection, flashbackScn);
+      }
     } catch (SQLException e) {
       closeConnection();
       throw normalizeException(e, null);
@@ -149,6 +176,22 @@ public class Oracle12cJDBCImportModule extends JDBCImportModule {
     return statement;
   }
 
+  /**
+   * LOB locators stay valid until the read-only transaction of the connection
+   * ends, and the driver serializes the use of the connection by several
+   * threads, so the LOBs are read while the previous rows are exported (see
+   * {@link #isLobReadSerialized()}).
+   */
+  @Override
+  protected boolean isLobPrefetchSupported() {
+    return true;
+  }
+
+  @Override
+  protected boolean isLobReadSerialized() {
+    return true;
+  }
+
   @Override
   protected String getDatabaseName() throws SQLException, ModuleException {
     return getMetadata().getUserName();
@@ -190,11 +233,54 @@ public class Oracle12cJDBCImportModule extends JDBCImportModule {
     return moduleException;
   }
 
+  @Override
+  protected SchemaCatalog harvestSchemaCatalog(String schemaName, Set<String> tableNames) throws ModuleException {
+    SchemaCatalog catalog = super.harvestSchemaCatalog(schemaName, tableNames);
+
+    try (PreparedStatement statement = getConnection()
+      .prepareStatement("SELECT TABLE_NAME, COMMENTS FROM ALL_TAB_COMMENTS WHERE OWNER = ?")) {
+      statement.setString(1, schemaName);
+      try (ResultSet rs = statement.executeQuery()) {
+        while (rs.next()) {
+          catalog.addTableDescription(rs.getString(1), rs.getString(2));
+        }
+      }
+      catalog.setHarvested(SchemaCatalog.Part.TABLE_DESCRIPTIONS);
+    } catch (SQLException e) {
+      LOGGER.debug("Could not read the table comments of schema {} at once", schemaName, e);
+      catalog.discard(SchemaCatalog.Part.TABLE_DESCRIPTIONS);
+    }
+
+    try (PreparedStatement statement = getConnection().prepareStatement(
+      "SELECT TABLE_NAME, COLUMN_NAME, COMMENTS FROM ALL_COL_COMMENTS WHERE OWNER = ?")) {
+      statement.setString(1, schemaName);
+      try (ResultSet rs = statement.executeQuery()) {
+        while (rs.next()) {
+          catalog.addColumnDescription(rs.getString(1), rs.getString(2), rs.getString(3));
+        }
+      }
+      catalog.setHarvested(SchemaCatalog.Part.COLUMN_DESCRIPTIONS);
+    } catch (SQLException e) {
+      LOGGER.debug("Could not read the column comments of schema {} at once", schemaName, e);
+      catalog.discard(SchemaCatalog.Part.COLUMN_DESCRIPTIONS);
+    }
+
+    return catalog;
+  }
+
   @Override
   protected TableStructure getTableStructure(SchemaStructure schema, String tableName, int tableIndex,
     String description, boolean view) throws SQLException, ModuleException {
     TableStructure tableStructure = super.getTableStructure(schema, tableName, tableIndex, description, view);
 
+    SchemaCatalog catalog = getSchemaCatalog(schema.getName());
+    if (catalog != null && catalog.isHarvested(SchemaCatalog.Part.TABLE_DESCRIPTIONS)) {
+      if (catalog.hasTableDescription(tableName)) {
+        tableStructure.setDescription(StringUtils.defaultIfBlank(catalog.getTableDescription(tableName), ""));
+      }
+      return tableStructure;
+    }
+
     try (PreparedStatement statement = getConnection()
       .prepareStatement("SELECT COMMENTS FROM ALL_TAB_COMMENTS WHERE OWNER = ? AND TABLE_NAME = ?")) {
 
@@ -223,6 +309,17 @@ public class Oracle12cJDBCImportModule extends JDBCImportModule {
   protected List<ColumnStructure> getColumns(String schemaName, String tableName) throws SQLException, ModuleException {
     List<ColumnStructure> columns = super.getColumns(schemaName, tableName);
 
+    SchemaCatalog catalog = getSchemaCatalog(schemaName);
+    if (catalog != null && catalog.isHarvested(SchemaCatalog.Part.COLUMN_DESCRIPTIONS)) {
+      Map<String, String> descriptions = catalog.getColumnDescriptions(tableName);
+      for (ColumnStructure column : columns) {
+        if (descriptions.containsKey(column.getName())) {
+          column.setDescription(descriptions.get(column.getName()));
+        }
+      }
+      return columns;
+    }
+
     try (PreparedStatement statement = getConnection().prepareStatement(
       "SELECT COMMENTS FROM ALL_COL_COMMENTS WHERE OWNER = ? AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
 
@@ -285,26 +382,25 @@ public class Oracle12cJDBCImportModule extends JDBCImportModule {
   }
 
   @Override
-  protected Cell convertRawToCell(String tableName, String columnName, int columnIndex, long rowIndex, Type cellType,
-    ResultSet rawData) throws SQLException, ModuleException {
-    if ("SDO_GEOMETRY".equalsIgnoreCase(cellType.getOriginalTypeName())) {
-      String id = tableName + "." + columnName + "." + rowIndex;
-
-      GeometryConverter geometryConverter = new GeometryConverter(null);
-      STRUCT asStruct = ((OracleResultSet) rawData).getSTRUCT(columnName);
+  protected ColumnReader createColumnReader(TableStructure table, ColumnStructure column, int columnIndex) {
+    if ("SDO_GEOMETRY".equalsIgnoreCase(column.getType().getOriginalTypeName())) {
+      return (idPrefix, rowIndex, rawData) -> geometryToCell(idPrefix.getId(rowIndex),
+        ((OracleResultSet) rawData).getSTRUCT(columnIndex));
+    }
+    return super.createColumnReader(table, column, columnIndex);
+  }
 
-      try {
-        Geometry geometry = geometryConverter.asGeometry(asStruct);
-        GMLWriter gmlWriter = new GMLWriter();
-        if (geometry == null) {
-          return new NullCell(id);
-        }
-        return new SimpleCell(id, gmlWriter.write(geometry));
-      } catch (Exception e) {
-        throw normalizeException(e, "Could not convert SDO_GEOMETRY to GML");
+  private Cell geometryToCell(String id, STRUCT asStruct) throws ModuleException {
+    GeometryConverter geometryConverter = new GeometryConverter(null);
+    try {
+      Geometry geometry = geometryConverter.asGeometry(asStruct);
+      GMLWriter gmlWriter = new GMLWriter();
+      if (geometry == null) {
+        return new NullCell(id);
       }
-    } else {
-      return super.convertRawToCell(tableName, columnName, columnIndex, rowIndex, cellType, rawData);
+      return new SimpleCell(id, gmlWriter.write(geometry));
+    } catch (Exception e) {
+      throw normalizeException(e, "Could not convert SDO_GEOMETRY to GML");
     }
   }
 
@@ -331,6 +427,138 @@ public class Oracle12cJDBCImportModule extends JDBCImportModule {
     }
   }
 
+  /**
+   * Splits big heap tables in ranges of ROWIDs, derived from the extents of the
+   * table in DBA_EXTENTS so that each range covers about the same number of
+   * blocks. This does not need a primary key nor an integer column. The first
+   * and last ranges are open, so rows in extents added after the ranges were
+   * computed are still read. Tables with a configured split column or order,
+   * and tables whose extents can not be read (e.g. without the privileges to
+   * read DBA_EXTENTS, partitioned tables or index-organized tables), are split
+   * by key as in other modules.
+   */
+  @Override
+  protected List<KeyRange> splitTable(TableStructure table) throws ModuleException {
+    if (ROWID_SPLIT <= 0 || table.isFromView() || table.isFromCustomView()
+      || !getModuleConfiguration().isFetchRows()) {
+      return super.splitTable(table);
+    }
+    TableConfiguration tableConfiguration = getModuleConfiguration().getTableConfiguration(table.getSchema(),
+      table.getName());
+    if ((tableConfiguration != null && tableConfiguration.getSplitColumn() != null)
+      || getModuleConfiguration().getOrderBy(table.getSchema(), table.getName(), true) != null) {
+      return super.splitTable(table);
+    }
+
+    long estimatedRows = table.getEstimatedRows();
+    long parts = (long) getParallelWorkerCount() * SPLIT_PARTS_PER_WORKER;
+    if (estimatedRows >= 0) {
+      parts = Math.min(parts, estimatedRows / Math.max(1, SPLIT_MINIMUM_KEYS));
+    }
+    if (parts < 2) {
+      LOGGER.debug("Table {} is not split, it has about {} rows", table.getId(), estimatedRows);
+      return new ArrayList<>();
+    }
+
+    List<String> boundaries = new ArrayList<>();
+    try (PreparedStatement statement = getConnection().prepareStatement(ROWID_SPLIT_QUERY)) {
+      statement.setLong(1, parts);
+      statement.setString(2, table.getSchema());
+      statement.setString(3, table.getName());
+      statement.setString(4, table.getSchema());
+      statement.setString(5, table.getName());
+      try (ResultSet rs = statement.executeQuery()) {
+        while (rs.next()) {
+          if (rs.getString(1) != null) {
+            boundaries.add(rs.getString(1));
+          }
+        }
+      }
+    } catch (SQLException e) {
+      LOGGER.debug("Could not read the extents of table {}, it will be split by key", table.getId(), e);
+      return super.splitTable(table);
+    }
+    if (boundaries.size() < 2) {
+      return super.splitTable(table);
+    }
+
+    // the first range starts at the lowest ROWID, not at the first extent
+    List<KeyRange> ranges = new ArrayList<>();
+    for (int i = 0; i < boundaries.size(); i++) {
+      ranges.add(new RowIdRange(i == 0 ? null : boundaries.get(i),
+        i + 1 < boundaries.size() ? boundaries.get(i + 1) : null));
+    }
+    LOGGER.debug("Table {} split in {} ROWID ranges", table.getId(), ranges.size());
+    return ranges;
+  }
+
+  @Override
+  protected String getKeyRangeCondition(KeyRange range) {
+    if (range instanceof RowIdRange rowIdRange) {
+      return rowIdRange.getCondition();
+    }
+    return super.getKeyRangeCondition(range);
+  }
+
+  /**
+   * Rows of a ROWID range are read in ROWID order, so the order of the rows of
+   * a table only depends on its extents, not on which worker read each range.
+   */
+  @Override
+  protected String getKeyRangeOrder(KeyRange range) {
+    if (range instanceof RowIdRange) {
+      return "ROWID";
+    }
+    return super.getKeyRangeOrder(range);
+  }
+
+  /**
+   * The parallel workers read the database as of the current SCN (system
+   * change number), using flashback queries.
+   */
+  @Override
+  protected String beginSharedSnapshot() throws ModuleException {
+    try (Statement st = getConnection().createStatement();
+      ResultSet rs = st.executeQuery("SELECT DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER FROM DUAL")) {
+      rs.next();
+      String scn = rs.getBigDecimal(1).toPlainString();
+      LOGGER.debug("Parallel workers will read the database as of SCN {}", scn);
+      return scn;
+    } catch (SQLException e) {
+      LOGGER.debug("Could not get the current SCN", e);
+      return null;
+    }
+  }
+
+  @Override
+  protected void joinSharedSnapshot(String snapshot) throws ModuleException {
+    try {
+      enableFlashback(getConnection(), snapshot);
+      flashbackScn = snapshot;
+    } catch (SQLException e) {
+      throw normalizeException(e, "Could not read the database as of SCN " + snapshot + " in a parallel worker");
+    }
+  }
+
+  @Override
+  protected void releaseConnection() {
+    flashbackScn = null;
+    super.releaseConnection();
+  }
+
+  /**
+   * Makes all queries of the session read the database as of an SCN, as if
+   * each one had an AS OF SCN clause.
+   */
+  private static void enableFlashback(Connection connection, String scn) throws SQLException {
+    // flashback mode can only be enabled at the start of a transaction
+    connection.commit();
+    try (CallableStatement call = connection.prepareCall("{call DBMS_FLASHBACK.ENABLE_AT_SYSTEM_CHANGE_NUMBER(?)}")) {
+      call.setBigDecimal(1, new BigDecimal(scn));
+      call.execute();
+    }
+  }
+
   @Override
   protected List<RoutineStructure> getRoutines(String schemaName) throws ModuleException {
     List<RoutineStructure> routines = new ArrayList<>();
@@ -406,4 +634,37 @@ public class Oracle12cJDBCImportModule extends JDBCImportModule {
   public String escapeObjectName(String objectName) {
     return "\"" + objectName + "\"";
   }
+
+  /**
+   * A range of ROWIDs of a table, from a first ROWID (inclusive) to a last one
+   * (exclusive), where null bounds are open.
+   */
+  private static class RowIdRange extends KeyRange {
+    private final String first;
+    private final String last;
+
+    private RowIdRange(String first, String last) {
+      super("ROWID", null, null, false);
+      this.first = first;
+      this.last = last;
+    }
+
+    private String getCondition() {
+      // ROWIDs only have base 64 digits, so they need no escaping
+      if (first == null && last == null) {
+        return "ROWID IS NOT NULL";
+      } else if (first == null) {
+        return "ROWID < CHARTOROWID('" + last + "')";
+      } else if (last == null) {
+        return "ROWID >= CHARTOROWID('" + first + "')";
+      } else {
+        return "ROWID >= CHARTOROWID('" + first + "') AND ROWID < CHARTOROWID('" + last + "')";
+      }
+    }
+
+    @Override
+    public String toString() {
+      return getCondition();
+    }
+  }
 }
@@ -20,6 +20,7 @@ import org.slf4j.LoggerFactory;
 
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.exception.UnknownTypeException;
+import com.databasepreservation.model.structure.TableStructure;
 import com.databasepreservation.model.structure.type.ComposedTypeArray;
 import com.databasepreservation.model.structure.type.SimpleTypeBinary;
 import com.databasepreservation.model.structure.type.SimpleTypeDateTime;
@@ -74,6 +75,28 @@ public class PostgreSQLHelper extends SQLHelper {
     return "GRANT SELECT ON " + escapeTableId(tableId) + " TO PUBLIC";
   }
 
+  /**
+   * Copy rows to a table, in the text format, with the values in the order of
+   * the columns of the table structure, which are listed so that the order of
+   * the columns of the existing table does not matter
+   *
+   * @param table
+   *          the table structure
+   * @return the SQL
+   * @throws ModuleException
+   */
+  public String copyFromStdinSQL(TableStructure table) throws ModuleException {
+    StringBuilder ret = new StringBuilder("COPY " + escapeTableId(table.getId()) + " (");
+    for (int i = 0; i < table.getColumns().size(); i++) {
+      if (i > 0) {
+        ret.append(", ");
+      }
+      ret.append(escapeColumnName(table.getColumns().get(i).getName()));
+    }
+    ret.append(") FROM STDIN");
+    return ret.toString();
+  }
+
   @Override
   public String createTypeSQL(Type type, boolean isPkey, boolean isFkey) throws UnknownTypeException {
     String ret;
@@ -163,6 +186,14 @@ public class PostgreSQLHelper extends SQLHelper {
       + tableName + "'";
   }
 
+  @Override
+  public String getRowEstimatesSQL(String schemaName) {
+    // reltuples is -1 for tables that were never analyzed
+    return "SELECT rel.relname AS TABLE_NAME, CAST(rel.reltuples AS BIGINT) AS ROW_ESTIMATE "
+      + "FROM pg_catalog.pg_class rel INNER JOIN pg_catalog.pg_namespace nsp ON nsp.oid = rel.relnamespace "
+      + "WHERE rel.relkind IN ('r', 'p') AND nsp.nspname = '" + schemaName + "'";
+  }
+
   @Override
   public String getUsersSQL(String dbName) {
     return "SELECT usename AS USER_NAME FROM pg_catalog.pg_user";
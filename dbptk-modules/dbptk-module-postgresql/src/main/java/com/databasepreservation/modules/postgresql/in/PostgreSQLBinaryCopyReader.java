@@ -0,0 +1,299 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.modules.postgresql.in;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * Reads the rows sent by PostgreSQL for a COPY ... TO STDOUT WITH (FORMAT
+ * binary) command, and decodes the binary representation of the values of some
+ * data types.
+ *
+ * Each row is a list of fields with the raw value of each column (null for SQL
+ * NULL), to be decoded according to the type of the column. Numbers use
+ * network byte order, texts use the client encoding (always UTF-8 with the
+ * PostgreSQL JDBC driver) and timestamps are microseconds since 2000-01-01.
+ */
+public class PostgreSQLBinaryCopyReader implements Closeable {
+  private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int NUMERIC_NEGATIVE = 0x4000;
+  private static final int NUMERIC_NAN = 0xC000;
+  private static final int NUMERIC_POSITIVE_INFINITY = 0xD000;
+  private static final int NUMERIC_NEGATIVE_INFINITY = 0xF000;
+  private static final int NUMERIC_DIGITS_PER_GROUP = 4;
+
+  private static final LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+  private static final Instant POSTGRES_EPOCH_INSTANT = Instant.parse("2000-01-01T00:00:00Z");
+
+  private final DataInputStream input;
+  private boolean ended = false;
+
+  /**
+   * Reads the header of the COPY stream.
+   *
+   * @param inputStream
+   *          the COPY stream, which is closed when this reader is closed
+   * @throws IOException
+   *           if the stream could not be read or is not in the binary COPY
+   *           format
+   */
+  public PostgreSQLBinaryCopyReader(InputStream inputStream) throws IOException {
+    this.input = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+
+    byte[] signature = new byte[SIGNATURE.length];
+    input.readFully(signature);
+    if (!Arrays.equals(signature, SIGNATURE)) {
+      throw new IOException("The COPY stream is not in binary format");
+    }
+    int flags = input.readInt();
+    if ((flags & 0x10000) != 0) {
+      throw new IOException("The COPY stream includes OIDs, which are not supported");
+    }
+    int headerExtensionLength = input.readInt();
+    input.skipNBytes(headerExtensionLength);
+  }
+
+  /**
+   * @return the raw value of each column of the next row (null for SQL NULL),
+   *         or null if there are no more rows
+   * @throws IOException
+   *           if the row could not be read
+   */
+  public byte[][] nextRow() throws IOException {
+    if (ended) {
+      return null;
+    }
+
+    short fieldCount;
+    try {
+      fieldCount = input.readShort();
+    } catch (EOFException e) {
+      // the trailer is optional for readers
+      ended = true;
+      return null;
+    }
+    if (fieldCount == -1) {
+      ended = true;
+      // reads to the end, so the COPY command completes instead of being cancelled
+      // when the stream is closed
+      while (input.read() != -1) {
+        // nothing is expected after the trailer
+      }
+      return null;
+    }
+
+    byte[][] fields = new byte[fieldCount][];
+    for (int i = 0; i < fieldCount; i++) {
+      int length = input.readInt();
+      if (length >= 0) {
+        fields[i] = new byte[length];
+        input.readFully(fields[i]);
+      }
+    }
+    return fields;
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  public static short decodeInt2(byte[] value) {
+    return ByteBuffer.wrap(value).getShort();
+  }
+
+  public static int decodeInt4(byte[] value) {
+    return ByteBuffer.wrap(value).getInt();
+  }
+
+  public static long decodeInt8(byte[] value) {
+    return ByteBuffer.wrap(value).getLong();
+  }
+
+  public static boolean decodeBool(byte[] value) {
+    return value[0] != 0;
+  }
+
+  public static String decodeText(byte[] value) {
+    return new String(value, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param value
+   *          a raw numeric value
+   * @return "NaN", "Infinity" or "-Infinity" if the value is special, null
+   *         otherwise
+   */
+  public static String numericSpecialValue(byte[] value) {
+    int sign = ByteBuffer.wrap(value).getShort(4) & 0xFFFF;
+    switch (sign) {
+      case NUMERIC_NAN:
+        return "NaN";
+      case NUMERIC_POSITIVE_INFINITY:
+        return "Infinity";
+      case NUMERIC_NEGATIVE_INFINITY:
+        return "-Infinity";
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Decodes a numeric value, keeping its display scale (as when read as a
+   * string).
+   *
+   * @param value
+   *          a raw numeric value
+   * @return the number
+   * @throws NumberFormatException
+   *           if the value is special (see
+   *           {@link #numericSpecialValue(byte[])})
+   */
+  public static BigDecimal decodeNumeric(byte[] value) {
+    String special = numericSpecialValue(value);
+    if (special != null) {
+      throw new NumberFormatException("Numeric value " + special + " is not a decimal number");
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(value);
+    int digitGroups = buffer.getShort();
+    int weight = buffer.getShort();
+    int sign = buffer.getShort() & 0xFFFF;
+    int displayScale = buffer.getShort();
+
+    // each group holds 4 decimal digits, the first one multiplies 10000^weight
+    BigInteger unscaled = BigInteger.ZERO;
+    BigInteger groupBase = BigInteger.valueOf(10000);
+    for (int i = 0; i < digitGroups; i++) {
+      unscaled = unscaled.multiply(groupBase).add(BigInteger.valueOf(buffer.getShort()));
+    }
+    if (sign == NUMERIC_NEGATIVE) {
+      unscaled = unscaled.negate();
+    }
+    int scale = NUMERIC_DIGITS_PER_GROUP * (digitGroups - weight - 1);
+    return new BigDecimal(unscaled, scale).setScale(displayScale, RoundingMode.DOWN);
+  }
+
+  /**
+   * @param value
+   *          a raw timestamp (without time zone) value
+   * @return the date and time, or null if the value is infinite
+   */
+  public static LocalDateTime decodeTimestamp(byte[] value) {
+    long microseconds = decodeInt8(value);
+    if (microseconds == Long.MAX_VALUE || microseconds == Long.MIN_VALUE) {
+      return null;
+    }
+    return POSTGRES_EPOCH.plus(microseconds, ChronoUnit.MICROS);
+  }
+
+  /**
+   * @param value
+   *          a raw timestamp with time zone value
+   * @return the instant, or null if the value is infinite
+   */
+  public static Instant decodeTimestampWithTimeZone(byte[] value) {
+    long microseconds = decodeInt8(value);
+    if (microseconds == Long.MAX_VALUE || microseconds == Long.MIN_VALUE) {
+      return null;
+    }
+    return POSTGRES_EPOCH_INSTANT.plus(microseconds, ChronoUnit.MICROS);
+  }
+
+  /**
+   * @param value
+   *          a raw timestamp value
+   * @return true if the value is +infinity, false if it is -infinity or finite
+   */
+  public static boolean isPositiveInfinity(byte[] value) {
+    return decodeInt8(value) == Long.MAX_VALUE;
+  }
+
+  /**
+   * Decodes an array, without decoding its elements.
+   *
+   * @param value
+   *          a raw array value
+   * @return the array
+   */
+  public static RawArray decodeArray(byte[] value) {
+    ByteBuffer buffer = ByteBuffer.wrap(value);
+    int dimensionCount = buffer.getInt();
+    // flag telling if there are null elements
+    buffer.getInt();
+    int elementOid = buffer.getInt();
+
+    int[] dimensions = new int[dimensionCount];
+    int elementCount = dimensionCount == 0 ? 0 : 1;
+    for (int i = 0; i < dimensionCount; i++) {
+      dimensions[i] = buffer.getInt();
+      // lower bound, ignored as by the JDBC driver
+      buffer.getInt();
+      elementCount *= dimensions[i];
+    }
+
+    byte[][] elements = new byte[elementCount][];
+    for (int i = 0; i < elementCount; i++) {
+      int length = buffer.getInt();
+      if (length >= 0) {
+        elements[i] = new byte[length];
+        buffer.get(elements[i]);
+      }
+    }
+    return new RawArray(elementOid, dimensions, elements);
+  }
+
+  /**
+   * The elements of an array, in row-major order, not yet decoded.
+   */
+  public static class RawArray {
+    private final int elementOid;
+    private final int[] dimensions;
+    private final byte[][] elements;
+
+    private RawArray(int elementOid, int[] dimensions, byte[][] elements) {
+      this.elementOid = elementOid;
+      this.dimensions = dimensions;
+      this.elements = elements;
+    }
+
+    public int getElementOid() {
+      return elementOid;
+    }
+
+    /**
+     * @return the size of each dimension, empty for empty arrays
+     */
+    public int[] getDimensions() {
+      return dimensions;
+    }
+
+    /**
+     * @return the raw value of each element (null for SQL NULL)
+     */
+    public byte[][] getElements() {
+      return elements;
+    }
+  }
+}
@@ -13,6 +13,8 @@ package com.databasepreservation.modules.postgresql.in;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -22,15 +24,22 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.databasepreservation.Constants;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.postgresql.PGConnection;
+import org.postgresql.PGStatement;
+import org.postgresql.copy.PGCopyInputStream;
 import org.postgresql.core.Oid;
 import org.postgresql.jdbc.PgResultSet;
 import org.postgresql.largeobject.LargeObject;
@@ -39,14 +48,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.databasepreservation.common.io.providers.InputStreamProvider;
+import com.databasepreservation.common.parallel.RowConsumer;
+import com.databasepreservation.model.data.ArrayCell;
 import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.BooleanCell;
 import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.CellIdPrefix;
+import com.databasepreservation.model.data.ClobCell;
 import com.databasepreservation.model.data.ComposedCell;
+import com.databasepreservation.model.data.DecimalCell;
+import com.databasepreservation.model.data.LongCell;
 import com.databasepreservation.model.data.NullCell;
 import com.databasepreservation.model.data.Row;
 import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.data.TimestampCell;
 import com.databasepreservation.model.exception.InvalidDataException;
 import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.exception.SQLParseException;
 import com.databasepreservation.model.structure.CheckConstraint;
 import com.databasepreservation.model.structure.ColumnStructure;
 import com.databasepreservation.model.structure.ForeignKey;
@@ -56,15 +74,25 @@ import com.databasepreservation.model.structure.SchemaStructure;
 import com.databasepreservation.model.structure.TableStructure;
 import com.databasepreservation.model.structure.Trigger;
 import com.databasepreservation.model.structure.ViewStructure;
+import com.databasepreservation.model.structure.type.ComposedTypeArray;
 import com.databasepreservation.model.structure.type.ComposedTypeStructure;
 import com.databasepreservation.model.structure.type.ComposedTypeStructure.SubType;
+import com.databasepreservation.model.structure.type.SimpleTypeBinary;
+import com.databasepreservation.model.structure.type.SimpleTypeBoolean;
 import com.databasepreservation.model.structure.type.SimpleTypeDateTime;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericApproximate;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
 import com.databasepreservation.model.structure.type.Type;
 import com.databasepreservation.modules.CloseableUtils;
+import com.databasepreservation.modules.jdbc.in.ColumnReader;
 import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+import com.databasepreservation.modules.jdbc.in.KeyRange;
+import com.databasepreservation.modules.jdbc.in.TableReaderPlan;
 import com.databasepreservation.modules.postgresql.PostgreSQLExceptionNormalizer;
 import com.databasepreservation.modules.postgresql.PostgreSQLHelper;
 import com.databasepreservation.modules.postgresql.PostgreSQLModuleFactory;
+import com.databasepreservation.utils.ConfigUtils;
 import com.databasepreservation.utils.MapUtils;
 import com.databasepreservation.utils.RemoteConnectionUtils;
 
@@ -95,6 +123,12 @@ import com.databasepreservation.utils.RemoteConnectionUtils;
 public class PostgreSQLJDBCImportModule extends JDBCImportModule {
   private static final Logger LOGGER = LoggerFactory.getLogger(PostgreSQLJDBCImportModule.class);
 
+  // 0 reads all tables with a result set instead of COPY ... TO STDOUT
+  private static final Integer COPY_EXTRACTION = ConfigUtils.getProperty(1, "dbptk.postgresql.copy");
+
+  // type of each column of the tables read, by table id
+  private final Map<String, int[]> columnTypeOids = new HashMap<>();
+
   /**
    * Create a new PostgreSQL JDBC import module
    *
@@ -167,6 +201,54 @@ public class PostgreSQLJDBCImportModule extends JDBCImportModule {
     return statement;
   }
 
+  /**
+   * Starts a repeatable read transaction on the coordinator connection and
+   * exports its snapshot, which stays valid while the transaction is open.
+   */
+  @Override
+  protected String beginSharedSnapshot() throws ModuleException {
+    try {
+      Connection coordinator = getConnection();
+      coordinator.commit();
+      coordinator.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+      try (Statement st = coordinator.createStatement();
+        ResultSet rs = st.executeQuery("SELECT pg_export_snapshot()")) {
+        rs.next();
+        String snapshot = rs.getString(1);
+        LOGGER.debug("Exported snapshot {}", snapshot);
+        return snapshot;
+      }
+    } catch (SQLException e) {
+      throw normalizeException(e, "Could not export a snapshot for the parallel workers");
+    }
+  }
+
+  @Override
+  protected void joinSharedSnapshot(String snapshot) throws ModuleException {
+    try {
+      Connection worker = getConnection();
+      worker.commit();
+      worker.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+      try (Statement st = worker.createStatement()) {
+        st.execute("SET TRANSACTION SNAPSHOT '" + snapshot.replace("'", "''") + "'");
+      }
+    } catch (SQLException e) {
+      throw normalizeException(e, "Could not use the snapshot " + snapshot + " in a parallel worker");
+    }
+  }
+
+  @Override
+  protected void endSharedSnapshot() {
+    if (connection != null) {
+      try {
+        connection.commit();
+        connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+      } catch (SQLException e) {
+        LOGGER.debug("Could not end the transaction of the exported snapshot", e);
+      }
+    }
+  }
+
   @Override
   protected List<ViewStructure> getViews(String schemaName) throws SQLException, ModuleException {
     List<ViewStructure> views = super.getViews(schemaName);
@@ -208,7 +290,7 @@ public class PostgreSQLJDBCImportModule extends JDBCImportModule {
   }
 
   @Override
-  protected ResultSet getTableRawData(TableStructure table) throws SQLException, ModuleException {
+  protected ResultSet getTableRawData(TableStructure table, KeyRange range) throws SQLException, ModuleException {
 
     // builds a query like "SELECT field1, field2, field3 FROM table"
     HashSet<String> columnNames = new HashSet<>();
@@ -231,17 +313,7 @@ public class PostgreSQLJDBCImportModule extends JDBCImportModule {
 
     query.append(" FROM ").append(sqlHelper.escapeTableId(table.getId()));
 
-    String resultQuery = query.toString();
-
-    String whereClause = getModuleConfiguration().getWhere(table.getSchema(), table.getName(), !table.isFromView());
-    String orderByClause = getModuleConfiguration().getOrderBy(table.getSchema(), table.getName(), !table.isFromView());
-    if (whereClause != null) {
-      resultQuery = sqlHelper.appendWhereClause(resultQuery, whereClause);
-    }
-
-    if (orderByClause != null) {
-      resultQuery = sqlHelper.appendOrderByClause(resultQuery, orderByClause);
-    }
+    String resultQuery = appendTableClauses(query.toString(), table, range);
 
     LOGGER.debug("query: " + resultQuery);
 
@@ -275,114 +347,389 @@ public class PostgreSQLJDBCImportModule extends JDBCImportModule {
 
       sb.append(separator);
 
-      StringBuilder name = new StringBuilder();
-      name.append("(").append(names.get(0)).append(")");
-      for (int i = 1; i < names.size(); i++) {
-        name.append(".").append(names.get(i));
-      }
+      String name = getFieldName(subtype);
       sb.append(name);
+      sb.append(" AS " + getFieldAlias(table, name, columnNames));
+
+      separator = ", ";
+    }
 
-      String alias = RandomStringUtils.random(15, "abcdefghijklmnopqrstuvwxyz");
+    return sb.toString();
+  }
+
+  /**
+   * @return the name of a UDT field in queries, like '(column).field'
+   */
+  private static String getFieldName(SubType subtype) {
+    List<String> names = subtype.getPath();
+    StringBuilder name = new StringBuilder();
+    name.append("(").append(names.get(0)).append(")");
+    for (int i = 1; i < names.size(); i++) {
+      name.append(".").append(names.get(i));
+    }
+    return name.toString();
+  }
+
+  /**
+   * Gets the alias of a UDT field, choosing a random one the first time. The
+   * alias is kept for the next queries of the table, so the column readers of
+   * the table keep matching its result sets.
+   *
+   * @param columnNames
+   *          the names already used in the query, to which the alias is added
+   */
+  private static String getFieldAlias(TableStructure table, String fieldName, Set<String> columnNames) {
+    String alias = table.getUDTAlias(fieldName);
+    if (alias.equals(fieldName)) {
+      alias = RandomStringUtils.random(15, "abcdefghijklmnopqrstuvwxyz");
       while (columnNames.contains(alias)) {
         LOGGER.debug("random alias: column name '" + alias + "' exists.");
         alias = RandomStringUtils.random(15, "abcdefghijklmnopqrstuvwxyz");
       }
-      columnNames.add(alias);
-      table.addUDTAlias(name.toString(), alias);
+      table.addUDTAlias(fieldName, alias);
+    }
+    columnNames.add(alias);
+    return alias;
+  }
 
-      sb.append(" AS " + alias);
+  @Override
+  protected ColumnReader createColumnReader(TableStructure table, ColumnStructure column, int columnIndex) {
+    if (column.getType() instanceof SimpleTypeNumericApproximate) {
+      return (idPrefix, rowIndex, rawData) -> rawToCellSimpleTypeNumericApproximate(idPrefix.getId(rowIndex),
+        column.getName(), column.getType(), rawData);
+    } else if (column.getType() instanceof ComposedTypeStructure) {
+      return createComposedColumnReader(table, column);
+    }
+    return super.createColumnReader(table, column, columnIndex);
+  }
 
-      separator = ", ";
+  /**
+   * Reads the value of a column with a user defined type from its fields, which
+   * are selected after the columns of the table (see
+   * {@link #getTableRawData(TableStructure, KeyRange)}), with a column reader
+   * for each field.
+   */
+  private ColumnReader createComposedColumnReader(TableStructure table, ColumnStructure column) {
+    // the fields of the previous UDT columns come first
+    int fieldIndex = table.getColumns().size() + 1;
+    Set<String> columnNames = new HashSet<>();
+    for (ColumnStructure tableColumn : table.getColumns()) {
+      columnNames.add(tableColumn.getName());
+    }
+    for (ColumnStructure previous : table.getColumns()) {
+      if (previous == column) {
+        break;
+      } else if (previous.getType() instanceof ComposedTypeStructure previousType) {
+        fieldIndex += previousType.getDirectDescendantSubTypes(previous.getId()).size();
+      }
     }
 
-    return sb.toString();
+    // TODO: use getNonComposedSubTypes to get all non-composed subtypes in
+    // a hierarchy
+    List<SubType> subtypes = ((ComposedTypeStructure) column.getType()).getDirectDescendantSubTypes(column.getId());
+    ColumnReader[] fieldReaders = new ColumnReader[subtypes.size()];
+    CellIdPrefix[] fieldIdPrefixes = new CellIdPrefix[subtypes.size()];
+    for (int i = 0; i < subtypes.size(); i++) {
+      String alias = getFieldAlias(table, getFieldName(subtypes.get(i)), columnNames);
+      ColumnStructure field = new ColumnStructure(table.getId() + "." + alias, alias, subtypes.get(i).getType(), true,
+        null, null, false);
+      // nested UDTs are not supported, see rawToCellComposedTypeStructure
+      fieldReaders[i] = field.getType() instanceof ComposedTypeStructure
+        ? super.createColumnReader(table, field, fieldIndex + i)
+        : createColumnReader(table, field, fieldIndex + i);
+      fieldIdPrefixes[i] = new CellIdPrefix(table.getName() + "." + alias);
+    }
+
+    return (idPrefix, rowIndex, rawData) -> {
+      List<Cell> fieldCells = new ArrayList<>(fieldReaders.length);
+      for (int i = 0; i < fieldReaders.length; i++) {
+        Cell cell;
+        try {
+          cell = fieldReaders[i].read(fieldIdPrefixes[i], rowIndex, rawData);
+        } catch (Exception e) {
+          cell = new NullCell(fieldIdPrefixes[i], rowIndex);
+          reporter.cellProcessingUsedNull(table, column, rowIndex, e);
+        }
+        fieldCells.add(cell);
+      }
+      return new ComposedCell(idPrefix.getId(rowIndex), fieldCells);
+    };
   }
 
+  /**
+   * Reads the rows of tables whose columns all have types that can be decoded
+   * from the binary COPY format (integers, numerics, texts, bytea, timestamps,
+   * booleans and arrays of integers, texts or booleans) with a COPY ... TO
+   * STDOUT command, which avoids the overhead of the result set. The cells are
+   * the same that would be read from the result set. Other tables (e.g. with
+   * UDT columns), and all tables if the dbptk.postgresql.copy property is 0,
+   * are read with a result set.
+   */
   @Override
-  protected Row convertRawToRow(ResultSet rawData, TableStructure tableStructure)
-    throws InvalidDataException, SQLException, ModuleException {
-    Row row = null;
-    if (isRowValid(rawData, tableStructure)) {
-      List<Cell> cells = new ArrayList<Cell>(tableStructure.getColumns().size());
-
-      long currentRow = tableStructure.getCurrentRow();
-      if (isGetRowAvailable()) {
-        currentRow = rawData.getRow();
-      }
-
-      ArrayList<Integer> udtColumnsIndexes = new ArrayList<>();
-      int i;
-      for (i = 0; i < tableStructure.getColumns().size(); i++) {
-        ColumnStructure colStruct = tableStructure.getColumns().get(i);
-
-        if (colStruct.getType() instanceof ComposedTypeStructure) {
-          // build composed types later
-          udtColumnsIndexes.add(i);
-          cells.add(null);
-        } else {
-          Cell cell;
-          try {
-            cell = convertRawToCell(tableStructure.getName(), colStruct.getName(), i + 1, currentRow,
-              colStruct.getType(), rawData);
-          } catch (Exception e) {
-            cell = new SimpleCell(tableStructure.getName() + "." + colStruct.getName() + "." + (i + 1), null);
-            reporter.cellProcessingUsedNull(tableStructure, colStruct, currentRow, e);
-          }
-          cells.add(cell);
+  protected long extractTableRows(TableStructure table, KeyRange range, RowConsumer consumer,
+    Map<String, Integer> tableColumnsCardinality) throws ModuleException {
+    CopyColumnReader[] readers = getCopyColumnReaders(table);
+    if (readers == null) {
+      return super.extractTableRows(table, range, consumer, tableColumnsCardinality);
+    }
+
+    String query = "COPY (" + appendTableClauses(selectColumnsSQL(table), table, range)
+      + ") TO STDOUT WITH (FORMAT binary)";
+    LOGGER.debug("query: " + query);
+
+    TableReaderPlan plan = getReaderPlan(table);
+    long nRows = 0;
+    try (PGCopyInputStream copyStream = new PGCopyInputStream(getConnection().unwrap(PGConnection.class), query);
+      PostgreSQLBinaryCopyReader copyReader = new PostgreSQLBinaryCopyReader(copyStream)) {
+      byte[][] fields;
+      while ((fields = copyReader.nextRow()) != null) {
+        Row row = convertCopyToRow(fields, table, plan, readers);
+        acceptRow(table, row, consumer, tableColumnsCardinality);
+        nRows++;
+      }
+    } catch (SQLException e) {
+      throw new SQLParseException()
+        .withMessage(e.getMessage() + " at schema: " + table.getSchema() + " on table: " + table.getName());
+    } catch (IOException | ModuleException e) {
+      LOGGER.error("Could not obtain all data from the current table.", e);
+    }
+    return nRows;
+  }
+
+  private Row convertCopyToRow(byte[][] fields, TableStructure table, TableReaderPlan plan,
+    CopyColumnReader[] readers) throws ModuleException {
+    if (fields.length != readers.length) {
+      throw new ModuleException().withMessage("Got " + fields.length + " columns from table " + table.getId()
+        + " and expected " + readers.length);
+    }
+
+    long currentRow = table.getCurrentRow();
+    Row row = obtainRow(currentRow, readers.length);
+    List<Cell> cells = row.getCells();
+    for (int i = 0; i < readers.length; i++) {
+      Cell cell;
+      if (fields[i] == null) {
+        cell = new NullCell(plan.getCellIdPrefix(i), currentRow);
+      } else {
+        try {
+          cell = readers[i].read(plan.getCellIdPrefix(i), currentRow, fields[i]);
+        } catch (Exception e) {
+          cell = new NullCell(plan.getCellIdPrefix(i), currentRow);
+          reporter.cellProcessingUsedNull(table, plan.getColumn(i), currentRow, e);
         }
       }
+      cells.add(cell);
+    }
+    table.incrementCurrentRow();
+    return row;
+  }
 
-      // build composed types
-      for (Integer udtColumnIndex : udtColumnsIndexes) {
-        List<Cell> udtCells = new ArrayList<>();
-        ColumnStructure udtColumn = tableStructure.getColumns().get(udtColumnIndex);
-        ComposedTypeStructure udtType = (ComposedTypeStructure) udtColumn.getType();
+  /**
+   * @return a reader for each column of the table, or null if the table should
+   *         be read with a result set
+   */
+  private CopyColumnReader[] getCopyColumnReaders(TableStructure table) {
+    if (COPY_EXTRACTION <= 0 || table.isFromCustomView() || getReaderPlan(table).hasComposedColumns()) {
+      return null;
+    }
 
-        // TODO: use getNonComposedSubTypes to get all non-composed subtypes in
-        // a hierarchy
-        List<SubType> subtypes = udtType.getDirectDescendantSubTypes(udtColumn.getId());
-        for (SubType subtype : subtypes) {
-          List<String> names = subtype.getPath();
-          StringBuilder extraColumnName = new StringBuilder();
-          extraColumnName.append("(").append(names.get(0)).append(")");
-          for (int namesIndex = 1; namesIndex < names.size(); namesIndex++) {
-            extraColumnName.append(".").append(names.get(namesIndex));
-          }
+    int[] oids = columnTypeOids.get(table.getId());
+    if (oids == null) {
+      oids = getColumnTypeOids(table);
+      columnTypeOids.put(table.getId(), oids);
+    }
+    if (oids.length != table.getColumns().size()) {
+      return null;
+    }
 
-          String aliasColumnName = tableStructure.getUDTAlias(extraColumnName.toString());
+    CopyColumnReader[] readers = new CopyColumnReader[oids.length];
+    for (int i = 0; i < oids.length; i++) {
+      ColumnStructure column = table.getColumns().get(i);
+      readers[i] = createCopyColumnReader(column, oids[i]);
+      if (readers[i] == null) {
+        LOGGER.debug("Table {} is read with a result set, as column {} ({}) can not be read with COPY",
+          table.getId(), column.getName(), column.getType().getOriginalTypeName());
+        return null;
+      }
+    }
+    return readers;
+  }
 
-          Cell cell;
-          try {
-            cell = convertRawToCell(tableStructure.getName(), aliasColumnName, udtColumnIndex + 1, currentRow,
-              subtype.getType(), rawData);
-          } catch (Exception e) {
-            cell = new SimpleCell(tableStructure.getName() + "." + aliasColumnName + "." + (udtColumnIndex + 1), null);
-            reporter.cellProcessingUsedNull(tableStructure, udtColumn, currentRow, e);
-          }
-          udtCells.add(cell);
+  /**
+   * @return the type of each column as sent by the server, or an empty array if
+   *         it could not be obtained
+   */
+  private int[] getColumnTypeOids(TableStructure table) {
+    try (ResultSet rs = getStatement().executeQuery(selectColumnsSQL(table) + " LIMIT 0")) {
+      PgResultSet pgResultSet = rs.unwrap(PgResultSet.class);
+      int[] oids = new int[rs.getMetaData().getColumnCount()];
+      for (int i = 0; i < oids.length; i++) {
+        oids[i] = pgResultSet.getColumnOID(i + 1);
+      }
+      return oids;
+    } catch (SQLException | ModuleException e) {
+      LOGGER.debug("Could not get the column types of table {}", table.getId(), e);
+      return new int[0];
+    }
+  }
 
-          i++;
-        }
+  private String selectColumnsSQL(TableStructure table) throws ModuleException {
+    StringBuilder query = new StringBuilder("SELECT ");
+    String separator = "";
+    for (ColumnStructure column : table.getColumns()) {
+      query.append(separator).append(sqlHelper.escapeTableName(column.getName()));
+      separator = ", ";
+    }
+    return query.append(" FROM ").append(sqlHelper.escapeTableId(table.getId())).toString();
+  }
 
-        cells.set(udtColumnIndex,
-          new ComposedCell(tableStructure.getName() + "." + udtColumn.getName() + "." + currentRow, udtCells));
+  /**
+   * Chooses how the binary COPY values of a column are decoded, producing the
+   * same cells as the column reader of the result set (see
+   * {@link #createColumnReader(TableStructure, ColumnStructure, int)}).
+   *
+   * @param column
+   *          the column
+   * @param oid
+   *          the type of the column values sent by the server
+   * @return the reader, or null if the values can not be decoded
+   */
+  private CopyColumnReader createCopyColumnReader(ColumnStructure column, int oid) {
+    Type type = column.getType();
+    if (type instanceof SimpleTypeNumericExact numericType) {
+      boolean readAsLong = isReadAsLong(numericType);
+      if (oid == Oid.INT2 || oid == Oid.INT4 || oid == Oid.INT8) {
+        return (idPrefix, rowIndex, value) -> {
+          long longValue = decodeInteger(oid, value);
+          return readAsLong ? new LongCell(idPrefix, rowIndex, longValue)
+            : new DecimalCell(idPrefix, rowIndex, BigDecimal.valueOf(longValue));
+        };
+      } else if (oid == Oid.NUMERIC && readAsLong) {
+        return (idPrefix, rowIndex, value) -> new LongCell(idPrefix, rowIndex,
+          PostgreSQLBinaryCopyReader.decodeNumeric(value).longValueExact());
+      } else if (oid == Oid.NUMERIC) {
+        return (idPrefix, rowIndex, value) -> {
+          // some values (e.g. NaN) can only be read as strings
+          String special = PostgreSQLBinaryCopyReader.numericSpecialValue(value);
+          return special != null ? new SimpleCell(idPrefix, rowIndex, special)
+            : new DecimalCell(idPrefix, rowIndex, PostgreSQLBinaryCopyReader.decodeNumeric(value));
+        };
+      }
+    } else if (type instanceof SimpleTypeString && (oid == Oid.TEXT || oid == Oid.VARCHAR || oid == Oid.BPCHAR)) {
+      if (type.getSql99TypeName() != null && type.getSql99TypeName().endsWith("LARGE OBJECT")) {
+        return (idPrefix, rowIndex, value) -> ClobCell.copyOf(idPrefix, rowIndex,
+          new StringReader(PostgreSQLBinaryCopyReader.decodeText(value)));
+      }
+      return (idPrefix, rowIndex, value) -> new SimpleCell(idPrefix, rowIndex,
+        PostgreSQLBinaryCopyReader.decodeText(value));
+    } else if (type instanceof SimpleTypeBinary binaryType && !binaryType.isOutsideDatabase() && oid == Oid.BYTEA
+      && "bytea".equalsIgnoreCase(type.getOriginalTypeName())) {
+      return (idPrefix, rowIndex, value) -> new BinaryCell(idPrefix.getId(rowIndex), new ByteArrayInputStream(value));
+    } else if (type instanceof SimpleTypeDateTime dateTimeType && dateTimeType.getTimeDefined()) {
+      if (oid == Oid.TIMESTAMPTZ && "TIMESTAMP WITH TIME ZONE".equalsIgnoreCase(type.getSql99TypeName())) {
+        return (idPrefix, rowIndex, value) -> {
+          Instant instant = PostgreSQLBinaryCopyReader.decodeTimestampWithTimeZone(value);
+          if (instant == null) {
+            instant = infiniteTimestamp(value).toInstant();
+          }
+          return new SimpleCell(idPrefix, rowIndex, instant.toString());
+        };
+      } else if (oid == Oid.TIMESTAMP && "TIMESTAMP".equalsIgnoreCase(type.getSql99TypeName())
+        && !"TIMESTAMP WITH TIME ZONE".equalsIgnoreCase(type.getSql2008TypeName())) {
+        return (idPrefix, rowIndex, value) -> {
+          LocalDateTime dateTime = PostgreSQLBinaryCopyReader.decodeTimestamp(value);
+          Timestamp timestamp = dateTime == null ? infiniteTimestamp(value) : Timestamp.valueOf(dateTime);
+          return new TimestampCell(idPrefix, rowIndex, timestamp);
+        };
       }
+    } else if (type instanceof SimpleTypeBoolean && oid == Oid.BOOL) {
+      return (idPrefix, rowIndex, value) -> new BooleanCell(idPrefix, rowIndex,
+        PostgreSQLBinaryCopyReader.decodeBool(value));
+    } else if (type instanceof ComposedTypeArray) {
+      int baseType = getArrayBaseType(oid);
+      if (baseType != Types.NULL) {
+        return (idPrefix, rowIndex, value) -> copyToArrayCell(idPrefix.getId(rowIndex), baseType,
+          PostgreSQLBinaryCopyReader.decodeArray(value));
+      }
+    }
+    return null;
+  }
+
+  private static long decodeInteger(int oid, byte[] value) {
+    if (oid == Oid.INT2) {
+      return PostgreSQLBinaryCopyReader.decodeInt2(value);
+    } else if (oid == Oid.INT4) {
+      return PostgreSQLBinaryCopyReader.decodeInt4(value);
+    } else {
+      return PostgreSQLBinaryCopyReader.decodeInt8(value);
+    }
+  }
+
+  /**
+   * @return the timestamp used by the JDBC driver for infinite values
+   */
+  private static Timestamp infiniteTimestamp(byte[] value) {
+    return new Timestamp(PostgreSQLBinaryCopyReader.isPositiveInfinity(value) ? PGStatement.DATE_POSITIVE_INFINITY
+      : PGStatement.DATE_NEGATIVE_INFINITY);
+  }
 
-      row = new Row(currentRow, cells);
+  /**
+   * @return the JDBC base type of the arrays of a type, as reported by the
+   *         driver, for the arrays whose elements can be decoded, or
+   *         {@link Types#NULL} for the others
+   */
+  private static int getArrayBaseType(int arrayOid) {
+    if (arrayOid == Oid.INT4_ARRAY) {
+      return Types.INTEGER;
+    } else if (arrayOid == Oid.TEXT_ARRAY || arrayOid == Oid.VARCHAR_ARRAY) {
+      return Types.VARCHAR;
+    } else if (arrayOid == Oid.BPCHAR_ARRAY) {
+      return Types.CHAR;
+    } else if (arrayOid == Oid.BOOL_ARRAY) {
+      return Types.BIT;
     } else {
-      // insert null in all fields
-      List<Cell> cells = new ArrayList<Cell>(tableStructure.getColumns().size());
-      for (int i = 0; i < tableStructure.getColumns().size(); i++) {
-        ColumnStructure colStruct = tableStructure.getColumns().get(i);
-        cells.add(new SimpleCell(tableStructure.getName() + "." + colStruct.getName() + "." + (i + 1), null));
+      return Types.NULL;
+    }
+  }
+
+  /**
+   * Builds the same array cell as {@link #parseArray(String, java.sql.Array)},
+   * with the elements identified by their 1-based position in each dimension
+   */
+  private Cell copyToArrayCell(String id, int baseType, PostgreSQLBinaryCopyReader.RawArray array) {
+    ArrayCell arrayCell = new ArrayCell(id);
+    int[] dimensions = array.getDimensions();
+    byte[][] elements = array.getElements();
+    for (int i = 0; i < elements.length; i++) {
+      // the last dimension varies fastest
+      Integer[] position = new Integer[dimensions.length];
+      int remainder = i;
+      for (int d = dimensions.length - 1; d >= 0; d--) {
+        position[d] = remainder % dimensions[d] + 1;
+        remainder /= dimensions[d];
       }
-      row = new Row(tableStructure.getCurrentRow(), cells);
 
-      reporter.rowProcessingUsedNull(tableStructure, tableStructure.getCurrentRow(),
-        new ModuleException().withMessage("isRowValid returned false"));
+      Object element = null;
+      if (elements[i] != null) {
+        if (baseType == Types.INTEGER) {
+          element = PostgreSQLBinaryCopyReader.decodeInt4(elements[i]);
+        } else if (baseType == Types.BIT) {
+          element = PostgreSQLBinaryCopyReader.decodeBool(elements[i]);
+        } else {
+          element = PostgreSQLBinaryCopyReader.decodeText(elements[i]);
+        }
+      }
+      arrayCell.put(getArrayCell(id + "." + StringUtils.join(position, "."), baseType, element), position);
     }
-    tableStructure.incrementCurrentRow();
-    return row;
+    return arrayCell;
+  }
+
+  /**
+   * Decodes the binary COPY value of a column into a cell.
+   */
+  @FunctionalInterface
+  private interface CopyColumnReader {
+    Cell read(CellIdPrefix idPrefix, long rowIndex, byte[] value) throws ModuleException;
   }
 
   @Override
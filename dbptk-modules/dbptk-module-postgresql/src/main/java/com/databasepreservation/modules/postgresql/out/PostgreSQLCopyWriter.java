@@ -0,0 +1,303 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/db-preservation-toolkit
+ */
+package com.databasepreservation.modules.postgresql.out;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import com.databasepreservation.model.data.BinaryCell;
+import com.databasepreservation.model.data.BooleanCell;
+import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.ClobCell;
+import com.databasepreservation.model.data.DateCell;
+import com.databasepreservation.model.data.DecimalCell;
+import com.databasepreservation.model.data.LongCell;
+import com.databasepreservation.model.data.NullCell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.data.TimestampCell;
+import com.databasepreservation.model.exception.InvalidDataException;
+import com.databasepreservation.model.exception.ModuleException;
+import com.databasepreservation.model.structure.ColumnStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeBinary;
+import com.databasepreservation.model.structure.type.SimpleTypeBoolean;
+import com.databasepreservation.model.structure.type.SimpleTypeDateTime;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericApproximate;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
+import com.databasepreservation.model.structure.type.SimpleTypeString;
+import com.databasepreservation.model.structure.type.Type;
+import com.databasepreservation.model.structure.type.UnsupportedDataType;
+
+/**
+ * Writes rows for a COPY ... FROM STDIN command, in the text format: one line
+ * per row, with the values separated by tabs, \N for SQL NULL and backslash
+ * escapes for backslashes, tabs and line breaks.
+ *
+ * Values are converted as the PreparedStatement path of
+ * {@link PostgreSQLJDBCExportModule} would set them. Large texts and binary
+ * values (written as hexadecimal bytea) are streamed while they are read, so
+ * they are never held in memory.
+ */
+public class PostgreSQLCopyWriter implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final String NULL = "\\N";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME
+    .withZone(ZoneId.systemDefault());
+
+  private final Writer writer;
+  private final List<ColumnStructure> columns;
+  private final char[] chars = new char[BUFFER_SIZE];
+  private final byte[] bytes = new byte[BUFFER_SIZE / 2];
+
+  /**
+   * @param outputStream
+   *          the COPY stream, which is closed when this writer is closed
+   * @param columns
+   *          the columns of the table, in the order of the COPY command
+   */
+  public PostgreSQLCopyWriter(OutputStream outputStream, List<ColumnStructure> columns) {
+    this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    this.columns = columns;
+  }
+
+  /**
+   * @return true if the values of the column can be written, false if they
+   *         must be inserted in other way (e.g. arrays, structured types and
+   *         times with time zone)
+   */
+  public static boolean isSupported(ColumnStructure column) {
+    Type type = column.getType();
+    if (type instanceof SimpleTypeDateTime) {
+      return !"TIME WITH TIME ZONE".equalsIgnoreCase(type.getSql99TypeName());
+    }
+    return type instanceof SimpleTypeString || type instanceof SimpleTypeNumericExact
+      || type instanceof SimpleTypeNumericApproximate || type instanceof SimpleTypeBoolean
+      || type instanceof SimpleTypeBinary || type instanceof UnsupportedDataType;
+  }
+
+  /**
+   * @return true if all the cells of the row can be written to the columns
+   */
+  public static boolean isSupported(Row row, List<ColumnStructure> columns) {
+    List<Cell> cells = row.getCells();
+    if (cells.size() != columns.size()) {
+      return false;
+    }
+    for (int i = 0; i < cells.size(); i++) {
+      Cell cell = cells.get(i);
+      Type type = columns.get(i).getType();
+      boolean supported = cell instanceof NullCell || cell instanceof SimpleCell
+        || (cell instanceof BinaryCell && (type instanceof SimpleTypeBinary || type instanceof SimpleTypeString));
+      if (!supported || !isSupported(columns.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes a row. The values are converted before anything is written, so a
+   * row with a value that can not be converted is not written at all.
+   *
+   * @throws InvalidDataException
+   *           if a value could not be converted, nothing was written
+   * @throws ModuleException
+   *           if a large object could not be read, the row may be incomplete
+   *           and the COPY must be cancelled instead of ended
+   * @throws IOException
+   *           if the row could not be sent
+   */
+  public void writeRow(Row row) throws ModuleException, IOException {
+    List<Cell> cells = row.getCells();
+    String[] values = new String[cells.size()];
+    for (int i = 0; i < cells.size(); i++) {
+      values[i] = encode(cells.get(i), columns.get(i));
+    }
+
+    for (int i = 0; i < cells.size(); i++) {
+      if (i > 0) {
+        writer.write('\t');
+      }
+      if (values[i] != null) {
+        writer.write(values[i]);
+      } else if (cells.get(i) instanceof BinaryCell binaryCell) {
+        if (columns.get(i).getType() instanceof SimpleTypeBinary) {
+          writeHex(binaryCell);
+        } else {
+          try (InputStream in = binaryCell.createInputStream()) {
+            writeEscaped(new InputStreamReader(in, StandardCharsets.UTF_8));
+          }
+        }
+      } else {
+        try (Reader reader = ((ClobCell) cells.get(i)).createReader()) {
+          writeEscaped(reader);
+        }
+      }
+    }
+    writer.write('\n');
+  }
+
+  /**
+   * @return the value of the cell in the COPY text format, or null if the cell
+   *         is a large object to be streamed
+   */
+  private static String encode(Cell cell, ColumnStructure column) throws InvalidDataException {
+    Type type = column.getType();
+    if (cell instanceof NullCell) {
+      return NULL;
+    } else if (cell instanceof BinaryCell
+      || (cell instanceof ClobCell && (type instanceof SimpleTypeString || type instanceof UnsupportedDataType))) {
+      return null;
+    }
+
+    String data = ((SimpleCell) cell).getSimpleData();
+    if (data == null) {
+      return NULL;
+    }
+
+    try {
+      if (type instanceof SimpleTypeNumericExact exactType) {
+        if (cell instanceof LongCell longCell) {
+          return Long.toString(longCell.getLong());
+        }
+        BigDecimal decimal = cell instanceof DecimalCell decimalCell ? decimalCell.getDecimal()
+          : new BigDecimal(data);
+        // integer columns do not accept decimals, the prepared statement relies
+        // on the server rounding them
+        if (Integer.valueOf(0).equals(exactType.getScale()) && decimal.scale() > 0) {
+          decimal = decimal.setScale(0, RoundingMode.HALF_UP);
+        }
+        return decimal.toPlainString();
+      } else if (type instanceof SimpleTypeNumericApproximate) {
+        if ("FLOAT".equalsIgnoreCase(type.getSql99TypeName())) {
+          return Float.toString(Float.parseFloat(data));
+        }
+        return Double.toString(Double.parseDouble(data));
+      } else if (type instanceof SimpleTypeBoolean) {
+        boolean value = cell instanceof BooleanCell booleanCell ? booleanCell.getBoolean()
+          : Boolean.parseBoolean(data);
+        return value ? "true" : "false";
+      } else if (type instanceof SimpleTypeDateTime dateTimeType) {
+        return encodeDateTime((SimpleCell) cell, data, dateTimeType);
+      } else {
+        return escape(data.replace("\u0000", ""));
+      }
+    } catch (IllegalArgumentException | DateTimeException e) {
+      InvalidDataException exception = new InvalidDataException(
+        "Could not convert cell " + cell.getId() + " to " + type.getSql99TypeName());
+      exception.withCause(e);
+      throw exception;
+    }
+  }
+
+  private static String encodeDateTime(SimpleCell cell, String data, SimpleTypeDateTime type) {
+    String typeName = type.getSql99TypeName();
+    if (type.getTimeDefined()) {
+      if ("TIMESTAMP".equalsIgnoreCase(typeName) || "TIMESTAMP WITH TIME ZONE".equalsIgnoreCase(typeName)) {
+        // written with the offset of the default time zone, which PostgreSQL
+        // ignores for timestamps without time zone, as with setTimestamp
+        Instant instant = cell instanceof TimestampCell timestampCell ? timestampCell.getInstant()
+          : Instant.parse(data);
+        return TIMESTAMP_FORMATTER.format(instant);
+      }
+      return Time.valueOf(data).toString();
+    } else if (cell instanceof DateCell dateCell) {
+      return dateCell.getDate().toString();
+    }
+    return java.sql.Date.valueOf(data).toString();
+  }
+
+  /**
+   * Escapes the backslashes, tabs and line breaks of a text
+   */
+  private static String escape(String text) {
+    StringBuilder escaped = null;
+    for (int i = 0; i < text.length(); i++) {
+      String replacement = replacement(text.charAt(i));
+      if (replacement != null && escaped == null) {
+        escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+      }
+      if (escaped != null) {
+        if (replacement != null) {
+          escaped.append(replacement);
+        } else {
+          escaped.append(text.charAt(i));
+        }
+      }
+    }
+    return escaped == null ? text : escaped.toString();
+  }
+
+  private static String replacement(char c) {
+    return switch (c) {
+      case '\\' -> "\\\\";
+      case '\t' -> "\\t";
+      case '\n' -> "\\n";
+      case '\r' -> "\\r";
+      default -> null;
+    };
+  }
+
+  private void writeEscaped(Reader reader) throws IOException {
+    int read;
+    while ((read = reader.read(chars)) != -1) {
+      int start = 0;
+      for (int i = 0; i < read; i++) {
+        char c = chars[i];
+        String replacement = c == '\u0000' ? "" : replacement(c);
+        if (replacement != null) {
+          writer.write(chars, start, i - start);
+          writer.write(replacement);
+          start = i + 1;
+        }
+      }
+      writer.write(chars, start, read - start);
+    }
+  }
+
+  private void writeHex(BinaryCell cell) throws ModuleException, IOException {
+    // the bytea hex format, with its backslash escaped
+    writer.write("\\\\x");
+    try (InputStream in = cell.createInputStream()) {
+      int read;
+      while ((read = in.read(bytes)) != -1) {
+        for (int i = 0; i < read; i++) {
+          chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+          chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        writer.write(chars, 0, 2 * read);
+      }
+    }
+  }
+
+  /**
+   * Sends the buffered rows and closes the COPY stream, ending the COPY
+   * command.
+   */
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
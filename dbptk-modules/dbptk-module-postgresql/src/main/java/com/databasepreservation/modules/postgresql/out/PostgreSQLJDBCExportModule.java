@@ -7,6 +7,7 @@
  */
 package com.databasepreservation.modules.postgresql.out;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Array;
 import java.sql.PreparedStatement;
@@ -15,17 +16,26 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
 import java.util.TreeSet;
 
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.databasepreservation.model.data.ArrayCell;
 import com.databasepreservation.model.data.BinaryCell;
 import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.PrimitiveCell;
+import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.data.SimpleCell;
+import com.databasepreservation.model.data.TimestampCell;
+import com.databasepreservation.model.exception.InvalidDataException;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.structure.ColumnStructure;
 import com.databasepreservation.model.structure.type.ComposedTypeArray;
@@ -33,7 +43,9 @@ import com.databasepreservation.model.structure.type.SimpleTypeDateTime;
 import com.databasepreservation.modules.jdbc.out.JDBCExportModule;
 import com.databasepreservation.modules.postgresql.PostgreSQLExceptionNormalizer;
 import com.databasepreservation.modules.postgresql.PostgreSQLHelper;
+import com.databasepreservation.utils.ConfigUtils;
 import com.databasepreservation.utils.RemoteConnectionUtils;
+import com.databasepreservation.utils.RowUtils;
 import com.google.common.base.Function;
 
 /**
@@ -67,6 +79,13 @@ public class PostgreSQLJDBCExportModule extends JDBCExportModule {
   private static final int Types_TIME_WITH_TIMEZONE = 0x7dd;
   private static final String[] IGNORED_SCHEMAS = {};
   private static final Logger LOGGER = LoggerFactory.getLogger(PostgreSQLJDBCExportModule.class);
+
+  // rows loaded by each COPY ... FROM STDIN command, which is committed; a
+  // row rejected by PostgreSQL fails all the rows of its COPY, so they are
+  // kept until then and inserted again with the prepared statement batches;
+  // 0 inserts all rows with the prepared statement batches
+  private static final Integer COPY_ROWS = ConfigUtils.getProperty(1000, "dbptk.postgresql.copy.load.rows");
+
   private final String hostname;
   private final int port;
   private final String database;
@@ -79,6 +98,15 @@ public class PostgreSQLJDBCExportModule extends JDBCExportModule {
   private final String sshPassword;
   private final String sshPort;
 
+  private boolean currentTableCopied = false;
+  private PGCopyOutputStream currentCopyStream = null;
+  private PostgreSQLCopyWriter currentCopyWriter = null;
+  // rows sent to the current COPY command
+  private final List<Row> currentCopyRows = new ArrayList<>();
+  // rows of committed COPY commands, released after the next module handles
+  // them
+  private final List<Row> committedCopyRows = new ArrayList<>();
+
   /**
    * Create a new PostgreSQL JDBC export module
    *
@@ -207,8 +235,185 @@ public class PostgreSQLJDBCExportModule extends JDBCExportModule {
     return exists;
   }
 
+  @Override
+  public void handleDataOpenTable(String tableId) throws ModuleException {
+    super.handleDataOpenTable(tableId);
+    currentTableCopied = COPY_ROWS > 0 && !currentIsIgnoredSchema
+      && currentTableStructure.getColumns().stream().allMatch(PostgreSQLCopyWriter::isSupported);
+    if (COPY_ROWS > 0 && !currentIsIgnoredSchema && !currentTableCopied) {
+      LOGGER.debug("Table {} has columns that can not be copied, inserting its rows with prepared statements",
+        tableId);
+    }
+  }
+
+  @Override
+  public void handleDataRow(Row row) throws ModuleException {
+    if (currentTableCopied) {
+      copyRow(row);
+      this.exportModule.handleDataRow(row);
+      releaseCommittedRows();
+    } else {
+      super.handleDataRow(row);
+    }
+  }
+
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    if (currentTableCopied) {
+      for (Row row : rows) {
+        copyRow(row);
+      }
+      this.exportModule.handleDataRows(rows);
+      releaseCommittedRows();
+    } else {
+      super.handleDataRows(rows);
+    }
+  }
+
+  /**
+   * Sends the row to the COPY command of the table, starting it if needed and
+   * ending it every COPY_ROWS rows. Rows with values that can not be copied are
+   * inserted with the prepared statement instead.
+   */
+  private void copyRow(Row row) throws ModuleException {
+    Row copied = detachForCopy(row);
+    if (copied != null) {
+      if (currentCopyWriter == null) {
+        startCopy();
+      }
+      try {
+        currentCopyWriter.writeRow(copied);
+        currentCopyRows.add(copied);
+        if (currentCopyRows.size() >= COPY_ROWS) {
+          endCopy();
+        }
+        return;
+      } catch (InvalidDataException e) {
+        LOGGER.debug("Could not copy row {} of table {}", row.getIndex(), currentTableStructure.getId(), e);
+      } catch (ModuleException | IOException e) {
+        currentCopyRows.add(copied);
+        cancelCopy(e);
+        return;
+      }
+    }
+
+    // the connection can not be used by the prepared statement while copying
+    endCopy();
+    insertRow(row);
+  }
+
+  /**
+   * Reads the LOBs of the row to memory or temporary files (see
+   * {@link RowUtils#detach(Row)}), so that the row can still be inserted if its
+   * COPY command fails.
+   *
+   * @return a copy of the row, or null if the row can not be copied
+   */
+  private Row detachForCopy(Row row) {
+    if (!PostgreSQLCopyWriter.isSupported(row, currentTableStructure.getColumns())) {
+      return null;
+    }
+    try {
+      return RowUtils.copy(RowUtils.detach(row));
+    } catch (ModuleException e) {
+      LOGGER.debug("Could not read the LOBs of row {} of table {}", row.getIndex(), currentTableStructure.getId(), e);
+      return null;
+    }
+  }
+
+  private void startCopy() throws ModuleException {
+    String tableId = currentTableStructure.getId();
+    try {
+      currentCopyStream = new PGCopyOutputStream(getConnection().unwrap(PGConnection.class),
+        ((PostgreSQLHelper) getSqlHelper()).copyFromStdinSQL(currentTableStructure));
+      currentCopyWriter = new PostgreSQLCopyWriter(currentCopyStream, currentTableStructure.getColumns());
+    } catch (SQLException e) {
+      throw normalizeException(e, "Error starting the copy of rows to table " + tableId);
+    }
+  }
+
+  /**
+   * Ends the COPY command and commits the rows it loaded, inserting them again
+   * with the prepared statement if PostgreSQL rejected any of them
+   */
+  private void endCopy() throws ModuleException {
+    if (currentCopyWriter != null) {
+      try {
+        currentCopyWriter.close();
+        commit();
+        committedCopyRows.addAll(currentCopyRows);
+      } catch (IOException | SQLException e) {
+        rollback();
+        insertCopiedRows(e);
+      } finally {
+        currentCopyWriter = null;
+        currentCopyStream = null;
+        currentCopyRows.clear();
+      }
+    }
+  }
+
+  /**
+   * Aborts the COPY command, which may have an incomplete row, inserting the
+   * rows it loaded again with the prepared statement
+   */
+  private void cancelCopy(Exception cause) throws ModuleException {
+    try {
+      currentCopyStream.cancelCopy();
+    } catch (SQLException e) {
+      LOGGER.debug("Could not cancel the copy of rows to table {}", currentTableStructure.getId(), e);
+    } finally {
+      currentCopyWriter = null;
+      currentCopyStream = null;
+    }
+    rollback();
+    try {
+      insertCopiedRows(cause);
+    } finally {
+      currentCopyRows.clear();
+    }
+  }
+
+  /**
+   * Inserts the rows of a failed COPY command, so that only the rows that are
+   * also rejected by the prepared statement are reported as failed
+   */
+  private void insertCopiedRows(Exception cause) throws ModuleException {
+    if (currentCopyRows.isEmpty()) {
+      LOGGER.debug("Could not end the copy of rows to table {}", currentTableStructure.getId(), cause);
+      return;
+    }
+    LOGGER.warn("Could not copy rows with index from {} to {} to table {}, inserting them one by one",
+      currentCopyRows.get(0).getIndex(), currentCopyRows.get(currentCopyRows.size() - 1).getIndex(),
+      currentTableStructure.getId());
+    LOGGER.debug("This is the exception for the previous warning.", cause);
+    for (Row row : currentCopyRows) {
+      insertRow(row);
+    }
+  }
+
+  private void releaseCommittedRows() {
+    if (!this.exportModule.retainsRows()) {
+      committedCopyRows.forEach(RowUtils::cleanResources);
+    }
+    committedCopyRows.clear();
+  }
+
+  private void rollback() {
+    try {
+      getConnection().rollback();
+    } catch (SQLException | ModuleException e) {
+      LOGGER.debug("Could not roll back the failed copy of rows", e);
+    }
+  }
+
   @Override
   public void handleDataCloseTable(String tableId) throws ModuleException {
+    if (currentTableCopied) {
+      endCopy();
+      releaseCommittedRows();
+      currentTableCopied = false;
+    }
     try {
       if (!currentIsIgnoredSchema) {
         getStatement().executeUpdate(((PostgreSQLHelper) getSqlHelper()).grantPermissionsSQL(tableId));
@@ -219,6 +424,18 @@ public class PostgreSQLJDBCExportModule extends JDBCExportModule {
     super.handleDataCloseTable(tableId);
   }
 
+  @Override
+  protected boolean handlePrimitiveDataCell(PrimitiveCell cell, PreparedStatement ps, int index,
+    ColumnStructure column) throws SQLException {
+    String typeName = column.getType().getSql99TypeName();
+    if (cell instanceof TimestampCell timestampCell
+      && ("TIMESTAMP".equalsIgnoreCase(typeName) || "TIMESTAMP WITH TIME ZONE".equalsIgnoreCase(typeName))) {
+      ps.setTimestamp(index, Timestamp.from(timestampCell.getInstant()));
+      return true;
+    }
+    return super.handlePrimitiveDataCell(cell, ps, index, column);
+  }
+
   @Override
   protected void handleSimpleTypeDateTimeDataCell(String data, PreparedStatement ps, int index, Cell cell,
     ColumnStructure column) throws SQLException {
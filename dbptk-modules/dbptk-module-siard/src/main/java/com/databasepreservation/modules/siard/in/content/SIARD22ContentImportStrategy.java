@@ -32,7 +32,6 @@ import javax.xml.validation.SchemaFactory;
 
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -48,6 +47,8 @@ import com.databasepreservation.common.io.providers.SegmentedPathInputStreamProv
 import com.databasepreservation.model.data.ArrayCell;
 import com.databasepreservation.model.data.BinaryCell;
 import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.CellIdPrefix;
+import com.databasepreservation.model.data.ClobCell;
 import com.databasepreservation.model.data.NullCell;
 import com.databasepreservation.model.data.Row;
 import com.databasepreservation.model.data.SimpleCell;
@@ -99,6 +100,7 @@ public class SIARD22ContentImportStrategy extends DefaultHandler implements Cont
   private SAXErrorHandler errorHandler;
   // SAXHandler state
   private TableStructure currentTable;
+  private CellIdPrefix[] currentCellIdPrefixes;
   private SchemaStructure currentSchema;
   private DatabaseStructure database;
   private InputStream currentTableStream;
@@ -107,6 +109,8 @@ public class SIARD22ContentImportStrategy extends DefaultHandler implements Cont
   private ArrayCell currentArrayCell;
   private int currentColumnIndex;
   private Row row;
+  // reuse the same row when the export module does not keep rows
+  private boolean reuseRows = false;
   private long rowIndex;
   private boolean useLobPathFallback = false;
 
@@ -124,6 +128,8 @@ public class SIARD22ContentImportStrategy extends DefaultHandler implements Cont
     // set instance state
     this.databaseExportModule = handler;
     this.contentContainer = container;
+    this.reuseRows = !handler.retainsRows();
+    this.row = null;
 
     // pre-setup parser and validation
     SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
@@ -151,6 +157,10 @@ public class SIARD22ContentImportStrategy extends DefaultHandler implements Cont
       if (schemaHandled) {
         for (TableStructure table : schema.getTables()) {
           currentTable = table;
+          currentCellIdPrefixes = new CellIdPrefix[table.getColumns().size()];
+          for (int i = 0; i < currentCellIdPrefixes.length; i++) {
+            currentCellIdPrefixes[i] = new CellIdPrefix(table.getColumns().get(i).getId());
+          }
           boolean tableHandled = false;
           this.rowIndex = 1;
           try {
@@ -278,10 +288,15 @@ public class SIARD22ContentImportStrategy extends DefaultHandler implements Cont
     tempVal.setLength(0);
 
     if (qName.equalsIgnoreCase(ROW_KEYWORD)) {
-      row = new Row();
-      row.setCells(new ArrayList<Cell>());
-      for (int i = 0; i < currentTable.getColumns().size(); i++) {
-        row.getCells().add(null);
+      int columnCount = currentTable.getColumns().size();
+      if (reuseRows && row != null && row.getCells().size() == columnCount) {
+        Collections.fill(row.getCells(), null);
+      } else {
+        row = new Row();
+        row.setCells(new ArrayList<Cell>(columnCount));
+        for (int i = 0; i < columnCount; i++) {
+          row.getCells().add(null);
+        }
       }
     } else if (qName.startsWith(COLUMN_KEYWORD)) {
       currentColumnIndex = Integer.parseInt(qName.substring(1));
@@ -351,7 +366,7 @@ public class SIARD22ContentImportStrategy extends DefaultHandler implements Cont
             LOGGER.debug(
               String.format("BLOB cell %s on row #%d with lob dir %s", currentBlobCell.getId(), rowIndex, lobPath));
           } else if (lobPath.endsWith(SIARD22ContentPathExportStrategy.CLOB_EXTENSION)) {
-            String data;
+            String columnId = currentTable.getColumns().get(currentColumnIndex - 1).getId();
             if (container.getType().equals(SIARDArchiveContainer.OutputContainerType.AUXILIARY)) {
               Path inputStreamPath;
               if (lobPath.startsWith(File.separator)) {
@@ -359,16 +374,14 @@ public class SIARD22ContentImportStrategy extends DefaultHandler implements Cont
               } else {
                 inputStreamPath = container.getPath().resolve(Paths.get(lobPath));
               }
-              SegmentedPathInputStreamProvider inputStreamProvider = new SegmentedPathInputStreamProvider(
-                inputStreamPath);
-              inputStream = inputStreamProvider.createInputStream();
-              data = IOUtils.toString(inputStream);
+              // the file is read by the export module, when needed
+              currentClobCell = new ClobCell(columnId + "." + rowIndex,
+                new SegmentedPathInputStreamProvider(inputStreamPath));
             } else {
-              inputStream = createInputStream(container, lobPath);
-              data = IOUtils.toString(inputStream);
+              // the reader is closed by copyOf
+              currentClobCell = ClobCell.copyOf(new CellIdPrefix(columnId), rowIndex,
+                new InputStreamReader(createInputStream(container, lobPath), StandardCharsets.UTF_8));
             }
-            currentClobCell = new SimpleCell(
-              currentTable.getColumns().get(currentColumnIndex - 1).getId() + "." + rowIndex, data);
 
             LOGGER.debug("CLOB cell {} on row #{} with lob path {}", currentClobCell.getId(), rowIndex, lobPath);
           }
@@ -407,8 +420,7 @@ public class SIARD22ContentImportStrategy extends DefaultHandler implements Cont
       for (int i = row.getCells().size() - 1; i >= 0; i--) {
         Cell cell = row.getCells().get(i);
         if (cell == null) {
-          String id = currentTable.getColumns().get(i).getId() + "." + rowIndex;
-          row.getCells().set(i, new NullCell(id));
+          row.getCells().set(i, new NullCell(currentCellIdPrefixes[i], rowIndex));
         }
       }
 
@@ -482,20 +494,20 @@ public class SIARD22ContentImportStrategy extends DefaultHandler implements Cont
         cell = currentClobCell;
         currentClobCell = null;
       } else {
-        String id = currentTable.getColumns().get(currentColumnIndex - 1).getId() + "." + rowIndex;
+        CellIdPrefix idPrefix = currentCellIdPrefixes[currentColumnIndex - 1];
 
         if (type instanceof SimpleTypeBinary && StringUtils.isNotBlank(localVal)) {
           // binary data with less than 2000 bytes does not have its own file
           try {
             InputStream is = new ByteArrayInputStream(Hex.decodeHex(localVal.toCharArray()));
-            cell = new BinaryCell(id, is);
+            cell = new BinaryCell(idPrefix.getId(rowIndex), is);
           } catch (ModuleException e) {
             LOGGER.error("An error occurred while importing in-table binary cell", e);
           } catch (DecoderException e) {
             LOGGER.error(String.format("Illegal characters in hexadecimal string \"%s\"", localVal), e);
           }
         } else {
-          cell = new SimpleCell(id, localVal);
+          cell = new SimpleCell(idPrefix, rowIndex, localVal);
         }
       }
       row.getCells().set(currentColumnIndex - 1, cell);
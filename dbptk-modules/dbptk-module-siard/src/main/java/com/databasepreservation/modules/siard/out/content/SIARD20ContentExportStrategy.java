@@ -34,6 +34,7 @@ import com.databasepreservation.common.io.providers.InputStreamProviderImpl;
 import com.databasepreservation.model.data.ArrayCell;
 import com.databasepreservation.model.data.BinaryCell;
 import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.ClobCell;
 import com.databasepreservation.model.data.ComposedCell;
 import com.databasepreservation.model.data.NullCell;
 import com.databasepreservation.model.data.Row;
@@ -413,18 +414,17 @@ public class SIARD20ContentExportStrategy implements ContentExportStrategy {
     } else if (cell instanceof SimpleCell) {
       SimpleCell txtCell = (SimpleCell) cell;
 
-      // workaround to have data from CLOBs saved as a temporary file to be read
-      String data = txtCell.getSimpleData();
-
       if (txtCell.getBytesSize() < 0) {
         // NULL content
         writeNullCellData(cellPrefix, new NullCell(cell.getId()), columnIndex);
         return;
       }
 
-      ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data.getBytes());
+      // large texts are streamed, the others are small enough to be read at once
+      InputStream textInputStream = txtCell instanceof ClobCell clobCell ? clobCell.createInputStream()
+        : new ByteArrayInputStream(txtCell.getSimpleData().getBytes());
       try {
-        MessageDigestCalculatingInputStream digest = new MessageDigestCalculatingInputStream(byteArrayInputStream,
+        MessageDigestCalculatingInputStream digest = new MessageDigestCalculatingInputStream(textInputStream,
           MessageDigest.getInstance(messageDigestAlgorithm));
         final WaitingInputStream waitingInputStream = new WaitingInputStream(digest);
         InputStream inputStream = new BufferedInputStream(waitingInputStream);
@@ -448,6 +448,10 @@ public class SIARD20ContentExportStrategy implements ContentExportStrategy {
 
         cell.setMessageDigest(messageDigest);
         cell.setDigestAlgorithm(messageDigestAlgorithm);
+        if (txtCell instanceof ClobCell clobCell) {
+          // the LOB was written and its length reported
+          clobCell.cleanResources();
+        }
       } catch (NoSuchAlgorithmException e) {
         throw new ModuleException().withMessage("The message digest algorithm does not exits").withCause(e);
       }
@@ -37,8 +37,10 @@ import com.databasepreservation.common.io.providers.InputStreamProviderImpl;
 import com.databasepreservation.model.data.ArrayCell;
 import com.databasepreservation.model.data.BinaryCell;
 import com.databasepreservation.model.data.Cell;
+import com.databasepreservation.model.data.ClobCell;
 import com.databasepreservation.model.data.ComposedCell;
 import com.databasepreservation.model.data.NullCell;
+import com.databasepreservation.model.data.PrimitiveCell;
 import com.databasepreservation.model.data.Row;
 import com.databasepreservation.model.data.SimpleCell;
 import com.databasepreservation.model.exception.ModuleException;
@@ -385,7 +387,12 @@ public class SIARD22ContentExportStrategy implements ContentExportStrategy {
   protected void writeSimpleCellData(String cellPrefix, SimpleCell simpleCell, int columnIndex) throws IOException {
     if (simpleCell.getSimpleData() != null) {
       currentWriter.inlineOpenTag(cellPrefix + columnIndex, 2);
-      currentWriter.write(XMLUtils.encode(simpleCell.getSimpleData()));
+      if (simpleCell instanceof PrimitiveCell) {
+        // numbers, booleans and dates never need to be encoded
+        currentWriter.write(simpleCell.getSimpleData());
+      } else {
+        currentWriter.write(XMLUtils.encode(simpleCell.getSimpleData()));
+      }
       currentWriter.closeTag(cellPrefix + columnIndex);
     }
   }
@@ -424,17 +431,16 @@ public class SIARD22ContentExportStrategy implements ContentExportStrategy {
         throw new ModuleException().withMessage("The message digest algorithm does not exits").withCause(e);
       }
     } else if (cell instanceof SimpleCell txtCell) {
-      // workaround to have data from CLOBs saved as a temporary file to be read
-      String data = txtCell.getSimpleData();
-
       if (txtCell.getBytesSize() < 0) {
         // NULL content
         writeNullCellData(cellPrefix, new NullCell(cell.getId()), columnIndex);
         return;
       }
 
-      ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(data.getBytes());
-      try (MessageDigestInputStream digest = MessageDigestInputStream.builder().setInputStream(byteArrayInputStream)
+      // large texts are streamed, the others are small enough to be read at once
+      InputStream textInputStream = txtCell instanceof ClobCell clobCell ? clobCell.createInputStream()
+        : new ByteArrayInputStream(txtCell.getSimpleData().getBytes());
+      try (MessageDigestInputStream digest = MessageDigestInputStream.builder().setInputStream(textInputStream)
         .setMessageDigest(messageDigestAlgorithm).get()) {
         final WaitingInputStream waitingInputStream = new WaitingInputStream(digest);
         InputStream inputStream = new BufferedInputStream(waitingInputStream);
@@ -459,6 +465,10 @@ public class SIARD22ContentExportStrategy implements ContentExportStrategy {
 
         cell.setMessageDigest(messageDigest);
         cell.setDigestAlgorithm(messageDigestAlgorithm);
+        if (txtCell instanceof ClobCell clobCell) {
+          // the LOB was written and its length reported
+          clobCell.cleanResources();
+        }
       } catch (NoSuchAlgorithmException e) {
         throw new ModuleException().withMessage("The message digest algorithm does not exits").withCause(e);
       }
@@ -24,6 +24,7 @@ import com.databasepreservation.model.reporters.Reporter;
 import com.databasepreservation.model.data.BinaryCell;
 import com.databasepreservation.model.data.Cell;
 import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.data.SimpleCell;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.modules.DatabaseExportModule;
@@ -106,7 +107,25 @@ public class GMLExtractorFilter extends IdentityFilter {
 
   @Override
   public void handleDataRow(Row row) throws ModuleException {
+    writeFeature(row);
+    this.exportModule.handleDataRow(row);
+  }
+
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    for (Row row : rows) {
+      writeFeature(row);
+    }
+    this.exportModule.handleDataRows(rows);
+  }
 
+  @Override
+  public boolean retainsRows() {
+    // each row is handled before returning
+    return this.exportModule.retainsRows();
+  }
+
+  private void writeFeature(Row row) throws ModuleException {
     if (hasGeometry) {
       try {
         writer.write("<gml:featureMember>\n");
@@ -147,7 +166,6 @@ public class GMLExtractorFilter extends IdentityFilter {
         throw new ModuleException().withCause(e).withMessage("Error while writing to .gml file");
       }
     }
-    this.exportModule.handleDataRow(row);
   }
 
   @Override
@@ -7,6 +7,7 @@
  */
 package com.databasepreservation.modules.siard.out.output;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -16,6 +17,7 @@ import org.slf4j.LoggerFactory;
 
 import com.databasepreservation.Constants;
 import com.databasepreservation.model.data.Row;
+import com.databasepreservation.model.data.RowBatch;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.modules.filters.DatabaseFilterModule;
 import com.databasepreservation.model.reporters.Reporter;
@@ -177,6 +179,21 @@ public class SIARDExportDefault implements DatabaseFilterModule {
     this.exportModule.handleDataRow(row);
   }
 
+  @Override
+  public void handleDataRows(RowBatch rows) throws ModuleException {
+    List<Row> exportedRows = rows.getRows();
+    for (int i = 0; i < exportedRows.size(); i++) {
+      exportedRows.set(i, contentStrategy.tableRow(exportedRows.get(i)));
+    }
+    this.exportModule.handleDataRows(rows);
+  }
+
+  @Override
+  public boolean retainsRows() {
+    // each row is handled before returning
+    return this.exportModule.retainsRows();
+  }
+
   @Override
   public void finishDatabase() throws ModuleException {
     metadataStrategy.writeMetadataXML(dbStructure, mainContainer, writeStrategy);
@@ -145,6 +145,35 @@ public class SQLServerHelper extends SQLHelper {
 
   }
 
+  @Override
+  public String getPrimaryKeysSQL(String schemaName) {
+    return "SELECT t.name AS TABLE_NAME, c.name AS COLUMN_NAME, i.name AS PK_NAME FROM sys.indexes i"
+      + " INNER JOIN sys.index_columns ic ON ic.object_id = i.object_id AND ic.index_id = i.index_id"
+      + " INNER JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id"
+      + " INNER JOIN sys.objects t ON t.object_id = i.object_id"
+      + " INNER JOIN sys.schemas s ON s.schema_id = t.schema_id WHERE i.is_primary_key = 1 AND s.name = '"
+      + schemaName + "' ORDER BY t.name, ic.key_ordinal";
+  }
+
+  @Override
+  public String getForeignKeysSQL(String schemaName) {
+    // referential actions as the JDBC constants returned by getImportedKeys
+    String actions = " WHEN 1 THEN 0 WHEN 2 THEN 2 WHEN 3 THEN 4 ELSE 3 END";
+    return "SELECT fkt.name AS FKTABLE_NAME, fkc.name AS FKCOLUMN_NAME, pks.name AS PKTABLE_SCHEM,"
+      + " pkt.name AS PKTABLE_NAME, pkc.name AS PKCOLUMN_NAME, fk.name AS FK_NAME,"
+      + " CASE fk.update_referential_action" + actions + " AS UPDATE_RULE,"
+      + " CASE fk.delete_referential_action" + actions + " AS DELETE_RULE FROM sys.foreign_keys fk"
+      + " INNER JOIN sys.foreign_key_columns r ON r.constraint_object_id = fk.object_id"
+      + " INNER JOIN sys.objects fkt ON fkt.object_id = fk.parent_object_id"
+      + " INNER JOIN sys.schemas fks ON fks.schema_id = fkt.schema_id"
+      + " INNER JOIN sys.columns fkc ON fkc.object_id = r.parent_object_id AND fkc.column_id = r.parent_column_id"
+      + " INNER JOIN sys.objects pkt ON pkt.object_id = fk.referenced_object_id"
+      + " INNER JOIN sys.schemas pks ON pks.schema_id = pkt.schema_id"
+      + " INNER JOIN sys.columns pkc ON pkc.object_id = r.referenced_object_id"
+      + " AND pkc.column_id = r.referenced_column_id WHERE fks.name = '" + schemaName
+      + "' ORDER BY fkt.name, fk.name, r.constraint_column_id";
+  }
+
   @Override
   public String getTriggersSQL(String schemaName, String tableName) {
     return "SELECT o.name AS TRIGGER_NAME, CAST(OBJECTPROPERTY(id, 'ExecIsAfterTrigger') AS char(1)) "
@@ -158,6 +187,14 @@ public class SQLServerHelper extends SQLHelper {
       + "'";
   }
 
+  @Override
+  public String getRowEstimatesSQL(String schemaName) {
+    // the rows of the heap or clustered index of each table
+    return "SELECT t.name AS TABLE_NAME, SUM(p.rows) AS ROW_ESTIMATE FROM sys.partitions p"
+      + " INNER JOIN sys.tables t ON t.object_id = p.object_id INNER JOIN sys.schemas s ON s.schema_id = t.schema_id"
+      + " WHERE p.index_id IN (0, 1) AND s.name = '" + schemaName + "' GROUP BY t.name";
+  }
+
   @Override
   public String getUsersSQL(String dbName) {
     return "SELECT suser_sname(owner_sid) AS USER_NAME FROM sys.databases " + "WHERE name = '" + dbName + "'";
@@ -7,30 +7,39 @@
  */
 package com.databasepreservation.modules.sqlserver.in;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.databasepreservation.common.parallel.RowConsumer;
 import com.databasepreservation.model.exception.ModuleException;
 import com.databasepreservation.model.structure.ColumnStructure;
 import com.databasepreservation.model.structure.RoutineStructure;
 import com.databasepreservation.model.structure.SchemaStructure;
 import com.databasepreservation.model.structure.TableStructure;
 import com.databasepreservation.model.structure.ViewStructure;
+import com.databasepreservation.model.structure.type.SimpleTypeNumericExact;
 import com.databasepreservation.modules.CloseableUtils;
+import com.databasepreservation.modules.jdbc.in.FetchSizeController;
 import com.databasepreservation.modules.jdbc.in.JDBCImportModule;
+import com.databasepreservation.modules.jdbc.in.KeyRange;
+import com.databasepreservation.modules.jdbc.in.SchemaCatalog;
 import com.databasepreservation.modules.sqlserver.SQLServerExceptionNormalizer;
 import com.databasepreservation.modules.sqlserver.SQLServerHelper;
 import com.databasepreservation.modules.sqlserver.SQLServerJDBCModuleFactory;
+import com.databasepreservation.utils.ConfigUtils;
 import com.databasepreservation.utils.MapUtils;
 import com.microsoft.sqlserver.jdbc.SQLServerConnection;
 import com.microsoft.sqlserver.jdbc.SQLServerResultSet;
@@ -45,6 +54,22 @@ public class SQLServerJDBCImportModule extends JDBCImportModule {
   private static final Logger LOGGER = LoggerFactory.getLogger(SQLServerJDBCImportModule.class);
   private static final String SCHEMA = "Schema";
 
+  // 0 reads the rows of each table with a single query
+  private static final Integer PAGE_MEGABYTES = ConfigUtils.getProperty(16, "dbptk.sqlserver.page.megabytes");
+  private static final int MAXIMUM_PAGE_ROWS = 10000;
+  // 0 reads the tables with the isolation level of the connection
+  private static final Integer SNAPSHOT_ISOLATION = ConfigUtils.getProperty(1, "dbptk.sqlserver.snapshot");
+
+  private static final String CLUSTERED_KEY_QUERY = "SELECT c.name FROM sys.indexes i "
+    + "JOIN sys.index_columns ic ON ic.object_id = i.object_id AND ic.index_id = i.index_id AND ic.key_ordinal > 0 "
+    + "JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id "
+    + "WHERE i.object_id = OBJECT_ID(?) AND i.type = 1 AND i.is_unique = 1 "
+    + "AND c.is_nullable = 0";
+
+  private Boolean snapshotIsolationAllowed = null;
+  // the single column of the unique clustered index of each table, "" if none
+  private final Map<String, String> clusteredKeys = new HashMap<>();
+
   /**
    * Create a new Microsoft SQL Server import module using the instance name. The
    * constructor using the port number is preferred over this to avoid a
@@ -203,6 +228,155 @@ public class SQLServerJDBCImportModule extends JDBCImportModule {
     return statement;
   }
 
+  /**
+   * Reads each table (or key range) in a snapshot isolation transaction, when
+   * the database allows it, so that reading does not take shared locks and all
+   * rows are read as they were when the transaction started. The rows of tables
+   * whose unique clustered index has a single integer column are read in pages
+   * of consecutive keys (keyset pagination), each one a short seek on the
+   * clustered index, instead of scanning the whole table with a single query.
+   * The pages use about the number of megabytes defined by the
+   * dbptk.sqlserver.page.megabytes property (16 by default, 0 disables paging).
+   * LOB columns are read with adaptive response buffering (see
+   * {@link #getStatement()}), so they are not fully held in memory.
+   *
+   * SQL Server can not share a snapshot between connections, so each key range
+   * of a table split for a parallel migration is read in its own snapshot
+   * transaction: the ranges of a table are consistent, but may be read at
+   * different points in time. For a consistent copy of a database that is
+   * being changed, read from a database snapshot (CREATE DATABASE ... AS
+   * SNAPSHOT OF) instead.
+   */
+  @Override
+  protected long extractTableRows(TableStructure table, KeyRange range, RowConsumer consumer,
+    Map<String, Integer> tableColumnsCardinality) throws ModuleException {
+    boolean snapshot = isSnapshotIsolationAllowed();
+    Connection connection = getConnection();
+    boolean autoCommit = true;
+    int isolation = Connection.TRANSACTION_READ_COMMITTED;
+    try {
+      if (snapshot) {
+        autoCommit = connection.getAutoCommit();
+        isolation = connection.getTransactionIsolation();
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(SQLServerConnection.TRANSACTION_SNAPSHOT);
+      }
+
+      ColumnStructure keyColumn = getPagingKey(table, range);
+      if (keyColumn == null) {
+        return super.extractTableRows(table, range, consumer, tableColumnsCardinality);
+      }
+      return extractTablePages(table, range, keyColumn, consumer, tableColumnsCardinality);
+    } catch (SQLException e) {
+      throw normalizeException(e, "Could not start a snapshot transaction to read table " + table.getId());
+    } finally {
+      if (snapshot) {
+        try {
+          connection.commit();
+          connection.setTransactionIsolation(isolation);
+          connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+          LOGGER.debug("Could not end the snapshot transaction of table {}", table.getId(), e);
+        }
+      }
+    }
+  }
+
+  private long extractTablePages(TableStructure table, KeyRange range, ColumnStructure keyColumn,
+    RowConsumer consumer, Map<String, Integer> tableColumnsCardinality) throws ModuleException {
+    int pageRows = new FetchSizeController(table, PAGE_MEGABYTES * 1024L * 1024L, MAXIMUM_PAGE_ROWS)
+      .getInitialFetchSize();
+    return extractTablePages(table, range, keyColumn, pageRows, consumer, tableColumnsCardinality);
+  }
+
+  @Override
+  protected String getPageQuery(TableStructure table, KeyRange page, int pageRows) throws ModuleException {
+    String select = "SELECT TOP (" + pageRows + ") "
+      + StringUtils.removeStart(sqlHelper.selectTableSQL(table), "SELECT ");
+    return appendTableClauses(select, table, page);
+  }
+
+  /**
+   * @return the column used to read the table in pages, the single integer
+   *         (and not nullable) column of its unique clustered index, or null
+   *         if the table (or the key range) should be read with a single query
+   */
+  private ColumnStructure getPagingKey(TableStructure table, KeyRange range) throws ModuleException {
+    if (PAGE_MEGABYTES <= 0 || table.isFromView() || table.isFromCustomView()) {
+      return null;
+    }
+
+    String keyName = getClusteredKey(table);
+    ColumnStructure column = keyName == null ? null : table.getColumnByName(keyName);
+    // rows with a null key would not be read
+    if (column == null || Boolean.TRUE.equals(column.isNillable())
+      || !(column.getType() instanceof SimpleTypeNumericExact keyType) || keyType.getScale() == null
+      || keyType.getScale() != 0 || keyType.getPrecision() == null) {
+      return null;
+    }
+
+    // the keys are read as longs
+    if (keyType.getPrecision() > 18
+      && !StringUtils.equalsIgnoreCase(StringUtils.trim(keyType.getOriginalTypeName()), "bigint")) {
+      return null;
+    }
+
+    if (range != null && (range.isNullKeys() || !keyName.equals(range.getColumn()))) {
+      return null;
+    }
+
+    String orderBy = getModuleConfiguration().getOrderBy(table.getSchema(), table.getName(), true);
+    if (orderBy != null && !StringUtils.equalsAnyIgnoreCase(orderBy.trim(), keyName, keyName + " ASC",
+      sqlHelper.escapeTableName(keyName), sqlHelper.escapeTableName(keyName) + " ASC")) {
+      return null;
+    }
+    return column;
+  }
+
+  private String getClusteredKey(TableStructure table) throws ModuleException {
+    String key = clusteredKeys.get(table.getId());
+    if (key == null) {
+      List<String> columns = new ArrayList<>();
+      try (PreparedStatement statement = getConnection().prepareStatement(CLUSTERED_KEY_QUERY)) {
+        statement.setString(1, sqlHelper.escapeTableId(table.getId()));
+        try (ResultSet rs = statement.executeQuery()) {
+          while (rs.next()) {
+            columns.add(rs.getString(1));
+          }
+        }
+      } catch (SQLException e) {
+        LOGGER.debug("Could not get the clustered index of table {}", table.getId(), e);
+      }
+      key = columns.size() == 1 ? columns.get(0) : "";
+      clusteredKeys.put(table.getId(), key);
+    }
+    return key.isEmpty() ? null : key;
+  }
+
+  /**
+   * @return true if the tables should be read in snapshot isolation
+   *         transactions, which needs the ALLOW_SNAPSHOT_ISOLATION option of
+   *         the database
+   */
+  private boolean isSnapshotIsolationAllowed() throws ModuleException {
+    if (snapshotIsolationAllowed == null) {
+      snapshotIsolationAllowed = false;
+      if (SNAPSHOT_ISOLATION > 0) {
+        try (Statement st = getConnection().createStatement(); ResultSet rs = st
+          .executeQuery("SELECT snapshot_isolation_state FROM sys.databases WHERE name = DB_NAME()")) {
+          snapshotIsolationAllowed = rs.next() && rs.getInt(1) == 1;
+        } catch (SQLException e) {
+          LOGGER.debug("Could not check if the database allows snapshot isolation", e);
+        }
+        if (!snapshotIsolationAllowed) {
+          LOGGER.warn("The database does not allow snapshot isolation (ALLOW_SNAPSHOT_ISOLATION), tables will be "
+            + "read with the default isolation level");
+        }
+      }
+    }
+    return snapshotIsolationAllowed;
+  }
+
   @Override
   protected Set<String> getIgnoredImportedSchemas() {
     Set<String> ignored = new HashSet<>();
@@ -406,19 +580,68 @@ public class SQLServerJDBCImportModule extends JDBCImportModule {
   protected TableStructure getTableStructure(SchemaStructure schema, String tableName, int tableIndex,
     String description, boolean view) throws SQLException, ModuleException {
     TableStructure tableStructure = super.getTableStructure(schema, tableName, tableIndex, description, view);
-    tableStructure.setDescription(getDescriptionForTable(schema.getName(), tableName));
+    SchemaCatalog catalog = getSchemaCatalog(schema.getName());
+    if (catalog != null && catalog.isHarvested(SchemaCatalog.Part.TABLE_DESCRIPTIONS)) {
+      tableStructure.setDescription(catalog.getTableDescription(tableName));
+    } else {
+      tableStructure.setDescription(getDescriptionForTable(schema.getName(), tableName));
+    }
     return tableStructure;
   }
 
   @Override
   protected List<ColumnStructure> getColumns(String schemaName, String tableName) throws SQLException, ModuleException {
     List<ColumnStructure> columns = super.getColumns(schemaName, tableName);
-    for (ColumnStructure column : columns) {
-      column.setDescription(getDescriptionForColumn(schemaName, tableName, column.getName()));
+    SchemaCatalog catalog = getSchemaCatalog(schemaName);
+    if (catalog != null && catalog.isHarvested(SchemaCatalog.Part.COLUMN_DESCRIPTIONS)) {
+      Map<String, String> descriptions = catalog.getColumnDescriptions(tableName);
+      for (ColumnStructure column : columns) {
+        column.setDescription(descriptions.get(column.getName()));
+      }
+    } else {
+      for (ColumnStructure column : columns) {
+        column.setDescription(getDescriptionForColumn(schemaName, tableName, column.getName()));
+      }
     }
     return columns;
   }
 
+  @Override
+  protected SchemaCatalog harvestSchemaCatalog(String schemaName, Set<String> tableNames) throws ModuleException {
+    SchemaCatalog catalog = super.harvestSchemaCatalog(schemaName, tableNames);
+
+    // the descriptions of the tables (minor_id = 0) and of their columns
+    try (PreparedStatement statement = getConnection().prepareStatement(
+      "SELECT o.name, c.name, ep.value FROM sys.extended_properties ep"
+        + " INNER JOIN sys.objects o ON o.object_id = ep.major_id"
+        + " INNER JOIN sys.schemas s ON s.schema_id = o.schema_id"
+        + " LEFT JOIN sys.columns c ON c.object_id = ep.major_id AND c.column_id = ep.minor_id"
+        + " WHERE ep.class = 1 AND o.type = 'U' AND s.name = ?")) {
+      statement.setString(1, schemaName);
+      try (ResultSet rs = statement.executeQuery()) {
+        while (rs.next()) {
+          String tableName = rs.getString(1);
+          String columnName = rs.getString(2);
+          if (columnName == null) {
+            if (!catalog.hasTableDescription(tableName)) {
+              catalog.addTableDescription(tableName, rs.getString(3));
+            }
+          } else if (!catalog.getColumnDescriptions(tableName).containsKey(columnName)) {
+            catalog.addColumnDescription(tableName, columnName, rs.getString(3));
+          }
+        }
+      }
+      catalog.setHarvested(SchemaCatalog.Part.TABLE_DESCRIPTIONS);
+      catalog.setHarvested(SchemaCatalog.Part.COLUMN_DESCRIPTIONS);
+    } catch (SQLException e) {
+      LOGGER.debug("Could not read the descriptions of schema {} at once", schemaName, e);
+      catalog.discard(SchemaCatalog.Part.TABLE_DESCRIPTIONS);
+      catalog.discard(SchemaCatalog.Part.COLUMN_DESCRIPTIONS);
+    }
+
+    return catalog;
+  }
+
   @Override
   protected List<RoutineStructure> getRoutines(String schemaName) throws SQLException, ModuleException {
     List<RoutineStructure> routines = new ArrayList<>();